@@ -0,0 +1,153 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.bench;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.dcm4che2.data.DicomElement;
+import org.dcm4che2.data.DicomObject;
+import org.dcm4che2.data.ElementDictionary;
+import org.dcm4che2.data.SpecificCharacterSet;
+import org.dcm4che2.data.Tag;
+import org.dcm4che2.data.VR;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Attribute accessors and the hot paths behind them: value decoding by
+ * {@link VR}, {@link SpecificCharacterSet} and lookups in the
+ * {@link ElementDictionary}.
+ * 
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccessBenchmark {
+
+    private static final int[] CT_TAGS = {
+            Tag.PatientName, Tag.PatientID, Tag.StudyInstanceUID,
+            Tag.SeriesInstanceUID, Tag.SOPInstanceUID, Tag.Modality,
+            Tag.StudyDescription, Tag.AccessionNumber };
+
+    private DicomObject ct;
+    private DicomObject contour;
+    private DicomElement contourData;
+    private ElementDictionary dict;
+    private SpecificCharacterSet cs;
+    private byte[] patientName;
+
+    @Setup
+    public void setup() {
+        ct = Datasets.CT_HEADER.create();
+        contour = Datasets.RTSTRUCT.create()
+                .getNestedDicomObject(Tag.ROIContourSequence)
+                .getNestedDicomObject(Tag.ContourSequence);
+        contourData = contour.get(Tag.ContourData);
+        dict = ElementDictionary.getDictionary();
+        cs = ct.getSpecificCharacterSet();
+        patientName = ct.getBytes(Tag.PatientName);
+    }
+
+    @Benchmark
+    public int getString() {
+        int n = 0;
+        for (int tag : CT_TAGS)
+            n += ct.getString(tag).length();
+        return n;
+    }
+
+    @Benchmark
+    public int[] getInts() {
+        return ct.getInts(Tag.WindowCenter);
+    }
+
+    @Benchmark
+    public int getInt() {
+        return ct.getInt(Tag.Rows) + ct.getInt(Tag.Columns)
+                + ct.getInt(Tag.BitsAllocated);
+    }
+
+    @Benchmark
+    public Date getDate() {
+        return ct.getDate(Tag.StudyDate, Tag.StudyTime);
+    }
+
+    @Benchmark
+    public float[] getFloats() {
+        return contour.getFloats(Tag.ContourData);
+    }
+
+    @Benchmark
+    public double[] getDoubles() {
+        return contour.getDoubles(Tag.ContourData);
+    }
+
+    @Benchmark
+    public String[] toStrings() {
+        return VR.DS.toStrings(contourData.getBytes(), false, cs);
+    }
+
+    @Benchmark
+    public String decode() {
+        return cs.decode(patientName);
+    }
+
+    @Benchmark
+    public int nameOf() {
+        int n = 0;
+        for (int tag : CT_TAGS)
+            n += dict.nameOf(tag).length();
+        return n;
+    }
+}
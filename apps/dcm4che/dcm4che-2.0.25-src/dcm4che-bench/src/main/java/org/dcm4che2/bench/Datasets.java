@@ -0,0 +1,362 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.dcm4che2.data.BasicDicomObject;
+import org.dcm4che2.data.DicomElement;
+import org.dcm4che2.data.DicomObject;
+import org.dcm4che2.data.Tag;
+import org.dcm4che2.data.TransferSyntax;
+import org.dcm4che2.data.UID;
+import org.dcm4che2.data.VR;
+import org.dcm4che2.io.DicomOutputStream;
+
+/**
+ * Synthetic, but realistic datasets used by the benchmarks. All datasets are
+ * created deterministically, so results of different runs and releases are
+ * comparable.
+ * 
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ */
+public enum Datasets {
+
+    /** CT Image header without Pixel Data - about 100 elements. */
+    CT_HEADER {
+        @Override
+        public DicomObject create() {
+            DicomObject ds = new BasicDicomObject();
+            ds.putString(Tag.SpecificCharacterSet, VR.CS, "ISO_IR 100");
+            ds.putStrings(Tag.ImageType, VR.CS, new String[] {
+                    "ORIGINAL", "PRIMARY", "AXIAL" });
+            ds.putString(Tag.InstanceCreationDate, VR.DA, "20101012");
+            ds.putString(Tag.InstanceCreationTime, VR.TM, "101643.512000");
+            ds.putString(Tag.SOPClassUID, VR.UI, UID.CTImageStorage);
+            ds.putString(Tag.SOPInstanceUID, VR.UI,
+                    "1.2.40.0.13.1.1.1.20101012.101643.512.1");
+            ds.putString(Tag.StudyDate, VR.DA, "20101012");
+            ds.putString(Tag.SeriesDate, VR.DA, "20101012");
+            ds.putString(Tag.AcquisitionDate, VR.DA, "20101012");
+            ds.putString(Tag.ContentDate, VR.DA, "20101012");
+            ds.putString(Tag.StudyTime, VR.TM, "100912.000000");
+            ds.putString(Tag.SeriesTime, VR.TM, "101543.000000");
+            ds.putString(Tag.AcquisitionTime, VR.TM, "101601.436000");
+            ds.putString(Tag.ContentTime, VR.TM, "101601.436000");
+            ds.putString(Tag.AccessionNumber, VR.SH, "A10012345");
+            ds.putString(Tag.Modality, VR.CS, "CT");
+            ds.putString(Tag.Manufacturer, VR.LO, "ACME Medical Systems");
+            ds.putString(Tag.InstitutionName, VR.LO, "General Hospital");
+            ds.putString(Tag.ReferringPhysicianName, VR.PN, "Smith^John");
+            ds.putString(Tag.StationName, VR.SH, "CT01");
+            ds.putString(Tag.StudyDescription, VR.LO, "CT THORAX ABDOMEN");
+            ds.putString(Tag.SeriesDescription, VR.LO, "Thorax 1.0 B31f");
+            ds.putString(Tag.ManufacturerModelName, VR.LO, "Somatom");
+            DicomObject code = new BasicDicomObject();
+            code.putString(Tag.CodeValue, VR.SH, "CTTHORAXABD");
+            code.putString(Tag.CodingSchemeDesignator, VR.SH, "99ACME");
+            code.putString(Tag.CodeMeaning, VR.LO, "CT Thorax Abdomen");
+            ds.putNestedDicomObject(Tag.ProcedureCodeSequence, code);
+            ds.putString(Tag.PatientName, VR.PN, "Doe^Jane^^Mrs");
+            ds.putString(Tag.PatientID, VR.LO, "P0000123456");
+            ds.putString(Tag.IssuerOfPatientID, VR.LO, "HOSP");
+            ds.putString(Tag.PatientBirthDate, VR.DA, "19560704");
+            ds.putString(Tag.PatientSex, VR.CS, "F");
+            ds.putString(Tag.PatientAge, VR.AS, "054Y");
+            ds.putString(Tag.PatientWeight, VR.DS, "68");
+            ds.putString(Tag.BodyPartExamined, VR.CS, "CHEST");
+            ds.putString(Tag.SliceThickness, VR.DS, "1");
+            ds.putString(Tag.KVP, VR.DS, "120");
+            ds.putString(Tag.DataCollectionDiameter, VR.DS, "500");
+            ds.putString(Tag.SoftwareVersions, VR.LO, "syngo CT 2010A");
+            ds.putString(Tag.ProtocolName, VR.LO, "ThoraxAbdomen");
+            ds.putString(Tag.ReconstructionDiameter, VR.DS, "380");
+            ds.putString(Tag.DistanceSourceToDetector, VR.DS, "1040");
+            ds.putString(Tag.DistanceSourceToPatient, VR.DS, "570");
+            ds.putString(Tag.GantryDetectorTilt, VR.DS, "0");
+            ds.putString(Tag.TableHeight, VR.DS, "140");
+            ds.putString(Tag.RotationDirection, VR.CS, "CW");
+            ds.putString(Tag.ExposureTime, VR.IS, "500");
+            ds.putString(Tag.XRayTubeCurrent, VR.IS, "216");
+            ds.putString(Tag.Exposure, VR.IS, "115");
+            ds.putString(Tag.FilterType, VR.SH, "0");
+            ds.putString(Tag.GeneratorPower, VR.IS, "26");
+            ds.putString(Tag.FocalSpots, VR.DS, "1.2");
+            ds.putString(Tag.ConvolutionKernel, VR.SH, "B31f");
+            ds.putString(Tag.PatientPosition, VR.CS, "FFS");
+            ds.putString(Tag.StudyInstanceUID, VR.UI,
+                    "1.2.40.0.13.1.1.1.20101012.100912.1");
+            ds.putString(Tag.SeriesInstanceUID, VR.UI,
+                    "1.2.40.0.13.1.1.1.20101012.101543.2");
+            ds.putString(Tag.StudyID, VR.SH, "1");
+            ds.putString(Tag.SeriesNumber, VR.IS, "2");
+            ds.putString(Tag.AcquisitionNumber, VR.IS, "1");
+            ds.putString(Tag.InstanceNumber, VR.IS, "1");
+            ds.putStrings(Tag.ImagePositionPatient, VR.DS, new String[] {
+                    "-189.62890625", "-339.62890625", "-102.5" });
+            ds.putStrings(Tag.ImageOrientationPatient, VR.DS, new String[] {
+                    "1", "0", "0", "0", "1", "0" });
+            ds.putString(Tag.FrameOfReferenceUID, VR.UI,
+                    "1.2.40.0.13.1.1.1.20101012.100912.3");
+            ds.putString(Tag.PositionReferenceIndicator, VR.LO, "");
+            ds.putString(Tag.SliceLocation, VR.DS, "-102.5");
+            ds.putInt(Tag.SamplesPerPixel, VR.US, 1);
+            ds.putString(Tag.PhotometricInterpretation, VR.CS, "MONOCHROME2");
+            ds.putInt(Tag.Rows, VR.US, 512);
+            ds.putInt(Tag.Columns, VR.US, 512);
+            ds.putStrings(Tag.PixelSpacing, VR.DS, new String[] {
+                    "0.7421875", "0.7421875" });
+            ds.putInt(Tag.BitsAllocated, VR.US, 16);
+            ds.putInt(Tag.BitsStored, VR.US, 12);
+            ds.putInt(Tag.HighBit, VR.US, 11);
+            ds.putInt(Tag.PixelRepresentation, VR.US, 0);
+            ds.putStrings(Tag.WindowCenter, VR.DS, new String[] {
+                    "40", "-600" });
+            ds.putStrings(Tag.WindowWidth, VR.DS, new String[] {
+                    "400", "1200" });
+            ds.putString(Tag.RescaleIntercept, VR.DS, "-1024");
+            ds.putString(Tag.RescaleSlope, VR.DS, "1");
+            ds.putString(Tag.RescaleType, VR.LO, "HU");
+            ds.putStrings(Tag.WindowCenterWidthExplanation, VR.LO,
+                    new String[] { "WINDOW1", "WINDOW2" });
+            int privTag = ds.resolveTag(0x00190010, "ACME CT 1.0", true);
+            for (int i = 0; i < 20; i++) {
+                ds.putBytes(privTag + i, VR.UN, new byte[16]);
+            }
+            return ds;
+        }
+    },
+
+    /** Structured Report with a deep Content Tree of 2047 Content Items. */
+    DEEP_SR {
+        private static final int DEPTH = 10;
+
+        @Override
+        public DicomObject create() {
+            DicomObject ds = new BasicDicomObject();
+            ds.putString(Tag.SpecificCharacterSet, VR.CS, "ISO_IR 100");
+            ds.putString(Tag.SOPClassUID, VR.UI,
+                    UID.ComprehensiveSRStorage);
+            ds.putString(Tag.SOPInstanceUID, VR.UI,
+                    "1.2.40.0.13.1.1.1.20101012.120000.1");
+            ds.putString(Tag.Modality, VR.CS, "SR");
+            ds.putString(Tag.PatientName, VR.PN, "Doe^Jane^^Mrs");
+            ds.putString(Tag.PatientID, VR.LO, "P0000123456");
+            ds.putString(Tag.StudyInstanceUID, VR.UI,
+                    "1.2.40.0.13.1.1.1.20101012.100912.1");
+            ds.putString(Tag.SeriesInstanceUID, VR.UI,
+                    "1.2.40.0.13.1.1.1.20101012.120000.2");
+            ds.putString(Tag.CompletionFlag, VR.CS, "COMPLETE");
+            ds.putString(Tag.VerificationFlag, VR.CS, "UNVERIFIED");
+            addContentItem(ds, "CONTAINER", 0);
+            return ds;
+        }
+
+        private void addContentItem(DicomObject item, String valueType,
+                int level) {
+            item.putString(Tag.RelationshipType, VR.CS, "CONTAINS");
+            item.putString(Tag.ValueType, VR.CS, valueType);
+            DicomObject code = new BasicDicomObject();
+            code.putString(Tag.CodeValue, VR.SH, "1210" + level);
+            code.putString(Tag.CodingSchemeDesignator, VR.SH, "DCM");
+            code.putString(Tag.CodeMeaning, VR.LO, "Finding level " + level);
+            item.putNestedDicomObject(Tag.ConceptNameCodeSequence, code);
+            if (level + 1 < DEPTH) {
+                item.putString(Tag.ContinuityOfContent, VR.CS, "SEPARATE");
+                DicomElement sq = item.putSequence(Tag.ContentSequence, 2);
+                for (int i = 0; i < 2; i++) {
+                    DicomObject child = new BasicDicomObject();
+                    sq.addDicomObject(child);
+                    addContentItem(child, level + 2 < DEPTH ? "CONTAINER"
+                            : "TEXT", level + 1);
+                }
+            } else {
+                item.putString(Tag.TextValue, VR.UT, 
+                        "No evidence of focal lesion at level " + level
+                        + ". Normal appearance of the surrounding tissue.");
+            }
+        }
+    },
+
+    /** RT Structure Set with 10 ROIs of 100 contours of 100 points each. */
+    RTSTRUCT {
+        private static final int ROIS = 10;
+        private static final int CONTOURS = 100;
+        private static final int POINTS = 100;
+
+        @Override
+        public DicomObject create() {
+            DicomObject ds = new BasicDicomObject();
+            ds.putString(Tag.SpecificCharacterSet, VR.CS, "ISO_IR 100");
+            ds.putString(Tag.SOPClassUID, VR.UI,
+                    UID.RTStructureSetStorage);
+            ds.putString(Tag.SOPInstanceUID, VR.UI,
+                    "1.2.40.0.13.1.1.1.20101012.130000.1");
+            ds.putString(Tag.Modality, VR.CS, "RTSTRUCT");
+            ds.putString(Tag.PatientName, VR.PN, "Doe^Jane^^Mrs");
+            ds.putString(Tag.PatientID, VR.LO, "P0000123456");
+            ds.putString(Tag.StructureSetLabel, VR.SH, "Planning");
+            DicomElement roiSeq = ds.putSequence(Tag.StructureSetROISequence,
+                    ROIS);
+            DicomElement contourSeq = ds.putSequence(Tag.ROIContourSequence,
+                    ROIS);
+            Random rnd = new Random(ROIS);
+            String[] coords = new String[POINTS * 3];
+            for (int roi = 1; roi <= ROIS; roi++) {
+                DicomObject roiItem = new BasicDicomObject();
+                roiItem.putInt(Tag.ROINumber, VR.IS, roi);
+                roiItem.putString(Tag.ROIName, VR.LO, "ROI " + roi);
+                roiItem.putString(Tag.ROIGenerationAlgorithm, VR.CS, "MANUAL");
+                roiSeq.addDicomObject(roiItem);
+                DicomObject roiContour = new BasicDicomObject();
+                roiContour.putInts(Tag.ROIDisplayColor, VR.IS,
+                        new int[] { 255, roi * 20, 0 });
+                roiContour.putInt(Tag.ReferencedROINumber, VR.IS, roi);
+                DicomElement contours = roiContour.putSequence(
+                        Tag.ContourSequence, CONTOURS);
+                for (int c = 0; c < CONTOURS; c++) {
+                    DicomObject contour = new BasicDicomObject();
+                    contour.putString(Tag.ContourGeometricType, VR.CS,
+                            "CLOSED_PLANAR");
+                    contour.putInt(Tag.NumberOfContourPoints, VR.IS, POINTS);
+                    for (int p = 0; p < coords.length;) {
+                        coords[p++] = Float.toString(rnd.nextFloat() * 500f 
+                                - 250f);
+                        coords[p++] = Float.toString(rnd.nextFloat() * 500f 
+                                - 250f);
+                        coords[p++] = Float.toString(c * 2.5f - 120f);
+                    }
+                    contour.putStrings(Tag.ContourData, VR.DS, coords);
+                    contours.addDicomObject(contour);
+                }
+                contourSeq.addDicomObject(roiContour);
+            }
+            return ds;
+        }
+    },
+
+    /** JPEG compressed multi-frame image with 100 frames of 32 KB. */
+    MULTIFRAME {
+        private static final int FRAMES = 100;
+        private static final int FRAME_LENGTH = 32 * 1024;
+
+        @Override
+        public DicomObject create() {
+            DicomObject ds = CT_HEADER.create();
+            ds.putString(Tag.SOPClassUID, VR.UI,
+                    UID.EnhancedCTImageStorage);
+            ds.putInt(Tag.NumberOfFrames, VR.IS, FRAMES);
+            DicomElement frags = ds.putFragments(Tag.PixelData, VR.OB, false,
+                    FRAMES + 1);
+            byte[] offsets = new byte[FRAMES * 4];
+            Random rnd = new Random(FRAMES);
+            for (int i = 0; i < FRAMES; i++) {
+                int off = i * (FRAME_LENGTH + 8);
+                offsets[i * 4] = (byte) off;
+                offsets[i * 4 + 1] = (byte) (off >> 8);
+                offsets[i * 4 + 2] = (byte) (off >> 16);
+                offsets[i * 4 + 3] = (byte) (off >> 24);
+            }
+            frags.addFragment(offsets);
+            for (int i = 0; i < FRAMES; i++) {
+                byte[] frame = new byte[FRAME_LENGTH];
+                rnd.nextBytes(frame);
+                frags.addFragment(frame);
+            }
+            return ds;
+        }
+
+        @Override
+        public String transferSyntaxUID() {
+            return UID.JPEGBaseline1;
+        }
+    };
+
+    /**
+     * Create a new instance of this dataset.
+     * 
+     * @return the dataset
+     */
+    public abstract DicomObject create();
+
+    /**
+     * Returns the Transfer Syntax in which the dataset is encoded by
+     * {@link #encode()}.
+     * 
+     * @return Transfer Syntax UID
+     */
+    public String transferSyntaxUID() {
+        return UID.ExplicitVRLittleEndian;
+    }
+
+    /**
+     * Returns the Deflated variant of {@link #transferSyntaxUID()}, if such
+     * exists, otherwise {@link #transferSyntaxUID()}.
+     * 
+     * @return Transfer Syntax UID
+     */
+    public String deflatedTransferSyntaxUID() {
+        String tsuid = transferSyntaxUID();
+        return tsuid.equals(UID.ExplicitVRLittleEndian)
+                ? UID.DeflatedExplicitVRLittleEndian : tsuid;
+    }
+
+    /**
+     * Encode a new instance of this dataset in the Transfer Syntax returned
+     * by {@link #transferSyntaxUID()}.
+     * 
+     * @return encoded dataset
+     */
+    public byte[] encode() throws IOException {
+        return encode(create(), transferSyntaxUID());
+    }
+
+    public static byte[] encode(DicomObject ds, String tsuid)
+            throws IOException {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        DicomOutputStream dos = new DicomOutputStream(bout);
+        dos.writeDataset(ds, TransferSyntax.valueOf(tsuid));
+        dos.close();
+        return bout.toByteArray();
+    }
+}
@@ -0,0 +1,144 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.dcm4che2.data.DicomObject;
+import org.dcm4che2.data.TransferSyntax;
+import org.dcm4che2.io.DicomInputStream;
+import org.dcm4che2.io.DicomOutputStream;
+import org.dcm4che2.io.ParallelDeflaterOutputStream;
+import org.dcm4che2.io.ReadAheadInputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encoding and parsing of datasets in Deflated Explicit VR Little Endian by
+ * a single <code>Deflater</code>/<code>Inflater</code> in the calling thread,
+ * compared with {@link ParallelDeflaterOutputStream} and
+ * {@link ReadAheadInputStream} running on a <code>ForkJoinPool</code>.
+ * 
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeflateBenchmark {
+
+    private static final TransferSyntax DEFLATED =
+            TransferSyntax.DeflatedExplicitVRLittleEndian;
+
+    @Param({ "DEEP_SR", "RTSTRUCT" })
+    public Datasets dataset;
+
+    private DicomObject ds;
+
+    private byte[] deflated;
+
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setup() throws IOException {
+        ds = dataset.create();
+        deflated = Datasets.encode(ds, DEFLATED.uid());
+        pool = new ForkJoinPool();
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public void deflate() throws IOException {
+        write(null);
+    }
+
+    @Benchmark
+    public void deflateParallel() throws IOException {
+        write(pool);
+    }
+
+    @Benchmark
+    public DicomObject inflate() throws IOException {
+        return parse(null);
+    }
+
+    @Benchmark
+    public DicomObject inflateReadAhead() throws IOException {
+        return parse(pool);
+    }
+
+    private void write(Executor executor) throws IOException {
+        DicomOutputStream dos = new DicomOutputStream(new NullOutputStream());
+        dos.setDeflateExecutor(executor);
+        dos.writeDataset(ds, DEFLATED);
+        dos.close();
+    }
+
+    private DicomObject parse(Executor executor) throws IOException {
+        DicomInputStream dis = new DicomInputStream(
+                new ByteArrayInputStream(deflated), DEFLATED, executor);
+        try {
+            return dis.readDicomObject();
+        } finally {
+            dis.close();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.bench;
+
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.dcm4che2.data.BasicDicomObject;
+import org.dcm4che2.data.DicomElement;
+import org.dcm4che2.data.DicomObject;
+import org.dcm4che2.data.VR;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Element storage of {@link BasicDicomObject}: random lookups, in order
+ * insertion and iteration.
+ * 
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ElementTableBenchmark {
+
+    @Param({ "200", "5000" })
+    public int size;
+
+    private int[] tags;
+    private int[] lookup;
+    private DicomObject ds;
+
+    @Setup
+    public void setup() {
+        tags = new int[size];
+        for (int i = 0; i < size; i++)
+            tags[i] = 0x00090000 | ((i / 0xff) << 16) | (i % 0xff + 0x1000);
+        ds = fill(new BasicDicomObject());
+        lookup = tags.clone();
+        Random rnd = new Random(size);
+        for (int i = lookup.length; i > 1; i--) {
+            int j = rnd.nextInt(i);
+            int tmp = lookup[i - 1];
+            lookup[i - 1] = lookup[j];
+            lookup[j] = tmp;
+        }
+    }
+
+    private DicomObject fill(DicomObject dest) {
+        for (int tag : tags)
+            dest.putInt(tag, VR.UL, tag);
+        return dest;
+    }
+
+    @Benchmark
+    public int get() {
+        int n = 0;
+        for (int tag : lookup)
+            n += ds.get(tag).length();
+        return n;
+    }
+
+    @Benchmark
+    public DicomObject put() {
+        return fill(new BasicDicomObject());
+    }
+
+    @Benchmark
+    public int iterate() {
+        int n = 0;
+        for (Iterator<DicomElement> it = ds.iterator(); it.hasNext();)
+            n += it.next().length();
+        return n;
+    }
+}
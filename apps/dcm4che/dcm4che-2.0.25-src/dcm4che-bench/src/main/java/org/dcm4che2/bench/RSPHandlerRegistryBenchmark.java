@@ -0,0 +1,110 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.dcm4che2.util.IntHashtable;
+import org.dcm4che2.util.StripedIntHashtable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Contention on the message ID to DIMSE RSP handler registry of an
+ * association: each thread registers a handler, looks it up on receive of
+ * the RSP and removes it - as done with an Asynchronous Operations Window.
+ * Compares the former monitor guarded {@link IntHashtable}, which woke up
+ * all waiting threads on each removal, with {@link StripedIntHashtable}.
+ * 
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class RSPHandlerRegistryBenchmark {
+
+    private final IntHashtable<Object> monitorTable = new IntHashtable<Object>();
+
+    private final StripedIntHashtable<Object> stripedTable = new StripedIntHashtable<Object>();
+
+    private final AtomicInteger msgIds = new AtomicInteger();
+
+    private final Object handler = new Object();
+
+    @Benchmark
+    public Object monitor() {
+        int msgId = msgIds.incrementAndGet() & 0xffff;
+        synchronized (monitorTable) {
+            monitorTable.put(msgId, handler);
+        }
+        Object h;
+        synchronized (monitorTable) {
+            h = monitorTable.get(msgId);
+        }
+        synchronized (monitorTable) {
+            monitorTable.remove(msgId);
+            monitorTable.notifyAll();
+        }
+        return h;
+    }
+
+    @Benchmark
+    public Object striped() {
+        int msgId = msgIds.incrementAndGet() & 0xffff;
+        stripedTable.put(msgId, handler);
+        Object h = stripedTable.get(msgId);
+        stripedTable.remove(msgId);
+        return h;
+    }
+}
@@ -43,7 +43,6 @@ import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.util.Date;
 import java.util.Iterator;
-import java.util.regex.Pattern;
 
 import org.dcm4che2.io.DicomInputStream;
 import org.dcm4che2.util.DateUtils;
@@ -217,86 +216,8 @@ abstract class AbstractDicomObject implements DicomObject {
         return lines;
     }
 
-    public boolean matches(final DicomObject keys, final boolean ignoreCaseOfPN) {
-        return keys.accept(new Visitor() {
-            public boolean visit(DicomElement test) {
-                if (test.isEmpty()) // Universal Matching
-                    return true;
-                final int tag = test.tag();
-                DicomElement attr = get(tag);
-                if (attr == null || attr.isEmpty())
-                    return true; // Missing DicomElement (Value) match always
-
-                final VR vr = test.vr();
-                if (vr instanceof VR.Fragment)
-                    return true; // ignore OB,OW,OF,UN filter attrs
-
-                if (vr == VR.SQ)
-                    return matchSQ(attr, test.getDicomObject(), ignoreCaseOfPN);
-
-                if (vr == VR.DA) {
-                    int tmTag = DA_TM.getTMTag(tag);
-                    return tmTag != 0 ? matchRange(getDates(tag, tmTag), keys
-                            .getDateRange(tag, tmTag)) : matchRange(attr
-                            .getDates(cacheGet()), test.getDateRange(keys
-                            .cacheGet()));
-                }
-                if (vr == VR.TM) {
-                    int daTag = DA_TM.getDATag(tag);
-                    return daTag != 0 && containsValue(daTag) ? true // considered
-                                                                        // by
-                                                                        // visit
-                                                                        // of
-                                                                        // daTag
-                            : matchRange(attr.getDates(cacheGet()), test
-                                    .getDateRange(keys.cacheGet()));
-                }
-                if (vr == VR.DT) {
-                    return matchRange(attr.getDates(cacheGet()), test
-                            .getDateRange(keys.cacheGet()));
-                }
-                return matchValue(attr.getStrings(getSpecificCharacterSet(),
-                        cacheGet()), test.getPattern(keys
-                        .getSpecificCharacterSet(),
-                        vr == VR.PN ? ignoreCaseOfPN : false, keys.cacheGet()));
-            }
-        });
-
-    }
-
-    private boolean matchValue(String[] value, Pattern pattern) {
-        for (int i = 0; i < value.length; i++) {
-            if (pattern.matcher(value[i]).matches())
-                return true;
-        }
-        return false;
-    }
-
-    private boolean matchRange(Date[] dates, DateRange dateRange) {
-        for (int i = 0; i < dates.length; i++) {
-            if (matchRange(dates[i], dateRange.getStart(), dateRange.getEnd()))
-                return true;
-        }
-        return false;
-    }
-
-    private boolean matchRange(Date date, Date start, Date end) {
-        if (start != null && start.after(date))
-            return false;
-        if (end != null && end.before(date))
-            return false;
-        return true;
-    }
-
-    private boolean matchSQ(DicomElement sq, DicomObject keys,
-            boolean ignoreCaseOfPN) {
-        if (keys.isEmpty())
-            return true;
-        for (int i = 0, n = sq.countItems(); i < n; i++) {
-            if (sq.getDicomObject(i).matches(keys, ignoreCaseOfPN))
-                return true;
-        }
-        return false;
+    public boolean matches(DicomObject keys, boolean ignoreCaseOfPN) {
+        return DicomMatcher.matches(this, keys, ignoreCaseOfPN);
     }
 
     public boolean isRoot() {
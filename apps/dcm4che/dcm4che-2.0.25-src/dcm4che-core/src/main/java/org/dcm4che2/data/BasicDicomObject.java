@@ -43,6 +43,7 @@ import java.util.Date;
 import java.util.Iterator;
 
 import org.dcm4che2.util.IntHashtable;
+import org.dcm4che2.util.IntSortedTable;
 import org.dcm4che2.util.TagUtils;
 
 public class BasicDicomObject extends AbstractDicomObject {
@@ -53,7 +54,7 @@ public class BasicDicomObject extends AbstractDicomObject {
 
     private static final int INIT_SEQUENCE_CAPACITY = 10;
 
-    private transient final IntHashtable<DicomElement> table;
+    private transient final IntSortedTable<DicomElement> table;
 
     private transient DicomObject defaults;
 
@@ -85,7 +86,7 @@ public class BasicDicomObject extends AbstractDicomObject {
 
     public BasicDicomObject(DicomObject defaults, int capacity) {
         this.defaults = defaults;
-        this.table = new IntHashtable<DicomElement>(capacity);
+        this.table = new IntSortedTable<DicomElement>(capacity);
     }
 
     public final DicomObject getDefaults() {
@@ -150,14 +151,12 @@ public class BasicDicomObject extends AbstractDicomObject {
     }
 
     public void shareElements() {
-        synchronized (SimpleDicomElement.shared) {
-            table.accept(new IntHashtable.Visitor() {
-                public boolean visit(int key, Object value) {
-                    table.put(key, ((DicomElement) value).share());
-                    return true;
-                }
-            });
-        }
+        table.accept(new IntHashtable.Visitor() {
+            public boolean visit(int key, Object value) {
+                table.put(key, ((DicomElement) value).share());
+                return true;
+            }
+        });
     }
 
     public Iterator<DicomElement> iterator() {
@@ -311,7 +310,7 @@ public class BasicDicomObject extends AbstractDicomObject {
     }
 
     public DicomElement remove(int tag) {
-        DicomElement attr = (DicomElement) table.remove(tag);
+        DicomElement attr = table.remove(tag);
         if (attr != null) {
             if (tag == Tag.SpecificCharacterSet) {
                 charset = null;
@@ -404,6 +403,13 @@ public class BasicDicomObject extends AbstractDicomObject {
         return addInternal(new SimpleDicomElement(tag, vr, bigEndian, val, null));
     }
 
+    public DicomElement putBulkData(int tag, VR vr, BulkDataReference ref,
+            boolean bigEndian) {
+        if (vr == null)
+            vr = vrOf(tag);
+        return addInternal(new BulkDataDicomElement(tag, vr, bigEndian, ref));
+    }
+
     public DicomElement putNestedDicomObject(int tag, DicomObject item) {
         DicomElement a = putSequence(tag, 1);
         a.addDicomObject(item);
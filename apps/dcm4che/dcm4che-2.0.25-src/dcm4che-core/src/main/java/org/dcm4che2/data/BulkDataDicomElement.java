@@ -0,0 +1,331 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.data;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.Date;
+import java.util.regex.Pattern;
+
+import org.dcm4che2.util.TagUtils;
+
+/**
+ * Element which value is only read from the file, when it is accessed.
+ * Decoded values are never cached, independent of the <code>cache</code>
+ * argument, so the value does not stay on the heap after it was used.
+ * 
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ */
+class BulkDataDicomElement extends AbstractDicomElement {
+
+    private static final long serialVersionUID = -4620416958411322592L;
+
+    private transient BulkDataReference ref;
+
+    private transient boolean bigEndianInFile;
+
+    public BulkDataDicomElement(int tag, VR vr, boolean bigEndian,
+            BulkDataReference ref) {
+        super(tag, vr, bigEndian);
+        if (ref == null)
+            throw new NullPointerException("ref");
+        this.ref = ref;
+        this.bigEndianInFile = bigEndian;
+    }
+
+    static byte[] readBulkData(int tag, BulkDataReference ref) {
+        try {
+            return ref.readBytes();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read value of "
+                    + TagUtils.toString(tag) + " from " + ref, e);
+        }
+    }
+
+    private void writeObject(ObjectOutputStream s) throws IOException {
+        s.defaultWriteObject();
+        s.writeInt(tag);
+        s.writeShort(vr.code());
+        s.writeBoolean(bigEndian);
+        s.writeBoolean(bigEndianInFile);
+        s.writeObject(ref);
+    }
+
+    private void readObject(ObjectInputStream s) throws IOException,
+            ClassNotFoundException {
+        s.defaultReadObject();
+        tag = s.readInt();
+        vr = VR.valueOf(s.readUnsignedShort());
+        bigEndian = s.readBoolean();
+        bigEndianInFile = s.readBoolean();
+        ref = (BulkDataReference) s.readObject();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof BulkDataDicomElement)) {
+            return false;
+        }
+        BulkDataDicomElement other = (BulkDataDicomElement) o;
+        return tag == other.tag && vr == other.vr
+                && bigEndian == other.bigEndian && ref.equals(other.ref);
+    }
+
+    public DicomElement share() {
+        return this;
+    }
+
+    @Override
+    protected void appendValue(StringBuffer sb, int maxValLen) {
+        sb.append(ref);
+    }
+
+    @Override
+    protected void toggleEndian() {
+        // applied on read by getBytes()
+    }
+
+    public final int length() {
+        return (ref.length() + 1) & ~1;
+    }
+
+    public final boolean isEmpty() {
+        return ref.length() == 0;
+    }
+
+    public int vm(SpecificCharacterSet cs) {
+        return vr.vm(getBytes(), cs);
+    }
+
+    public byte[] getBytes() {
+        byte[] b = readBulkData(tag, ref);
+        if (bigEndian != bigEndianInFile)
+            vr.toggleEndian(b);
+        return b;
+    }
+
+    public short[] getShorts(boolean cache) {
+        return vr.toShorts(getBytes(), bigEndian);
+    }
+
+    public int getInt(boolean cache) {
+        return vr.toInt(getBytes(), bigEndian);
+    }
+
+    public int[] getInts(boolean cache) {
+        return vr.toInts(getBytes(), bigEndian);
+    }
+
+    public float getFloat(boolean cache) {
+        return vr.toFloat(getBytes(), bigEndian);
+    }
+
+    public float[] getFloats(boolean cache) {
+        return vr.toFloats(getBytes(), bigEndian);
+    }
+
+    public double getDouble(boolean cache) {
+        return vr.toDouble(getBytes(), bigEndian);
+    }
+
+    public double[] getDoubles(boolean cache) {
+        return vr.toDoubles(getBytes(), bigEndian);
+    }
+
+    public int getIntAt(int index) {
+        return vr.toInt(getBytes(), bigEndian, index);
+    }
+
+    public int getInts(int index, int[] dst, int off, int len) {
+        return vr.toInts(getBytes(), bigEndian, index, dst, off, len);
+    }
+
+    public float getFloatAt(int index) {
+        return vr.toFloat(getBytes(), bigEndian, index);
+    }
+
+    public int getFloats(int index, float[] dst, int off, int len) {
+        return vr.toFloats(getBytes(), bigEndian, index, dst, off, len);
+    }
+
+    public double getDoubleAt(int index) {
+        return vr.toDouble(getBytes(), bigEndian, index);
+    }
+
+    public int getDoubles(int index, double[] dst, int off, int len) {
+        return vr.toDoubles(getBytes(), bigEndian, index, dst, off, len);
+    }
+
+    public ShortBuffer getShortBuffer() {
+        return vr.toShortBuffer(getBytes(), bigEndian);
+    }
+
+    public IntBuffer getIntBuffer() {
+        return vr.toIntBuffer(getBytes(), bigEndian);
+    }
+
+    public FloatBuffer getFloatBuffer() {
+        return vr.toFloatBuffer(getBytes(), bigEndian);
+    }
+
+    public DoubleBuffer getDoubleBuffer() {
+        return vr.toDoubleBuffer(getBytes(), bigEndian);
+    }
+
+    public String getString(SpecificCharacterSet cs, boolean cache) {
+        return vr.toString(getBytes(), bigEndian, cs);
+    }
+
+    public String[] getStrings(SpecificCharacterSet cs, boolean cache) {
+        return vr.toStrings(getBytes(), bigEndian, cs);
+    }
+
+    public Date getDate(boolean cache) {
+        return vr.toDate(getBytes());
+    }
+
+    public Date[] getDates(boolean cache) {
+        return vr.toDates(getBytes());
+    }
+
+    public DateRange getDateRange(boolean cache) {
+        return vr.toDateRange(getBytes());
+    }
+
+    public Pattern getPattern(SpecificCharacterSet cs, boolean ignoreCase,
+            boolean cache) {
+        return vr.toPattern(getBytes(), bigEndian, cs, ignoreCase);
+    }
+
+    public final boolean hasItems() {
+        return false;
+    }
+
+    public final boolean hasDicomObjects() {
+        return false;
+    }
+
+    public final boolean hasFragments() {
+        return false;
+    }
+
+    public final int countItems() {
+        return -1;
+    }
+
+    public DicomObject getDicomObject() {
+        throw new UnsupportedOperationException();
+    }
+
+    public DicomObject getDicomObject(int index) {
+        throw new UnsupportedOperationException();
+    }
+
+    public DicomObject removeDicomObject(int index) {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean removeDicomObject(DicomObject item) {
+        throw new UnsupportedOperationException();
+    }
+
+    public DicomObject addDicomObject(DicomObject item) {
+        throw new UnsupportedOperationException();
+    }
+
+    public DicomObject addDicomObject(int index, DicomObject item) {
+        throw new UnsupportedOperationException();
+    }
+
+    public DicomObject setDicomObject(int index, DicomObject item) {
+        throw new UnsupportedOperationException();
+    }
+
+    public byte[] getFragment(int index) {
+        throw new UnsupportedOperationException();
+    }
+
+    public byte[] removeFragment(int index) {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean removeFragment(byte[] b) {
+        throw new UnsupportedOperationException();
+    }
+
+    public byte[] addFragment(byte[] b) {
+        throw new UnsupportedOperationException();
+    }
+
+    public byte[] addFragment(int index, byte[] b) {
+        throw new UnsupportedOperationException();
+    }
+
+    public byte[] setFragment(int index, byte[] b) {
+        throw new UnsupportedOperationException();
+    }
+
+    public BulkDataReference addBulkDataFragment(BulkDataReference ref) {
+        throw new UnsupportedOperationException();
+    }
+
+    public DicomElement filterItems(DicomObject filter) {
+        throw new UnsupportedOperationException();
+    }
+
+    public String getValueAsString(SpecificCharacterSet cs, int truncate) {
+        if (ref.length() == 0) {
+            return null;
+        }
+        StringBuffer sb = new StringBuffer(64);
+        vr.promptValue(getBytes(), bigEndian, cs, new char[64], truncate, sb);
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,135 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+
+import org.dcm4che2.util.CloseUtils;
+
+/**
+ * Reference to a value, which was not read into memory by the
+ * {@link org.dcm4che2.io.DicomInputStream}, but remains in the file at the
+ * specified offset.
+ * 
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ */
+public class BulkDataReference implements Serializable {
+
+    private static final long serialVersionUID = -2684911585219404263L;
+
+    private final File file;
+
+    private final long offset;
+
+    private final int length;
+
+    public BulkDataReference(File file, long offset, int length) {
+        if (file == null)
+            throw new NullPointerException("file");
+        if (offset < 0)
+            throw new IllegalArgumentException("offset:" + offset);
+        if (length < 0)
+            throw new IllegalArgumentException("length:" + length);
+        this.file = file;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    public final File getFile() {
+        return file;
+    }
+
+    public final long getOffset() {
+        return offset;
+    }
+
+    public final int length() {
+        return length;
+    }
+
+    /**
+     * Read the referenced value from the file.
+     * 
+     * @return the referenced value.
+     * @throws IOException
+     *             if the file is not accessible or shorter than specified by
+     *             offset and length.
+     */
+    public byte[] readBytes() throws IOException {
+        byte[] b = new byte[length];
+        if (length == 0)
+            return b;
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            raf.seek(offset);
+            raf.readFully(b);
+        } finally {
+            CloseUtils.safeClose(raf);
+        }
+        return b;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof BulkDataReference)) {
+            return false;
+        }
+        BulkDataReference other = (BulkDataReference) o;
+        return offset == other.offset && length == other.length
+                && file.equals(other.file);
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (offset ^ (offset >>> 32)) ^ length;
+    }
+
+    @Override
+    public String toString() {
+        return file + "?offset=" + offset + "&length=" + length;
+    }
+}
@@ -0,0 +1,586 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.data;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.zip.DataFormatException;
+
+import org.dcm4che2.io.DicomCodingException;
+import org.dcm4che2.util.LZ4Block;
+
+/**
+ * <code>DicomObject</code> decoded on demand from a compact binary encoding,
+ * intended for caches of datasets and for the exchange of datasets - e.g.
+ * C-FIND results - between processes. On creation, only an index of the
+ * positions of the elements in the encoding is built. Elements are decoded
+ * on first access and then kept like in {@link BasicDicomObject}. Items of
+ * sequences are created on first access of the sequence, and decode their
+ * elements also on demand.
+ * <p>
+ * An encoded dataset is written by {@link #encode(DicomObject, boolean)} or
+ * {@link #write(DicomObject, OutputStream, boolean)} as record, consisting of
+ * <ul>
+ * <li>a header byte with the format version and flags</li>
+ * <li>the length of the following data as variable length integer</li>
+ * <li>if compressed, the uncompressed length of the data as variable length
+ * integer followed by the data compressed in LZ4 block format</li>
+ * </ul>
+ * The uncompressed data starts with a table of all tags used in the dataset
+ * and its items, encoded as differences to the previous tag. Each element
+ * is encoded by the index of its tag in that table, a byte with the index of
+ * its VR, its kind of value and its byte order, the length of its value and
+ * the value. Items and fragments are encoded as sequence of length prefixed
+ * values. All lengths and indices are encoded as variable
+ * length integers with 7 bits per byte.
+ * <p>
+ * Records are self-delimiting, so several datasets can be written to one
+ * stream and read back by {@link #read(InputStream)}. Values of bulk data
+ * elements are always included.
+ * 
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ */
+public class CompactDicomObject extends LazyDicomObject {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int VERSION = 1;
+
+    private static final int COMPRESSED = 1;
+
+    private static final int MIN_COMPRESS_LENGTH = 64;
+
+    private static final int SIMPLE = 0;
+
+    private static final int ITEMS = 1;
+
+    private static final int FRAGMENTS = 2;
+
+    private static final int BIG_ENDIAN = 0x80;
+
+    private static final VR[] VRS = { VR.AE, VR.AS, VR.AT, VR.CS, VR.DA,
+            VR.DS, VR.DT, VR.FL, VR.FD, VR.IS, VR.LO, VR.LT, VR.OB, VR.OF,
+            VR.OW, VR.PN, VR.SH, VR.SL, VR.SQ, VR.SS, VR.ST, VR.TM, VR.UI,
+            VR.UL, VR.UN, VR.US, VR.UT, VR.UN_SIEMENS };
+
+    private transient final byte[] b;
+
+    private transient final int[] tagTable;
+
+    /**
+     * Creates a <code>DicomObject</code> from a record written by
+     * {@link #encode(DicomObject, boolean)}.
+     * 
+     * @param b
+     *            the record
+     * @throws IOException
+     *             if the record is malformed
+     */
+    public CompactDicomObject(byte[] b) throws IOException {
+        this(b, 0, b.length);
+    }
+
+    /**
+     * Creates a <code>DicomObject</code> from a record written by
+     * {@link #encode(DicomObject, boolean)}. The record is referenced, not
+     * copied, if it is not compressed, so it must not be modified
+     * afterwards.
+     * 
+     * @param b
+     *            buffer containing the record
+     * @param off
+     *            offset of the record in <code>b</code>
+     * @param len
+     *            length of the record
+     * @throws IOException
+     *             if the record is malformed
+     */
+    public CompactDicomObject(byte[] b, int off, int len) throws IOException {
+        this(parse(b, off, len));
+    }
+
+    private CompactDicomObject(Body body) throws IOException {
+        this(body.b, body.tagTable, body.start, body.end);
+    }
+
+    private CompactDicomObject(byte[] b, int[] tagTable, int start, int end)
+            throws IOException {
+        this.b = b;
+        this.tagTable = tagTable;
+        index(start, end);
+    }
+
+    private static class Body {
+        byte[] b;
+        int[] tagTable;
+        int start;
+        int end;
+    }
+
+    private static Body parse(byte[] b, int off, int len)
+            throws IOException {
+        int end = off + len;
+        if (len < 2)
+            throw new DicomCodingException("Truncated record");
+        int flags = checkHeader(b[off]);
+        int[] pos = { off + 1 };
+        int dataLen = readVarInt(b, pos, end);
+        if (dataLen != end - pos[0])
+            throw new DicomCodingException("Record length " + len
+                    + " does not match encoded data length " + dataLen);
+        return body(flags, b, pos, end);
+    }
+
+    private static int checkHeader(int header) throws IOException {
+        if ((header & 0xf0) >>> 4 != VERSION)
+            throw new DicomCodingException("Unsupported format version: "
+                    + ((header & 0xf0) >>> 4));
+        return header & 0x0f;
+    }
+
+    private static Body body(int flags, byte[] b, int[] pos, int end)
+            throws IOException {
+        Body body = new Body();
+        if ((flags & COMPRESSED) != 0) {
+            int rawLen = readVarInt(b, pos, end);
+            byte[] raw = new byte[rawLen];
+            try {
+                if (LZ4Block.decompress(b, pos[0], end - pos[0], raw, 0,
+                        rawLen) != rawLen)
+                    throw new DicomCodingException("Decompressed length does "
+                            + "not match encoded length " + rawLen);
+            } catch (DataFormatException e) {
+                throw new DicomCodingException(e.getMessage());
+            }
+            b = raw;
+            pos[0] = 0;
+            end = rawLen;
+        }
+        int n = readVarInt(b, pos, end);
+        if (n > end - pos[0])
+            throw new DicomCodingException("Invalid tag table length: " + n);
+        int[] tagTable = new int[n];
+        int tag = 0;
+        for (int i = 0; i < n; i++) {
+            int zigzag = readVarInt(b, pos, end);
+            tag += (zigzag >>> 1) ^ -(zigzag & 1);
+            tagTable[i] = tag;
+        }
+        body.b = b;
+        body.tagTable = tagTable;
+        body.start = pos[0];
+        body.end = end;
+        return body;
+    }
+
+    /**
+     * Reads one record written by
+     * {@link #write(DicomObject, OutputStream, boolean)}.
+     * 
+     * @param in
+     *            the input stream
+     * @return the decoded dataset or <code>null</code>, if the end of the
+     *         stream is reached
+     * @throws IOException
+     *             if an I/O error occurs or the record is malformed
+     */
+    public static CompactDicomObject read(InputStream in) throws IOException {
+        int header = in.read();
+        if (header == -1)
+            return null;
+        int flags = checkHeader(header);
+        int len = readVarInt(in);
+        byte[] b = new byte[len];
+        int off = 0;
+        while (off < len) {
+            int n = in.read(b, off, len - off);
+            if (n < 0)
+                throw new EOFException();
+            off += n;
+        }
+        return new CompactDicomObject(body(flags, b, new int[1], len));
+    }
+
+    private void index(int p, int end) throws IOException {
+        int[] pos = { p };
+        while (pos[0] < end) {
+            int i = readVarInt(b, pos, end);
+            if (i >= tagTable.length)
+                throw new DicomCodingException("Invalid tag index " + i
+                        + " at pos: " + pos[0]);
+            int ref = pos[0]++;
+            int len = readVarInt(b, pos, end);
+            if (len > end - pos[0])
+                throw new DicomCodingException("Element exceeds end of "
+                        + "enclosing item at pos: " + ref);
+            putIndex(tagTable[i], ref);
+            pos[0] += len;
+        }
+        resolveTag(Tag.SpecificCharacterSet);
+    }
+
+    @Override
+    DicomElement decode(int tag, int ref) throws IOException {
+        int flags = b[ref] & 0xff;
+        int vri = flags & 0x1f;
+        if (vri >= VRS.length)
+            throw new DicomCodingException("Invalid VR index " + vri
+                    + " at pos: " + ref);
+        VR vr = VRS[vri];
+        boolean bigEndian = (flags & BIG_ENDIAN) != 0;
+        int[] pos = { ref + 1 };
+        int len = readVarInt(b, pos, b.length);
+        int p = pos[0];
+        int end = p + len;
+        switch ((flags >>> 5) & 3) {
+        case SIMPLE:
+            return new SimpleDicomElement(tag, vr, bigEndian,
+                    copyOf(p, len), null);
+        case ITEMS:
+            DicomElement sq = new SequenceDicomElement(tag, vr, bigEndian,
+                    new ArrayList<Object>(), this);
+            while (pos[0] < end) {
+                int itemLen = readVarInt(b, pos, end);
+                p = pos[0];
+                sq.addDicomObject(new CompactDicomObject(b, tagTable, p,
+                        p + itemLen));
+                pos[0] = p + itemLen;
+            }
+            return sq;
+        case FRAGMENTS:
+            DicomElement frags = new SequenceDicomElement(tag, vr,
+                    bigEndian, new ArrayList<Object>(), this);
+            while (pos[0] < end) {
+                int fragLen = readVarInt(b, pos, end);
+                frags.addFragment(copyOf(pos[0], fragLen));
+                pos[0] += fragLen;
+            }
+            return frags;
+        }
+        throw new DicomCodingException("Invalid element flags " + flags
+                + " at pos: " + ref);
+    }
+
+    private byte[] copyOf(int p, int len) {
+        byte[] val = new byte[len];
+        System.arraycopy(b, p, val, 0, len);
+        return val;
+    }
+
+    private static int readVarInt(byte[] b, int[] pos, int end)
+            throws DicomCodingException {
+        int p = pos[0];
+        int val = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (p >= end)
+                throw new DicomCodingException("Truncated record");
+            int v = b[p++];
+            val |= (v & 0x7f) << shift;
+            if (v >= 0) {
+                pos[0] = p;
+                return val;
+            }
+        }
+        throw new DicomCodingException("Invalid variable length integer "
+                + "at pos: " + pos[0]);
+    }
+
+    private static int readVarInt(InputStream in) throws IOException {
+        int val = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int v = in.read();
+            if (v == -1)
+                throw new EOFException();
+            val |= (v & 0x7f) << shift;
+            if (v < 0x80)
+                return val;
+        }
+        throw new DicomCodingException("Invalid variable length integer");
+    }
+
+    /**
+     * Encode a dataset as uncompressed record.
+     * 
+     * @param attrs
+     *            the dataset
+     * @return the record
+     */
+    public static byte[] encode(DicomObject attrs) {
+        return encode(attrs, false);
+    }
+
+    /**
+     * Encode a dataset as record. The record is only compressed, if the
+     * compressed data is shorter than the uncompressed data.
+     * 
+     * @param attrs
+     *            the dataset
+     * @param compress
+     *            compress the record
+     * @return the record
+     */
+    public static byte[] encode(DicomObject attrs, boolean compress) {
+        Encoder enc = new Encoder(attrs);
+        return enc.record(compress);
+    }
+
+    /**
+     * Write a dataset as record to an output stream.
+     * 
+     * @param attrs
+     *            the dataset
+     * @param out
+     *            the output stream
+     * @param compress
+     *            compress the record
+     * @throws IOException
+     *             if an I/O error occurs
+     * @see #read(InputStream)
+     */
+    public static void write(DicomObject attrs, OutputStream out,
+            boolean compress) throws IOException {
+        out.write(encode(attrs, compress));
+    }
+
+    private static int vrIndex(VR vr) {
+        for (int i = 0; i < VRS.length; i++)
+            if (VRS[i] == vr)
+                return i;
+        throw new IllegalArgumentException("vr: " + vr);
+    }
+
+    private static int varIntLength(int val) {
+        int n = 1;
+        while ((val & ~0x7f) != 0) {
+            val >>>= 7;
+            ++n;
+        }
+        return n;
+    }
+
+    private static final class Encoder {
+
+        private int[] tags = new int[64];
+
+        private int tagCount;
+
+        private int[] hashTags = new int[128];
+
+        private int[] hashIndices = new int[128];
+
+        private byte[] buf = new byte[256];
+
+        private int pos;
+
+        Encoder(DicomObject attrs) {
+            writeElements(attrs);
+        }
+
+        /**
+         * Returns the index of the tag in the tag table, adding the tag to
+         * the table on its first occurrence.
+         */
+        private int tagIndex(int tag) {
+            int mask = hashTags.length - 1;
+            int h = tag * 0x9E3779B9;
+            int i = (h ^ (h >>> 16)) & mask;
+            int index;
+            while ((index = hashIndices[i]) != 0) {
+                if (hashTags[i] == tag)
+                    return index - 1;
+                i = (i + 1) & mask;
+            }
+            if (tagCount == tags.length)
+                tags = grow(tags, tagCount << 1);
+            tags[tagCount] = tag;
+            hashTags[i] = tag;
+            hashIndices[i] = ++tagCount;
+            if (tagCount << 1 > hashTags.length)
+                rehash();
+            return tagCount - 1;
+        }
+
+        private void rehash() {
+            int[] oldTags = hashTags;
+            int[] oldIndices = hashIndices;
+            hashTags = new int[oldTags.length << 1];
+            hashIndices = new int[oldTags.length << 1];
+            int mask = hashTags.length - 1;
+            for (int j = 0; j < oldTags.length; j++) {
+                if (oldIndices[j] == 0)
+                    continue;
+                int h = oldTags[j] * 0x9E3779B9;
+                int i = (h ^ (h >>> 16)) & mask;
+                while (hashIndices[i] != 0)
+                    i = (i + 1) & mask;
+                hashTags[i] = oldTags[j];
+                hashIndices[i] = oldIndices[j];
+            }
+        }
+
+        private void ensureCapacity(int n) {
+            if (pos + n > buf.length) {
+                byte[] tmp = new byte[Math.max(buf.length << 1, pos + n)];
+                System.arraycopy(buf, 0, tmp, 0, pos);
+                buf = tmp;
+            }
+        }
+
+        private void writeVarInt(int val) {
+            ensureCapacity(5);
+            pos = writeVarInt(buf, pos, val);
+        }
+
+        private void write(byte[] val) {
+            writeVarInt(val.length);
+            ensureCapacity(val.length);
+            System.arraycopy(val, 0, buf, pos, val.length);
+            pos += val.length;
+        }
+
+        private void writeElements(DicomObject attrs) {
+            for (Iterator<DicomElement> it = attrs.iterator(); it.hasNext();)
+                writeElement(it.next());
+        }
+
+        private void writeElement(DicomElement e) {
+            writeVarInt(tagIndex(e.tag()));
+            int kind = !e.hasItems() ? SIMPLE
+                    : e.hasDicomObjects() ? ITEMS : FRAGMENTS;
+            ensureCapacity(1);
+            buf[pos++] = (byte) (vrIndex(e.vr()) | kind << 5
+                    | (e.bigEndian() ? BIG_ENDIAN : 0));
+            switch (kind) {
+            case SIMPLE:
+                write(e.getBytes());
+                break;
+            case ITEMS:
+                int start = startLengthPrefixed();
+                for (int i = 0, n = e.countItems(); i < n; i++) {
+                    int itemStart = startLengthPrefixed();
+                    writeElements(e.getDicomObject(i));
+                    endLengthPrefixed(itemStart);
+                }
+                endLengthPrefixed(start);
+                break;
+            case FRAGMENTS:
+                start = startLengthPrefixed();
+                for (int i = 0, n = e.countItems(); i < n; i++)
+                    write(e.getFragment(i));
+                endLengthPrefixed(start);
+                break;
+            }
+        }
+
+        private int startLengthPrefixed() {
+            ensureCapacity(1);
+            return pos++;
+        }
+
+        /**
+         * Write the length of the data following the byte reserved by
+         * {@link #startLengthPrefixed()} into that byte, after moving the
+         * data, if the length does not fit into one byte.
+         */
+        private void endLengthPrefixed(int start) {
+            int len = pos - start - 1;
+            int n = varIntLength(len);
+            if (n > 1) {
+                ensureCapacity(n - 1);
+                System.arraycopy(buf, start + 1, buf, start + n, len);
+                pos += n - 1;
+            }
+            writeVarInt(buf, start, len);
+        }
+
+        byte[] record(boolean compress) {
+            byte[] table = new byte[5 + tagCount * 5];
+            int tableLen = writeVarInt(table, 0, tagCount);
+            int prev = 0;
+            for (int i = 0; i < tagCount; i++) {
+                int diff = tags[i] - prev;
+                tableLen = writeVarInt(table, tableLen,
+                        (diff << 1) ^ (diff >> 31));
+                prev = tags[i];
+            }
+            int rawLen = tableLen + pos;
+            int flags = 0;
+            byte[] data = null;
+            int dataLen = rawLen;
+            if (compress && rawLen >= MIN_COMPRESS_LENGTH) {
+                byte[] raw = new byte[rawLen];
+                System.arraycopy(table, 0, raw, 0, tableLen);
+                System.arraycopy(buf, 0, raw, tableLen, pos);
+                byte[] compressed = LZ4Block.compress(raw, 0, rawLen);
+                int len = varIntLength(rawLen) + compressed.length;
+                if (len < rawLen) {
+                    flags = COMPRESSED;
+                    data = compressed;
+                    dataLen = len;
+                }
+            }
+            byte[] record = new byte[1 + varIntLength(dataLen) + dataLen];
+            record[0] = (byte) (VERSION << 4 | flags);
+            int p = writeVarInt(record, 1, dataLen);
+            if (data != null) {
+                p = writeVarInt(record, p, rawLen);
+                System.arraycopy(data, 0, record, p, data.length);
+            } else {
+                System.arraycopy(table, 0, record, p, tableLen);
+                System.arraycopy(buf, 0, record, p + tableLen, pos);
+            }
+            return record;
+        }
+
+        private static int writeVarInt(byte[] b, int p, int val) {
+            while ((val & ~0x7f) != 0) {
+                b[p++] = (byte) (val | 0x80);
+                val >>>= 7;
+            }
+            b[p++] = (byte) val;
+            return p;
+        }
+    }
+}
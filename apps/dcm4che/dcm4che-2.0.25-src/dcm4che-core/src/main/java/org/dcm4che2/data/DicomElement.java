@@ -39,6 +39,10 @@
 package org.dcm4che2.data;
 
 import java.io.Serializable;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
 import java.util.Date;
 import java.util.regex.Pattern;
 
@@ -93,6 +97,16 @@ public interface DicomElement extends Serializable {
 
     byte[] setFragment(int index, byte[] b);
 
+    /**
+     * Add fragment, which value is only read from the file, when it is
+     * accessed by {@link #getFragment(int)}.
+     * 
+     * @param ref
+     *            reference to the fragment value in the file
+     * @return <code>ref</code>
+     */
+    BulkDataReference addBulkDataFragment(BulkDataReference ref);
+
     short[] getShorts(boolean cache);
 
     int getInt(boolean cache);
@@ -107,6 +121,53 @@ public interface DicomElement extends Serializable {
 
     double[] getDoubles(boolean cache);
 
+    /**
+     * Decodes the value with the specified index, without allocating an
+     * array for the other values, as it is done by {@link #getInts}.
+     * 
+     * @throws IndexOutOfBoundsException
+     *             if the element has less than <code>index + 1</code> values
+     */
+    int getIntAt(int index);
+
+    /**
+     * Decodes up to <code>len</code> values, starting with the value with the
+     * specified index, into the caller-supplied array <code>dst</code>.
+     * 
+     * @return number of decoded values, which is less than <code>len</code>
+     *         if the element has less than <code>index + len</code> values
+     */
+    int getInts(int index, int[] dst, int off, int len);
+
+    float getFloatAt(int index);
+
+    int getFloats(int index, float[] dst, int off, int len);
+
+    double getDoubleAt(int index);
+
+    int getDoubles(int index, double[] dst, int off, int len);
+
+    /**
+     * Returns a read-only view of the value of an element with VR US, SS or
+     * OW. Values of US and OW have to be masked by <code>0xffff</code>.
+     */
+    ShortBuffer getShortBuffer();
+
+    /**
+     * Returns a read-only view of the value of an element with VR SL or UL.
+     */
+    IntBuffer getIntBuffer();
+
+    /**
+     * Returns a read-only view of the value of an element with VR FL or OF.
+     */
+    FloatBuffer getFloatBuffer();
+
+    /**
+     * Returns a read-only view of the value of an element with VR FD.
+     */
+    DoubleBuffer getDoubleBuffer();
+
     String getString(SpecificCharacterSet cs, boolean cache);
 
     String[] getStrings(SpecificCharacterSet cs, boolean cache);
@@ -0,0 +1,430 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.data;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+
+/**
+ * Matcher of data sets against C-FIND matching keys, which is compiled once
+ * from the key object and may be applied to any number of data sets, e.g. on
+ * filtering DICOMDIR records or Modality Worklist items.
+ * <p>
+ * Each key is compiled into a predicate specialized for its VR:
+ * <ul>
+ * <li>Single Value Matching of <code>AE, AS, CS, DS, IS, UI</code> keys
+ * compares the raw value bytes of the data set element, without decoding
+ * them to Strings.</li>
+ * <li>Range Matching of <code>DA, TM, DT</code> keys compares the times of
+ * the data set values with the bounds of the key range, which are parsed
+ * only once. Combined DA/TM keys, as Scheduled Procedure Step Start Date and
+ * Time, are matched together.</li>
+ * <li>Wild Card Matching of <code>*</code> and <code>?</code> is performed
+ * by a glob matcher - on raw bytes for above ASCII VRs, on decoded values for
+ * other VRs - instead of a {@link java.util.regex.Pattern}.</li>
+ * <li>Sequence Matching compiles the Item of the key sequence into a nested
+ * <code>DicomMatcher</code>.</li>
+ * </ul>
+ * Matching semantics are the same as of
+ * {@link DicomObject#matches(DicomObject, boolean)}, which delegates to this
+ * class: empty keys and attributes missing in the data set match always.
+ * <p>
+ * Instances are immutable and thread safe.
+ * 
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ */
+public final class DicomMatcher {
+
+    private final Key[] keys;
+
+    private DicomMatcher(DicomObject keyObject, boolean ignoreCaseOfPN) {
+        SpecificCharacterSet cs = keyObject.getSpecificCharacterSet();
+        ArrayList<Key> keys = new ArrayList<Key>();
+        for (Iterator<DicomElement> it = keyObject.iterator(); it.hasNext();) {
+            DicomElement test = it.next();
+            if (isUniversal(test))
+                continue;
+            Key key = compile(keyObject, cs, test, ignoreCaseOfPN, false);
+            if (key != null)
+                keys.add(key);
+        }
+        this.keys = keys.toArray(new Key[keys.size()]);
+    }
+
+    /**
+     * Compiles matching keys.
+     * 
+     * @param keys
+     *            the matching keys.
+     * @param ignoreCaseOfPN
+     *            match values of Person Name (PN) keys case insensitive.
+     * @return the compiled matcher.
+     */
+    public static DicomMatcher compile(DicomObject keys,
+            boolean ignoreCaseOfPN) {
+        return new DicomMatcher(keys, ignoreCaseOfPN);
+    }
+
+    /**
+     * Matches a single data set, compiling keys not before they are applied,
+     * so the first not matching key makes compiling the remaining keys
+     * superfluous. Decoded key values are cached in the key elements, if
+     * caching is enabled for the key object.
+     */
+    static boolean matches(final DicomObject ds, final DicomObject keys,
+            final boolean ignoreCaseOfPN) {
+        return keys.accept(new DicomObject.Visitor() {
+            public boolean visit(DicomElement test) {
+                if (isUniversal(test))
+                    return true;
+                DicomElement attr = ds.get(test.tag());
+                if (attr == null || attr.isEmpty())
+                    return true; // Missing DicomElement (Value) match always
+                if (test.vr() == VR.SQ)
+                    return matchesItem(attr, test.getDicomObject(),
+                            ignoreCaseOfPN);
+                Key key = compile(keys, keys.getSpecificCharacterSet(), test,
+                        ignoreCaseOfPN, keys.cacheGet());
+                return key == null || key.matches(ds, attr);
+            }
+        });
+    }
+
+    private static boolean matchesItem(DicomElement sq, DicomObject item,
+            boolean ignoreCaseOfPN) {
+        if (item == null || item.isEmpty())
+            return true;
+        for (int i = 0, n = sq.countItems(); i < n; i++) {
+            if (matches(sq.getDicomObject(i), item, ignoreCaseOfPN))
+                return true;
+        }
+        return false;
+    }
+
+    // Universal Matching; ignore OB,OW,OF,UN filter attrs
+    private static boolean isUniversal(DicomElement test) {
+        return test.isEmpty() || test.vr() instanceof VR.Fragment;
+    }
+
+    private static Key compile(DicomObject keyObject, SpecificCharacterSet cs,
+            DicomElement test, boolean ignoreCaseOfPN, boolean cache) {
+        VR vr = test.vr();
+        int tag = test.tag();
+        if (vr == VR.SQ) {
+            DicomObject item = test.getDicomObject();
+            return item == null || item.isEmpty() ? null 
+                    : new SequenceKey(tag, compile(item, ignoreCaseOfPN));
+        }
+        if (vr == VR.DA) {
+            int tmTag = DA_TM.getTMTag(tag);
+            return tmTag != 0 
+                    ? RangeKey.create(tag, tmTag, 0,
+                            keyObject.getDateRange(tag, tmTag))
+                    : RangeKey.create(tag, 0, 0, test.getDateRange(cache));
+        }
+        if (vr == VR.TM)
+            return RangeKey.create(tag, 0, DA_TM.getDATag(tag),
+                    test.getDateRange(cache));
+        if (vr == VR.DT)
+            return RangeKey.create(tag, 0, 0, test.getDateRange(cache));
+        String s = test.getString(cs, cache);
+        if (s == null)
+            return null;
+        if (isASCIIVR(vr) && isASCII(s))
+            return new ASCIIKey(tag, vr, s);
+        return new StringKey(tag, s, vr == VR.PN && ignoreCaseOfPN);
+    }
+
+    private static boolean isASCIIVR(VR vr) {
+        return vr == VR.UI || vr == VR.CS || vr == VR.AE || vr == VR.AS
+                || vr == VR.DS || vr == VR.IS;
+    }
+
+    private static boolean isASCII(String s) {
+        for (int i = 0, n = s.length(); i < n; i++)
+            if (s.charAt(i) > 0x7e)
+                return false;
+        return true;
+    }
+
+    private static boolean isWildcard(String s) {
+        return s.indexOf('*') >= 0 || s.indexOf('?') >= 0;
+    }
+
+    /**
+     * Returns <code>true</code>, if the data set matches all compiled keys.
+     * 
+     * @param ds
+     *            the data set.
+     * @return <code>true</code>, if the data set matches.
+     */
+    public boolean matches(DicomObject ds) {
+        for (int i = 0; i < keys.length; i++) {
+            DicomElement attr = ds.get(keys[i].tag);
+            if (attr == null || attr.isEmpty())
+                continue; // Missing DicomElement (Value) match always
+            if (!keys[i].matches(ds, attr))
+                return false;
+        }
+        return true;
+    }
+
+    private static abstract class Key {
+        final int tag;
+
+        Key(int tag) {
+            this.tag = tag;
+        }
+
+        abstract boolean matches(DicomObject ds, DicomElement attr);
+    }
+
+    private static final class SequenceKey extends Key {
+        private final DicomMatcher item;
+
+        SequenceKey(int tag, DicomMatcher item) {
+            super(tag);
+            this.item = item;
+        }
+
+        @Override
+        boolean matches(DicomObject ds, DicomElement sq) {
+            for (int i = 0, n = sq.countItems(); i < n; i++) {
+                if (item.matches(sq.getDicomObject(i)))
+                    return true;
+            }
+            return false;
+        }
+    }
+
+    private static final class RangeKey extends Key {
+        private final int tmTag;
+        private final int daTag;
+        private final long start;
+        private final long end;
+
+        private RangeKey(int tag, int tmTag, int daTag, long start, long end) {
+            super(tag);
+            this.tmTag = tmTag;
+            this.daTag = daTag;
+            this.start = start;
+            this.end = end;
+        }
+
+        static RangeKey create(int tag, int tmTag, int daTag, DateRange range) {
+            if (range == null)
+                return null;
+            Date start = range.getStart();
+            Date end = range.getEnd();
+            if (start == null && end == null)
+                return null;
+            return new RangeKey(tag, tmTag, daTag, 
+                    start != null ? start.getTime() : Long.MIN_VALUE,
+                    end != null ? end.getTime() : Long.MAX_VALUE);
+        }
+
+        @Override
+        boolean matches(DicomObject ds, DicomElement attr) {
+            if (daTag != 0 && ds.containsValue(daTag))
+                return true; // considered by matching of daTag
+            Date[] dates = tmTag != 0 ? ds.getDates(tag, tmTag)
+                    : attr.getDates(ds.cacheGet());
+            for (int i = 0; i < dates.length; i++) {
+                Date date = dates[i];
+                if (date == null)
+                    continue;
+                long t = date.getTime();
+                if (start <= t && t <= end)
+                    return true;
+            }
+            return false;
+        }
+    }
+
+    private static final class ASCIIKey extends Key {
+        private final VR vr;
+        private final byte[] pattern;
+        private final boolean wildcard;
+
+        ASCIIKey(int tag, VR vr, String s) {
+            super(tag);
+            this.vr = vr;
+            this.pattern = new byte[s.length()];
+            for (int i = 0; i < pattern.length; i++)
+                pattern[i] = (byte) s.charAt(i);
+            this.wildcard = isWildcard(s);
+        }
+
+        @Override
+        boolean matches(DicomObject ds, DicomElement attr) {
+            if (attr.vr() != vr)
+                return StringKey.matches(pattern(), wildcard, false, 
+                        attr.getStrings(ds.getSpecificCharacterSet(), 
+                                ds.cacheGet()));
+            byte[] b = attr.getBytes();
+            int begin = 0;
+            for (int i = 0; i <= b.length; i++) {
+                if (i == b.length || b[i] == '\\') {
+                    if (matches(b, begin, i))
+                        return true;
+                    begin = i + 1;
+                }
+            }
+            return false;
+        }
+
+        private String pattern() {
+            char[] cs = new char[pattern.length];
+            for (int i = 0; i < cs.length; i++)
+                cs[i] = (char) pattern[i];
+            return new String(cs);
+        }
+
+        // trim as StringUtils.trim
+        private boolean matches(byte[] b, int begin, int end) {
+            while (begin < end && b[begin] == ' ')
+                begin++;
+            while (begin < end && (b[end - 1] == ' ' || b[end - 1] == 0))
+                end--;
+            return wildcard ? glob(b, begin, end) : equals(b, begin, end);
+        }
+
+        private boolean equals(byte[] b, int begin, int end) {
+            if (end - begin != pattern.length)
+                return false;
+            for (int i = 0; i < pattern.length; i++)
+                if (b[begin + i] != pattern[i])
+                    return false;
+            return true;
+        }
+
+        private boolean glob(byte[] b, int begin, int end) {
+            byte[] p = pattern;
+            int pi = 0, si = begin, star = -1, mark = begin;
+            while (si < end) {
+                if (pi < p.length && p[pi] == '*') {
+                    star = pi++;
+                    mark = si;
+                } else if (pi < p.length && (p[pi] == '?' || p[pi] == b[si])) {
+                    pi++;
+                    si++;
+                } else if (star >= 0) {
+                    pi = star + 1;
+                    si = ++mark;
+                } else {
+                    return false;
+                }
+            }
+            while (pi < p.length && p[pi] == '*')
+                pi++;
+            return pi == p.length;
+        }
+    }
+
+    private static final class StringKey extends Key {
+        private final String pattern;
+        private final boolean wildcard;
+        private final boolean ignoreCase;
+
+        StringKey(int tag, String pattern, boolean ignoreCase) {
+            super(tag);
+            this.pattern = pattern;
+            this.wildcard = isWildcard(pattern);
+            this.ignoreCase = ignoreCase;
+        }
+
+        @Override
+        boolean matches(DicomObject ds, DicomElement attr) {
+            return matches(pattern, wildcard, ignoreCase, attr.getStrings(
+                    ds.getSpecificCharacterSet(), ds.cacheGet()));
+        }
+
+        static boolean matches(String pattern, boolean wildcard,
+                boolean ignoreCase, String[] values) {
+            for (int i = 0; i < values.length; i++) {
+                String value = values[i];
+                if (value == null)
+                    continue;
+                if (wildcard ? glob(pattern, value, ignoreCase)
+                        : ignoreCase ? pattern.equalsIgnoreCase(value)
+                                : pattern.equals(value))
+                    return true;
+            }
+            return false;
+        }
+
+        private static boolean glob(String p, String s, boolean ignoreCase) {
+            int plen = p.length(), slen = s.length();
+            int pi = 0, si = 0, star = -1, mark = 0;
+            while (si < slen) {
+                char pc = pi < plen ? p.charAt(pi) : 0;
+                if (pi < plen && pc == '*') {
+                    star = pi++;
+                    mark = si;
+                } else if (pi < plen 
+                        && (pc == '?' || equals(pc, s.charAt(si), ignoreCase))) {
+                    pi++;
+                    si++;
+                } else if (star >= 0) {
+                    pi = star + 1;
+                    si = ++mark;
+                } else {
+                    return false;
+                }
+            }
+            while (pi < plen && p.charAt(pi) == '*')
+                pi++;
+            return pi == plen;
+        }
+
+        private static boolean equals(char c1, char c2, boolean ignoreCase) {
+            if (c1 == c2)
+                return true;
+            if (!ignoreCase)
+                return false;
+            char u1 = Character.toUpperCase(c1);
+            char u2 = Character.toUpperCase(c2);
+            return u1 == u2
+                    || Character.toLowerCase(u1) == Character.toLowerCase(u2);
+        }
+    }
+}
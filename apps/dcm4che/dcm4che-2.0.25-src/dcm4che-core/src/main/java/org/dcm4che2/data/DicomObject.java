@@ -927,6 +927,22 @@ public interface DicomObject extends Serializable {
      */
     DicomElement putBytes(int tag, VR vr, byte[] val, boolean bigEndian);
 
+    /**
+     * Put element, which value is not held in memory, but only read from the
+     * referenced file, when it is accessed.
+     * 
+     * @param tag
+     *            (group, element) as 8 byte integer: ggggeeee.
+     * @param vr
+     * @param ref
+     *            reference to the value in the file
+     * @param bigEndian
+     *            byte order of the value in the file
+     * @return
+     */
+    DicomElement putBulkData(int tag, VR vr, BulkDataReference ref,
+            boolean bigEndian);
+
     /**
      * @param tag
      *            (group, element) as 8 byte integer: ggggeeee.
@@ -1246,6 +1262,10 @@ public interface DicomObject extends Serializable {
     void copyTo(DicomObject destination);
 
     /**
+     * Matches this data set against C-FIND matching keys. To match several
+     * data sets against the same keys, compile the keys once by
+     * {@link DicomMatcher#compile(DicomObject, boolean)}.
+     * 
      * @param keys
      * @param ignoreCaseOfPN
      * @return
@@ -39,6 +39,10 @@ package org.dcm4che2.data;
 
 import java.io.IOException;
 import java.io.ObjectOutputStream;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.regex.Pattern;
@@ -741,6 +745,11 @@ public class DicomObjects {
             throw new UnsupportedOperationException();
         }
 
+        public DicomElement putBulkData(int tag, VR vr, BulkDataReference ref,
+                boolean bigEndian) {
+            throw new UnsupportedOperationException();
+        }
+
         public DicomElement putBytes(int[] tagPath, VR vr, byte[] val,
                 boolean bigEndian) {
             throw new UnsupportedOperationException();
@@ -1066,6 +1075,46 @@ public class DicomObjects {
             return e.getDoubles(cache);
         }
 
+        public int getIntAt(int index) {
+            return e.getIntAt(index);
+        }
+
+        public int getInts(int index, int[] dst, int off, int len) {
+            return e.getInts(index, dst, off, len);
+        }
+
+        public float getFloatAt(int index) {
+            return e.getFloatAt(index);
+        }
+
+        public int getFloats(int index, float[] dst, int off, int len) {
+            return e.getFloats(index, dst, off, len);
+        }
+
+        public double getDoubleAt(int index) {
+            return e.getDoubleAt(index);
+        }
+
+        public int getDoubles(int index, double[] dst, int off, int len) {
+            return e.getDoubles(index, dst, off, len);
+        }
+
+        public ShortBuffer getShortBuffer() {
+            return e.getShortBuffer();
+        }
+
+        public IntBuffer getIntBuffer() {
+            return e.getIntBuffer();
+        }
+
+        public FloatBuffer getFloatBuffer() {
+            return e.getFloatBuffer();
+        }
+
+        public DoubleBuffer getDoubleBuffer() {
+            return e.getDoubleBuffer();
+        }
+
         public float getFloat(boolean cache) {
             return e.getFloat(cache);
         }
@@ -1147,6 +1196,10 @@ public class DicomObjects {
             throw new UnsupportedOperationException();
         }
 
+        public BulkDataReference addBulkDataFragment(BulkDataReference ref) {
+            throw new UnsupportedOperationException();
+        }
+
         public DicomElement share() {
             return e.share();
         }
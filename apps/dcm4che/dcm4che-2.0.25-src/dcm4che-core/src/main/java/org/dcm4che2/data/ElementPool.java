@@ -0,0 +1,270 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.data;
+
+import java.lang.ref.WeakReference;
+import java.util.WeakHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread safe pool of shared instances of equal {@link DicomElement}s with
+ * a simple value - e.g. of Modality, Manufacturer or Institution Name, which
+ * repeat in huge numbers of cached datasets. Pooled elements are only weakly
+ * referenced, so an element is removed from the pool, if it is no longer
+ * referenced by any dataset.
+ * <p>
+ * The pool splits its entries by hash code into several
+ * <code>WeakHashMap</code>s, each guarded by its own lock. So threads
+ * interning different values rarely contend for the same lock.
+ * 
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ * @see DicomElement#share()
+ * @see DicomObject#shareElements()
+ */
+public class ElementPool {
+
+    private static final int DEFAULT_STRIPES = 16;
+
+    private static final ElementPool DEFAULT = new ElementPool();
+
+    private final Stripe[] stripes;
+
+    private final int mask;
+
+    private static class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        final WeakHashMap<SimpleDicomElement,
+                WeakReference<SimpleDicomElement>> map =
+                new WeakHashMap<SimpleDicomElement,
+                        WeakReference<SimpleDicomElement>>();
+        long lookups;
+        long hits;
+        long savedBytes;
+    }
+
+    public ElementPool() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * Creates an empty pool.
+     * 
+     * @param stripes
+     *            number of independently locked partitions, rounded up to
+     *            the next power of 2.
+     */
+    public ElementPool(int stripes) {
+        if (stripes <= 0 || stripes > (1 << 16))
+            throw new IllegalArgumentException("stripes: " + stripes);
+        int n = 1;
+        while (n < stripes)
+            n <<= 1;
+        this.stripes = new Stripe[n];
+        for (int i = 0; i < n; i++)
+            this.stripes[i] = new Stripe();
+        mask = n - 1;
+    }
+
+    /**
+     * Returns the pool used by {@link DicomElement#share()}.
+     * 
+     * @return the default pool
+     */
+    public static ElementPool getDefault() {
+        return DEFAULT;
+    }
+
+    private Stripe stripe(Object o) {
+        int h = o.hashCode() * 0x9E3779B9;
+        return stripes[(h ^ (h >>> 16)) & mask];
+    }
+
+    /**
+     * Returns the pooled element equal to <code>e</code>. If there is no
+     * such element, <code>e</code> is added to the pool and returned.
+     * Elements which value is not held in memory - sequences, fragments and
+     * bulk data - are returned unchanged.
+     * 
+     * @param e
+     *            the element
+     * @return the pooled element equal to <code>e</code>
+     */
+    public DicomElement intern(DicomElement e) {
+        if (!(e instanceof SimpleDicomElement))
+            return e;
+        SimpleDicomElement key = (SimpleDicomElement) e;
+        Stripe stripe = stripe(key);
+        ReentrantLock lock = stripe.lock;
+        lock.lock();
+        try {
+            stripe.lookups++;
+            WeakReference<SimpleDicomElement> wr = stripe.map.get(key);
+            if (wr != null) {
+                SimpleDicomElement pooled = wr.get();
+                if (pooled != null) {
+                    if (pooled != key) {
+                        stripe.hits++;
+                        stripe.savedBytes += key.length();
+                    }
+                    return pooled;
+                }
+            }
+            stripe.map.put(key, new WeakReference<SimpleDicomElement>(key));
+            return key;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of elements in the pool. Elements no longer
+     * referenced by any dataset may still be counted until they are garbage
+     * collected.
+     * 
+     * @return number of pooled elements
+     */
+    public int size() {
+        int n = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                n += stripe.map.size();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Returns the number of invocations of {@link #intern(DicomElement)} with
+     * an element with a simple value, since creation of the pool or the last
+     * invocation of {@link #resetStatistics()}.
+     * 
+     * @return number of lookups
+     */
+    public long getLookups() {
+        long n = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                n += stripe.lookups;
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Returns the number of lookups, which returned an already pooled
+     * element instead of the passed element.
+     * 
+     * @return number of hits
+     */
+    public long getHits() {
+        long n = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                n += stripe.hits;
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Returns the sum of the value lengths of elements, which were replaced
+     * by an already pooled element. The actual heap saving is larger by the
+     * object headers of the element and its value.
+     * 
+     * @return saved bytes of values
+     */
+    public long getSavedBytes() {
+        long n = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                n += stripe.savedBytes;
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return n;
+    }
+
+    public void resetStatistics() {
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                stripe.lookups = 0;
+                stripe.hits = 0;
+                stripe.savedBytes = 0;
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Removes all elements from the pool. Already shared elements remain
+     * shared by the datasets which reference them.
+     */
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                stripe.map.clear();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ElementPool[size=" + size() + ", lookups=" + getLookups()
+                + ", hits=" + getHits() + ", savedBytes=" + getSavedBytes()
+                + "]";
+    }
+}
@@ -396,6 +396,15 @@ abstract class FilteredDicomObject extends AbstractDicomObject
         return attrs.putBytes(tag, vr, val, bigEndian);
     }
 
+    public DicomElement putBulkData(int tag, VR vr, BulkDataReference ref,
+            boolean bigEndian)
+    {
+        if (!filter(tag)) {
+            throw new UnsupportedOperationException();
+        }
+        return attrs.putBulkData(tag, vr, ref, bigEndian);
+    }
+
     public DicomElement putDouble(int tag, VR vr, double val)
     {
         if (!filter(tag)) {
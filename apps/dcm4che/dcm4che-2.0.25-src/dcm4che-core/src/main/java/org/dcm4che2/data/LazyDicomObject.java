@@ -0,0 +1,260 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.data;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.Iterator;
+
+import org.dcm4che2.util.TagUtils;
+
+/**
+ * Base class of <code>DicomObject</code>s, which only keep an index of the
+ * tags of their elements and a reference to the encoded element, and decode
+ * elements on first access. Decoded elements are kept like in
+ * {@link BasicDicomObject}.
+ * <p>
+ * Iteration over the elements, as performed by
+ * {@link org.dcm4che2.io.DicomOutputStream} or {@link #accept(Visitor)},
+ * decodes all elements in the iterated range.
+ * 
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ * @see MappedDicomObject
+ * @see CompactDicomObject
+ */
+abstract class LazyDicomObject extends BasicDicomObject {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int INIT_INDEX_CAPACITY = 32;
+
+    private transient int[] tags = new int[INIT_INDEX_CAPACITY];
+
+    private transient int[] refs = new int[INIT_INDEX_CAPACITY];
+
+    private transient int count;
+
+    private transient final BitSet resolved = new BitSet();
+
+    private transient int unresolved;
+
+    /**
+     * Decode the element with the specified tag.
+     * 
+     * @param tag
+     *            the tag of the element
+     * @param ref
+     *            the reference to the encoded element passed to
+     *            {@link #putIndex(int, int)}
+     * @return the decoded element
+     */
+    abstract DicomElement decode(int tag, int ref) throws IOException;
+
+    /**
+     * Add the encoded element with the specified tag to the index. A
+     * previously indexed element with the same tag is replaced.
+     * 
+     * @param tag
+     *            the tag of the element
+     * @param ref
+     *            reference to the encoded element, passed to
+     *            {@link #decode(int, int)}
+     */
+    final void putIndex(int tag, int ref) {
+        int index = count;
+        if (count > 0 && (tags[count-1] & 0xffffffffL) >= (tag & 0xffffffffL)) {
+            // elements not in ascending order or duplicate element
+            index = indexOf(tag);
+            if (index >= 0) {
+                refs[index] = ref;
+                return;
+            }
+            index = -(index + 1);
+        }
+        if (count == tags.length) {
+            int newCapacity = count << 1;
+            tags = grow(tags, newCapacity);
+            refs = grow(refs, newCapacity);
+        }
+        if (index < count) {
+            int n = count - index;
+            System.arraycopy(tags, index, tags, index + 1, n);
+            System.arraycopy(refs, index, refs, index + 1, n);
+            for (int i = count; i > index; --i)
+                resolved.set(i, resolved.get(i - 1));
+            resolved.clear(index);
+        }
+        tags[index] = tag;
+        refs[index] = ref;
+        ++count;
+        ++unresolved;
+    }
+
+    static int[] grow(int[] a, int newCapacity) {
+        int[] tmp = new int[newCapacity];
+        System.arraycopy(a, 0, tmp, 0, a.length);
+        return tmp;
+    }
+
+    private int indexOf(int tag) {
+        // tags are sorted as unsigned int
+        int low = 0;
+        int high = count - 1;
+        long key = tag & 0xffffffffL;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midVal = tags[mid] & 0xffffffffL;
+            if (midVal < key)
+                low = mid + 1;
+            else if (midVal > key)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return -(low + 1);
+    }
+
+    final void resolveTag(int tag) {
+        int index = indexOf(tag);
+        if (index >= 0 && !resolved.get(index))
+            resolveIndex(index);
+    }
+
+    private void resolveRange(int fromIndex, int toIndex) {
+        for (int i = resolved.nextClearBit(fromIndex); i < toIndex; 
+                i = resolved.nextClearBit(i + 1)) {
+            resolveIndex(i);
+        }
+    }
+
+    private void resolveIndex(int index) {
+        markResolved(index);
+        try {
+            super.addInternal(decode(tags[index], refs[index]));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to decode "
+                    + TagUtils.toString(tags[index]), e);
+        }
+    }
+
+    private void markResolved(int index) {
+        resolved.set(index);
+        --unresolved;
+    }
+
+    final void resolveAll() {
+        if (unresolved > 0)
+            resolveRange(0, count);
+    }
+
+    @Override
+    DicomElement addInternal(DicomElement a) {
+        int index = indexOf(a.tag());
+        if (index >= 0 && !resolved.get(index))
+            markResolved(index);
+        return super.addInternal(a);
+    }
+
+    @Override
+    public DicomElement remove(int tag) {
+        resolveTag(tag);
+        return super.remove(tag);
+    }
+
+    @Override
+    public DicomElement get(int tag) {
+        resolveTag(tag);
+        return super.get(tag);
+    }
+
+    @Override
+    public boolean contains(int tag) {
+        resolveTag(tag);
+        return super.contains(tag);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return unresolved == 0 && super.isEmpty();
+    }
+
+    @Override
+    public int size() {
+        return unresolved + super.size();
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        resolved.set(0, count);
+        unresolved = 0;
+    }
+
+    @Override
+    public void shareElements() {
+        resolveAll();
+        super.shareElements();
+    }
+
+    @Override
+    public Iterator<DicomElement> iterator(int fromTag, int toTag) {
+        if (unresolved > 0 
+                && (fromTag & 0xffffffffL) <= (toTag & 0xffffffffL)) {
+            int fromIndex = indexOf(fromTag);
+            int toIndex = indexOf(toTag);
+            resolveRange(fromIndex < 0 ? -(fromIndex + 1) : fromIndex,
+                    toIndex < 0 ? -(toIndex + 1) : toIndex + 1);
+        }
+        return super.iterator(fromTag, toTag);
+    }
+
+    @Override
+    public boolean accept(Visitor visitor) {
+        resolveAll();
+        return super.accept(visitor);
+    }
+
+    @Override
+    public int hashCode() {
+        resolveAll();
+        return super.hashCode();
+    }
+}
@@ -0,0 +1,344 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+
+import org.dcm4che2.io.DicomCodingException;
+import org.dcm4che2.io.DicomInputStream;
+import org.dcm4che2.util.CloseUtils;
+import org.dcm4che2.util.TagUtils;
+
+/**
+ * <code>DicomObject</code> backed by a memory mapped file. On creation, only
+ * an index of the positions of the elements in the file is built. Elements
+ * are decoded from the mapped file on first access and then kept like in
+ * {@link BasicDicomObject}. Items of sequences are created on first access
+ * of the sequence, and decode their elements also on demand.
+ * <p>
+ * Iteration over the elements, as performed by
+ * {@link org.dcm4che2.io.DicomOutputStream} or {@link #accept(Visitor)},
+ * decodes all elements in the iterated range.
+ * <p>
+ * Deflated Transfer Syntaxes and files larger than 2 GB are not supported.
+ * 
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ */
+public class MappedDicomObject extends LazyDicomObject {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int INIT_INDEX_CAPACITY = 32;
+
+    private transient final ByteBuffer buf;
+
+    private transient final TransferSyntax ts;
+
+    private transient int[] valuePos = new int[INIT_INDEX_CAPACITY];
+
+    private transient int[] valueLen = new int[INIT_INDEX_CAPACITY];
+
+    private transient VR[] vrs = new VR[INIT_INDEX_CAPACITY];
+
+    private transient int count;
+
+    private transient int endPos;
+
+    /**
+     * Map the specified file and index its elements, including the elements
+     * of its File Meta Information.
+     * 
+     * @param file
+     *            DICOM file
+     * @throws IOException
+     *             if the file is not accessible, is encoded in a Deflated
+     *             Transfer Syntax or is larger than 2 GB.
+     */
+    public MappedDicomObject(File file) throws IOException {
+        this(file, map(file));
+    }
+
+    private MappedDicomObject(File file, ByteBuffer buf) throws IOException {
+        DicomInputStream dis = new DicomInputStream(file);
+        DicomObject fmi;
+        long start;
+        try {
+            fmi = dis.readFileMetaInformation();
+            this.ts = dis.getTransferSyntax();
+            start = dis.getStreamPosition();
+        } finally {
+            CloseUtils.safeClose(dis);
+        }
+        if (ts.deflated())
+            throw new DicomCodingException("Cannot map " + file
+                    + " with Deflated Transfer Syntax");
+        this.buf = buf;
+        if (fmi != null) {
+            fmi.copyTo(this);
+        }
+        index((int) start, buf.limit());
+    }
+
+    private MappedDicomObject(ByteBuffer buf, TransferSyntax ts, int start,
+            int end) throws IOException {
+        this.buf = buf;
+        this.ts = ts;
+        index(start, end);
+    }
+
+    private static ByteBuffer map(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel ch = raf.getChannel();
+            long size = ch.size();
+            if (size > Integer.MAX_VALUE)
+                throw new IOException("Cannot map " + file + " of size "
+                        + size);
+            MappedByteBuffer mbb = ch.map(FileChannel.MapMode.READ_ONLY, 0,
+                    size);
+            return mbb;
+        } finally {
+            CloseUtils.safeClose(raf);
+        }
+    }
+
+    /**
+     * Returns the Transfer Syntax in which this object is encoded in the
+     * mapped file.
+     * 
+     * @return the Transfer Syntax
+     */
+    public final TransferSyntax getTransferSyntax() {
+        return ts;
+    }
+
+    private void index(int start, int end) throws IOException {
+        endPos = scan(start, end, ts, true);
+        resolveTag(Tag.SpecificCharacterSet);
+    }
+
+    private int readTag(int p, boolean bigEndian) {
+        return (readUShort(p, bigEndian) << 16) | readUShort(p + 2, bigEndian);
+    }
+
+    private int readUShort(int p, boolean bigEndian) {
+        return bigEndian 
+                ? ((buf.get(p) & 0xff) << 8) | (buf.get(p + 1) & 0xff)
+                : ((buf.get(p + 1) & 0xff) << 8) | (buf.get(p) & 0xff);
+    }
+
+    private int readInt(int p, boolean bigEndian) {
+        return bigEndian 
+                ? (readUShort(p, true) << 16) | readUShort(p + 2, true)
+                : (readUShort(p + 2, false) << 16) | readUShort(p, false);
+    }
+
+    /**
+     * Scan elements from <code>p</code> until <code>end</code> or until an
+     * Item Delimitation Item.
+     * 
+     * @return position after the last scanned element
+     */
+    private int scan(int p, int end, TransferSyntax ts, boolean record)
+            throws IOException {
+        final boolean be = ts.bigEndian();
+        while (p + 8 <= end) {
+            int tag = readTag(p, be);
+            if (tag == Tag.ItemDelimitationItem)
+                return p + 8;
+            VR vr = null;
+            int vallen;
+            int hlen = 8;
+            if (ts.explicitVR() && TagUtils.hasVR(tag)) {
+                int code = ((buf.get(p + 4) & 0xff) << 8)
+                        | (buf.get(p + 5) & 0xff);
+                try {
+                    vr = VR.valueOf(code);
+                } catch (IllegalArgumentException e) {
+                    vr = vrOf(tag);
+                }
+                if (vr.explicitVRHeaderLength() == 8) {
+                    vallen = readUShort(p + 6, be);
+                    if (vr == VR.UN_SIEMENS)
+                        vr = VR.UN;
+                } else {
+                    hlen = 12;
+                    vallen = readInt(p + 8, be);
+                }
+            } else {
+                vallen = readInt(p + 4, be);
+            }
+            p += hlen;
+            if (record && (tag & 0x0000ffff) != 0)
+                add(tag, vr, p, vallen);
+            if (vallen == -1) {
+                p = skipItems(p, end, vr == VR.UN 
+                        ? TransferSyntax.ImplicitVRLittleEndian : ts);
+            } else {
+                p += vallen;
+            }
+        }
+        if (p > end)
+            throw new DicomCodingException("Element exceeds end of " +
+                    "enclosing item or file at pos: " + end);
+        return p;
+    }
+
+    private int skipItems(int p, int end, TransferSyntax itemTs)
+            throws IOException {
+        final boolean be = itemTs.bigEndian();
+        while (p + 8 <= end) {
+            int tag = readTag(p, be);
+            int len = readInt(p + 4, be);
+            p += 8;
+            if (tag == Tag.SequenceDelimitationItem)
+                return p;
+            if (len == -1)
+                p = scan(p, end, itemTs, false);
+            else
+                p += len;
+        }
+        return end;
+    }
+
+    private void add(int tag, VR vr, int pos, int len) {
+        int ref = count;
+        if (count == valuePos.length) {
+            int newCapacity = count << 1;
+            valuePos = grow(valuePos, newCapacity);
+            valueLen = grow(valueLen, newCapacity);
+            VR[] tmp = new VR[newCapacity];
+            System.arraycopy(vrs, 0, tmp, 0, count);
+            vrs = tmp;
+        }
+        vrs[ref] = vr;
+        valuePos[ref] = pos;
+        valueLen[ref] = len;
+        ++count;
+        putIndex(tag, ref);
+    }
+
+    @Override
+    DicomElement decode(int tag, int ref) throws IOException {
+        final int pos = valuePos[ref];
+        final int len = valueLen[ref];
+        VR vr = vrs[ref];
+        TransferSyntax valueTs = ts;
+        if (vr == null || vr == VR.UN) {
+            // Datasets in items of sequences encoded with VR=UN are itself
+            // encoded in DICOM default Transfer Syntax
+            if (vr == VR.UN)
+                valueTs = TransferSyntax.ImplicitVRLittleEndian;
+            vr = vrOf(tag);
+        }
+        if (len == -1 && vr == VR.UN)
+            vr = VR.SQ;
+        if (vr == VR.SQ) {
+            int end = len == -1 ? buf.limit() : pos + len;
+            DicomElement sq = new SequenceDicomElement(tag, vr, false,
+                    new ArrayList<Object>(), this);
+            decodeItems(sq, pos, end, valueTs);
+            return sq;
+        }
+        if (len == -1) {
+            DicomElement frags = new SequenceDicomElement(tag, vr,
+                    valueTs.bigEndian(), new ArrayList<Object>(),
+                    this);
+            decodeFragments(frags, pos, valueTs.bigEndian());
+            return frags;
+        }
+        return new SimpleDicomElement(tag, vr, valueTs.bigEndian(),
+                readBytes(pos, len), null);
+    }
+
+    private void decodeItems(DicomElement sq, int p, int end,
+            TransferSyntax itemTs) throws IOException {
+        final boolean be = itemTs.bigEndian();
+        while (p + 8 <= end) {
+            int tag = readTag(p, be);
+            int len = readInt(p + 4, be);
+            if (tag == Tag.SequenceDelimitationItem)
+                return;
+            if (tag != Tag.Item)
+                throw new DicomCodingException("Expected (FFFE,E000) but "
+                        + "read " + TagUtils.toString(tag) + " at pos: " + p);
+            MappedDicomObject item = new MappedDicomObject(buf, itemTs,
+                    p + 8, len == -1 ? end : p + 8 + len);
+            item.setItemOffset(p);
+            sq.addDicomObject(item);
+            p = len == -1 ? item.endPos : p + 8 + len;
+        }
+    }
+
+    private void decodeFragments(DicomElement frags, int p, boolean be)
+            throws IOException {
+        final int end = buf.limit();
+        while (p + 8 <= end) {
+            int tag = readTag(p, be);
+            int len = readInt(p + 4, be);
+            p += 8;
+            if (tag == Tag.SequenceDelimitationItem)
+                return;
+            if (tag != Tag.Item || len == -1)
+                throw new DicomCodingException("Invalid fragment "
+                        + TagUtils.toString(tag) + " #" + len + " at pos: "
+                        + (p - 8));
+            frags.addFragment(readBytes(p, len));
+            p += len;
+        }
+    }
+
+    private byte[] readBytes(int pos, int len) {
+        byte[] b = new byte[len];
+        if (len > 0) {
+            ByteBuffer dup = buf.duplicate();
+            dup.position(pos);
+            dup.get(b);
+        }
+        return b;
+    }
+}
@@ -41,6 +41,10 @@ package org.dcm4che2.data;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -146,7 +150,12 @@ class SequenceDicomElement extends AbstractDicomElement {
     protected void toggleEndian() {
         if (!hasDicomObjects()) {
             for (int i = 0, n = items.size(); i < n; ++i) {
-                vr.toggleEndian((byte[]) items.get(i));
+                Object item = items.get(i);
+                // bulk data fragments are only referenced for encapsulated
+                // OB values, for which toggling the endian is a no-op
+                if (item instanceof byte[]) {
+                    vr.toggleEndian((byte[]) item);
+                }
             }
         }
     }
@@ -199,6 +208,46 @@ class SequenceDicomElement extends AbstractDicomElement {
         throw new UnsupportedOperationException();
     }
 
+    public int getIntAt(int index) {
+        throw new UnsupportedOperationException();
+    }
+
+    public int getInts(int index, int[] dst, int off, int len) {
+        throw new UnsupportedOperationException();
+    }
+
+    public float getFloatAt(int index) {
+        throw new UnsupportedOperationException();
+    }
+
+    public int getFloats(int index, float[] dst, int off, int len) {
+        throw new UnsupportedOperationException();
+    }
+
+    public double getDoubleAt(int index) {
+        throw new UnsupportedOperationException();
+    }
+
+    public int getDoubles(int index, double[] dst, int off, int len) {
+        throw new UnsupportedOperationException();
+    }
+
+    public ShortBuffer getShortBuffer() {
+        throw new UnsupportedOperationException();
+    }
+
+    public IntBuffer getIntBuffer() {
+        throw new UnsupportedOperationException();
+    }
+
+    public FloatBuffer getFloatBuffer() {
+        throw new UnsupportedOperationException();
+    }
+
+    public DoubleBuffer getDoubleBuffer() {
+        throw new UnsupportedOperationException();
+    }
+
     public String getString(SpecificCharacterSet cs, boolean cache) {
         throw new UnsupportedOperationException();
     }
@@ -304,11 +353,18 @@ class SequenceDicomElement extends AbstractDicomElement {
     }
 
     public byte[] getFragment(int index) {
-        return (byte[]) items.get(index);
+        return toFragment(items.get(index));
+    }
+
+    private byte[] toFragment(Object item) {
+        return item instanceof BulkDataReference
+                ? BulkDataDicomElement.readBulkData(tag,
+                        (BulkDataReference) item)
+                : (byte[]) item;
     }
 
     public byte[] removeFragment(int index) {
-        return (byte[]) items.remove(index);
+        return toFragment(items.remove(index));
     }
 
     public boolean removeFragment(byte[] b) {
@@ -342,6 +398,15 @@ class SequenceDicomElement extends AbstractDicomElement {
         return b;
     }
 
+    public BulkDataReference addBulkDataFragment(BulkDataReference ref) {
+        if (hasDicomObjects())
+            throw new UnsupportedOperationException();
+        if (ref == null)
+            throw new NullPointerException();
+        items.add(ref);
+        return ref;
+    }
+
     public DicomElement filterItems(DicomObject filter) {
         if (!hasDicomObjects())
             throw new UnsupportedOperationException();
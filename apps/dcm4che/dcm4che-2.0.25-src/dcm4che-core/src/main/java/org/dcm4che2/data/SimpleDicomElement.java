@@ -41,10 +41,12 @@ package org.dcm4che2.data;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
-import java.lang.ref.WeakReference;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
 import java.util.Arrays;
 import java.util.Date;
-import java.util.WeakHashMap;
 import java.util.regex.Pattern;
 
 /**
@@ -56,8 +58,6 @@ import java.util.regex.Pattern;
 class SimpleDicomElement extends AbstractDicomElement {
 
     private static final long serialVersionUID = 4049072757025092152L;
-    static final WeakHashMap<SimpleDicomElement, WeakReference<SimpleDicomElement>> shared =
-        new WeakHashMap<SimpleDicomElement, WeakReference<SimpleDicomElement>>();
     private static final ThreadLocal<char[]> cbuf = new ThreadLocal<char[]>(){
         @Override
         protected char[] initialValue() {
@@ -116,18 +116,13 @@ class SimpleDicomElement extends AbstractDicomElement {
              && Arrays.equals(value, other.value);     
     }
     
+    @Override
+    public int hashCode() {
+        return tag * 31 + Arrays.hashCode(value);
+    }
+
     public DicomElement share() {
-        synchronized (shared) {
-            WeakReference<SimpleDicomElement> wr = shared.get(this);
-            if (wr != null) {
-                DicomElement e = wr.get();
-                if (e != null) {
-                    return e;
-                }
-            }
-            shared.put(this, new WeakReference<SimpleDicomElement>(this));
-        }
-        return this;
+        return ElementPool.getDefault().intern(this);
     }
     
     @Override
@@ -240,6 +235,46 @@ class SimpleDicomElement extends AbstractDicomElement {
         return val;
     }
 
+    public int getIntAt(int index) {
+        return vr.toInt(value, bigEndian, index);
+    }
+
+    public int getInts(int index, int[] dst, int off, int len) {
+        return vr.toInts(value, bigEndian, index, dst, off, len);
+    }
+
+    public float getFloatAt(int index) {
+        return vr.toFloat(value, bigEndian, index);
+    }
+
+    public int getFloats(int index, float[] dst, int off, int len) {
+        return vr.toFloats(value, bigEndian, index, dst, off, len);
+    }
+
+    public double getDoubleAt(int index) {
+        return vr.toDouble(value, bigEndian, index);
+    }
+
+    public int getDoubles(int index, double[] dst, int off, int len) {
+        return vr.toDoubles(value, bigEndian, index, dst, off, len);
+    }
+
+    public ShortBuffer getShortBuffer() {
+        return vr.toShortBuffer(value, bigEndian);
+    }
+
+    public IntBuffer getIntBuffer() {
+        return vr.toIntBuffer(value, bigEndian);
+    }
+
+    public FloatBuffer getFloatBuffer() {
+        return vr.toFloatBuffer(value, bigEndian);
+    }
+
+    public DoubleBuffer getDoubleBuffer() {
+        return vr.toDoubleBuffer(value, bigEndian);
+    }
+
     public String getString(SpecificCharacterSet cs, boolean cache) {
         if (cache) {
             Object tmp = cachedValue;
@@ -384,6 +419,10 @@ class SimpleDicomElement extends AbstractDicomElement {
         throw new UnsupportedOperationException();
     }
 
+    public BulkDataReference addBulkDataFragment(BulkDataReference ref) {
+        throw new UnsupportedOperationException();
+    }
+
     public DicomElement filterItems(DicomObject filter) {
         throw new UnsupportedOperationException();
     }
@@ -39,6 +39,12 @@
 package org.dcm4che2.data;
 
 import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
 import java.util.Date;
 import java.util.StringTokenizer;
 import java.util.regex.Pattern;
@@ -77,11 +83,17 @@ public abstract class VR {
         // empty marker interface
     }
 
+    private static final byte[] EMPTY_BYTE_ARRAY = {};
     private static final String[] EMPTY_STRING_ARRAY = {};
     private static final int[] EMPTY_INT_ARRAY = {};
     private static final float[] EMPTY_FLOAT_ARRAY = {};
     private static final double[] EMPTY_DOUBLE_ARRAY = {};
     private static final Date[] EMPTY_DATE_ARRAY = {};
+    private static final double[] POW10 =
+    {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
     private static final char[] HEX_DIGITS =
     {
             '0',
@@ -129,6 +141,126 @@ public abstract class VR {
         return StringUtils.first(VR.bytes2str(val, cs), '\\');
     }
 
+    private static int count(byte[] val, int size, int index, int len)
+    {
+        if (index < 0 || len < 0)
+            throw new IndexOutOfBoundsException("index: " + index
+                    + ", len: " + len);
+        int vm = val == null ? 0 : val.length / size;
+        return Math.max(0, Math.min(len, vm - index));
+    }
+
+    private static ByteBuffer wrap(byte[] val, boolean bigEndian)
+    {
+        return ByteBuffer.wrap(val == null ? EMPTY_BYTE_ARRAY : val)
+                .asReadOnlyBuffer()
+                .order(bigEndian ? ByteOrder.BIG_ENDIAN
+                                 : ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static int ushorts(byte[] val, boolean bigEndian, int index,
+            int[] dst, int off, int len)
+    {
+        int n = count(val, 2, index, len);
+        for (int i = 0, pos = index << 1; i < n; i++, pos += 2)
+            dst[off + i] = bigEndian
+                    ? ByteUtils.bytesBE2ushort(val, pos)
+                    : ByteUtils.bytesLE2ushort(val, pos);
+        return n;
+    }
+
+    private static int sshorts(byte[] val, boolean bigEndian, int index,
+            int[] dst, int off, int len)
+    {
+        int n = count(val, 2, index, len);
+        for (int i = 0, pos = index << 1; i < n; i++, pos += 2)
+            dst[off + i] = bigEndian
+                    ? ByteUtils.bytesBE2sshort(val, pos)
+                    : ByteUtils.bytesLE2sshort(val, pos);
+        return n;
+    }
+
+    private static int ints(byte[] val, boolean bigEndian, int index,
+            int[] dst, int off, int len)
+    {
+        int n = count(val, 4, index, len);
+        for (int i = 0, pos = index << 2; i < n; i++, pos += 4)
+            dst[off + i] = bigEndian
+                    ? ByteUtils.bytesBE2int(val, pos)
+                    : ByteUtils.bytesLE2int(val, pos);
+        return n;
+    }
+
+    private static int floats(byte[] val, boolean bigEndian, int index,
+            float[] dst, int off, int len)
+    {
+        int n = count(val, 4, index, len);
+        for (int i = 0, pos = index << 2; i < n; i++, pos += 4)
+            dst[off + i] = bigEndian
+                    ? ByteUtils.bytesBE2float(val, pos)
+                    : ByteUtils.bytesLE2float(val, pos);
+        return n;
+    }
+
+    private static int floats(byte[] val, boolean bigEndian, int index,
+            double[] dst, int off, int len)
+    {
+        int n = count(val, 4, index, len);
+        for (int i = 0, pos = index << 2; i < n; i++, pos += 4)
+            dst[off + i] = bigEndian
+                    ? ByteUtils.bytesBE2float(val, pos)
+                    : ByteUtils.bytesLE2float(val, pos);
+        return n;
+    }
+
+    private static int doubles(byte[] val, boolean bigEndian, int index,
+            double[] dst, int off, int len)
+    {
+        int n = count(val, 8, index, len);
+        for (int i = 0, pos = index << 3; i < n; i++, pos += 8)
+            dst[off + i] = bigEndian
+                    ? ByteUtils.bytesBE2double(val, pos)
+                    : ByteUtils.bytesLE2double(val, pos);
+        return n;
+    }
+
+    /**
+     * Returns the offset of the backslash separated value with the specified
+     * index in <code>val</code>, or -1 if there is no such value.
+     */
+    private static int valueStart(byte[] val, int index)
+    {
+        if (index < 0)
+            throw new IndexOutOfBoundsException("index: " + index);
+        if (val == null || val.length == 0)
+            return -1;
+        int pos = 0;
+        for (int i = 0; i < index; i++)
+        {
+            pos = valueEnd(val, pos);
+            if (pos == val.length)
+                return -1;
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int checkedValueStart(byte[] val, int index)
+    {
+        int start = valueStart(val, index);
+        if (start < 0)
+            throw new IndexOutOfBoundsException("index: " + index);
+        return start;
+    }
+
+    private static int valueEnd(byte[] val, int start)
+    {
+        int end = start;
+        while (end < val.length && val[end] != '\\')
+            end++;
+        return end;
+    }
+
     private static byte[] parseShortXMLValue(StringBuffer sb,
             ByteArrayOutputStream out, boolean last)
     {
@@ -495,6 +627,12 @@ public abstract class VR {
                     ? ByteUtils.bytesBE2shorts(val) 
                     : ByteUtils.bytesLE2shorts(val);
         }
+
+        @Override
+        public ShortBuffer toShortBuffer(byte[] val, boolean bigEndian)
+        {
+            return wrap(val, bigEndian).asShortBuffer();
+        }
         
         @Override
         public String toString(byte[] val, boolean bigEndian,
@@ -593,6 +731,27 @@ public abstract class VR {
                     .bytesLE2ints(val);
         }
 
+        @Override
+        public int toInt(byte[] val, boolean bigEndian, int index)
+        {
+            return bigEndian
+                    ? ByteUtils.bytesBE2int(val, index << 2)
+                    : ByteUtils.bytesLE2int(val, index << 2);
+        }
+
+        @Override
+        public int toInts(byte[] val, boolean bigEndian, int index, int[] dst,
+                int off, int len)
+        {
+            return ints(val, bigEndian, index, dst, off, len);
+        }
+
+        @Override
+        public IntBuffer toIntBuffer(byte[] val, boolean bigEndian)
+        {
+            return wrap(val, bigEndian).asIntBuffer();
+        }
+
         @Override
         public byte[] parseXMLValue(StringBuffer sb, ByteArrayOutputStream out,
                 boolean last, SpecificCharacterSet cs)
@@ -1010,6 +1169,151 @@ public abstract class VR {
             return fs;
         }
 
+        @Override
+        public float toFloat(byte[] val, boolean bigEndian, int index)
+        {
+            int start = checkedValueStart(val, index);
+            return parseFloat(val, start, valueEnd(val, start));
+        }
+
+        @Override
+        public int toFloats(byte[] val, boolean bigEndian, int index,
+                float[] dst, int off, int len)
+        {
+            count(val, 1, index, len);
+            int n = 0;
+            for (int start = valueStart(val, index); start >= 0 && n < len;
+                    n++)
+            {
+                int end = valueEnd(val, start);
+                dst[off + n] = parseFloat(val, start, end);
+                start = end < val.length ? end + 1 : -1;
+            }
+            return n;
+        }
+
+        @Override
+        public double toDouble(byte[] val, boolean bigEndian, int index)
+        {
+            int start = checkedValueStart(val, index);
+            return parseDouble(val, start, valueEnd(val, start));
+        }
+
+        @Override
+        public int toDoubles(byte[] val, boolean bigEndian, int index,
+                double[] dst, int off, int len)
+        {
+            count(val, 1, index, len);
+            int n = 0;
+            for (int start = valueStart(val, index); start >= 0 && n < len;
+                    n++)
+            {
+                int end = valueEnd(val, start);
+                dst[off + n] = parseDouble(val, start, end);
+                start = end < val.length ? end + 1 : -1;
+            }
+            return n;
+        }
+
+        private static float parseFloat(byte[] val, int start, int end)
+        {
+            while (start < end && val[start] <= ' ')
+                start++;
+            while (end > start && val[end - 1] <= ' ')
+                end--;
+            if (start == end)
+                return 0f;
+            double d = fastParse(val, start, end);
+            // rounding d to float is only ambiguous, if d lies exactly
+            // between two adjacent float values
+            if (d == d && (Double.doubleToRawLongBits(d) & 0x1fffffffL)
+                    != 0x10000000L)
+                return (float) d;
+            return Float.parseFloat(
+                    commaToPeriod(new String(val, start, end - start)));
+        }
+
+        private static double parseDouble(byte[] val, int start, int end)
+        {
+            while (start < end && val[start] <= ' ')
+                start++;
+            while (end > start && val[end - 1] <= ' ')
+                end--;
+            if (start == end)
+                return 0.;
+            double d = fastParse(val, start, end);
+            if (d == d)
+                return d;
+            return Double.parseDouble(
+                    commaToPeriod(new String(val, start, end - start)));
+        }
+
+        /**
+         * Parses decimal strings with up to 15 significant digits and a
+         * decimal exponent within [-22, 22]. Both the significand and the
+         * power of ten are then exactly representable as double, so one
+         * multiplication or division yields the correctly rounded result.
+         * Returns NaN for any other input.
+         */
+        private static double fastParse(byte[] val, int start, int end)
+        {
+            int pos = start;
+            boolean neg = val[pos] == '-';
+            if (neg || val[pos] == '+')
+                pos++;
+            long m = 0;
+            int digits = 0;
+            int exp = 0;
+            boolean point = false;
+            boolean any = false;
+            for (; pos < end; pos++)
+            {
+                int b = val[pos];
+                if (b == '.' && !point)
+                {
+                    point = true;
+                    continue;
+                }
+                if (b < '0' || b > '9')
+                    break;
+                if ((m != 0 || b != '0') && ++digits > 15)
+                    return Double.NaN;
+                m = m * 10 + (b - '0');
+                if (point)
+                    exp--;
+                any = true;
+            }
+            if (!any)
+                return Double.NaN;
+            if (pos < end && (val[pos] | 0x20) == 'e')
+            {
+                if (++pos < end && (val[pos] == '-' || val[pos] == '+'))
+                    pos++;
+                int e = 0;
+                int first = pos;
+                for (; pos < end && pos - first < 3; pos++)
+                {
+                    int b = val[pos];
+                    if (b < '0' || b > '9')
+                        break;
+                    e = e * 10 + (b - '0');
+                }
+                if (pos == first)
+                    return Double.NaN;
+                exp += val[first - 1] == '-' ? -e : e;
+            }
+            if (pos != end)
+                return Double.NaN;
+            double d = m;
+            if (m != 0)
+            {
+                if (exp < -22 || exp > 22)
+                    return Double.NaN;
+                d = exp < 0 ? d / POW10[-exp] : d * POW10[exp];
+            }
+            return neg ? -d : d;
+        }
+
         private static String commaToPeriod(String ds) {
             String s = ds.replace(',', '.');
             if (s != ds) {
@@ -1178,6 +1482,40 @@ public abstract class VR {
                     : ByteUtils.bytesLE2floats2doubles(val);
         }
 
+        @Override
+        public float toFloat(byte[] val, boolean bigEndian, int index)
+        {
+            return bigEndian
+                    ? ByteUtils.bytesBE2float(val, index << 2)
+                    : ByteUtils.bytesLE2float(val, index << 2);
+        }
+
+        @Override
+        public int toFloats(byte[] val, boolean bigEndian, int index,
+                float[] dst, int off, int len)
+        {
+            return floats(val, bigEndian, index, dst, off, len);
+        }
+
+        @Override
+        public double toDouble(byte[] val, boolean bigEndian, int index)
+        {
+            return toFloat(val, bigEndian, index);
+        }
+
+        @Override
+        public int toDoubles(byte[] val, boolean bigEndian, int index,
+                double[] dst, int off, int len)
+        {
+            return floats(val, bigEndian, index, dst, off, len);
+        }
+
+        @Override
+        public FloatBuffer toFloatBuffer(byte[] val, boolean bigEndian)
+        {
+            return wrap(val, bigEndian).asFloatBuffer();
+        }
+
         @Override
         public String toString(byte[] val, boolean bigEndian,
                 SpecificCharacterSet cs)
@@ -1285,6 +1623,27 @@ public abstract class VR {
                     : ByteUtils.bytesLE2doubles(val);
         }
 
+        @Override
+        public double toDouble(byte[] val, boolean bigEndian, int index)
+        {
+            return bigEndian
+                    ? ByteUtils.bytesBE2double(val, index << 3)
+                    : ByteUtils.bytesLE2double(val, index << 3);
+        }
+
+        @Override
+        public int toDoubles(byte[] val, boolean bigEndian, int index,
+                double[] dst, int off, int len)
+        {
+            return doubles(val, bigEndian, index, dst, off, len);
+        }
+
+        @Override
+        public DoubleBuffer toDoubleBuffer(byte[] val, boolean bigEndian)
+        {
+            return wrap(val, bigEndian).asDoubleBuffer();
+        }
+
         @Override
         public String toString(byte[] val, boolean bigEndian,
                 SpecificCharacterSet cs)
@@ -1426,6 +1785,54 @@ public abstract class VR {
             return is;
         }
 
+        @Override
+        public int toInt(byte[] val, boolean bigEndian, int index)
+        {
+            int start = checkedValueStart(val, index);
+            return parseInt(val, start, valueEnd(val, start));
+        }
+
+        @Override
+        public int toInts(byte[] val, boolean bigEndian, int index, int[] dst,
+                int off, int len)
+        {
+            count(val, 1, index, len);
+            int n = 0;
+            for (int start = valueStart(val, index); start >= 0 && n < len;
+                    n++)
+            {
+                int end = valueEnd(val, start);
+                dst[off + n] = parseInt(val, start, end);
+                start = end < val.length ? end + 1 : -1;
+            }
+            return n;
+        }
+
+        private static int parseInt(byte[] val, int start, int end)
+        {
+            while (start < end && val[start] <= ' ')
+                start++;
+            while (end > start && val[end - 1] <= ' ')
+                end--;
+            if (start == end)
+                return 0;
+            int pos = start;
+            boolean neg = val[pos] == '-';
+            if (neg || val[pos] == '+')
+                pos++;
+            if (pos == end || end - pos > 18)
+                return parseIS(new String(val, start, end - start));
+            long l = 0;
+            for (; pos < end; pos++)
+            {
+                int b = val[pos];
+                if (b < '0' || b > '9')
+                    return parseIS(new String(val, start, end - start));
+                l = l * 10 + (b - '0');
+            }
+            return (int) (neg ? -l : l);
+        }
+
     }
 
     private static int parseIS(String val) {
@@ -1600,6 +2007,40 @@ public abstract class VR {
                     : ByteUtils.bytesLE2floats2doubles(val);
         }
 
+        @Override
+        public float toFloat(byte[] val, boolean bigEndian, int index)
+        {
+            return bigEndian
+                    ? ByteUtils.bytesBE2float(val, index << 2)
+                    : ByteUtils.bytesLE2float(val, index << 2);
+        }
+
+        @Override
+        public int toFloats(byte[] val, boolean bigEndian, int index,
+                float[] dst, int off, int len)
+        {
+            return floats(val, bigEndian, index, dst, off, len);
+        }
+
+        @Override
+        public double toDouble(byte[] val, boolean bigEndian, int index)
+        {
+            return toFloat(val, bigEndian, index);
+        }
+
+        @Override
+        public int toDoubles(byte[] val, boolean bigEndian, int index,
+                double[] dst, int off, int len)
+        {
+            return floats(val, bigEndian, index, dst, off, len);
+        }
+
+        @Override
+        public FloatBuffer toFloatBuffer(byte[] val, boolean bigEndian)
+        {
+            return wrap(val, bigEndian).asFloatBuffer();
+        }
+
         @Override
         public String toString(byte[] val, boolean bigEndian,
                 SpecificCharacterSet cs)
@@ -1678,6 +2119,12 @@ public abstract class VR {
                     : ByteUtils.bytesLE2shorts(val);
         }
 
+        @Override
+        public ShortBuffer toShortBuffer(byte[] val, boolean bigEndian)
+        {
+            return wrap(val, bigEndian).asShortBuffer();
+        }
+
         @Override
         public int toInt(byte[] val, boolean bigEndian)
         {
@@ -1696,6 +2143,21 @@ public abstract class VR {
                     : ByteUtils.bytesLE2ushorts(val);
         }
 
+        @Override
+        public int toInt(byte[] val, boolean bigEndian, int index)
+        {
+            return bigEndian
+                    ? ByteUtils.bytesBE2ushort(val, index << 1)
+                    : ByteUtils.bytesLE2ushort(val, index << 1);
+        }
+
+        @Override
+        public int toInts(byte[] val, boolean bigEndian, int index, int[] dst,
+                int off, int len)
+        {
+            return ushorts(val, bigEndian, index, dst, off, len);
+        }
+
         @Override
         public String toString(byte[] val, boolean bigEndian,
                 SpecificCharacterSet cs)
@@ -1869,6 +2331,21 @@ public abstract class VR {
                     : ByteUtils.bytesLE2sshorts(val);
         }
 
+        @Override
+        public int toInt(byte[] val, boolean bigEndian, int index)
+        {
+            return bigEndian
+                    ? ByteUtils.bytesBE2sshort(val, index << 1)
+                    : ByteUtils.bytesLE2sshort(val, index << 1);
+        }
+
+        @Override
+        public int toInts(byte[] val, boolean bigEndian, int index, int[] dst,
+                int off, int len)
+        {
+            return sshorts(val, bigEndian, index, dst, off, len);
+        }
+
         @Override
         protected void toChars(byte[] val, boolean bigEndian,
                 SpecificCharacterSet cs, char[] cbuf, int maxLen, CharOut out)
@@ -2213,6 +2690,21 @@ public abstract class VR {
                     : ByteUtils.bytesLE2ushorts(val);
         }
 
+        @Override
+        public int toInt(byte[] val, boolean bigEndian, int index)
+        {
+            return bigEndian
+                    ? ByteUtils.bytesBE2ushort(val, index << 1)
+                    : ByteUtils.bytesLE2ushort(val, index << 1);
+        }
+
+        @Override
+        public int toInts(byte[] val, boolean bigEndian, int index, int[] dst,
+                int off, int len)
+        {
+            return ushorts(val, bigEndian, index, dst, off, len);
+        }
+
         @Override
         protected void toChars(byte[] val, boolean bigEndian,
                 SpecificCharacterSet cs, char[] cbuf, int maxLen, CharOut out)
@@ -2510,6 +3002,79 @@ public abstract class VR {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Decodes the value with the specified index without allocating an
+     * array for the other values.
+     * 
+     * @throws IndexOutOfBoundsException
+     *             if <code>val</code> contains less than
+     *             <code>index + 1</code> values
+     */
+    public int toInt(byte[] val, boolean bigEndian, int index)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Decodes up to <code>len</code> values, starting with the value with the
+     * specified index, into <code>dst</code>.
+     * 
+     * @return number of decoded values, which is less than <code>len</code>
+     *         if <code>val</code> contains less than <code>index + len</code>
+     *         values
+     */
+    public int toInts(byte[] val, boolean bigEndian, int index, int[] dst,
+            int off, int len)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    public float toFloat(byte[] val, boolean bigEndian, int index)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    public int toFloats(byte[] val, boolean bigEndian, int index,
+            float[] dst, int off, int len)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    public double toDouble(byte[] val, boolean bigEndian, int index)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    public int toDoubles(byte[] val, boolean bigEndian, int index,
+            double[] dst, int off, int len)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Returns a read-only view of <code>val</code>, which reflects later
+     * modifications of <code>val</code>.
+     */
+    public ShortBuffer toShortBuffer(byte[] val, boolean bigEndian)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    public IntBuffer toIntBuffer(byte[] val, boolean bigEndian)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    public FloatBuffer toFloatBuffer(byte[] val, boolean bigEndian)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    public DoubleBuffer toDoubleBuffer(byte[] val, boolean bigEndian)
+    {
+        throw new UnsupportedOperationException();
+    }
+
     public String toString(byte[] val, boolean bigEndian,
             SpecificCharacterSet cs)
     {
@@ -0,0 +1,436 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.util.Arrays;
+
+import org.dcm4che2.data.DicomElement;
+import org.dcm4che2.data.DicomObject;
+import org.dcm4che2.data.Tag;
+import org.dcm4che2.data.VR;
+import org.dcm4che2.util.TagUtils;
+
+/**
+ * Base class of {@link DicomInputHandler}s, which serialize the Data Set
+ * read by a {@link DicomInputStream} directly as UTF-8 encoded text into an
+ * {@link OutputStream}, without building a {@link DicomObject} first.
+ * <p>
+ * Only the values of Specific Character Set (0008,0005), Transfer Syntax UID
+ * (0002,0010) and Private Creator Data Elements are kept in the
+ * {@link DicomObject} of the stream, and items of sequences are removed as
+ * soon as they are written, so the memory consumption only depends on the
+ * nesting depth of the Data Set. Values with a binary VR are encoded in
+ * chunks by the <tt>x-base64</tt> charset of <tt>dcm4che-base64</tt>, or -
+ * if their tag was specified by {@link #setBulkDataTags} and a
+ * {@link #setBulkDataURI Bulk Data URI} is set - only referenced by
+ * <tt>&lt;uri&gt;?offset=&lt;position&gt;&amp;length=&lt;length&gt;</tt>
+ * and skipped. Group Length elements are never written.
+ * 
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ * @see JSONWriter
+ * @see NativeXMLWriter
+ */
+public abstract class AbstractModelWriter implements DicomInputHandler {
+
+    private static final String BASE64 = "x-base64";
+    private static final int BUF_LENGTH = 8192;
+    // multiple of 3 and of 8, so chunks can be encoded and swapped separately
+    private static final int CHUNK_LENGTH = 3072;
+    private static final int INIT_DEPTH = 8;
+    private static final byte[] HEX_DIGITS = {
+        '0', '1', '2', '3', '4', '5', '6', '7',
+        '8', '9', 'A', 'B', 'C', 'D', 'E', 'F' };
+
+    private final OutputStream out;
+    private final byte[] buf = new byte[BUF_LENGTH];
+    private int count;
+    private byte[] chunk;
+    private CharBuffer base64Buf;
+    private CharsetDecoder base64;
+    private String bulkDataURI;
+    private int[] bulkDataTags;
+    private boolean includeFileMetaInfo;
+    private int[] attrCounts = new int[INIT_DEPTH];
+    private int[] itemCounts = new int[INIT_DEPTH];
+    private boolean started;
+    private boolean finished;
+
+    protected AbstractModelWriter(OutputStream out) {
+        if (out == null)
+            throw new NullPointerException("out");
+        this.out = out;
+    }
+
+    public final String getBulkDataURI() {
+        return bulkDataURI;
+    }
+
+    /**
+     * Set URI of the source of the parsed stream, used to reference values
+     * of attributes specified by {@link #setBulkDataTags}. If <tt>null</tt>
+     * (= default), all values are written inline.
+     * 
+     * @param uri
+     *            URI of the source or <tt>null</tt>
+     */
+    public final void setBulkDataURI(String uri) {
+        this.bulkDataURI = uri;
+    }
+
+    public final int[] getBulkDataTags() {
+        return bulkDataTags != null ? bulkDataTags.clone() : null;
+    }
+
+    public final void setBulkDataTags(int[] tags) {
+        if (tags != null) {
+            this.bulkDataTags = tags.clone();
+            Arrays.sort(bulkDataTags);
+        } else {
+            this.bulkDataTags = null;
+        }
+    }
+
+    public final boolean isIncludeFileMetaInfo() {
+        return includeFileMetaInfo;
+    }
+
+    /**
+     * Include File Meta Information (0002,eeee) into the output. Disabled by
+     * default.
+     */
+    public final void setIncludeFileMetaInfo(boolean includeFileMetaInfo) {
+        this.includeFileMetaInfo = includeFileMetaInfo;
+    }
+
+    public boolean readValue(DicomInputStream in) throws IOException {
+        switch (in.tag()) {
+        case Tag.Item:
+            transcodeItem(in);
+            break;
+        case Tag.ItemDelimitationItem:
+            in.readValue(in);
+            if (in.level() == 0)
+                finish();
+            break;
+        case Tag.SequenceDelimitationItem:
+            in.readValue(in);
+            break;
+        default:
+            transcodeAttribute(in);
+        }
+        return true;
+    }
+
+    /**
+     * Complete the output and flush it to the underlying stream. Invoked
+     * automatically on the end of the parsed Data Set; subsequent calls
+     * have no effect.
+     */
+    public void finish() throws IOException {
+        if (finished)
+            return;
+        if (!started) {
+            started = true;
+            startDataset();
+        }
+        endDataset();
+        finished = true;
+        flush();
+    }
+
+    private void transcodeAttribute(DicomInputStream in) throws IOException {
+        final int tag = in.tag();
+        final VR vr = in.vr();
+        final int vallen = in.valueLength();
+        final DicomObject attrs = in.getDicomObject();
+        if (!started) {
+            started = true;
+            startDataset();
+        }
+        if (TagUtils.isGroupLengthElement(tag) || !includeFileMetaInfo
+                && TagUtils.isFileMetaInfoElement(tag)) {
+            in.readValue(in);
+            return;
+        }
+        final int level = in.level();
+        ensureDepth(level);
+        final boolean first = attrCounts[level]++ == 0;
+        final boolean bigEndian = in.getTransferSyntax().bigEndian();
+        if (vr == VR.SQ || vallen == -1 && vr == VR.UN) {
+            // undefined length UN contains items encoded in implicit VR LE
+            startAttribute(tag, VR.SQ, attrs, first);
+            itemCounts[level] = 0;
+            in.readItems(attrs.putSequence(tag), vallen);
+            attrs.remove(tag);
+            endAttribute(itemCounts[level]);
+        } else if (vallen == -1) {
+            startAttribute(tag, vr, attrs, first);
+            itemCounts[level] = 0;
+            in.readItems(attrs.putFragments(tag, vr, bigEndian), vallen);
+            attrs.remove(tag);
+            endAttribute(itemCounts[level]);
+        } else {
+            startAttribute(tag, vr, attrs, first);
+            if (vallen > 0) {
+                if (isBulkData(in, tag)) {
+                    writeBulkDataURI(in, vallen);
+                } else if (vr instanceof VR.Fragment) {
+                    writeInlineBinary(in, vr, vallen, bigEndian);
+                } else {
+                    byte[] val = in.readBytes(vallen);
+                    writeValues(tag, vr, val, bigEndian, attrs);
+                    if (tag == Tag.SpecificCharacterSet
+                            || tag == Tag.TransferSyntaxUID
+                            || TagUtils.isPrivateCreatorDataElement(tag)) {
+                        attrs.putBytes(tag, vr, val, bigEndian);
+                    }
+                }
+            }
+            endAttribute(0);
+        }
+    }
+
+    private void transcodeItem(DicomInputStream in) throws IOException {
+        final DicomElement sq = in.sq();
+        final int level = in.level();
+        final int number = ++itemCounts[level - 1];
+        if (sq.vr() == VR.SQ) {
+            ensureDepth(level);
+            attrCounts[level] = 0;
+            startItem(number);
+            in.readValue(in);
+            // allow gc to release the item
+            sq.removeDicomObject(sq.countItems() - 1);
+            endItem();
+        } else {
+            final int vallen = in.valueLength();
+            if (vallen == -1)
+                throw new DicomCodingException(TagUtils.toString(sq.tag())
+                        + " " + sq.vr()
+                        + " contains item with unknown length.");
+            startFragment(number);
+            if (vallen > 0) {
+                if (isBulkData(in, sq.tag())) {
+                    writeBulkDataURI(in, vallen);
+                } else {
+                    writeInlineBinary(in, sq.vr(), vallen,
+                            in.getTransferSyntax().bigEndian());
+                }
+            }
+            endFragment();
+        }
+    }
+
+    private void ensureDepth(int level) {
+        if (level < attrCounts.length)
+            return;
+        int[] tmp = new int[attrCounts.length << 1];
+        System.arraycopy(attrCounts, 0, tmp, 0, attrCounts.length);
+        attrCounts = tmp;
+        tmp = new int[itemCounts.length << 1];
+        System.arraycopy(itemCounts, 0, tmp, 0, itemCounts.length);
+        itemCounts = tmp;
+    }
+
+    private boolean isBulkData(DicomInputStream in, int tag) {
+        return bulkDataURI != null && bulkDataTags != null
+                && !in.getTransferSyntax().deflated()
+                && Arrays.binarySearch(bulkDataTags, tag) >= 0;
+    }
+
+    private void writeBulkDataURI(DicomInputStream in, int vallen)
+            throws IOException {
+        writeBulkDataURI(bulkDataURI + "?offset=" + in.getStreamPosition()
+                + "&length=" + (vallen & 0xffffffffL));
+        in.skipFully(vallen & 0xffffffffL);
+    }
+
+    private void writeInlineBinary(DicomInputStream in, VR vr, int vallen,
+            boolean bigEndian) throws IOException {
+        if (base64 == null) {
+            base64 = Charset.forName(BASE64).newDecoder();
+            chunk = new byte[CHUNK_LENGTH];
+            base64Buf = CharBuffer.allocate(CHUNK_LENGTH / 3 * 4);
+        }
+        startInlineBinary();
+        base64.reset();
+        ByteBuffer bb = ByteBuffer.wrap(chunk);
+        long remaining = vallen & 0xffffffffL;
+        while (remaining > 0) {
+            int n = (int) Math.min(remaining, CHUNK_LENGTH);
+            in.readFully(chunk, 0, n);
+            remaining -= n;
+            if (bigEndian)
+                vr.toggleEndian(chunk, 0, n);
+            bb.limit(n);
+            bb.position(0);
+            encode(bb, remaining == 0);
+        }
+        while (base64.flush(base64Buf).isOverflow())
+            writeBase64();
+        writeBase64();
+        endInlineBinary();
+    }
+
+    private void encode(ByteBuffer bb, boolean endOfInput)
+            throws IOException {
+        while (base64.decode(bb, base64Buf, endOfInput).isOverflow())
+            writeBase64();
+    }
+
+    private void writeBase64() throws IOException {
+        base64Buf.flip();
+        char[] cs = base64Buf.array();
+        for (int i = 0, n = base64Buf.limit(); i < n; i++) {
+            if (count == BUF_LENGTH)
+                drain();
+            buf[count++] = (byte) cs[i];
+        }
+        base64Buf.clear();
+    }
+
+    /**
+     * Write the chars of <tt>s</tt> in the range <tt>[start, end)</tt>
+     * UTF-8 encoded to the output.
+     */
+    protected final void write(String s, int start, int end)
+            throws IOException {
+        for (int i = start; i < end; i++) {
+            if (count + 4 > BUF_LENGTH)
+                drain();
+            int c = s.charAt(i);
+            if (c < 0x80) {
+                buf[count++] = (byte) c;
+            } else if (c < 0x800) {
+                buf[count++] = (byte) (0xc0 | (c >> 6));
+                buf[count++] = (byte) (0x80 | (c & 0x3f));
+            } else {
+                if (Character.isHighSurrogate((char) c) && i + 1 < end
+                        && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    c = Character.toCodePoint((char) c, s.charAt(++i));
+                    buf[count++] = (byte) (0xf0 | (c >> 18));
+                    buf[count++] = (byte) (0x80 | ((c >> 12) & 0x3f));
+                } else {
+                    buf[count++] = (byte) (0xe0 | (c >> 12));
+                }
+                buf[count++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                buf[count++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+    }
+
+    protected final void write(String s) throws IOException {
+        write(s, 0, s.length());
+    }
+
+    /**
+     * Write an ASCII char to the output.
+     */
+    protected final void write(char c) throws IOException {
+        if (count == BUF_LENGTH)
+            drain();
+        buf[count++] = (byte) c;
+    }
+
+    protected final void writeHex(int tag) throws IOException {
+        if (count + 8 > BUF_LENGTH)
+            drain();
+        for (int shift = 28; shift >= 0; shift -= 4)
+            buf[count++] = HEX_DIGITS[(tag >>> shift) & 0xf];
+    }
+
+    private void drain() throws IOException {
+        out.write(buf, 0, count);
+        count = 0;
+    }
+
+    private void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    protected abstract void startDataset() throws IOException;
+
+    protected abstract void endDataset() throws IOException;
+
+    /**
+     * Start the output of an attribute.
+     * 
+     * @param first
+     *            indicates the first attribute of a Data Set
+     */
+    protected abstract void startAttribute(int tag, VR vr, DicomObject attrs,
+            boolean first) throws IOException;
+
+    /**
+     * End the output of an attribute.
+     * 
+     * @param items
+     *            number of written items or fragments
+     */
+    protected abstract void endAttribute(int items) throws IOException;
+
+    /**
+     * Write the non-empty value of an attribute with a string or numeric VR.
+     */
+    protected abstract void writeValues(int tag, VR vr, byte[] val,
+            boolean bigEndian, DicomObject attrs) throws IOException;
+
+    protected abstract void startItem(int number) throws IOException;
+
+    protected abstract void endItem() throws IOException;
+
+    protected abstract void startFragment(int number) throws IOException;
+
+    protected abstract void endFragment() throws IOException;
+
+    protected abstract void startInlineBinary() throws IOException;
+
+    protected abstract void endInlineBinary() throws IOException;
+
+    protected abstract void writeBulkDataURI(String uri) throws IOException;
+}
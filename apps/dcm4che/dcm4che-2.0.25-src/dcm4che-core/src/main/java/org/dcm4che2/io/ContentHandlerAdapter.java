@@ -199,24 +199,27 @@ public class ContentHandlerAdapter extends DefaultHandler {
         return readFromSrc();
     }    
     
-    private byte[] readFromSrc() throws SAXException {
-        URL url;
+    static URL toURL(String src, Locator locator) throws SAXException {
         try {
-            url = new URL(src);
+            return new URL(src);
         } catch (MalformedURLException e) {
-            String systemId = locator.getSystemId();
+            String systemId = locator != null ? locator.getSystemId() : null;
             if (systemId == null) {
                 throw new SAXException("Missing systemId which is needed " +
                         "for resolving relative src: " + src);
             }
             try {
-                url = new URL(
+                return new URL(
                         systemId.substring(0, systemId.lastIndexOf('/')+1) + src);
             } catch (MalformedURLException e1) {
                 throw new SAXException(
                         "Invalid reference to external value src: " + src);
             }
         }
+    }
+
+    private byte[] readFromSrc() throws SAXException {
+        URL url = toURL(src, locator);
         DataInputStream in = null;
         try {
             URLConnection con = url.openConnection();
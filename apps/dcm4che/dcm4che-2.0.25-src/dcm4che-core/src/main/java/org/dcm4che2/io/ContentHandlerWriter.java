@@ -0,0 +1,495 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.io;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLConnection;
+import java.util.Stack;
+
+import org.dcm4che2.data.BasicDicomObject;
+import org.dcm4che2.data.DicomObject;
+import org.dcm4che2.data.SpecificCharacterSet;
+import org.dcm4che2.data.Tag;
+import org.dcm4che2.data.TransferSyntax;
+import org.dcm4che2.data.VR;
+import org.dcm4che2.util.CloseUtils;
+import org.dcm4che2.util.TagUtils;
+import org.xml.sax.Attributes;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Streaming counterpart of {@link ContentHandlerAdapter}, which writes the
+ * XML presentation produced by {@link SAXWriter} directly to a
+ * {@link DicomOutputStream}, element by element as they are closed, instead
+ * of building a {@link DicomObject}.
+ * <p>
+ * Non-empty sequences and items are encoded with undefined length, empty
+ * ones with length 0, so no length has to be back-patched. Values are
+ * decoded in chunks; decoded values exceeding the
+ * {@link #setMemoryThreshold memory threshold} are spooled to a temporary
+ * file, values referenced by <tt>src</tt> are copied from their source.
+ * So memory consumption only depends on the nesting depth, not on the size
+ * of the Data Set. Therefore attributes must be ordered by ascending tag
+ * values, as written by {@link SAXWriter}. Group Length elements are
+ * skipped. File Meta Information elements are collected and written
+ * (including its Group Length) in front of the Data Set.
+ * 
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ */
+public class ContentHandlerWriter extends DefaultHandler {
+
+    private static enum State {
+        EXPECT_ELM, EXPECT_VAL_OR_FIRST_ITEM, EXPECT_FRAG, EXPECT_NEXT_ITEM;
+    }
+
+    private static final class Frame {
+        final DicomObject attrs;
+        long prevTag = -1L;
+        boolean pendingItem;
+        int tag;
+        VR vr;
+        boolean pendingHeader;
+
+        Frame(DicomObject attrs) {
+            this.attrs = attrs;
+        }
+    }
+
+    private static final int DEF_MEMORY_THRESHOLD = 0x10000;
+    // multiple of 8, so chunks can be swapped separately
+    private static final int COPY_BUFFER_LENGTH = 8192;
+    private static final byte[] EMPTY_VALUE = {};
+
+    private final DicomOutputStream dos;
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final StringBuffer sb = new StringBuffer();
+    private final Stack<Frame> stack = new Stack<Frame>();
+    private TransferSyntax transferSyntax;
+    private boolean includeFileMetaInfo = true;
+    private int memoryThreshold = DEF_MEMORY_THRESHOLD;
+    private State state = State.EXPECT_ELM;
+    private Frame frame = new Frame(new BasicDicomObject());
+    private DicomObject fmi;
+    private boolean started;
+    private boolean fmiWritten;
+    private String src;
+    private File spool;
+    private OutputStream spoolOut;
+    private long spoolLen;
+    private byte[] copyBuf;
+    private Locator locator;
+
+    public ContentHandlerWriter(DicomOutputStream dos) {
+        if (dos == null)
+            throw new NullPointerException("dos");
+        this.dos = dos;
+    }
+
+    public final TransferSyntax getTransferSyntax() {
+        return transferSyntax;
+    }
+
+    /**
+     * Set Transfer Syntax of the written Data Set. If <tt>null</tt>
+     * (= default), the Transfer Syntax UID of the File Meta Information is
+     * used, or Implicit VR Little Endian without File Meta Information.
+     */
+    public final void setTransferSyntax(TransferSyntax transferSyntax) {
+        this.transferSyntax = transferSyntax;
+    }
+
+    public final boolean isIncludeFileMetaInfo() {
+        return includeFileMetaInfo;
+    }
+
+    /**
+     * Write File Meta Information (0002,eeee) contained in the XML input
+     * in front of the Data Set. Enabled by default.
+     */
+    public final void setIncludeFileMetaInfo(boolean includeFileMetaInfo) {
+        this.includeFileMetaInfo = includeFileMetaInfo;
+    }
+
+    public final int getMemoryThreshold() {
+        return memoryThreshold;
+    }
+
+    /**
+     * Set maximal number of bytes of a decoded value kept in memory, before
+     * it is spooled to a temporary file. Default: 64 KiB.
+     */
+    public final void setMemoryThreshold(int memoryThreshold) {
+        if (memoryThreshold < 8)
+            throw new IllegalArgumentException("memoryThreshold: "
+                    + memoryThreshold);
+        this.memoryThreshold = memoryThreshold;
+    }
+
+    /**
+     * Returns <tt>true</tt>, if File Meta Information was written in front
+     * of the Data Set.
+     */
+    public final boolean isFileMetaInfoWritten() {
+        return fmiWritten;
+    }
+
+    @Override
+    public void setDocumentLocator(Locator locator) {
+        this.locator = locator;
+    }
+
+    @Override
+    public void startElement(String namespaceURI, String localName,
+            String qName, Attributes atts) throws SAXException {
+        try {
+            if ("attr".equals(qName)) {
+                onStartElement(atts.getValue("tag"), atts.getValue("vr"),
+                        atts.getValue("src"));
+            } else if ("item".equals(qName)) {
+                onStartItem(atts.getValue("src"));
+            }
+        } catch (IOException e) {
+            throw new SAXException(e);
+        }
+    }
+
+    @Override
+    public void endElement(String namespaceURI, String localName, String qName)
+            throws SAXException {
+        try {
+            if ("attr".equals(qName)) {
+                onEndElement();
+            } else if ("item".equals(qName)) {
+                onEndItem();
+            }
+        } catch (IOException e) {
+            throw new SAXException(e);
+        }
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length)
+            throws SAXException {
+        if ((state == State.EXPECT_VAL_OR_FIRST_ITEM && frame.vr != VR.SQ)
+                || state == State.EXPECT_FRAG) {
+            sb.append(ch, start, length);
+            frame.vr.parseXMLValue(sb, out, false,
+                    frame.attrs.getSpecificCharacterSet());
+            if (out.size() >= memoryThreshold) {
+                try {
+                    spool(frame.vr);
+                } catch (IOException e) {
+                    throw new SAXException(e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void endDocument() throws SAXException {
+        try {
+            startDataset();
+            dos.finish();
+        } catch (IOException e) {
+            throw new SAXException(e);
+        } finally {
+            deleteSpool();
+        }
+    }
+
+    private void onStartElement(String tagStr, String vrStr, String src)
+            throws SAXException, IOException {
+        if (state != State.EXPECT_ELM)
+            throw new IllegalStateException("state:" + state);
+        final int tag = (int) Long.parseLong(tagStr, 16);
+        final long utag = tag & 0xffffffffL;
+        if (utag <= frame.prevTag)
+            throw new SAXException("Attribute " + TagUtils.toString(tag)
+                    + " not in ascending order");
+        if (TagUtils.isCommandElement(tag))
+            throw new SAXException("Command Element " + TagUtils.toString(tag)
+                    + " not supported");
+        frame.prevTag = utag;
+        frame.tag = tag;
+        frame.vr = vrStr == null ? frame.attrs.vrOf(tag)
+                : VR.valueOf(vrStr.charAt(0) << 8 | vrStr.charAt(1));
+        frame.pendingHeader = true;
+        this.src = src;
+        if (stack.isEmpty() && !TagUtils.isFileMetaInfoElement(tag))
+            startDataset();
+        if (frame.pendingItem) {
+            dos.writeHeader(Tag.Item, null, -1);
+            frame.pendingItem = false;
+        }
+        state = State.EXPECT_VAL_OR_FIRST_ITEM;
+    }
+
+    private void onStartItem(String src) throws IOException {
+        if (state != State.EXPECT_VAL_OR_FIRST_ITEM
+                && state != State.EXPECT_NEXT_ITEM) {
+            throw new IllegalStateException("state:" + state);
+        }
+        this.src = src;
+        if (frame.pendingHeader) {
+            dos.writeHeader(frame.tag, frame.vr, -1);
+            frame.pendingHeader = false;
+        }
+        sb.setLength(0);
+        out.reset();
+        if (frame.vr == VR.SQ) {
+            BasicDicomObject item = new BasicDicomObject();
+            item.setParent(frame.attrs);
+            stack.push(frame);
+            frame = new Frame(item);
+            frame.pendingItem = true;
+            state = State.EXPECT_ELM;
+        } else {
+            state = State.EXPECT_FRAG;
+        }
+    }
+
+    private void onEndItem() throws SAXException, IOException {
+        switch (state) {
+        case EXPECT_ELM:
+            dos.writeHeader(frame.pendingItem ? Tag.Item
+                    : Tag.ItemDelimitationItem, null, 0);
+            frame = stack.pop();
+            break;
+        case EXPECT_FRAG:
+            writeValue(Tag.Item, null, frame.vr);
+            break;
+        default:
+            throw new IllegalStateException("state:" + state);
+        }
+        state = State.EXPECT_NEXT_ITEM;
+    }
+
+    private void onEndElement() throws SAXException, IOException {
+        switch (state) {
+        case EXPECT_VAL_OR_FIRST_ITEM:
+            final int tag = frame.tag;
+            final VR vr = frame.vr;
+            if (vr == VR.SQ) {
+                dos.writeHeader(tag, vr, 0);
+            } else if (TagUtils.isGroupLengthElement(tag)) {
+                discardValue();
+            } else if (!started) {
+                if (fmi == null)
+                    fmi = new BasicDicomObject();
+                fmi.putBytes(tag, vr, parseValue(vr, null), false);
+            } else {
+                if (src == null && (tag == Tag.SpecificCharacterSet
+                        || TagUtils.isPrivateCreatorDataElement(tag))) {
+                    byte[] val = parseValue(vr,
+                            frame.attrs.getSpecificCharacterSet());
+                    frame.attrs.putBytes(tag, vr, val, false);
+                    writeValue(tag, vr, vr, val);
+                } else {
+                    writeValue(tag, vr, vr);
+                }
+            }
+            break;
+        case EXPECT_NEXT_ITEM:
+            dos.writeHeader(Tag.SequenceDelimitationItem, null, 0);
+            break;
+        default:
+            throw new IllegalStateException("state:" + state);
+        }
+        state = State.EXPECT_ELM;
+    }
+
+    private void startDataset() throws SAXException, IOException {
+        if (started)
+            return;
+        started = true;
+        TransferSyntax ts = transferSyntax;
+        if (fmi != null && includeFileMetaInfo) {
+            if (ts != null) {
+                fmi.putString(Tag.TransferSyntaxUID, VR.UI, ts.uid());
+            } else {
+                String tsuid = fmi.getString(Tag.TransferSyntaxUID);
+                if (tsuid == null)
+                    throw new SAXException(
+                            "Missing (0002,0010) Transfer Syntax UID");
+                ts = TransferSyntax.valueOf(tsuid);
+            }
+            dos.writeFileMetaInformation(fmi);
+            fmiWritten = true;
+        } else if (ts == null) {
+            ts = TransferSyntax.ImplicitVRLittleEndian;
+        }
+        fmi = null;
+        dos.setTransferSyntax(ts);
+    }
+
+    private byte[] parseValue(VR vr, SpecificCharacterSet cs)
+            throws SAXException {
+        if (src != null || spoolLen > 0)
+            throw new SAXException("Value of " + TagUtils.toString(frame.tag)
+                    + " too large or external");
+        byte[] val = vr.parseXMLValue(sb, out, true, cs);
+        sb.setLength(0);
+        out.reset();
+        return val != null ? val : EMPTY_VALUE;
+    }
+
+    private void writeValue(int tag, VR vr, VR valueVR)
+            throws SAXException, IOException {
+        if (src != null) {
+            copyFromSrc(tag, vr, valueVR);
+            return;
+        }
+        byte[] val = valueVR.parseXMLValue(sb, out, true,
+                frame.attrs.getSpecificCharacterSet());
+        sb.setLength(0);
+        out.reset();
+        writeValue(tag, vr, valueVR, val != null ? val : EMPTY_VALUE);
+    }
+
+    private void writeValue(int tag, VR vr, VR valueVR, byte[] val)
+            throws SAXException, IOException {
+        final long len = spoolLen + val.length;
+        if (len > 0xfffffffeL)
+            throw new SAXException("Value of " + TagUtils.toString(tag)
+                    + " too large: " + len);
+        dos.writeHeader(tag, vr, (int) ((len + 1) & ~1L));
+        if (spoolLen > 0)
+            copySpool();
+        if (dos.getTransferSyntax().bigEndian())
+            valueVR.toggleEndian(val, 0, val.length);
+        dos.write(val);
+        if ((len & 1) != 0)
+            dos.write(valueVR.padding());
+    }
+
+    private void discardValue() {
+        sb.setLength(0);
+        out.reset();
+        deleteSpool();
+    }
+
+    private void spool(VR vr) throws IOException {
+        byte[] b = out.toByteArray();
+        int n = b.length & ~7;
+        if (dos.getTransferSyntax().bigEndian())
+            vr.toggleEndian(b, 0, n);
+        if (spoolOut == null) {
+            spool = File.createTempFile("dcm", ".tmp");
+            spoolOut = new BufferedOutputStream(new FileOutputStream(spool));
+        }
+        spoolOut.write(b, 0, n);
+        spoolLen += n;
+        out.reset();
+        out.write(b, n, b.length - n);
+    }
+
+    private void copySpool() throws IOException {
+        spoolOut.close();
+        spoolOut = null;
+        InputStream in = new FileInputStream(spool);
+        try {
+            copy(in, spoolLen, null);
+        } finally {
+            CloseUtils.safeClose(in);
+            deleteSpool();
+        }
+    }
+
+    private void deleteSpool() {
+        CloseUtils.safeClose(spoolOut);
+        spoolOut = null;
+        if (spool != null) {
+            spool.delete();
+            spool = null;
+        }
+        spoolLen = 0;
+    }
+
+    private void copyFromSrc(int tag, VR vr, VR valueVR)
+            throws SAXException, IOException {
+        sb.setLength(0);
+        out.reset();
+        if (src.length() == 0) {
+            dos.writeHeader(tag, vr, 0);
+            return;
+        }
+        URLConnection con = ContentHandlerAdapter.toURL(src, locator)
+                .openConnection();
+        InputStream in = con.getInputStream();
+        try {
+            int len = con.getContentLength();
+            if (len < 0)
+                throw new SAXException("Unknown length of external value src: "
+                        + src);
+            dos.writeHeader(tag, vr, (len + 1) & ~1);
+            copy(in, len, dos.getTransferSyntax().bigEndian() ? valueVR : null);
+            if ((len & 1) != 0)
+                dos.write(valueVR.padding());
+        } finally {
+            CloseUtils.safeClose(in);
+        }
+    }
+
+    private void copy(InputStream in, long len, VR toggleEndian)
+            throws IOException {
+        if (copyBuf == null)
+            copyBuf = new byte[COPY_BUFFER_LENGTH];
+        DataInputStream din = new DataInputStream(in);
+        while (len > 0) {
+            int n = (int) Math.min(len, COPY_BUFFER_LENGTH);
+            din.readFully(copyBuf, 0, n);
+            if (toggleEndian != null)
+                toggleEndian.toggleEndian(copyBuf, 0, n);
+            dos.write(copyBuf, 0, n);
+            len -= n;
+        }
+    }
+}
@@ -48,14 +48,18 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
 import java.util.zip.Inflater;
 import java.util.zip.InflaterInputStream;
 
 import javax.imageio.stream.ImageInputStream;
 
 import org.dcm4che2.data.BasicDicomObject;
+import org.dcm4che2.data.BulkDataReference;
 import org.dcm4che2.data.DicomElement;
 import org.dcm4che2.data.DicomObject;
+import org.dcm4che2.data.ElementPool;
 import org.dcm4che2.data.Tag;
 import org.dcm4che2.data.TransferSyntax;
 import org.dcm4che2.data.VR;
@@ -105,6 +109,34 @@ public class DicomInputStream extends FilterInputStream implements
 
     private boolean stopAtFmiEnd;
 
+    private boolean deflated;
+
+    private File bulkDataFile;
+
+    private int bulkDataThreshold = Integer.MAX_VALUE;
+
+    private int[] bulkDataTags = {};
+
+    private Executor inflateExecutor;
+
+    private ElementPool elementPool;
+
+    private int internMaxLength = 64;
+
+    private int[] notInternedTags = { // sorted
+            Tag.MediaStorageSOPInstanceUID,
+            Tag.SOPInstanceUID,
+            Tag.AccessionNumber,
+            Tag.ReferencedSOPInstanceUID,
+            Tag.PatientID,
+            Tag.StudyInstanceUID,
+            Tag.SeriesInstanceUID,
+            Tag.StudyID,
+            Tag.ScheduledProcedureStepID,
+            Tag.PerformedProcedureStepID,
+            Tag.RequestedProcedureID,
+    };
+
     public DicomInputStream(RandomAccessFile raf) throws IOException {
         this(new RAFInputStreamAdapter(raf));
         pos = raf.getFilePointer();
@@ -118,6 +150,7 @@ public class DicomInputStream extends FilterInputStream implements
 
     public DicomInputStream(File f) throws IOException {
         super(new BufferedInputStream(new FileInputStream(f)));
+        this.bulkDataFile = f;
         try {
             this.ts = guessTransferSyntax();
         } catch (IOException e) {
@@ -154,6 +187,23 @@ public class DicomInputStream extends FilterInputStream implements
         switchTransferSyntax(ts);
     }
 
+    /**
+     * Creates a stream for reading a dataset encoded in the specified
+     * Transfer Syntax. If <code>ts</code> is a Deflated Transfer Syntax,
+     * the compressed data is read ahead from <code>in</code> by a task
+     * executed by <code>inflateExecutor</code>.
+     * 
+     * @see #setInflateExecutor(Executor)
+     */
+    public DicomInputStream(InputStream in, TransferSyntax ts,
+            Executor inflateExecutor) throws IOException {
+        super(in);
+        if (ts == null)
+            throw new NullPointerException("ts");
+        this.inflateExecutor = inflateExecutor;
+        switchTransferSyntax(ts);
+    }
+
     public byte[] getPreamble() {
         return (preamble == null ? null : preamble.clone());
     }
@@ -204,6 +254,179 @@ public class DicomInputStream extends FilterInputStream implements
         return sqStack.get(sqStack.size() - 1);
     }
 
+    /**
+     * Returns the file referenced by bulk data elements.
+     * 
+     * @return the file referenced by bulk data elements or <code>null</code>,
+     *         if bulk data is always read into memory.
+     * @see #setBulkDataFile(File)
+     */
+    public final File getBulkDataFile() {
+        return bulkDataFile;
+    }
+
+    /**
+     * Set the file referenced by bulk data elements. Only if a file is
+     * specified - which is the default, if this stream was created by
+     * {@link #DicomInputStream(File)} - values exceeding the
+     * {@link #setBulkDataThreshold(int) bulk data threshold} and values of
+     * {@link #setBulkDataTags(int[]) bulk data tags} are not read into memory,
+     * but put as {@link BulkDataReference} into the parsed
+     * <code>DicomObject</code>. The stream position must correspond to the
+     * file offset. Values of Deflated Transfer Syntaxes are always read into
+     * memory.
+     * 
+     * @param file
+     *            the file read by this stream or <code>null</code>, to read
+     *            always all values into memory.
+     */
+    public final void setBulkDataFile(File file) {
+        this.bulkDataFile = file;
+    }
+
+    public final int getBulkDataThreshold() {
+        return bulkDataThreshold;
+    }
+
+    /**
+     * Set maximal length of values which are read into memory. Longer values
+     * and fragments are only referenced by {@link BulkDataReference}s.
+     * Default: <code>Integer.MAX_VALUE</code>.
+     * 
+     * @param threshold
+     *            maximal length of values read into memory.
+     * @see #setBulkDataFile(File)
+     */
+    public final void setBulkDataThreshold(int threshold) {
+        if (threshold < 0)
+            throw new IllegalArgumentException("threshold:" + threshold);
+        this.bulkDataThreshold = threshold;
+    }
+
+    public final int[] getBulkDataTags() {
+        return bulkDataTags.clone();
+    }
+
+    /**
+     * Set tags of elements, which non-empty values and fragments are only
+     * referenced by {@link BulkDataReference}s, independent of their length -
+     * typically {@link Tag#PixelData}.
+     * 
+     * @param tags
+     *            tags of bulk data elements.
+     * @see #setBulkDataFile(File)
+     */
+    public final void setBulkDataTags(int[] tags) {
+        int[] tmp = tags.clone();
+        Arrays.sort(tmp);
+        this.bulkDataTags = tmp;
+    }
+
+    public final Executor getInflateExecutor() {
+        return inflateExecutor;
+    }
+
+    /**
+     * Set the <code>Executor</code> used to read ahead the compressed data of
+     * a Deflated Transfer Syntax by a {@link ReadAheadInputStream}, so reading
+     * from the underlying stream overlaps with the decompression. Only
+     * effective, if invoked before the Deflated part of the stream is reached
+     * - e.g. after reading the File Meta Information. Default:
+     * <code>null</code> - read compressed data in the calling thread.
+     * 
+     * @param executor
+     *            executes the read ahead task or <code>null</code>
+     */
+    public final void setInflateExecutor(Executor executor) {
+        this.inflateExecutor = executor;
+    }
+
+    public final ElementPool getElementPool() {
+        return elementPool;
+    }
+
+    /**
+     * Set the pool by which parsed elements with a short value of VR CS, LO,
+     * SH or UI are shared, so equal values parsed from different datasets
+     * are only kept once in memory. Should be used for datasets which are
+     * kept in memory in large numbers - e.g. by a query cache. Default:
+     * <code>null</code> - do not share parsed elements.
+     * 
+     * @param pool
+     *            the pool, typically {@link ElementPool#getDefault()}, or
+     *            <code>null</code>
+     * @see #setInternMaxLength(int)
+     */
+    public final void setElementPool(ElementPool pool) {
+        this.elementPool = pool;
+    }
+
+    public final int getInternMaxLength() {
+        return internMaxLength;
+    }
+
+    /**
+     * Set maximal length of values which are shared by the
+     * {@link #setElementPool(ElementPool) element pool}. Default: 64.
+     * 
+     * @param maxLength
+     *            maximal length of shared values.
+     */
+    public final void setInternMaxLength(int maxLength) {
+        if (maxLength < 0)
+            throw new IllegalArgumentException("maxLength:" + maxLength);
+        this.internMaxLength = maxLength;
+    }
+
+    public final int[] getNotInternedTags() {
+        return notInternedTags.clone();
+    }
+
+    /**
+     * Set tags of elements, which are not shared by the
+     * {@link #setElementPool(ElementPool) element pool}, because their values
+     * are unique per dataset, so pooling would only add to the memory
+     * footprint. Default: Accession Number, Patient ID, Study ID, Study,
+     * Series and SOP Instance UID and the Procedure and Procedure Step IDs.
+     * 
+     * @param tags
+     *            tags of elements with unique values.
+     */
+    public final void setNotInternedTags(int[] tags) {
+        int[] tmp = tags.clone();
+        Arrays.sort(tmp);
+        this.notInternedTags = tmp;
+    }
+
+    private boolean isInternable(int tag, VR vr, byte[] val) {
+        if (elementPool == null || val.length > internMaxLength
+                || Arrays.binarySearch(notInternedTags, tag) >= 0)
+            return false;
+        if (vr == VR.CS || vr == VR.UI)
+            return true;
+        if (vr != VR.LO && vr != VR.SH)
+            return false;
+        // decoded value cached by shared element must not depend on the
+        // Specific Character Set of the dataset
+        for (byte b : val)
+            if (b < 0 || b == 0x1b)
+                return false;
+        return true;
+    }
+
+    private boolean isBulkData(int tag, int len) {
+        return bulkDataFile != null && !deflated && len > 0
+                && !TagUtils.isFileMetaInfoElement(tag)
+                && (len > bulkDataThreshold
+                        || Arrays.binarySearch(bulkDataTags, tag) >= 0);
+    }
+
+    private BulkDataReference skipBulkData(int len) throws IOException {
+        BulkDataReference ref = new BulkDataReference(bulkDataFile, pos, len);
+        skipFully(len);
+        return ref;
+    }
+
     public final TransferSyntax getTransferSyntax() {
         return ts;
     }
@@ -496,12 +719,16 @@ public class DicomInputStream extends FilterInputStream implements
             throw new IllegalStateException(
                     "Cannot switch back from Deflated TS");
         if (ts.deflated()) {
-            if (hasZLIBHeader()) {
+            boolean zlib = hasZLIBHeader();
+            InputStream src = inflateExecutor != null
+                    ? new ReadAheadInputStream(super.in, inflateExecutor)
+                    : super.in;
+            if (zlib) {
                 log.warn("Deflated DICOM Stream with ZLIB Header");
-                super.in = new InflaterInputStream(super.in);
+                super.in = new InflaterInputStream(src);
             } else
-                super.in = new InflaterInputStream(super.in,
-                        new Inflater(true));
+                super.in = new InflaterInputStream(src, new Inflater(true));
+            deflated = true;
         }
         this.ts = ts;
     }
@@ -545,11 +772,18 @@ public class DicomInputStream extends FilterInputStream implements
                 DicomElement a = vr == VR.SQ ? attrs.putSequence(tag) : attrs
                         .putFragments(tag, vr, ts.bigEndian());
                 readItems(a, vallen);
+            } else if (isBulkData(tag, vallen)) {
+                attrs.putBulkData(tag, vr, skipBulkData(vallen),
+                        ts.bigEndian());
             } else {
-                DicomElement a = attrs.putBytes(tag, vr, readBytes(vallen), ts
-                        .bigEndian());
+                byte[] val = readBytes(vallen);
+                DicomElement a = attrs.putBytes(tag, vr, val, ts.bigEndian());
                 if (tag == 0x00020000) {
                     fmiEndPos = pos + a.getInt(false);
+                } else if (isInternable(tag, vr, val)) {
+                    DicomElement shared = elementPool.intern(a);
+                    if (shared != a)
+                        attrs.add(shared);
                 }
             }
         }
@@ -595,6 +829,8 @@ public class DicomInputStream extends FilterInputStream implements
             item.setItemOffset(tagpos);
             readDicomObject(item, vallen);
             sq.addDicomObject(item);
+        } else if (isBulkData(sq.tag(), vallen)) {
+            sq.addBulkDataFragment(skipBulkData(vallen));
         } else {
             sq.addFragment(readBytes(vallen));
         }
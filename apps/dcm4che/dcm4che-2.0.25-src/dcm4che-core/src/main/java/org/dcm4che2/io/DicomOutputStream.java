@@ -48,6 +48,7 @@ import java.io.OutputStream;
 import java.io.RandomAccessFile;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.concurrent.Executor;
 import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
 
@@ -85,6 +86,8 @@ public class DicomOutputStream extends FilterOutputStream {
      */
     private boolean autoFinish = true;
 
+    private Executor deflateExecutor;
+
     public DicomOutputStream(OutputStream out) {
         super(out);
     }
@@ -130,10 +133,29 @@ public class DicomOutputStream extends FilterOutputStream {
         return ts;
     }
 
+    public final Executor getDeflateExecutor() {
+        return deflateExecutor;
+    }
+
+    /**
+     * Set the <code>Executor</code> used to compress blocks of a Deflated
+     * Transfer Syntax concurrently by a {@link ParallelDeflaterOutputStream}.
+     * Only effective, if invoked before the Deflated Transfer Syntax is set.
+     * Default: <code>null</code> - compress in the calling thread.
+     * 
+     * @param executor
+     *            executes the compression tasks or <code>null</code>
+     */
+    public final void setDeflateExecutor(Executor executor) {
+        this.deflateExecutor = executor;
+    }
+
     public final void setTransferSyntax(TransferSyntax ts) {
         if (ts.deflated() && !(out instanceof DeflaterOutputStream))
-            out = new DeflaterOutputStream(out,
-                    new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+            out = deflateExecutor != null
+                    ? new ParallelDeflaterOutputStream(out, deflateExecutor)
+                    : new DeflaterOutputStream(out,
+                            new Deflater(Deflater.DEFAULT_COMPRESSION, true));
         this.ts = ts;
     }
 
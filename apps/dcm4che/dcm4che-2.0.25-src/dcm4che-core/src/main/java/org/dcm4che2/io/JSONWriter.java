@@ -0,0 +1,350 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.dcm4che2.data.DicomObject;
+import org.dcm4che2.data.VR;
+
+/**
+ * Writes the Data Set parsed by a {@link DicomInputStream} in the DICOM JSON
+ * Model (DICOM Part 18, Annex F) as UTF-8 to an {@link OutputStream}. Values
+ * of DS and IS attributes, which are no valid JSON numbers, are normalized
+ * or - if not parsable - written as JSON strings; non-finite FL and FD
+ * values are also written as strings. Fragments of encapsulated values are
+ * written as array of <tt>DataFragment</tt> objects.
+ * 
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ */
+public class JSONWriter extends AbstractModelWriter {
+
+    private static final String[] PN_GROUPS = {
+        "Alphabetic", "Ideographic", "Phonetic" };
+    private static final char[] HEX = {
+        '0', '1', '2', '3', '4', '5', '6', '7',
+        '8', '9', 'A', 'B', 'C', 'D', 'E', 'F' };
+
+    private boolean inFragment;
+
+    public JSONWriter(OutputStream out) {
+        super(out);
+    }
+
+    @Override
+    protected void startDataset() throws IOException {
+        write('{');
+    }
+
+    @Override
+    protected void endDataset() throws IOException {
+        write('}');
+    }
+
+    @Override
+    protected void startAttribute(int tag, VR vr, DicomObject attrs,
+            boolean first) throws IOException {
+        if (!first)
+            write(',');
+        write('"');
+        writeHex(tag);
+        write("\":{\"vr\":\"");
+        write(vr.toString());
+        write('"');
+    }
+
+    @Override
+    protected void endAttribute(int items) throws IOException {
+        if (items > 0)
+            write(']');
+        write('}');
+    }
+
+    @Override
+    protected void startItem(int number) throws IOException {
+        write(number == 1 ? ",\"Value\":[{" : ",{");
+    }
+
+    @Override
+    protected void endItem() throws IOException {
+        write('}');
+    }
+
+    @Override
+    protected void startFragment(int number) throws IOException {
+        write(number == 1 ? ",\"DataFragment\":[{" : ",{");
+        inFragment = true;
+    }
+
+    @Override
+    protected void endFragment() throws IOException {
+        write('}');
+        inFragment = false;
+    }
+
+    @Override
+    protected void startInlineBinary() throws IOException {
+        write(inFragment ? "\"InlineBinary\":\"" : ",\"InlineBinary\":\"");
+    }
+
+    @Override
+    protected void endInlineBinary() throws IOException {
+        write('"');
+    }
+
+    @Override
+    protected void writeBulkDataURI(String uri) throws IOException {
+        write(inFragment ? "\"BulkDataURI\":" : ",\"BulkDataURI\":");
+        writeString(uri);
+    }
+
+    @Override
+    protected void writeValues(int tag, VR vr, byte[] val, boolean bigEndian,
+            DicomObject attrs) throws IOException {
+        if (vr == VR.US || vr == VR.SS || vr == VR.SL) {
+            int[] ints = vr.toInts(val, bigEndian);
+            startValue();
+            for (int i = 0; i < ints.length; i++) {
+                if (i > 0)
+                    write(',');
+                write(Integer.toString(ints[i]));
+            }
+        } else if (vr == VR.UL) {
+            int[] ints = vr.toInts(val, bigEndian);
+            startValue();
+            for (int i = 0; i < ints.length; i++) {
+                if (i > 0)
+                    write(',');
+                write(Long.toString(ints[i] & 0xffffffffL));
+            }
+        } else if (vr == VR.FL) {
+            float[] floats = vr.toFloats(val, bigEndian);
+            startValue();
+            for (int i = 0; i < floats.length; i++) {
+                if (i > 0)
+                    write(',');
+                writeDouble(floats[i], Float.toString(floats[i]));
+            }
+        } else if (vr == VR.FD) {
+            double[] doubles = vr.toDoubles(val, bigEndian);
+            startValue();
+            for (int i = 0; i < doubles.length; i++) {
+                if (i > 0)
+                    write(',');
+                writeDouble(doubles[i], Double.toString(doubles[i]));
+            }
+        } else {
+            String[] ss = vr.toStrings(val, bigEndian,
+                    attrs.getSpecificCharacterSet());
+            if (ss.length == 0 || ss.length == 1 && ss[0].length() == 0)
+                return;
+            startValue();
+            for (int i = 0; i < ss.length; i++) {
+                if (i > 0)
+                    write(',');
+                String s = ss[i];
+                if (s.length() == 0)
+                    write("null");
+                else if (vr == VR.PN)
+                    writePersonName(s);
+                else if (vr == VR.DS)
+                    writeDS(s);
+                else if (vr == VR.IS)
+                    writeIS(s);
+                else
+                    writeString(s);
+            }
+        }
+        write(']');
+    }
+
+    private void startValue() throws IOException {
+        write(",\"Value\":[");
+    }
+
+    private void writeDouble(double d, String s) throws IOException {
+        if (Double.isNaN(d) || Double.isInfinite(d))
+            writeString(s);
+        else
+            write(s);
+    }
+
+    private void writeDS(String s) throws IOException {
+        if (isNumber(s)) {
+            write(s);
+            return;
+        }
+        double d;
+        try {
+            d = Double.parseDouble(s);
+        } catch (NumberFormatException e) {
+            writeString(s);
+            return;
+        }
+        writeDouble(d, Double.toString(d));
+    }
+
+    private void writeIS(String s) throws IOException {
+        if (isNumber(s)) {
+            write(s);
+            return;
+        }
+        try {
+            write(Long.toString(Long.parseLong(
+                    s.charAt(0) == '+' ? s.substring(1) : s)));
+        } catch (NumberFormatException e) {
+            writeString(s);
+        }
+    }
+
+    private void writePersonName(String s) throws IOException {
+        write('{');
+        boolean first = true;
+        int begin = 0;
+        for (int group = 0; group < PN_GROUPS.length && begin <= s.length();
+                group++) {
+            int end = group + 1 < PN_GROUPS.length ? s.indexOf('=', begin)
+                    : -1;
+            if (end == -1)
+                end = s.length();
+            if (end > begin) {
+                if (!first)
+                    write(',');
+                first = false;
+                write('"');
+                write(PN_GROUPS[group]);
+                write("\":\"");
+                writeEscaped(s, begin, end);
+                write('"');
+            }
+            begin = end + 1;
+        }
+        write('}');
+    }
+
+    private void writeString(String s) throws IOException {
+        write('"');
+        writeEscaped(s, 0, s.length());
+        write('"');
+    }
+
+    private void writeEscaped(String s, int begin, int end)
+            throws IOException {
+        int start = begin;
+        for (int i = begin; i < end; i++) {
+            char c = s.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\')
+                continue;
+            write(s, start, i);
+            start = i + 1;
+            switch (c) {
+            case '"':
+                write("\\\"");
+                break;
+            case '\\':
+                write("\\\\");
+                break;
+            case '\b':
+                write("\\b");
+                break;
+            case '\f':
+                write("\\f");
+                break;
+            case '\n':
+                write("\\n");
+                break;
+            case '\r':
+                write("\\r");
+                break;
+            case '\t':
+                write("\\t");
+                break;
+            default:
+                write("\\u00");
+                write(HEX[c >> 4]);
+                write(HEX[c & 0xf]);
+            }
+        }
+        write(s, start, end);
+    }
+
+    /**
+     * Check, if <tt>s</tt> matches the <tt>number</tt> production of
+     * RFC 4627.
+     */
+    static boolean isNumber(String s) {
+        final int n = s.length();
+        int i = 0;
+        if (i < n && s.charAt(i) == '-')
+            i++;
+        if (i < n && s.charAt(i) == '0') {
+            i++;
+        } else {
+            int start = i;
+            while (i < n && isDigit(s.charAt(i)))
+                i++;
+            if (i == start)
+                return false;
+        }
+        if (i < n && s.charAt(i) == '.') {
+            int start = ++i;
+            while (i < n && isDigit(s.charAt(i)))
+                i++;
+            if (i == start)
+                return false;
+        }
+        if (i < n && (s.charAt(i) == 'e' || s.charAt(i) == 'E')) {
+            if (++i < n && (s.charAt(i) == '+' || s.charAt(i) == '-'))
+                i++;
+            int start = i;
+            while (i < n && isDigit(s.charAt(i)))
+                i++;
+            if (i == start)
+                return false;
+        }
+        return i == n;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
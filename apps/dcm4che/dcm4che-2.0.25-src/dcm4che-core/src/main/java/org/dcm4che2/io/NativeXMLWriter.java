@@ -0,0 +1,265 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.dcm4che2.data.DicomObject;
+import org.dcm4che2.data.VR;
+import org.dcm4che2.util.TagUtils;
+
+/**
+ * Writes the Data Set parsed by a {@link DicomInputStream} in the Native
+ * DICOM Model (DICOM Part 19, Annex A) as UTF-8 encoded XML to an
+ * {@link OutputStream}. The optional <tt>keyword</tt> attribute of
+ * <tt>DicomAttribute</tt> elements is not written. Fragments of encapsulated
+ * values are written as <tt>DataFragment</tt> elements.
+ * 
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ */
+public class NativeXMLWriter extends AbstractModelWriter {
+
+    private static final String[] PN_GROUPS = {
+        "Alphabetic", "Ideographic", "Phonetic" };
+    private static final String[] PN_COMPONENTS = {
+        "FamilyName", "GivenName", "MiddleName", "NamePrefix", "NameSuffix" };
+
+    public NativeXMLWriter(OutputStream out) {
+        super(out);
+    }
+
+    @Override
+    protected void startDataset() throws IOException {
+        write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<NativeDicomModel xml:space=\"preserve\">\n");
+    }
+
+    @Override
+    protected void endDataset() throws IOException {
+        write("</NativeDicomModel>\n");
+    }
+
+    @Override
+    protected void startAttribute(int tag, VR vr, DicomObject attrs,
+            boolean first) throws IOException {
+        write("<DicomAttribute tag=\"");
+        writeHex(tag);
+        write("\" vr=\"");
+        write(vr.toString());
+        write('"');
+        if (TagUtils.isPrivateDataElement(tag)
+                && !TagUtils.isPrivateCreatorDataElement(tag)) {
+            String creator = attrs.getPrivateCreator(tag);
+            if (creator != null) {
+                write(" privateCreator=\"");
+                writeEscaped(creator, 0, creator.length());
+                write('"');
+            }
+        }
+        write('>');
+    }
+
+    @Override
+    protected void endAttribute(int items) throws IOException {
+        write("</DicomAttribute>\n");
+    }
+
+    @Override
+    protected void startItem(int number) throws IOException {
+        writeStartTag("Item", number);
+    }
+
+    @Override
+    protected void endItem() throws IOException {
+        write("</Item>");
+    }
+
+    @Override
+    protected void startFragment(int number) throws IOException {
+        writeStartTag("DataFragment", number);
+    }
+
+    @Override
+    protected void endFragment() throws IOException {
+        write("</DataFragment>");
+    }
+
+    @Override
+    protected void startInlineBinary() throws IOException {
+        write("<InlineBinary>");
+    }
+
+    @Override
+    protected void endInlineBinary() throws IOException {
+        write("</InlineBinary>");
+    }
+
+    @Override
+    protected void writeBulkDataURI(String uri) throws IOException {
+        write("<BulkData uri=\"");
+        writeEscaped(uri, 0, uri.length());
+        write("\"/>");
+    }
+
+    @Override
+    protected void writeValues(int tag, VR vr, byte[] val, boolean bigEndian,
+            DicomObject attrs) throws IOException {
+        if (vr == VR.US || vr == VR.SS || vr == VR.SL) {
+            int[] ints = vr.toInts(val, bigEndian);
+            for (int i = 0; i < ints.length; i++)
+                writeValue(i + 1, Integer.toString(ints[i]));
+        } else if (vr == VR.UL) {
+            int[] ints = vr.toInts(val, bigEndian);
+            for (int i = 0; i < ints.length; i++)
+                writeValue(i + 1, Long.toString(ints[i] & 0xffffffffL));
+        } else if (vr == VR.FL) {
+            float[] floats = vr.toFloats(val, bigEndian);
+            for (int i = 0; i < floats.length; i++)
+                writeValue(i + 1, Float.toString(floats[i]));
+        } else if (vr == VR.FD) {
+            double[] doubles = vr.toDoubles(val, bigEndian);
+            for (int i = 0; i < doubles.length; i++)
+                writeValue(i + 1, Double.toString(doubles[i]));
+        } else {
+            String[] ss = vr.toStrings(val, bigEndian,
+                    attrs.getSpecificCharacterSet());
+            for (int i = 0; i < ss.length; i++) {
+                String s = ss[i];
+                if (s.length() == 0)
+                    continue;
+                if (vr == VR.PN)
+                    writePersonName(i + 1, s);
+                else
+                    writeValue(i + 1, s);
+            }
+        }
+    }
+
+    private void writeStartTag(String name, int number) throws IOException {
+        write('<');
+        write(name);
+        write(" number=\"");
+        write(Integer.toString(number));
+        write("\">");
+    }
+
+    private void writeValue(int number, String s) throws IOException {
+        writeStartTag("Value", number);
+        writeEscaped(s, 0, s.length());
+        write("</Value>");
+    }
+
+    private void writePersonName(int number, String s) throws IOException {
+        writeStartTag("PersonName", number);
+        int begin = 0;
+        for (int group = 0; group < PN_GROUPS.length && begin <= s.length();
+                group++) {
+            int end = group + 1 < PN_GROUPS.length ? s.indexOf('=', begin)
+                    : -1;
+            if (end == -1)
+                end = s.length();
+            if (end > begin) {
+                write('<');
+                write(PN_GROUPS[group]);
+                write('>');
+                writePNComponents(s, begin, end);
+                write("</");
+                write(PN_GROUPS[group]);
+                write('>');
+            }
+            begin = end + 1;
+        }
+        write("</PersonName>");
+    }
+
+    private void writePNComponents(String s, int begin, int end)
+            throws IOException {
+        for (int comp = 0; comp < PN_COMPONENTS.length && begin <= end;
+                comp++) {
+            int next = comp + 1 < PN_COMPONENTS.length
+                    ? s.indexOf('^', begin) : -1;
+            if (next == -1 || next > end)
+                next = end;
+            if (next > begin) {
+                write('<');
+                write(PN_COMPONENTS[comp]);
+                write('>');
+                writeEscaped(s, begin, next);
+                write("</");
+                write(PN_COMPONENTS[comp]);
+                write('>');
+            }
+            begin = next + 1;
+        }
+    }
+
+    private void writeEscaped(String s, int begin, int end)
+            throws IOException {
+        int start = begin;
+        for (int i = begin; i < end; i++) {
+            final String ref;
+            switch (s.charAt(i)) {
+            case '<':
+                ref = "&lt;";
+                break;
+            case '>':
+                ref = "&gt;";
+                break;
+            case '&':
+                ref = "&amp;";
+                break;
+            case '"':
+                ref = "&quot;";
+                break;
+            case '\r':
+                ref = "&#13;";
+                break;
+            default:
+                continue;
+            }
+            write(s, start, i);
+            write(ref);
+            start = i + 1;
+        }
+        write(s, start, end);
+    }
+}
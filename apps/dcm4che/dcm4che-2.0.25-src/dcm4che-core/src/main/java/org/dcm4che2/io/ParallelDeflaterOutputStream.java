@@ -0,0 +1,342 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <code>DeflaterOutputStream</code>, which compresses blocks of the written
+ * data concurrently by tasks executed by an <code>Executor</code>, and
+ * writes a single standard raw deflate stream (RFC 1951) - as used by the
+ * Deflated Explicit VR Little Endian Transfer Syntax.
+ * <p>
+ * Each block is compressed by its own <code>Deflater</code>, primed with the
+ * last 32 KiB of the previous block as preset dictionary, and terminated
+ * with a sync flush, so the compressed blocks can be concatenated in order.
+ * Only the last block is finished. The compression ratio is therefore
+ * about the same as of a single <code>Deflater</code>.
+ * <p>
+ * Sync flush of a <code>Deflater</code> requires a Java Runtime 7 or later.
+ * On earlier Java Runtimes the data is compressed by a single
+ * <code>Deflater</code> in the calling thread, as by
+ * <code>DeflaterOutputStream</code>.
+ * 
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ * @see DicomOutputStream#setDeflateExecutor(Executor)
+ */
+public class ParallelDeflaterOutputStream extends DeflaterOutputStream {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(ParallelDeflaterOutputStream.class);
+
+    public static final int DEFAULT_BLOCK_SIZE = 128 * 1024;
+
+    private static final int DICT_SIZE = 32 * 1024;
+
+    private static final int SYNC_FLUSH = 2;
+
+    private static final Method DEFLATE_WITH_FLUSH = deflateWithFlush();
+
+    private final Executor executor;
+
+    private final int level;
+
+    private final int blockSize;
+
+    private final int maxPendingBlocks;
+
+    private final LinkedList<FutureTask<byte[]>> pending =
+            new LinkedList<FutureTask<byte[]>>();
+
+    private final ConcurrentLinkedQueue<Deflater> deflaters =
+            new ConcurrentLinkedQueue<Deflater>();
+
+    private byte[] block;
+
+    private byte[] prevBlock;
+
+    private int count;
+
+    private boolean finished;
+
+    private volatile boolean closed;
+
+    public ParallelDeflaterOutputStream(OutputStream out, Executor executor) {
+        this(out, executor, Deflater.DEFAULT_COMPRESSION, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Creates a new output stream.
+     * 
+     * @param out
+     *            the output stream to which the raw deflate stream is written
+     * @param executor
+     *            executes the compression of the blocks
+     * @param level
+     *            the compression level (0-9)
+     * @param blockSize
+     *            the number of bytes compressed by one task; must be at least
+     *            32 KiB
+     */
+    public ParallelDeflaterOutputStream(OutputStream out, Executor executor,
+            int level, int blockSize) {
+        super(out, new Deflater(level, true), 8192);
+        if (executor == null)
+            throw new NullPointerException("executor");
+        if (blockSize < DICT_SIZE)
+            throw new IllegalArgumentException("blockSize: " + blockSize);
+        this.executor = executor;
+        this.level = level;
+        this.blockSize = blockSize;
+        this.maxPendingBlocks =
+                Math.max(2, Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    private static Method deflateWithFlush() {
+        try {
+            return Deflater.class.getMethod("deflate", byte[].class,
+                    int.class, int.class, int.class);
+        } catch (NoSuchMethodException e) {
+            log.info("Deflater does not support sync flush - "
+                    + "compress in calling thread");
+            return null;
+        }
+    }
+
+    /**
+     * Returns <code>true</code>, if blocks are compressed concurrently by
+     * tasks of the <code>Executor</code>.
+     * 
+     * @return <code>true</code>, if the Java Runtime supports sync flush of
+     *         a <code>Deflater</code>
+     */
+    public static boolean isParallel() {
+        return DEFLATE_WITH_FLUSH != null;
+    }
+
+    public final int getBlockSize() {
+        return blockSize;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (finished)
+            throw new IOException("write beyond end of stream");
+        if (DEFLATE_WITH_FLUSH == null) {
+            super.write(b, off, len);
+            return;
+        }
+        if ((off | len | (off + len) | (b.length - (off + len))) < 0)
+            throw new IndexOutOfBoundsException();
+        while (len > 0) {
+            if (block == null)
+                block = new byte[blockSize];
+            int n = Math.min(len, blockSize - count);
+            System.arraycopy(b, off, block, count, n);
+            count += n;
+            off += n;
+            len -= n;
+            if (count == blockSize)
+                submit(false);
+        }
+    }
+
+    private void submit(boolean last) throws IOException {
+        while (pending.size() >= maxPendingBlocks)
+            writeCompressed(pending.removeFirst());
+        FutureTask<byte[]> task = new FutureTask<byte[]>(
+                new Compress(block, count, prevBlock, last));
+        pending.add(task);
+        executor.execute(task);
+        prevBlock = block;
+        block = null;
+        count = 0;
+        while (!pending.isEmpty() && pending.getFirst().isDone())
+            writeCompressed(pending.removeFirst());
+    }
+
+    private void writeCompressed(FutureTask<byte[]> task) throws IOException {
+        byte[] b;
+        try {
+            b = task.get();
+        } catch (InterruptedException e) {
+            throw (IOException) new IOException("Interrupted").initCause(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            throw (IOException) new IOException(cause.getMessage())
+                    .initCause(cause);
+        }
+        out.write(b);
+    }
+
+    private void writePending() throws IOException {
+        while (!pending.isEmpty())
+            writeCompressed(pending.removeFirst());
+    }
+
+    /**
+     * Writes all compressed blocks which are ready and flushes the underlying
+     * output stream. Data of the current incomplete block is not compressed
+     * before it is completed or the stream is finished.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (DEFLATE_WITH_FLUSH != null)
+            writePending();
+        out.flush();
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (finished)
+            return;
+        if (DEFLATE_WITH_FLUSH == null) {
+            super.finish();
+        } else {
+            submit(true);
+            writePending();
+            prevBlock = null;
+        }
+        finished = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        try {
+            finish();
+        } finally {
+            Deflater deflater;
+            while ((deflater = deflaters.poll()) != null)
+                deflater.end();
+            def.end();
+            out.close();
+        }
+    }
+
+    private Deflater borrowDeflater() {
+        Deflater deflater = deflaters.poll();
+        return deflater != null ? deflater : new Deflater(level, true);
+    }
+
+    private void returnDeflater(Deflater deflater) {
+        deflater.reset();
+        if (closed)
+            deflater.end();
+        else
+            deflaters.offer(deflater);
+    }
+
+    private static int deflate(Deflater deflater, byte[] b)
+            throws Exception {
+        return ((Integer) DEFLATE_WITH_FLUSH.invoke(deflater, b,
+                Integer.valueOf(0), Integer.valueOf(b.length),
+                Integer.valueOf(SYNC_FLUSH))).intValue();
+    }
+
+    private class Compress implements Callable<byte[]> {
+
+        private final byte[] block;
+        private final int count;
+        private final byte[] dict;
+        private final boolean last;
+
+        Compress(byte[] block, int count, byte[] dict, boolean last) {
+            this.block = block;
+            this.count = count;
+            this.dict = dict;
+            this.last = last;
+        }
+
+        public byte[] call() throws Exception {
+            Deflater deflater = borrowDeflater();
+            try {
+                if (dict != null)
+                    deflater.setDictionary(dict, dict.length - DICT_SIZE,
+                            DICT_SIZE);
+                if (count > 0)
+                    deflater.setInput(block, 0, count);
+                ByteArrayOutputStream bout =
+                        new ByteArrayOutputStream(count / 2 + 64);
+                byte[] buf = new byte[8192];
+                int n;
+                if (last) {
+                    deflater.finish();
+                    while (!deflater.finished()) {
+                        n = deflater.deflate(buf);
+                        bout.write(buf, 0, n);
+                    }
+                } else {
+                    do {
+                        n = deflate(deflater, buf);
+                        bout.write(buf, 0, n);
+                    } while (n == buf.length);
+                }
+                return bout.toByteArray();
+            } finally {
+                returnDeflater(deflater);
+            }
+        }
+    }
+}
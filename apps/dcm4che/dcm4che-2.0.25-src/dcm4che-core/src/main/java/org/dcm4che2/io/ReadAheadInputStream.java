@@ -0,0 +1,286 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.io;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <code>InputStream</code>, which reads ahead chunks of the underlying
+ * stream by a task executed by an <code>Executor</code>, so reading from the
+ * source overlaps with the processing of the data by the calling thread -
+ * e.g. with the decompression of a Deflated DICOM stream.
+ * <p>
+ * At most {@link #getMaxChunks()} chunks are read ahead. Does not support
+ * <code>mark</code> and <code>reset</code>.
+ * 
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ * @see DicomInputStream#setInflateExecutor(Executor)
+ */
+public class ReadAheadInputStream extends FilterInputStream {
+
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    public static final int DEFAULT_MAX_CHUNKS = 4;
+
+    private final int chunkSize;
+
+    private final int maxChunks;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notEmpty = lock.newCondition();
+
+    private final Condition notFull = lock.newCondition();
+
+    private final LinkedList<Chunk> chunks = new LinkedList<Chunk>();
+
+    private final LinkedList<byte[]> free = new LinkedList<byte[]>();
+
+    private Chunk chunk;
+
+    private boolean eof;
+
+    private boolean closed;
+
+    private IOException ex;
+
+    private static class Chunk {
+        final byte[] buf;
+        final int len;
+        int pos;
+
+        Chunk(byte[] buf, int len) {
+            this.buf = buf;
+            this.len = len;
+        }
+    }
+
+    public ReadAheadInputStream(InputStream in, Executor executor) {
+        this(in, executor, DEFAULT_CHUNK_SIZE, DEFAULT_MAX_CHUNKS);
+    }
+
+    public ReadAheadInputStream(InputStream in, Executor executor,
+            int chunkSize, int maxChunks) {
+        super(in);
+        if (chunkSize <= 0)
+            throw new IllegalArgumentException("chunkSize: " + chunkSize);
+        if (maxChunks <= 0)
+            throw new IllegalArgumentException("maxChunks: " + maxChunks);
+        this.chunkSize = chunkSize;
+        this.maxChunks = maxChunks;
+        executor.execute(new Runnable() {
+            public void run() {
+                readAhead();
+            }
+        });
+    }
+
+    public final int getChunkSize() {
+        return chunkSize;
+    }
+
+    public final int getMaxChunks() {
+        return maxChunks;
+    }
+
+    private void readAhead() {
+        try {
+            for (;;) {
+                byte[] buf;
+                lock.lock();
+                try {
+                    while (chunks.size() >= maxChunks && !closed)
+                        notFull.await();
+                    if (closed)
+                        return;
+                    buf = free.isEmpty() ? new byte[chunkSize]
+                            : free.removeFirst();
+                } finally {
+                    lock.unlock();
+                }
+                int len = in.read(buf, 0, chunkSize);
+                lock.lock();
+                try {
+                    if (closed)
+                        return;
+                    if (len < 0)
+                        eof = true;
+                    else if (len > 0)
+                        chunks.add(new Chunk(buf, len));
+                    notEmpty.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                if (len < 0)
+                    return;
+            }
+        } catch (InterruptedException e) {
+            fail((IOException) new IOException("Interrupted").initCause(e));
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void fail(IOException e) {
+        lock.lock();
+        try {
+            ex = e;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Chunk nextChunk() throws IOException {
+        if (chunk != null && chunk.pos < chunk.len)
+            return chunk;
+        lock.lock();
+        try {
+            if (chunk != null) {
+                free.add(chunk.buf);
+                chunk = null;
+            }
+            while (chunks.isEmpty()) {
+                if (closed)
+                    throw new IOException("Stream closed");
+                if (ex != null)
+                    throw ex;
+                if (eof)
+                    return null;
+                notEmpty.await();
+            }
+            chunk = chunks.removeFirst();
+            notFull.signal();
+            return chunk;
+        } catch (InterruptedException e) {
+            throw (IOException) new IOException("Interrupted").initCause(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        Chunk c = nextChunk();
+        return c != null ? c.buf[c.pos++] & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if ((off | len | (off + len) | (b.length - (off + len))) < 0)
+            throw new IndexOutOfBoundsException();
+        if (len == 0)
+            return 0;
+        Chunk c = nextChunk();
+        if (c == null)
+            return -1;
+        int n = Math.min(len, c.len - c.pos);
+        System.arraycopy(c.buf, c.pos, b, off, n);
+        c.pos += n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long remaining = n;
+        Chunk c;
+        while (remaining > 0 && (c = nextChunk()) != null) {
+            int k = (int) Math.min(remaining, c.len - c.pos);
+            c.pos += k;
+            remaining -= k;
+        }
+        return n - remaining;
+    }
+
+    @Override
+    public int available() throws IOException {
+        lock.lock();
+        try {
+            int n = chunk != null ? chunk.len - chunk.pos : 0;
+            for (Chunk c : chunks)
+                n += c.len;
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void mark(int readlimit) {
+    }
+
+    @Override
+    public void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    /**
+     * Stops reading ahead and closes the underlying stream.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed)
+                return;
+            closed = true;
+            chunks.clear();
+            free.clear();
+            chunk = null;
+            notFull.signalAll();
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        in.close();
+    }
+}
@@ -0,0 +1,496 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.media;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+
+import org.dcm4che2.data.BasicDicomObject;
+import org.dcm4che2.data.DicomObject;
+import org.dcm4che2.data.Tag;
+import org.dcm4che2.data.TransferSyntax;
+import org.dcm4che2.io.DicomInputStream;
+import org.dcm4che2.util.CloseUtils;
+
+/**
+ * Index of Directory Records by Patient ID, Study, Series and Referenced SOP
+ * Instance UID, built by one sequential pass over the Directory Record
+ * Sequence. Record offsets, their parent records and their rank in the
+ * sibling chain are kept in primitive arrays. The index may be stored in a
+ * sidecar file, which becomes stale as soon as length or last modification
+ * time of the DICOMDIR changes.
+ * <p>
+ * The index only selects candidate records; {@link DicomDirReader} still
+ * applies the matching keys to them. Therefore records without value of the
+ * indexed attribute are candidates for any key.
+ * 
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ */
+final class DicomDirIndex {
+
+    static final int PATIENT_ID = 0;
+    static final int STUDY_UID = 1;
+    static final int SERIES_UID = 2;
+    static final int INSTANCE_UID = 3;
+
+    private static final String[] TYPES = { DirectoryRecordType.PATIENT,
+            DirectoryRecordType.STUDY, DirectoryRecordType.SERIES, null };
+
+    private static final int[] TAGS = { Tag.PatientID, Tag.StudyInstanceUID,
+            Tag.SeriesInstanceUID, Tag.ReferencedSOPInstanceUIDInFile };
+
+    private static final int MAGIC = 0x44434958; // DCIX
+    private static final int VERSION = 1;
+    private static final int NO_PARENT = -1;
+    private static final int[] NO_OFFSETS = {};
+
+    private final KeyTable[] tables = new KeyTable[TAGS.length];
+
+    // ascending offsets of all records with the offsets of their parent
+    // records and their rank in the sibling chain
+    private int[] offsets;
+    private int[] parents;
+    private int[] ranks;
+    private int count;
+    private int lastRank;
+
+    private DicomDirIndex(int capacity) {
+        offsets = new int[capacity];
+        parents = new int[capacity];
+        ranks = new int[capacity];
+        for (int i = 0; i < tables.length; i++)
+            tables[i] = new KeyTable(capacity);
+    }
+
+    /**
+     * Builds the index by reading all records of the Directory Record
+     * Sequence in file order.
+     * 
+     * @param raf
+     *            the DICOMDIR, positioned arbitrarily.
+     * @param pos
+     *            position of the first record.
+     * @param ts
+     *            transfer syntax of the records.
+     * @param firstRootRecord
+     *            offset of the first root record.
+     */
+    static DicomDirIndex build(RandomAccessFile raf, long pos,
+            TransferSyntax ts, int firstRootRecord) throws IOException {
+        DicomDirIndex index = new DicomDirIndex(64);
+        int[] next = new int[64];
+        int[] child = new int[64];
+        long len = raf.length();
+        raf.seek(pos);
+        // not closed, which would close raf
+        DicomInputStream in = new DicomInputStream(new BufferedInputStream(
+                Channels.newInputStream(raf.getChannel())), ts);
+        in.setStreamPosition(pos);
+        DicomObject rec = new BasicDicomObject();
+        while (in.getStreamPosition() + 8 <= len
+                && in.readHeader() == Tag.Item) {
+            int offset = (int) in.tagPosition();
+            in.readDicomObject(rec, in.valueLength());
+            int i = index.append(offset);
+            if (i == next.length) {
+                next = grow(next);
+                child = grow(child);
+            }
+            next[i] = rec.getInt(Tag.OffsetOfTheNextDirectoryRecord);
+            child[i] = rec.getInt(
+                    Tag.OffsetOfReferencedLowerLevelDirectoryEntity);
+            index.addKeys(i, rec);
+            rec.clear();
+        }
+        index.link(firstRootRecord, next, child);
+        return index;
+    }
+
+    // assigns parents and ranks by walking the sibling chains, starting
+    // with the root records; unreachable records keep NO_PARENT
+    private void link(int firstRootRecord, int[] next, int[] child) {
+        int[] stack = new int[32];
+        int top = 0;
+        stack[top++] = firstRootRecord;
+        stack[top++] = 0;
+        while (top > 0) {
+            int parent = stack[--top];
+            int offset = stack[--top];
+            int i;
+            while (offset != 0 && (i = indexOf(offset)) >= 0
+                    && parents[i] == NO_PARENT) {
+                parents[i] = parent;
+                ranks[i] = ++lastRank;
+                if (child[i] != 0) {
+                    if (top + 2 > stack.length)
+                        stack = grow(stack);
+                    stack[top++] = child[i];
+                    stack[top++] = offset;
+                }
+                offset = next[i];
+            }
+        }
+    }
+
+    /**
+     * Adds a record appended to the DICOMDIR.
+     * 
+     * @return <code>false</code>, if the record is not located behind all
+     *         indexed records or its parent is not indexed, so the index has
+     *         to be rebuilt.
+     */
+    boolean add(DicomObject rec, int parentOffset) {
+        int offset = (int) rec.getItemOffset();
+        if (count > 0 && offset <= offsets[count - 1]
+                || parentOffset != 0 && !contains(parentOffset))
+            return false;
+        int i = append(offset);
+        parents[i] = parentOffset;
+        ranks[i] = ++lastRank;
+        addKeys(i, rec);
+        return true;
+    }
+
+    /**
+     * Removes records located at or behind the specified position, after
+     * roll back of appended records.
+     */
+    void truncate(long pos) {
+        while (count > 0 && (offsets[count - 1] & 0xffffffffL) >= pos) {
+            --count;
+            for (int t = 0; t < tables.length; t++)
+                tables[t].removeRecord(count);
+        }
+    }
+
+    boolean contains(int offset) {
+        return indexOf(offset) >= 0;
+    }
+
+    int parentOf(int offset) {
+        int i = indexOf(offset);
+        return i >= 0 ? parents[i] : NO_PARENT;
+    }
+
+    int size() {
+        return count;
+    }
+
+    /**
+     * Returns offsets of candidate records with the specified parent, in the
+     * order of the sibling chain.
+     * 
+     * @param table
+     *            one of {@link #PATIENT_ID}, {@link #STUDY_UID},
+     *            {@link #SERIES_UID}, {@link #INSTANCE_UID}.
+     * @param key
+     *            the value of the indexed attribute.
+     * @param parentOffset
+     *            offset of the parent record, 0 for root records.
+     */
+    int[] find(int table, String key, int parentOffset) {
+        KeyTable t = tables[table];
+        int[] found = NO_OFFSETS;
+        int n = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            for (int e = pass == 0 ? t.head(key) : t.wildcards; e != 0;
+                    e = t.next[e - 1]) {
+                String k = t.keys[e - 1];
+                int rec = t.records[e - 1];
+                if (parents[rec] != parentOffset
+                        || pass == 0 && !key.equals(k))
+                    continue;
+                if (n == found.length)
+                    found = n == 0 ? new int[4] : grow(found);
+                found[n++] = rec;
+            }
+        }
+        // insertion sort by rank; there are rarely more than one candidate
+        for (int i = 1; i < n; i++) {
+            int rec = found[i];
+            int j = i;
+            for (; j > 0 && ranks[found[j - 1]] > ranks[rec]; j--)
+                found[j] = found[j - 1];
+            found[j] = rec;
+        }
+        int[] result = new int[n];
+        for (int i = 0; i < n; i++)
+            result[i] = offsets[found[i]];
+        return result;
+    }
+
+    private int append(int offset) {
+        if (count == offsets.length) {
+            offsets = grow(offsets);
+            parents = grow(parents);
+            ranks = grow(ranks);
+        }
+        offsets[count] = offset;
+        parents[count] = NO_PARENT;
+        return count++;
+    }
+
+    private int indexOf(int offset) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midVal = offsets[mid];
+            if (midVal < offset)
+                low = mid + 1;
+            else if (midVal > offset)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return -1;
+    }
+
+    private void addKeys(int rec, DicomObject dcmobj) {
+        String[] types = dcmobj.getStrings(Tag.DirectoryRecordType);
+        for (int t = 0; t < TAGS.length; t++) {
+            if (TYPES[t] != null && !isOfType(types, TYPES[t]))
+                continue;
+            String[] values = dcmobj.getStrings(TAGS[t]);
+            if (values == null || values.length == 0) {
+                tables[t].add(null, rec);
+                continue;
+            }
+            for (int i = 0; i < values.length; i++)
+                if (values[i] != null)
+                    tables[t].add(values[i], rec);
+        }
+    }
+
+    // records without Directory Record Type match any type
+    private static boolean isOfType(String[] types, String type) {
+        if (types == null || types.length == 0)
+            return true;
+        for (int i = 0; i < types.length; i++)
+            if (type.equals(types[i]))
+                return true;
+        return false;
+    }
+
+    private static int[] grow(int[] a) {
+        int[] tmp = new int[a.length << 1];
+        System.arraycopy(a, 0, tmp, 0, a.length);
+        return tmp;
+    }
+
+    /**
+     * Writes the index to a sidecar file.
+     * 
+     * @param f
+     *            the sidecar file.
+     * @param length
+     *            current length of the DICOMDIR.
+     * @param lastModified
+     *            current last modification time of the DICOMDIR.
+     */
+    void write(File f, long length, long lastModified) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(f)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(length);
+            out.writeLong(lastModified);
+            out.writeInt(count);
+            out.writeInt(lastRank);
+            for (int i = 0; i < count; i++) {
+                out.writeInt(offsets[i]);
+                out.writeInt(parents[i]);
+                out.writeInt(ranks[i]);
+            }
+            for (int t = 0; t < tables.length; t++)
+                tables[t].write(out);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Reads the index from a sidecar file.
+     * 
+     * @param f
+     *            the sidecar file.
+     * @param length
+     *            current length of the DICOMDIR.
+     * @param lastModified
+     *            current last modification time of the DICOMDIR.
+     * @return the index or <code>null</code>, if the sidecar file does not
+     *         exist, is of different version or was written for a different
+     *         length or modification time of the DICOMDIR.
+     */
+    static DicomDirIndex read(File f, long length, long lastModified)
+            throws IOException {
+        if (!f.isFile())
+            return null;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(f)));
+        try {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION
+                    || in.readLong() != length
+                    || in.readLong() != lastModified)
+                return null;
+            int n = in.readInt();
+            DicomDirIndex index = new DicomDirIndex(Math.max(n, 16));
+            index.count = n;
+            index.lastRank = in.readInt();
+            for (int i = 0; i < n; i++) {
+                index.offsets[i] = in.readInt();
+                index.parents[i] = in.readInt();
+                index.ranks[i] = in.readInt();
+            }
+            for (int t = 0; t < index.tables.length; t++)
+                index.tables[t].read(in);
+            return index;
+        } catch (EOFException e) {
+            return null;
+        } finally {
+            CloseUtils.safeClose(in);
+        }
+    }
+
+    /**
+     * Hash table of indexed values to record indices, chaining entries of
+     * the same bucket - and all entries without value - by entry indices + 1
+     * from the most recently added one.
+     */
+    private static final class KeyTable {
+        String[] keys;
+        int[] records;
+        int[] next;
+        int[] heads;
+        int wildcards;
+        int size;
+
+        KeyTable(int capacity) {
+            keys = new String[capacity];
+            records = new int[capacity];
+            next = new int[capacity];
+            heads = new int[Integer.highestOneBit(capacity) << 1];
+        }
+
+        int head(String key) {
+            return heads[bucket(key)];
+        }
+
+        private int bucket(String key) {
+            int h = key.hashCode();
+            return (h ^ (h >>> 16)) & (heads.length - 1);
+        }
+
+        void add(String key, int rec) {
+            if (size == keys.length) {
+                String[] tmp = new String[size << 1];
+                System.arraycopy(keys, 0, tmp, 0, size);
+                keys = tmp;
+                records = grow(records);
+                next = grow(next);
+            }
+            keys[size] = key;
+            records[size] = rec;
+            link(size++);
+            if (size > heads.length - (heads.length >>> 2))
+                rehash(heads.length << 1);
+        }
+
+        private void link(int e) {
+            if (keys[e] == null) {
+                next[e] = wildcards;
+                wildcards = e + 1;
+            } else {
+                int b = bucket(keys[e]);
+                next[e] = heads[b];
+                heads[b] = e + 1;
+            }
+        }
+
+        private void rehash(int capacity) {
+            heads = new int[capacity];
+            wildcards = 0;
+            for (int e = 0; e < size; e++)
+                link(e);
+        }
+
+        // entries are added in record order, so entries of the last record
+        // are the most recently added ones in their chains
+        void removeRecord(int rec) {
+            while (size > 0 && records[size - 1] == rec) {
+                int e = --size;
+                if (keys[e] == null)
+                    wildcards = next[e];
+                else
+                    heads[bucket(keys[e])] = next[e];
+                keys[e] = null;
+            }
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeInt(size);
+            for (int e = 0; e < size; e++) {
+                out.writeInt(records[e]);
+                out.writeBoolean(keys[e] != null);
+                if (keys[e] != null)
+                    out.writeUTF(keys[e]);
+            }
+        }
+
+        void read(DataInputStream in) throws IOException {
+            int n = in.readInt();
+            for (int e = 0; e < n; e++) {
+                int rec = in.readInt();
+                add(in.readBoolean() ? in.readUTF() : null, rec);
+            }
+        }
+    }
+}
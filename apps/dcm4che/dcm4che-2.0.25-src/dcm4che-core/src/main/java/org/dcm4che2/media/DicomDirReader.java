@@ -43,13 +43,13 @@ import java.io.IOException;
 import java.io.RandomAccessFile;
 
 import org.dcm4che2.data.BasicDicomObject;
+import org.dcm4che2.data.DicomMatcher;
 import org.dcm4che2.data.DicomObject;
 import org.dcm4che2.data.Tag;
 import org.dcm4che2.data.TransferSyntax;
 import org.dcm4che2.data.VR;
 import org.dcm4che2.io.DicomInputStream;
 import org.dcm4che2.io.StopTagInputHandler;
-import org.dcm4che2.util.IntHashtable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -67,9 +67,11 @@ public class DicomDirReader {
     protected final RandomAccessFile raf;
     protected final DicomInputStream in;
     protected final FileSetInformation filesetInfo;
-    protected final IntHashtable<DicomObject> cache = new IntHashtable<DicomObject>();
+    protected RecordCache cache = new UnboundedRecordCache();
     protected File file;
     protected boolean showInactiveRecords;
+    DicomDirIndex index;
+    private long firstRecordPos;
 
     protected DicomDirReader(RandomAccessFile raf,
             FileSetInformation fileSetInfo) throws IOException {
@@ -91,6 +93,11 @@ public class DicomDirReader {
         filesetInfo = new FileSetInformation();
         in.readDicomObject(filesetInfo.getDicomObject(), -1);
         in.setHandler(in);
+        firstRecordPos = in.getStreamPosition();
+    }
+
+    long firstRecordPos() {
+        return firstRecordPos;
     }
 
     public int getFileSetConsistencyFlag() {
@@ -143,6 +150,114 @@ public class DicomDirReader {
         cache.clear();
     }
 
+    public final RecordCache getRecordCache() {
+        return cache;
+    }
+
+    /**
+     * Replaces the cache of records read from the DICOMDIR, e.g. by a
+     * {@link LRURecordCache} to limit the heap used for cached records.
+     * Default: {@link UnboundedRecordCache}.
+     * 
+     * @param cache
+     *            the record cache.
+     */
+    public void setRecordCache(RecordCache cache) {
+        if (cache == null) {
+            throw new NullPointerException();
+        }
+        this.cache = cache;
+    }
+
+    /**
+     * Builds an index of all records by Patient ID, Study, Series and
+     * Referenced SOP Instance UID by one sequential read of the Directory
+     * Record Sequence. While the reader is indexed, {@link #findPatientRecord},
+     * {@link #findStudyRecord}, {@link #findSeriesRecord} and
+     * {@link #findInstanceRecord} only read the records with the requested
+     * ID/UID, instead of walking the sibling chain.
+     * 
+     * @throws IOException
+     *             if reading the DICOMDIR fails.
+     */
+    public void buildIndex() throws IOException {
+        index = DicomDirIndex.build(raf, firstRecordPos(),
+                in.getTransferSyntax(), filesetInfo.getOffsetFirstRootRecord());
+        log.debug("Indexed {} records of {}", new Integer(index.size()), file);
+    }
+
+    /**
+     * Loads the index from a sidecar file, written by
+     * {@link #storeIndex(File)}.
+     * 
+     * @param f
+     *            the sidecar file.
+     * @return <code>false</code>, if the sidecar file does not exist or was
+     *         written for a previous version of the DICOMDIR, indicated by
+     *         different file length or last modification time.
+     * @throws IOException
+     *             if reading the sidecar file fails.
+     */
+    public boolean loadIndex(File f) throws IOException {
+        DicomDirIndex tmp = DicomDirIndex.read(f, raf.length(), lastModified());
+        if (tmp == null) {
+            log.debug("Stale or missing index file {}", f);
+            return false;
+        }
+        index = tmp;
+        return true;
+    }
+
+    /**
+     * Stores the index to a sidecar file. On updating the DICOMDIR by a
+     * {@link DicomDirWriter}, the index shall be stored after
+     * {@link DicomDirWriter#close}, because any further modification of the
+     * DICOMDIR invalidates the sidecar file.
+     * 
+     * @param f
+     *            the sidecar file.
+     * @throws IOException
+     *             if writing the sidecar file fails.
+     */
+    public void storeIndex(File f) throws IOException {
+        if (index == null) {
+            throw new IllegalStateException("Not indexed");
+        }
+        index.write(f, raf.length(), lastModified());
+    }
+
+    /**
+     * Loads the index from a sidecar file, or - if the sidecar file does not
+     * exist or is stale - builds it and stores it to the sidecar file.
+     * 
+     * @param f
+     *            the sidecar file.
+     * @throws IOException
+     *             if reading the DICOMDIR or reading or writing the sidecar
+     *             file fails.
+     */
+    public void useIndex(File f) throws IOException {
+        if (!loadIndex(f)) {
+            buildIndex();
+            storeIndex(f);
+        }
+    }
+
+    public final boolean isIndexed() {
+        return index != null;
+    }
+
+    public void dropIndex() {
+        index = null;
+    }
+
+    private long lastModified() {
+        if (file == null) {
+            throw new IllegalStateException("Unknown DICOMDIR file");
+        }
+        return file.lastModified();
+    }
+
     public FileSetInformation getFileSetInformation() {
         return filesetInfo;
     }
@@ -174,6 +289,9 @@ public class DicomDirReader {
         keys.putString(Tag.DirectoryRecordType, VR.CS,
                 DirectoryRecordType.PATIENT);
         keys.putString(Tag.PatientID, VR.LO, pid);
+        if (isIndexed(pid, 0)) {
+            return findIndexedRecord(DicomDirIndex.PATIENT_ID, pid, 0, keys);
+        }
         return findFirstMatchingRootRecord(keys, false);
     }
 
@@ -208,6 +326,10 @@ public class DicomDirReader {
                 DirectoryRecordType.STUDY);
         keys.putString(Tag.StudyInstanceUID, VR.UI, uid);
         keys.putString(Tag.ReferencedSOPInstanceUIDInFile, VR.UI, uid);
+        int parent = (int) patrec.getItemOffset();
+        if (isIndexed(uid, parent)) {
+            return findIndexedRecord(DicomDirIndex.STUDY_UID, uid, parent, keys);
+        }
         return findFirstMatchingChildRecord(patrec, keys, false);
     }
 
@@ -217,6 +339,10 @@ public class DicomDirReader {
         keys.putString(Tag.DirectoryRecordType, VR.CS,
                 DirectoryRecordType.SERIES);
         keys.putString(Tag.SeriesInstanceUID, VR.UI, uid);
+        int parent = (int) styrec.getItemOffset();
+        if (isIndexed(uid, parent)) {
+            return findIndexedRecord(DicomDirIndex.SERIES_UID, uid, parent, keys);
+        }
         return findFirstMatchingChildRecord(styrec, keys, false);
     }
 
@@ -224,15 +350,46 @@ public class DicomDirReader {
             throws IOException {
         BasicDicomObject keys = new BasicDicomObject();
         keys.putString(Tag.ReferencedSOPInstanceUIDInFile, VR.UI, uid);
+        int parent = (int) serrec.getItemOffset();
+        if (isIndexed(uid, parent)) {
+            return findIndexedRecord(DicomDirIndex.INSTANCE_UID, uid, parent,
+                    keys);
+        }
         return findFirstMatchingChildRecord(serrec, keys, false);
     }
 
+    // index lookup does not support wild cards and multiple or padded values
+    private boolean isIndexed(String key, int parentOffset) {
+        return index != null && key != null && key.length() != 0
+                && key.indexOf('*') == -1 && key.indexOf('?') == -1
+                && key.indexOf('\\') == -1 && key.trim().equals(key)
+                && (parentOffset == 0 || index.contains(parentOffset));
+    }
+
+    private DicomObject findIndexedRecord(int table, String key,
+            int parentOffset, DicomObject keys) throws IOException {
+        int[] offsets = index.find(table, key, parentOffset);
+        DicomMatcher matcher = DicomMatcher.compile(keys, false);
+        for (int i = 0; i < offsets.length; i++) {
+            DicomObject item = readRecord(offsets[i]);
+            if (isShown(item) && matcher.matches(item))
+                return item;
+        }
+        return null;
+    }
+
+    private boolean isShown(DicomObject item) {
+        return showInactiveRecords
+                || item.getInt(Tag.RecordInUseFlag) != INACTIVE;
+    }
+
     private DicomObject readRecord(int offset, DicomObject keys,
             boolean ignoreCaseOfPN) throws IOException {
+        DicomMatcher matcher = keys != null 
+                ? DicomMatcher.compile(keys, ignoreCaseOfPN) : null;
         while (offset != 0) {
             DicomObject item = readRecord(offset);
-            if ((showInactiveRecords || item.getInt(Tag.RecordInUseFlag) != INACTIVE)
-                    && (keys == null || item.matches(keys, ignoreCaseOfPN)))
+            if (isShown(item) && (matcher == null || matcher.matches(item)))
                 return item;
             offset = item.getInt(Tag.OffsetOfTheNextDirectoryRecord);
         }
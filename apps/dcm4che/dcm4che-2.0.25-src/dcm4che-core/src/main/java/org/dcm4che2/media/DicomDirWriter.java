@@ -37,13 +37,17 @@
  * ***** END LICENSE BLOCK ***** */
 package org.dcm4che2.media;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.List;
 
 import org.dcm4che2.data.BasicDicomObject;
 import org.dcm4che2.data.DicomObject;
@@ -132,6 +136,11 @@ public class DicomDirWriter extends DicomDirReader {
 	this.recordSeqLen = 0;
     }
 
+    @Override
+    long firstRecordPos() {
+	return firstRecordPos;
+    }
+
     private void offsetFirstRootRecord(int val) {
 	ByteUtils.int2bytesLE(val, dirInfoHeader, 8);
     }
@@ -200,6 +209,7 @@ public class DicomDirWriter extends DicomDirReader {
 	if (lastRootRecord == null) {
 	    writeRecord(firstRecordPos, rec);
 	    filesetInfo.setOffsetFirstRootRecord((int) firstRecordPos);
+	    addToIndex(rec, 0);
 	} else {
 	    addRecord(Tag.OffsetOfTheNextDirectoryRecord, lastRootRecord, rec);
 	}
@@ -218,7 +228,7 @@ public class DicomDirWriter extends DicomDirReader {
 
     public synchronized void addSiblingRecord(DicomObject prevRec,
 	    DicomObject dcmobj) throws IOException {
-	prevRec = lastSiblingOrThis(prevRec);
+	prevRec = lastSiblingOrThis(dirtyOrThis(prevRec));
 	addRecord(Tag.OffsetOfTheNextDirectoryRecord, prevRec, dcmobj);
 	if (cachedLastChildRecord == prevRec) {
 	    cachedLastChildRecord = dcmobj;
@@ -233,6 +243,7 @@ public class DicomDirWriter extends DicomDirReader {
 
     public synchronized void addChildRecord(DicomObject parentRec,
 	    DicomObject dcmobj) throws IOException {
+	parentRec = dirtyOrThis(parentRec);
 	if (parentRec == cachedParentRecord) {
 	    log.debug("Hit Parent/LastChild cache");
 	    addRecord(Tag.OffsetOfTheNextDirectoryRecord, cachedLastChildRecord, dcmobj);
@@ -251,6 +262,7 @@ public class DicomDirWriter extends DicomDirReader {
 
     public synchronized DicomObject addStudyRecord(DicomObject patrec,
 	    DicomObject styrec) throws IOException {
+	patrec = dirtyOrThis(patrec);
 	DicomObject other = findStudyRecord(patrec, styrec
 		.getString(Tag.StudyInstanceUID));
 	if (other != null) {
@@ -262,6 +274,7 @@ public class DicomDirWriter extends DicomDirReader {
 
     public synchronized DicomObject addSeriesRecord(DicomObject styrec,
 	    DicomObject serrec) throws IOException {
+	styrec = dirtyOrThis(styrec);
 	DicomObject other = findSeriesRecord(styrec, serrec
 		.getString(Tag.SeriesInstanceUID));
 	if (other != null) {
@@ -272,6 +285,7 @@ public class DicomDirWriter extends DicomDirReader {
     }
 
     public synchronized void deleteRecord(DicomObject rec) throws IOException {
+	rec = dirtyOrThis(rec);
 	if (rec.getInt(Tag.RecordInUseFlag) == INACTIVE) {
 	    return; // already disabled
 	}
@@ -289,11 +303,15 @@ public class DicomDirWriter extends DicomDirReader {
     public synchronized void rollback() throws IOException {
 	filesetInfo.setOffsetFirstRootRecord(offsetFirstRootRecord());
 	filesetInfo.setOffsetLastRootRecord(offsetLastRootRecord());
+	cache.unpinAll();
 	cache.clear();
         cachedParentRecord = null;
         cachedLastChildRecord = null;
 	dirtyRecords.clear();
 	if (rollbackLen != -1) {
+	    if (index != null) {
+		index.truncate(rollbackLen);
+	    }
 	    recordSeqLen = rollbackLen - firstRecordPos;
 	    raf.seek(rollbackLen);
 	    if (!out.isExplicitSequenceLength() && !isEmpty()) {
@@ -329,12 +347,25 @@ public class DicomDirWriter extends DicomDirReader {
 	    writeDirRecordHeader(dirtyRecords.get(i));
 	}
 	dirtyRecords.clear();
+	cache.unpinAll();
 	raf.seek(firstRecordPos - 14);
 	raf.writeShort(FileSetInformation.NO_KNOWN_INCONSISTENCIES);
         filesetInfo.setFileSetConsistencyFlag(
         	    FileSetInformation.NO_KNOWN_INCONSISTENCIES);
     }
 
+    /**
+     * Replaces the record cache. Only permitted while there are no
+     * uncommitted modifications, which are pinned in the current cache.
+     */
+    @Override
+    public synchronized void setRecordCache(RecordCache cache) {
+	if (!dirtyRecords.isEmpty()) {
+	    throw new IllegalStateException("Uncommitted modifications");
+	}
+	super.setRecordCache(cache);
+    }
+
     @Override
     public void close() throws IOException {
 	commit();
@@ -359,6 +390,20 @@ public class DicomDirWriter extends DicomDirReader {
 	writeRecord(endPos, dcmobj);
 	prevRecord.putInt(tag, VR.UL, (int) endPos);
 	markAsDirty(prevRecord);
+	if (index != null) {
+	    int prevOffset = (int) prevRecord.getItemOffset();
+	    addToIndex(dcmobj,
+		    tag == Tag.OffsetOfReferencedLowerLevelDirectoryEntity
+			    ? prevOffset : index.parentOf(prevOffset));
+	}
+    }
+
+    private void addToIndex(DicomObject rec, int parentOffset) {
+	if (index != null && !index.add(rec, parentOffset)) {
+	    log.debug("Drop index of {} on adding record @ {}", file,
+		    new Long(rec.getItemOffset()));
+	    index = null;
+	}
     }
 
     private long endPos() throws IOException {
@@ -394,18 +439,21 @@ public class DicomDirWriter extends DicomDirReader {
 	if (index < 0) {
 	    dirtyRecords.add(-(index + 1), rec);
 	}
+	cache.pin((int) rec.getItemOffset(), rec);
+    }
+
+    // a record passed by the caller may be a stale copy of a modified record,
+    // which was evicted from the cache before it was modified
+    private DicomObject dirtyOrThis(DicomObject rec) {
+	int index = Collections.binarySearch(dirtyRecords, rec,
+		offsetComparator);
+	return index < 0 ? rec : dirtyRecords.get(index);
     }
 
     private void writeRecord(long offset, DicomObject dcmobj)
 	    throws IOException {
 	log.debug("Write record @ {} to file {}", new Long(offset), file);
-	if (rollbackLen == -1) {
-	    rollbackLen = offset;
-	    filesetInfo.setFileSetConsistencyFlag(
-		    FileSetInformation.KNOWN_INCONSISTENCIES);
-	    raf.seek(firstRecordPos - 14);
-	    raf.writeShort(FileSetInformation.KNOWN_INCONSISTENCIES);
-	}
+	beginUpdate(offset);
 	raf.seek(offset);
 	out.setStreamPosition(offset);
 	dcmobj.putInt(Tag.OffsetOfTheNextDirectoryRecord, VR.UL, 0);
@@ -416,6 +464,209 @@ public class DicomDirWriter extends DicomDirReader {
 	cache.put((int) dcmobj.getItemOffset(), dcmobj);
     }
 
+    private void beginUpdate(long offset) throws IOException {
+	if (rollbackLen == -1) {
+	    rollbackLen = offset;
+	    filesetInfo.setFileSetConsistencyFlag(
+		    FileSetInformation.KNOWN_INCONSISTENCIES);
+	    raf.seek(firstRecordPos - 14);
+	    raf.writeShort(FileSetInformation.KNOWN_INCONSISTENCIES);
+	}
+    }
+
+    /**
+     * Adds all records of a batch. Patient, Study and Series Records, which
+     * already exist in the DICOMDIR, are not added again, but get the new
+     * records of the batch appended to their child records. All new records
+     * are laid out with their final offsets and written by one sequential
+     * write behind the last record. Existing records, which get new siblings
+     * or children, are updated by the next {@link #commit}.
+     * 
+     * @param batch
+     *            the records to add.
+     * @return number of added records.
+     * @throws IOException
+     *             if reading or writing the DICOMDIR fails.
+     */
+    public synchronized int addRecords(RecordBatch batch) throws IOException {
+	if (batch.isEmpty()) {
+	    return 0;
+	}
+	BatchLayout layout = new BatchLayout(endPos());
+	ArrayList<RecordBatch.Node> newPatients = 
+		new ArrayList<RecordBatch.Node>();
+	for (RecordBatch.Node pat : batch.patients()) {
+	    DicomObject other = findPatientRecord(
+		    pat.rec.getString(Tag.PatientID));
+	    if (other != null) {
+		appendChildren(other, pat.children, 1,
+			batch.isSkipDuplicates(), layout);
+	    } else {
+		newPatients.add(pat);
+	    }
+	}
+	if (!newPatients.isEmpty()) {
+	    int first = layout.place(newPatients, null);
+	    DicomObject lastRootRecord = lastRootRecord();
+	    if (lastRootRecord == null) {
+		filesetInfo.setOffsetFirstRootRecord(first);
+	    } else {
+		lastRootRecord.putInt(Tag.OffsetOfTheNextDirectoryRecord,
+			VR.UL, first);
+		markAsDirty(lastRootRecord);
+	    }
+	    filesetInfo.setOffsetLastRootRecord((int) newPatients.get(
+		    newPatients.size() - 1).rec.getItemOffset());
+	}
+	layout.write();
+	cachedParentRecord = null;
+	cachedLastChildRecord = null;
+	return layout.size();
+    }
+
+    private void appendChildren(DicomObject parent,
+	    List<RecordBatch.Node> nodes, int level, boolean skipDuplicates,
+	    BatchLayout layout) throws IOException {
+	ArrayList<RecordBatch.Node> newNodes = new ArrayList<RecordBatch.Node>();
+	for (RecordBatch.Node node : nodes) {
+	    DicomObject other;
+	    switch (level) {
+	    case 1:
+		other = findStudyRecord(parent,
+			node.rec.getString(Tag.StudyInstanceUID));
+		break;
+	    case 2:
+		other = findSeriesRecord(parent,
+			node.rec.getString(Tag.SeriesInstanceUID));
+		break;
+	    default:
+		other = skipDuplicates ? findInstanceRecord(parent, node.rec
+			.getString(Tag.ReferencedSOPInstanceUIDInFile)) : null;
+	    }
+	    if (other == null) {
+		newNodes.add(node);
+	    } else if (level < 3) {
+		appendChildren(other, node.children, level + 1,
+			skipDuplicates, layout);
+	    }
+	}
+	if (newNodes.isEmpty()) {
+	    return;
+	}
+	int first = layout.place(newNodes, parent);
+	DicomObject prevRec = lastChildRecord(parent);
+	if (prevRec != null) {
+	    prevRec.putInt(Tag.OffsetOfTheNextDirectoryRecord, VR.UL, first);
+	    markAsDirty(prevRec);
+	} else {
+	    parent.putInt(Tag.OffsetOfReferencedLowerLevelDirectoryEntity,
+		    VR.UL, first);
+	    markAsDirty(parent);
+	}
+    }
+
+    private DicomOutputStream newOutputStream(OutputStream os) {
+	DicomOutputStream dos = new DicomOutputStream(os);
+	dos.setExplicitItemLength(out.isExplicitItemLength());
+	dos.setExplicitItemLengthIfZero(out.isExplicitItemLengthIfZero());
+	dos.setExplicitSequenceLength(out.isExplicitSequenceLength());
+	dos.setExplicitSequenceLengthIfZero(
+		out.isExplicitSequenceLengthIfZero());
+	dos.setIncludeGroupLength(out.isIncludeGroupLength());
+	return dos;
+    }
+
+    /**
+     * Assigns offsets to new records by encoding them to a stream, which
+     * only counts the bytes, so the offsets to next sibling and first child
+     * records are known before the records are written.
+     */
+    private final class BatchLayout {
+
+	final long startPos;
+	final DicomOutputStream counter;
+	final ArrayList<DicomObject> recs = new ArrayList<DicomObject>();
+	final ArrayList<DicomObject> parents = new ArrayList<DicomObject>();
+
+	BatchLayout(long startPos) {
+	    this.startPos = startPos;
+	    this.counter = newOutputStream(new OutputStream() {
+		@Override
+		public void write(int b) {
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+		}
+	    });
+	    counter.setStreamPosition(startPos);
+	}
+
+	int size() {
+	    return recs.size();
+	}
+
+	int place(List<RecordBatch.Node> nodes, DicomObject parent)
+		throws IOException {
+	    DicomObject prevRec = null;
+	    int first = 0;
+	    for (RecordBatch.Node node : nodes) {
+		DicomObject rec = node.rec;
+		rec.putInt(Tag.OffsetOfTheNextDirectoryRecord, VR.UL, 0);
+		rec.putInt(Tag.RecordInUseFlag, VR.US, INUSE);
+		rec.putInt(Tag.OffsetOfReferencedLowerLevelDirectoryEntity,
+			VR.UL, 0);
+		counter.writeItem(rec, in.getTransferSyntax());
+		recs.add(rec);
+		parents.add(parent);
+		int offset = (int) rec.getItemOffset();
+		if (prevRec == null) {
+		    first = offset;
+		} else {
+		    prevRec.putInt(Tag.OffsetOfTheNextDirectoryRecord, VR.UL,
+			    offset);
+		}
+		if (!node.children.isEmpty()) {
+		    rec.putInt(Tag.OffsetOfReferencedLowerLevelDirectoryEntity,
+			    VR.UL, place(node.children, rec));
+		}
+		prevRec = rec;
+	    }
+	    return first;
+	}
+
+	void write() throws IOException {
+	    if (recs.isEmpty()) {
+		return;
+	    }
+	    log.debug("Write {} records @ {} to file {}", new Object[] {
+		    new Integer(recs.size()), new Long(startPos), file });
+	    beginUpdate(startPos);
+	    raf.seek(startPos);
+	    // not closed, which would close raf
+	    DicomOutputStream dos = newOutputStream(new BufferedOutputStream(
+		    Channels.newOutputStream(raf.getChannel()), 65536));
+	    dos.setStreamPosition(startPos);
+	    for (int i = 0, n = recs.size(); i < n; i++) {
+		dos.writeItem(recs.get(i), in.getTransferSyntax());
+	    }
+	    dos.flush();
+	    if (dos.getStreamPosition() != counter.getStreamPosition()) {
+		throw new IOException("Wrote " 
+			+ (dos.getStreamPosition() - startPos) 
+			+ " bytes of records instead of laid out "
+			+ (counter.getStreamPosition() - startPos));
+	    }
+	    recordSeqLen = (int) (dos.getStreamPosition() - firstRecordPos);
+	    for (int i = 0, n = recs.size(); i < n; i++) {
+		DicomObject rec = recs.get(i);
+		DicomObject parent = parents.get(i);
+		cache.put((int) rec.getItemOffset(), rec);
+		addToIndex(rec, parent != null ? (int) parent.getItemOffset() : 0);
+	    }
+	}
+    }
+
     public synchronized int purge() throws IOException {
 	int[] purged = { 0 };
 	for (DicomObject rec = readRecord(filesetInfo.getOffsetFirstRootRecord());
@@ -0,0 +1,233 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.media;
+
+import java.util.Iterator;
+
+import org.dcm4che2.data.DicomElement;
+import org.dcm4che2.data.DicomObject;
+import org.dcm4che2.util.IntHashtable;
+
+/**
+ * Record cache, which evicts the least recently used records, if the
+ * estimated heap size of all cached records exceeds a byte budget. Pinned
+ * records are not evicted, but count against the budget.
+ * 
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ */
+public class LRURecordCache extends RecordCache {
+
+    private static final int RECORD_OVERHEAD = 64;
+    private static final int ELEMENT_OVERHEAD = 56;
+
+    private static final class Entry {
+        final int offset;
+        DicomObject rec;
+        int size;
+        boolean pinned;
+        Entry prev;
+        Entry next;
+
+        Entry(int offset) {
+            this.offset = offset;
+            this.prev = this;
+            this.next = this;
+        }
+    }
+
+    private final long maxBytes;
+    private final IntHashtable<Entry> entries = new IntHashtable<Entry>();
+    // sentinels of lists of unpinned entries, least recently used first,
+    // and of pinned entries
+    private final Entry lru = new Entry(0);
+    private final Entry pinned = new Entry(0);
+    private long bytes;
+    private long evictionCount;
+
+    /**
+     * Creates an empty cache.
+     * 
+     * @param maxBytes
+     *            maximal estimated heap size of cached records.
+     */
+    public LRURecordCache(long maxBytes) {
+        if (maxBytes <= 0)
+            throw new IllegalArgumentException("maxBytes: " + maxBytes);
+        this.maxBytes = maxBytes;
+    }
+
+    public final long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Returns the estimated heap size of all cached records.
+     * 
+     * @return estimated heap size of cached records in bytes.
+     */
+    public final long getBytes() {
+        return bytes;
+    }
+
+    public final long getEvictionCount() {
+        return evictionCount;
+    }
+
+    @Override
+    public void resetCounters() {
+        super.resetCounters();
+        evictionCount = 0;
+    }
+
+    @Override
+    protected DicomObject lookup(int offset) {
+        Entry e = entries.get(offset);
+        if (e == null)
+            return null;
+        if (!e.pinned)
+            moveToTail(lru, e);
+        return e.rec;
+    }
+
+    @Override
+    public void put(int offset, DicomObject rec) {
+        Entry e = update(offset, rec);
+        if (!e.pinned)
+            moveToTail(lru, e);
+        evict();
+    }
+
+    @Override
+    public void pin(int offset, DicomObject rec) {
+        Entry e = update(offset, rec);
+        if (!e.pinned) {
+            e.pinned = true;
+            moveToTail(pinned, e);
+        }
+        evict();
+    }
+
+    private Entry update(int offset, DicomObject rec) {
+        Entry e = entries.get(offset);
+        if (e == null) {
+            e = new Entry(offset);
+            entries.put(offset, e);
+        } else {
+            bytes -= e.size;
+        }
+        e.rec = rec;
+        e.size = sizeOf(rec);
+        bytes += e.size;
+        return e;
+    }
+
+    @Override
+    public void unpinAll() {
+        for (Entry e = pinned.next; e != pinned; e = pinned.next) {
+            e.pinned = false;
+            moveToTail(lru, e);
+        }
+        evict();
+    }
+
+    @Override
+    public void clear() {
+        for (Entry e = lru.next; e != lru; e = lru.next)
+            remove(e);
+    }
+
+    @Override
+    public int size() {
+        return entries.size();
+    }
+
+    private void evict() {
+        while (bytes > maxBytes && lru.next != lru) {
+            remove(lru.next);
+            evictionCount++;
+        }
+    }
+
+    private void remove(Entry e) {
+        unlink(e);
+        entries.remove(e.offset);
+        bytes -= e.size;
+    }
+
+    private static void moveToTail(Entry list, Entry e) {
+        unlink(e);
+        e.prev = list.prev;
+        e.next = list;
+        list.prev.next = e;
+        list.prev = e;
+    }
+
+    private static void unlink(Entry e) {
+        e.prev.next = e.next;
+        e.next.prev = e.prev;
+        e.prev = e;
+        e.next = e;
+    }
+
+    /**
+     * Estimates the heap size of a record.
+     * 
+     * @param rec
+     *            the record.
+     * @return estimated heap size in bytes.
+     */
+    protected int sizeOf(DicomObject rec) {
+        int size = RECORD_OVERHEAD;
+        for (Iterator<DicomElement> it = rec.iterator(); it.hasNext();) {
+            DicomElement e = it.next();
+            size += ELEMENT_OVERHEAD;
+            if (e.hasDicomObjects()) {
+                for (int i = 0, n = e.countItems(); i < n; i++)
+                    size += sizeOf(e.getDicomObject(i));
+            } else if (e.hasItems()) {
+                size += e.countItems() * ELEMENT_OVERHEAD;
+            } else {
+                size += Math.max(e.length(), 0);
+            }
+        }
+        return size;
+    }
+}
@@ -0,0 +1,166 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.media;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+import org.dcm4che2.data.DicomObject;
+import org.dcm4che2.data.Tag;
+
+/**
+ * Batch of Directory Records, which are added to a DICOMDIR at once by
+ * {@link DicomDirWriter#addRecords(RecordBatch)}. Patient, Study and Series
+ * Records are grouped by Patient ID, Study and Series Instance UID, in the
+ * order of their first occurrence, so the writer can lay out all new records
+ * of the batch in one sequential write.
+ * 
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ */
+public class RecordBatch {
+
+    static final class Node {
+        final DicomObject rec;
+        final ArrayList<Node> children = new ArrayList<Node>();
+        HashMap<String, Node> childByKey;
+        HashSet<String> iuids;
+
+        Node(DicomObject rec) {
+            this.rec = rec;
+        }
+
+        Node child(DicomObject rec, int keyTag) {
+            String key = rec.getString(keyTag);
+            if (childByKey == null) {
+                childByKey = new HashMap<String, Node>();
+            } else {
+                Node child = childByKey.get(key);
+                if (child != null) {
+                    return child;
+                }
+            }
+            Node child = new Node(rec);
+            children.add(child);
+            childByKey.put(key, child);
+            return child;
+        }
+    }
+
+    private final Node root = new Node(null);
+    private boolean skipDuplicates;
+    private int size;
+
+    public final boolean isSkipDuplicates() {
+        return skipDuplicates;
+    }
+
+    /**
+     * Skip Instance Records with a Referenced SOP Instance UID, which is
+     * already referenced in the same Series, in the batch or in the
+     * DICOMDIR. Default: <code>false</code>.
+     * 
+     * @param skipDuplicates
+     *            <code>true</code> to skip duplicate Instance Records.
+     */
+    public final void setSkipDuplicates(boolean skipDuplicates) {
+        this.skipDuplicates = skipDuplicates;
+    }
+
+    /**
+     * Adds the records referencing one DICOM file. Patient, Study or Series
+     * Records for a Patient ID, Study or Series Instance UID, which already
+     * occurred in the batch, are ignored.
+     * 
+     * @param patrec
+     *            the Patient Record.
+     * @param styrec
+     *            the Study Record.
+     * @param serrec
+     *            the Series Record.
+     * @param instrec
+     *            the Instance Record.
+     * @return <code>false</code>, if the Instance Record was skipped as
+     *         duplicate.
+     */
+    public boolean add(DicomObject patrec, DicomObject styrec,
+            DicomObject serrec, DicomObject instrec) {
+        Node ser = root.child(patrec, Tag.PatientID)
+                .child(styrec, Tag.StudyInstanceUID)
+                .child(serrec, Tag.SeriesInstanceUID);
+        if (skipDuplicates) {
+            if (ser.iuids == null) {
+                ser.iuids = new HashSet<String>();
+            }
+            if (!ser.iuids.add(
+                    instrec.getString(Tag.ReferencedSOPInstanceUIDInFile))) {
+                return false;
+            }
+        }
+        ser.children.add(new Node(instrec));
+        size++;
+        return true;
+    }
+
+    /**
+     * Returns the number of Instance Records in the batch.
+     * 
+     * @return number of Instance Records.
+     */
+    public final int size() {
+        return size;
+    }
+
+    public final boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        root.children.clear();
+        root.childByKey = null;
+        size = 0;
+    }
+
+    List<Node> patients() {
+        return root.children;
+    }
+}
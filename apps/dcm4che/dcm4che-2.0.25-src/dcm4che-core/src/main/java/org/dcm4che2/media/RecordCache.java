@@ -0,0 +1,136 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.media;
+
+import org.dcm4che2.data.DicomObject;
+
+/**
+ * Cache of Directory Records read or written by {@link DicomDirReader} and
+ * {@link DicomDirWriter}, keyed by the offset of the record in the DICOMDIR.
+ * <p>
+ * Records modified by a {@link DicomDirWriter} are pinned until the next
+ * {@link DicomDirWriter#commit} or {@link DicomDirWriter#rollback}: they are
+ * neither evicted nor removed by {@link #clear}, because their current
+ * state is not yet written to the DICOMDIR.
+ * <p>
+ * Implementations are not thread safe; they are accessed by the reader and
+ * writer only.
+ * 
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ * @see UnboundedRecordCache
+ * @see LRURecordCache
+ */
+public abstract class RecordCache {
+
+    private long hitCount;
+    private long missCount;
+
+    /**
+     * Returns the cached record at the specified offset and counts the
+     * cache hit or miss.
+     * 
+     * @param offset
+     *            offset of the record.
+     * @return the cached record or <code>null</code>.
+     */
+    public final DicomObject get(int offset) {
+        DicomObject rec = lookup(offset);
+        if (rec != null)
+            hitCount++;
+        else
+            missCount++;
+        return rec;
+    }
+
+    protected abstract DicomObject lookup(int offset);
+
+    /**
+     * Adds a record, which was read from or written to the DICOMDIR.
+     * 
+     * @param offset
+     *            offset of the record.
+     * @param rec
+     *            the record.
+     */
+    public abstract void put(int offset, DicomObject rec);
+
+    /**
+     * Adds a modified record, which shall not be evicted before
+     * {@link #unpinAll}.
+     * 
+     * @param offset
+     *            offset of the record.
+     * @param rec
+     *            the record.
+     */
+    public abstract void pin(int offset, DicomObject rec);
+
+    /**
+     * Releases all pinned records, after their modifications were written
+     * to the DICOMDIR or discarded.
+     */
+    public abstract void unpinAll();
+
+    /**
+     * Removes all records, which are not pinned.
+     */
+    public abstract void clear();
+
+    /**
+     * Returns the number of cached records.
+     * 
+     * @return number of cached records.
+     */
+    public abstract int size();
+
+    public final long getHitCount() {
+        return hitCount;
+    }
+
+    public final long getMissCount() {
+        return missCount;
+    }
+
+    public void resetCounters() {
+        hitCount = 0;
+        missCount = 0;
+    }
+}
@@ -0,0 +1,97 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.media;
+
+import org.dcm4che2.data.DicomObject;
+import org.dcm4che2.util.IntHashtable;
+
+/**
+ * Record cache, which keeps all records until {@link #clear}. Default cache
+ * of {@link DicomDirReader} and {@link DicomDirWriter}.
+ * 
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ */
+public class UnboundedRecordCache extends RecordCache {
+
+    private final IntHashtable<DicomObject> records =
+            new IntHashtable<DicomObject>();
+    private final IntHashtable<DicomObject> pinned =
+            new IntHashtable<DicomObject>();
+
+    @Override
+    protected DicomObject lookup(int offset) {
+        return records.get(offset);
+    }
+
+    @Override
+    public void put(int offset, DicomObject rec) {
+        records.put(offset, rec);
+    }
+
+    @Override
+    public void pin(int offset, DicomObject rec) {
+        records.put(offset, rec);
+        pinned.put(offset, rec);
+    }
+
+    @Override
+    public void unpinAll() {
+        pinned.clear();
+    }
+
+    @Override
+    public void clear() {
+        records.clear();
+        if (!pinned.isEmpty()) {
+            pinned.accept(new IntHashtable.Visitor() {
+                public boolean visit(int offset, Object rec) {
+                    records.put(offset, (DicomObject) rec);
+                    return true;
+                }
+            });
+        }
+    }
+
+    @Override
+    public int size() {
+        return records.size();
+    }
+}
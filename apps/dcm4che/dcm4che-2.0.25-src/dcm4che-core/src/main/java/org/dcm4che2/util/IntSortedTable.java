@@ -0,0 +1,373 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.util;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Table with integer keys, which are kept in ascending order - interpreting
+ * keys as unsigned integers, as DICOM tags are sorted.
+ * <p>
+ * Entries are held in a sorted array pair, so iteration does not require any
+ * sorting. Entries put in ascending key order - as on parsing a DICOM stream -
+ * are appended in constant time; entries put out of order are inserted at
+ * their position. Lookups in small tables are performed by binary search;
+ * larger tables maintain an additional open addressing index into the sorted
+ * arrays, which is updated on each modification. So lookups and iterations
+ * do not modify the table and may be performed concurrently by several
+ * threads, as long as the table is not modified.
+ * 
+ * @param <T>
+ *            the value type.
+ * 
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ */
+public class IntSortedTable<T> {
+
+    private static final int MIN_CAPACITY = 4;
+
+    private static final int MIN_SIZE_FOR_INDEX = 16;
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+    private int[] slots; // position + 1 in keys/values, 0 = free
+    private int shift;
+    private int modCount;
+
+    public IntSortedTable() {
+        this(10);
+    }
+
+    public IntSortedTable(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, MIN_CAPACITY);
+        keys = new int[capacity];
+        values = new Object[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++)
+            values[i] = null;
+        size = 0;
+        slots = null;
+        ++modCount;
+    }
+
+    private static int compare(int key1, int key2) {
+        return (key1 ^ 0x80000000) < (key2 ^ 0x80000000) ? -1 
+                : key1 == key2 ? 0 : 1;
+    }
+
+    private int indexOf(int key) {
+        int low = 0;
+        int high = size - 1;
+        int ukey = key ^ 0x80000000;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midVal = keys[mid] ^ 0x80000000;
+            if (midVal < ukey)
+                low = mid + 1;
+            else if (midVal > ukey)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return -(low + 1);
+    }
+
+    public void put(int key, T value) {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        int index = size;
+        if (size > 0 && compare(keys[size - 1], key) >= 0) {
+            index = find(key);
+            if (index >= 0) {
+                values[index] = value;
+                return;
+            }
+            if (slots != null)
+                index = indexOf(key);
+            index = -(index + 1);
+        }
+        insert(index, key, value);
+    }
+
+    private void insert(int index, int key, T value) {
+        if (size == keys.length)
+            grow(size + 1);
+        int numMoved = size - index;
+        if (numMoved > 0) {
+            System.arraycopy(keys, index, keys, index + 1, numMoved);
+            System.arraycopy(values, index, values, index + 1, numMoved);
+        }
+        keys[index] = key;
+        values[index] = value;
+        ++size;
+        ++modCount;
+        if (slots != null && size << 1 <= slots.length) {
+            if (numMoved > 0)
+                moveSlots(index, 1);
+            addSlot(slots, index);
+        } else if (size >= MIN_SIZE_FOR_INDEX) {
+            buildSlots();
+        }
+    }
+
+    private int hash(int key) {
+        return (key * 0x9E3779B9) >>> shift;
+    }
+
+    private void addSlot(int[] slots, int index) {
+        int mask = slots.length - 1;
+        int i = hash(keys[index]);
+        while (slots[i] != 0)
+            i = (i + 1) & mask;
+        slots[i] = index + 1;
+    }
+
+    // adjust slots of entries at or after position from, moved by delta
+    private void moveSlots(int from, int delta) {
+        for (int i = 0; i < slots.length; i++)
+            if (slots[i] > from)
+                slots[i] += delta;
+    }
+
+    private void removeSlot(int index) {
+        int mask = slots.length - 1;
+        int i = hash(keys[index]);
+        while (slots[i] != index + 1)
+            i = (i + 1) & mask;
+        // shift following entries of the probe sequence back
+        for (int j = (i + 1) & mask, slot; (slot = slots[j]) != 0;
+                j = (j + 1) & mask) {
+            int h = hash(keys[slot - 1]);
+            if (i <= j ? (h <= i || h > j) : (h <= i && h > j)) {
+                slots[i] = slot;
+                i = j;
+            }
+        }
+        slots[i] = 0;
+    }
+
+    private void buildSlots() {
+        int capacity = MIN_SIZE_FOR_INDEX << 1;
+        int bits = 5;
+        while (capacity < size << 1) {
+            capacity <<= 1;
+            ++bits;
+        }
+        int[] newSlots = new int[capacity << 1];
+        shift = 32 - (bits + 1);
+        for (int i = 0; i < size; i++)
+            addSlot(newSlots, i);
+        slots = newSlots;
+    }
+
+    private int find(int key) {
+        int[] slots = this.slots;
+        if (slots == null)
+            return indexOf(key);
+        int mask = slots.length - 1;
+        int slot;
+        for (int i = hash(key); (slot = slots[i]) != 0; i = (i + 1) & mask) {
+            if (keys[slot - 1] == key)
+                return slot - 1;
+        }
+        return -1;
+    }
+
+    private void grow(int minCapacity) {
+        int newCapacity = Math.max(keys.length << 1, minCapacity);
+        int[] newKeys = new int[newCapacity];
+        Object[] newValues = new Object[newCapacity];
+        System.arraycopy(keys, 0, newKeys, 0, size);
+        System.arraycopy(values, 0, newValues, 0, size);
+        keys = newKeys;
+        values = newValues;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int key) {
+        int index = find(key);
+        return index >= 0 ? (T) values[index] : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T remove(int key) {
+        int index = find(key);
+        if (index < 0)
+            return null;
+
+        T retval = (T) values[index];
+        if (slots != null) {
+            if (size > MIN_SIZE_FOR_INDEX) {
+                removeSlot(index);
+                moveSlots(index + 1, -1);
+            } else {
+                slots = null;
+            }
+        }
+        int numMoved = size - index - 1;
+        if (numMoved > 0) {
+            System.arraycopy(keys, index + 1, keys, index, numMoved);
+            System.arraycopy(values, index + 1, values, index, numMoved);
+        }
+        values[--size] = null;
+        ++modCount;
+        return retval;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean equals(Object that) {
+        if (this == that)
+            return true;
+        if (!(that instanceof IntSortedTable))
+            return false;
+
+        IntSortedTable<T> other = (IntSortedTable<T>) that;
+        if (other.size() != size())
+            return false;
+
+        for (int i = 0; i < size; ++i) {
+            if (!values[i].equals(other.get(keys[i])))
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = 0;
+        for (int i = 0; i < size; i++) {
+            h += keys[i] ^ values[i].hashCode();
+        }
+        return h;
+    }
+
+    /**
+     * Visit entries in ascending key order. Entries may be removed or
+     * replaced by the visitor.
+     * 
+     * @param visitor
+     * @return <tt>false</tt>, if the traversal was terminated by the visitor.
+     */
+    public boolean accept(IntHashtable.Visitor visitor) {
+        for (Itr itr = new Itr(0, 0xffffffff); itr.hasNext();) {
+            T value = itr.next();
+            if (!visitor.visit(itr.lastKey, value))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns iterator over values with keys in the specified range in
+     * ascending key order. Entries may be removed or replaced during the
+     * iteration; the iterator continues with the next greater key.
+     * 
+     * @param start
+     *            first key, inclusive
+     * @param end
+     *            last key, inclusive
+     * @return iterator over values
+     */
+    public Iterator<T> iterator(int start, int end) {
+        return new Itr(start, end);
+    }
+
+    private final class Itr implements Iterator<T> {
+        final int start;
+        final int end;
+        int expectedModCount;
+        int index;
+        int lastKey;
+        boolean returned;
+
+        Itr(int start, int end) {
+            if (compare(start, end) > 0)
+                throw new IllegalArgumentException("start:" + start + ", end:"
+                        + end);
+            this.start = start;
+            this.end = end;
+            seek();
+        }
+
+        private void seek() {
+            expectedModCount = modCount;
+            int key = returned ? lastKey : start;
+            index = indexOf(key);
+            if (index < 0)
+                index = -(index + 1);
+            else if (returned)
+                ++index;
+        }
+
+        public boolean hasNext() {
+            if (expectedModCount != modCount)
+                seek();
+            return index < size && compare(keys[index], end) <= 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            lastKey = keys[index];
+            returned = true;
+            return (T) values[index++];
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.util;
+
+import java.util.zip.DataFormatException;
+
+/**
+ * Compression and decompression of a byte array in the LZ4 block format.
+ * Trades compression ratio for speed: typically several times faster than
+ * <code>Deflater</code> at its fastest level, what makes it suitable for
+ * caches and the exchange of data between processes.
+ * 
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ */
+public final class LZ4Block {
+
+    private static final int MIN_MATCH = 4;
+
+    private static final int LAST_LITERALS = 5;
+
+    private static final int MF_LIMIT = 12;
+
+    private static final int MAX_DISTANCE = 0xffff;
+
+    private static final int HASH_LOG = 12;
+
+    private static final int SKIP_TRIGGER = 6;
+
+    private LZ4Block() {
+    }
+
+    /**
+     * Returns the maximal length of the compressed data of the specified
+     * length.
+     * 
+     * @param len
+     *            length of uncompressed data
+     * @return maximal length of the compressed data
+     */
+    public static int maxCompressedLength(int len) {
+        return len + len / 255 + 16;
+    }
+
+    private static int readInt(byte[] b, int i) {
+        return (b[i] & 0xff) | (b[i + 1] & 0xff) << 8
+                | (b[i + 2] & 0xff) << 16 | (b[i + 3] & 0xff) << 24;
+    }
+
+    private static int hash(int i) {
+        return (i * -1640531535) >>> (32 - HASH_LOG);
+    }
+
+    private static int writeLength(byte[] dst, int dp, int len) {
+        while (len >= 0xff) {
+            dst[dp++] = (byte) 0xff;
+            len -= 0xff;
+        }
+        dst[dp++] = (byte) len;
+        return dp;
+    }
+
+    private static int writeLiterals(byte[] src, int sp, int len, byte[] dst,
+            int dp, int matchToken) {
+        int tokenPos = dp++;
+        if (len >= 15) {
+            dst[tokenPos] = (byte) (0xf0 | matchToken);
+            dp = writeLength(dst, dp, len - 15);
+        } else {
+            dst[tokenPos] = (byte) (len << 4 | matchToken);
+        }
+        System.arraycopy(src, sp, dst, dp, len);
+        return dp + len;
+    }
+
+    /**
+     * Compress <code>len</code> bytes of <code>src</code> starting at
+     * <code>off</code>.
+     * 
+     * @return the compressed data
+     */
+    public static byte[] compress(byte[] src, int off, int len) {
+        byte[] dst = new byte[maxCompressedLength(len)];
+        int dlen = compress(src, off, len, dst, 0);
+        byte[] b = new byte[dlen];
+        System.arraycopy(dst, 0, b, 0, dlen);
+        return b;
+    }
+
+    /**
+     * Compress <code>len</code> bytes of <code>src</code> starting at
+     * <code>off</code> into <code>dst</code>, which must provide at least
+     * {@link #maxCompressedLength(int)} bytes from <code>dstOff</code>.
+     * 
+     * @return the length of the compressed data
+     */
+    public static int compress(byte[] src, int off, int len, byte[] dst,
+            int dstOff) {
+        final int end = off + len;
+        final int matchLimit = end - LAST_LITERALS;
+        final int mfLimit = end - MF_LIMIT;
+        final int[] table = new int[1 << HASH_LOG];
+        int anchor = off;
+        int sp = off;
+        int dp = dstOff;
+        while (sp <= mfLimit) {
+            int seq = readInt(src, sp);
+            int h = hash(seq);
+            int ref = table[h] - 1 + off;
+            table[h] = sp - off + 1;
+            if (ref < off || sp - ref > MAX_DISTANCE
+                    || readInt(src, ref) != seq) {
+                sp += 1 + ((sp - anchor) >>> SKIP_TRIGGER);
+                continue;
+            }
+            while (sp > anchor && ref > off && src[sp - 1] == src[ref - 1]) {
+                --sp;
+                --ref;
+            }
+            int matchLen = MIN_MATCH;
+            while (sp + matchLen < matchLimit
+                    && src[sp + matchLen] == src[ref + matchLen])
+                ++matchLen;
+            int m = matchLen - MIN_MATCH;
+            dp = writeLiterals(src, anchor, sp - anchor, dst, dp,
+                    m >= 15 ? 15 : m);
+            int distance = sp - ref;
+            dst[dp++] = (byte) distance;
+            dst[dp++] = (byte) (distance >>> 8);
+            if (m >= 15)
+                dp = writeLength(dst, dp, m - 15);
+            sp += matchLen;
+            anchor = sp;
+            if (sp - 2 <= mfLimit)
+                table[hash(readInt(src, sp - 2))] = sp - 2 - off + 1;
+        }
+        dp = writeLiterals(src, anchor, end - anchor, dst, dp, 0);
+        return dp - dstOff;
+    }
+
+    /**
+     * Decompress <code>len</code> bytes of compressed data in
+     * <code>src</code> starting at <code>off</code> into <code>dst</code>.
+     * 
+     * @return the length of the decompressed data
+     * @throws DataFormatException
+     *             if the compressed data is malformed or its decompressed
+     *             length exceeds <code>dstLen</code>
+     */
+    public static int decompress(byte[] src, int off, int len, byte[] dst,
+            int dstOff, int dstLen) throws DataFormatException {
+        final int end = off + len;
+        final int dstEnd = dstOff + dstLen;
+        int sp = off;
+        int dp = dstOff;
+        while (sp < end) {
+            int token = src[sp++] & 0xff;
+            int literals = token >>> 4;
+            if (literals == 15) {
+                int b;
+                do {
+                    if (sp >= end)
+                        throw new DataFormatException("Truncated LZ4 block");
+                    literals += b = src[sp++] & 0xff;
+                } while (b == 0xff);
+            }
+            if (literals > end - sp || literals > dstEnd - dp)
+                throw new DataFormatException("Invalid literal length: "
+                        + literals);
+            System.arraycopy(src, sp, dst, dp, literals);
+            sp += literals;
+            dp += literals;
+            if (sp == end)
+                break;
+            if (end - sp < 2)
+                throw new DataFormatException("Truncated LZ4 block");
+            int distance = (src[sp] & 0xff) | (src[sp + 1] & 0xff) << 8;
+            sp += 2;
+            if (distance == 0 || distance > dp - dstOff)
+                throw new DataFormatException("Invalid match distance: "
+                        + distance);
+            int matchLen = token & 0x0f;
+            if (matchLen == 15) {
+                int b;
+                do {
+                    if (sp >= end)
+                        throw new DataFormatException("Truncated LZ4 block");
+                    matchLen += b = src[sp++] & 0xff;
+                } while (b == 0xff);
+            }
+            matchLen += MIN_MATCH;
+            if (matchLen > dstEnd - dp)
+                throw new DataFormatException("Invalid match length: "
+                        + matchLen);
+            int ref = dp - distance;
+            if (distance >= matchLen) {
+                System.arraycopy(dst, ref, dst, dp, matchLen);
+                dp += matchLen;
+            } else {
+                for (int i = 0; i < matchLen; i++)
+                    dst[dp++] = dst[ref++];
+            }
+        }
+        return dp - dstOff;
+    }
+}
@@ -0,0 +1,191 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread safe hash table with integer keys, which splits its entries by key
+ * into several {@link IntHashtable}s, each guarded by its own lock. So
+ * threads accessing entries with different keys rarely contend for the same
+ * lock.
+ * 
+ * @param <T>
+ *            the value type.
+ * 
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ */
+public class StripedIntHashtable<T> {
+
+    private static final int DEFAULT_STRIPES = 16;
+
+    private final IntHashtable<T>[] tables;
+    private final ReentrantLock[] locks;
+    private final int mask;
+    private final AtomicInteger size = new AtomicInteger();
+
+    public StripedIntHashtable() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * Creates an empty table.
+     * 
+     * @param stripes
+     *            number of independently locked partitions, rounded up to
+     *            the next power of 2.
+     */
+    public StripedIntHashtable(int stripes) {
+        if (stripes <= 0 || stripes > (1 << 16))
+            throw new IllegalArgumentException("stripes: " + stripes);
+        int n = 1;
+        while (n < stripes)
+            n <<= 1;
+        @SuppressWarnings("unchecked")
+        IntHashtable<T>[] a = (IntHashtable<T>[]) new IntHashtable<?>[n];
+        tables = a;
+        locks = new ReentrantLock[n];
+        for (int i = 0; i < n; i++) {
+            tables[i] = new IntHashtable<T>();
+            locks[i] = new ReentrantLock();
+        }
+        mask = n - 1;
+    }
+
+    private int stripe(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public boolean isEmpty() {
+        return size.get() == 0;
+    }
+
+    /**
+     * Associates <code>value</code> with <code>key</code>.
+     * 
+     * @return the value previously associated with <code>key</code>, or
+     *         <code>null</code>.
+     */
+    public T put(int key, T value) {
+        if (value == null)
+            throw new NullPointerException("value");
+        int i = stripe(key);
+        ReentrantLock lock = locks[i];
+        lock.lock();
+        try {
+            IntHashtable<T> table = tables[i];
+            T prev = table.get(key);
+            table.put(key, value);
+            if (prev == null)
+                size.incrementAndGet();
+            return prev;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public T get(int key) {
+        int i = stripe(key);
+        ReentrantLock lock = locks[i];
+        lock.lock();
+        try {
+            return tables[i].get(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the entry for <code>key</code>.
+     * 
+     * @return the removed value, or <code>null</code>.
+     */
+    @SuppressWarnings("unchecked")
+    public T remove(int key) {
+        int i = stripe(key);
+        ReentrantLock lock = locks[i];
+        lock.lock();
+        try {
+            T prev = (T) tables[i].remove(key);
+            if (prev != null)
+                size.decrementAndGet();
+            return prev;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes all entries.
+     * 
+     * @return the removed values.
+     */
+    public List<T> removeAll() {
+        final ArrayList<T> values = new ArrayList<T>(size.get());
+        for (int i = 0; i < tables.length; i++) {
+            ReentrantLock lock = locks[i];
+            lock.lock();
+            try {
+                IntHashtable<T> table = tables[i];
+                table.accept(new IntHashtable.Visitor() {
+                    @SuppressWarnings("unchecked")
+                    public boolean visit(int key, Object value) {
+                        values.add((T) value);
+                        return true;
+                    }
+                });
+                size.addAndGet(-table.size());
+                table.clear();
+            } finally {
+                lock.unlock();
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,145 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.dcm4che2.io.DicomCodingException;
+import org.dcm4che2.io.DicomInputStream;
+
+public class CompactDicomObjectTest extends TestCase {
+
+    private static File locateFile(String name) {
+        ClassLoader cl = Thread.currentThread().getContextClassLoader();
+        return new File(cl.getResource(name).toString().substring(5));
+    }
+
+    private static DicomObject load(String name) throws IOException {
+        DicomInputStream dis = new DicomInputStream(locateFile(name));
+        try {
+            return dis.readDicomObject();
+        } finally {
+            dis.close();
+        }
+    }
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(CompactDicomObjectTest.class);
+    }
+
+    public CompactDicomObjectTest(String arg0) {
+        super(arg0);
+    }
+
+    public void testEncodeDecode() throws IOException {
+        DicomObject dicomdir = load("DICOMDIR");
+        byte[] b = CompactDicomObject.encode(dicomdir);
+        DicomObject decoded = new CompactDicomObject(b);
+        assertEquals(dicomdir.size(), decoded.size());
+        DicomElement sq = decoded.get(Tag.DirectoryRecordSequence);
+        assertEquals(1203, sq.countItems());
+        assertEquals(dicomdir.get(Tag.DirectoryRecordSequence)
+                .getDicomObject(1202), sq.getDicomObject(1202));
+        assertEquals(dicomdir, decoded);
+    }
+
+    public void testCompress() throws IOException {
+        DicomObject dicomdir = load("DICOMDIR");
+        byte[] b = CompactDicomObject.encode(dicomdir);
+        byte[] compressed = CompactDicomObject.encode(dicomdir, true);
+        assertTrue(compressed.length < b.length / 2);
+        assertEquals(dicomdir, new CompactDicomObject(compressed));
+    }
+
+    public void testFragments() throws IOException {
+        DicomObject attrs = new BasicDicomObject();
+        attrs.putString(Tag.PatientName, VR.PN, "Doe^John");
+        DicomElement frags = attrs.putFragments(Tag.PixelData, VR.OB, false);
+        frags.addFragment(new byte[0]);
+        frags.addFragment(new byte[300]);
+        attrs.putNull(Tag.ReferencedImageSequence, VR.SQ);
+        attrs.putInts(Tag.ReferencedFrameNumber, VR.IS, new int[] { 1, 2 });
+        attrs.putInt(0xfffe0010, VR.UL, 1);
+        DicomObject decoded = new CompactDicomObject(
+                CompactDicomObject.encode(attrs, true));
+        DicomElement decodedFrags = decoded.remove(Tag.PixelData);
+        assertEquals(VR.OB, decodedFrags.vr());
+        assertEquals(2, decodedFrags.countItems());
+        assertEquals(0, decodedFrags.getFragment(0).length);
+        assertTrue(Arrays.equals(frags.getFragment(1),
+                decodedFrags.getFragment(1)));
+        attrs.remove(Tag.PixelData);
+        assertEquals(attrs, decoded);
+        assertEquals(1, decoded.getInt(0xfffe0010));
+    }
+
+    public void testReadWrite() throws IOException {
+        DicomObject ct = new BasicDicomObject();
+        ct.putString(Tag.Modality, VR.CS, "CT");
+        DicomObject mr = new BasicDicomObject();
+        mr.putString(Tag.Modality, VR.CS, "MR");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CompactDicomObject.write(ct, out, false);
+        CompactDicomObject.write(mr, out, true);
+        CompactDicomObject.write(new BasicDicomObject(), out, true);
+        ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+        assertEquals(ct, CompactDicomObject.read(in));
+        assertEquals(mr, CompactDicomObject.read(in));
+        assertTrue(CompactDicomObject.read(in).isEmpty());
+        assertNull(CompactDicomObject.read(in));
+    }
+
+    public void testMalformed() {
+        DicomObject ct = new BasicDicomObject();
+        ct.putString(Tag.Modality, VR.CS, "CT");
+        byte[] b = CompactDicomObject.encode(ct);
+        try {
+            new CompactDicomObject(b, 0, b.length - 1);
+            fail("DicomCodingException expected");
+        } catch (IOException e) {
+            assertTrue(e instanceof DicomCodingException);
+        }
+    }
+}
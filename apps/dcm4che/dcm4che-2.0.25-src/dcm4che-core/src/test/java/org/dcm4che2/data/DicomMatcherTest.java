@@ -0,0 +1,147 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.data;
+
+import junit.framework.TestCase;
+
+public class DicomMatcherTest extends TestCase {
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(DicomMatcherTest.class);
+    }
+
+    public DicomMatcherTest(String name) {
+        super(name);
+    }
+
+    private static DicomObject mwlItem() {
+        DicomObject ds = new BasicDicomObject();
+        ds.putString(Tag.PatientName, VR.PN, "Doe^John");
+        ds.putString(Tag.PatientID, VR.LO, "PID-4711");
+        ds.putString(Tag.AccessionNumber, VR.SH, "A123");
+        ds.putStrings(Tag.ModalitiesInStudy, VR.CS, 
+                new String[] { "CT", "MR" });
+        ds.putString(Tag.StudyInstanceUID, VR.UI, "1.2.3.4");
+        DicomObject sps = new BasicDicomObject();
+        sps.putString(Tag.Modality, VR.CS, "CT");
+        sps.putString(Tag.ScheduledStationAETitle, VR.AE, "CT_1");
+        sps.putString(Tag.ScheduledProcedureStepStartDate, VR.DA, "20261017");
+        sps.putString(Tag.ScheduledProcedureStepStartTime, VR.TM, "143000");
+        ds.putNestedDicomObject(Tag.ScheduledProcedureStepSequence, sps);
+        return ds;
+    }
+
+    private static boolean matches(DicomObject keys, boolean ignoreCaseOfPN) {
+        DicomObject ds = mwlItem();
+        boolean result = DicomMatcher.compile(keys, ignoreCaseOfPN).matches(ds);
+        assertEquals(result, ds.matches(keys, ignoreCaseOfPN));
+        return result;
+    }
+
+    public void testUniversalAndMissing() {
+        DicomObject keys = new BasicDicomObject();
+        keys.putNull(Tag.PatientName, VR.PN);
+        keys.putString(Tag.ReferringPhysicianName, VR.PN, "Smith");
+        assertTrue(matches(keys, false));
+    }
+
+    public void testSingleValueUID() {
+        DicomObject keys = new BasicDicomObject();
+        keys.putString(Tag.StudyInstanceUID, VR.UI, "1.2.3.4");
+        assertTrue(matches(keys, false));
+        keys.putString(Tag.StudyInstanceUID, VR.UI, "1.2.3.45");
+        assertFalse(matches(keys, false));
+        keys.putString(Tag.StudyInstanceUID, VR.UI, "1.2.3");
+        assertFalse(matches(keys, false));
+    }
+
+    public void testMultiValuedAttribute() {
+        DicomObject keys = new BasicDicomObject();
+        keys.putString(Tag.ModalitiesInStudy, VR.CS, "MR");
+        assertTrue(matches(keys, false));
+        keys.putString(Tag.ModalitiesInStudy, VR.CS, "US");
+        assertFalse(matches(keys, false));
+    }
+
+    public void testWildcard() {
+        DicomObject keys = new BasicDicomObject();
+        keys.putString(Tag.PatientID, VR.LO, "PID-47?1");
+        assertTrue(matches(keys, false));
+        keys.putString(Tag.PatientID, VR.LO, "*47*");
+        assertTrue(matches(keys, false));
+        keys.putString(Tag.PatientID, VR.LO, "*48*");
+        assertFalse(matches(keys, false));
+        keys.putString(Tag.AccessionNumber, VR.SH, "A1*");
+        keys.putString(Tag.PatientID, VR.LO, "PID*");
+        assertTrue(matches(keys, false));
+    }
+
+    public void testPersonNameIgnoreCase() {
+        DicomObject keys = new BasicDicomObject();
+        keys.putString(Tag.PatientName, VR.PN, "doe*");
+        assertFalse(matches(keys, false));
+        assertTrue(matches(keys, true));
+        keys.putString(Tag.PatientName, VR.PN, "DOE^JOHN");
+        assertFalse(matches(keys, false));
+        assertTrue(matches(keys, true));
+    }
+
+    public void testSequenceAndDateTimeRange() {
+        DicomObject keys = new BasicDicomObject();
+        DicomObject sps = new BasicDicomObject();
+        sps.putString(Tag.ScheduledStationAETitle, VR.AE, "CT_?");
+        sps.putString(Tag.ScheduledProcedureStepStartDate, VR.DA,
+                "20261017-20261018");
+        keys.putNestedDicomObject(Tag.ScheduledProcedureStepSequence, sps);
+        assertTrue(matches(keys, false));
+        sps.putString(Tag.ScheduledProcedureStepStartDate, VR.DA, "20261017");
+        sps.putString(Tag.ScheduledProcedureStepStartTime, VR.TM, "1400-1500");
+        assertTrue(matches(keys, false));
+        sps.putString(Tag.ScheduledProcedureStepStartTime, VR.TM, "1500-");
+        assertFalse(matches(keys, false));
+        sps.putString(Tag.ScheduledProcedureStepStartTime, VR.TM, "-1430");
+        assertTrue(matches(keys, false));
+        sps.putString(Tag.ScheduledProcedureStepStartDate, VR.DA, "-20261016");
+        sps.putNull(Tag.ScheduledProcedureStepStartTime, VR.TM);
+        assertFalse(matches(keys, false));
+        sps.putString(Tag.ScheduledProcedureStepStartDate, VR.DA, "20261016-");
+        sps.putString(Tag.ScheduledStationAETitle, VR.AE, "MR*");
+        assertFalse(matches(keys, false));
+    }
+}
@@ -0,0 +1,155 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.dcm4che2.io.DicomInputStream;
+import org.dcm4che2.io.DicomOutputStream;
+
+public class ElementPoolTest extends TestCase {
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(ElementPoolTest.class);
+    }
+
+    public ElementPoolTest(String name) {
+        super(name);
+    }
+
+    private static DicomObject study(String uid) {
+        DicomObject ds = new BasicDicomObject();
+        ds.putString(Tag.SpecificCharacterSet, VR.CS, "ISO_IR 100");
+        ds.putString(Tag.StudyInstanceUID, VR.UI, uid);
+        ds.putString(Tag.Modality, VR.CS, "CT");
+        ds.putString(Tag.Manufacturer, VR.LO, "ACME");
+        ds.putString(Tag.InstitutionName, VR.LO, "M\u00fcnchen");
+        ds.putString(Tag.PatientName, VR.PN, "Doe^John");
+        return ds;
+    }
+
+    private static byte[] encode(DicomObject ds) throws IOException {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        DicomOutputStream dos = new DicomOutputStream(bout);
+        dos.writeDataset(ds, TransferSyntax.ExplicitVRLittleEndian);
+        dos.close();
+        return bout.toByteArray();
+    }
+
+    private static DicomObject parse(byte[] b, ElementPool pool)
+            throws IOException {
+        DicomInputStream dis = new DicomInputStream(
+                new ByteArrayInputStream(b),
+                TransferSyntax.ExplicitVRLittleEndian);
+        dis.setElementPool(pool);
+        DicomObject ds = dis.readDicomObject();
+        dis.close();
+        return ds;
+    }
+
+    public void testIntern() {
+        ElementPool pool = new ElementPool();
+        DicomElement ct1 = study("1.2.1").get(Tag.Modality);
+        DicomElement ct2 = study("1.2.2").get(Tag.Modality);
+        DicomElement uid = study("1.2.2").get(Tag.StudyInstanceUID);
+        assertSame(ct1, pool.intern(ct1));
+        assertSame(ct1, pool.intern(ct2));
+        assertSame(uid, pool.intern(uid));
+        assertEquals(2, pool.size());
+        assertEquals(3, pool.getLookups());
+        assertEquals(1, pool.getHits());
+        assertEquals(2, pool.getSavedBytes());
+        pool.resetStatistics();
+        assertEquals(0, pool.getLookups());
+    }
+
+    public void testShareElements() {
+        DicomObject ds1 = study("1.2.1");
+        DicomObject ds2 = study("1.2.2");
+        ds1.shareElements();
+        ds2.shareElements();
+        assertSame(ds1.get(Tag.Manufacturer), ds2.get(Tag.Manufacturer));
+        assertNotSame(ds1.get(Tag.StudyInstanceUID),
+                ds2.get(Tag.StudyInstanceUID));
+    }
+
+    public void testParseWithElementPool() throws IOException {
+        ElementPool pool = new ElementPool();
+        DicomObject ds1 = parse(encode(study("1.2.1")), pool);
+        DicomObject ds2 = parse(encode(study("1.2.2")), pool);
+        assertEquals(parse(encode(study("1.2.2")), null), ds2);
+        assertSame(ds1.get(Tag.Modality), ds2.get(Tag.Modality));
+        assertSame(ds1.get(Tag.Manufacturer), ds2.get(Tag.Manufacturer));
+        assertSame(ds1.get(Tag.SpecificCharacterSet),
+                ds2.get(Tag.SpecificCharacterSet));
+        assertNotSame(ds1.get(Tag.InstitutionName),
+                ds2.get(Tag.InstitutionName));
+        assertNotSame(ds1.get(Tag.PatientName), ds2.get(Tag.PatientName));
+        assertEquals(3, pool.getHits());
+    }
+
+    public void testConcurrentIntern() throws InterruptedException {
+        final ElementPool pool = new ElementPool(4);
+        final DicomElement[][] result = new DicomElement[8][100];
+        Thread[] threads = new Thread[result.length];
+        for (int i = 0; i < threads.length; i++) {
+            final DicomElement[] r = result[i];
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < r.length; j++)
+                        r[j] = pool.intern(study("1.2." + j)
+                                .get(Tag.StudyInstanceUID));
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        for (int i = 1; i < result.length; i++)
+            for (int j = 0; j < result[i].length; j++)
+                assertSame(result[0][j], result[i][j]);
+        assertEquals(100, pool.size());
+        assertEquals(700, pool.getHits());
+    }
+}
@@ -0,0 +1,115 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+
+import junit.framework.TestCase;
+
+import org.dcm4che2.io.DicomInputStream;
+
+public class MappedDicomObjectTest extends TestCase {
+
+    private static File locateFile(String name) {
+        ClassLoader cl = Thread.currentThread().getContextClassLoader();
+        return new File(cl.getResource(name).toString().substring(5));
+    }
+
+    private static DicomObject load(File f) throws IOException {
+        DicomInputStream dis = new DicomInputStream(f);
+        try {
+            return dis.readDicomObject();
+        } finally {
+            dis.close();
+        }
+    }
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(MappedDicomObjectTest.class);
+    }
+
+    public MappedDicomObjectTest(String arg0) {
+        super(arg0);
+    }
+
+    public void testGet() throws IOException {
+        File f = locateFile("DICOMDIR");
+        DicomObject dicomdir = new MappedDicomObject(f);
+        assertEquals(TransferSyntax.ExplicitVRLittleEndian,
+                ((MappedDicomObject) dicomdir).getTransferSyntax());
+        DicomElement sq = dicomdir.get(Tag.DirectoryRecordSequence);
+        assertEquals(1203, sq.countItems());
+        DicomObject rec = sq.getDicomObject(0);
+        assertEquals("PATIENT", rec.getString(Tag.DirectoryRecordType));
+        assertEquals(load(f).size(), dicomdir.size());
+    }
+
+    public void testEqualsExplicitVRLE() throws IOException {
+        File f = locateFile("DICOMDIR");
+        assertEquals(load(f), new MappedDicomObject(f));
+    }
+
+    public void testEqualsImplicitVRLE() throws IOException {
+        File f = locateFile("OT-PAL-8-face");
+        DicomObject mapped = new MappedDicomObject(f);
+        assertEquals(28, mapped.size());
+        assertEquals(load(f), mapped);
+    }
+
+    public void testEqualsWithPrivateSequence() throws IOException {
+        File f = locateFile("VEPRO_BROKER.dcm");
+        assertEquals(load(f), new MappedDicomObject(f));
+    }
+
+    public void testPutAndRemove() throws IOException {
+        DicomObject mapped = new MappedDicomObject(locateFile("OT-PAL-8-face"));
+        mapped.putString(Tag.PatientID, VR.LO, "4711");
+        assertNotNull(mapped.remove(Tag.PixelData));
+        assertNull(mapped.get(Tag.PixelData));
+        assertEquals("4711", mapped.getString(Tag.PatientID));
+        int count = 0;
+        for (Iterator<DicomElement> it = mapped.iterator();
+                it.hasNext(); it.next()) {
+            ++count;
+        }
+        assertEquals(mapped.size(), count);
+    }
+}
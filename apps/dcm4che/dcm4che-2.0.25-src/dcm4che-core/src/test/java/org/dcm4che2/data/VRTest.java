@@ -38,9 +38,14 @@
 
 package org.dcm4che2.data;
 
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.Random;
 
 import junit.framework.TestCase;
 
@@ -313,4 +318,141 @@ public class VRTest extends TestCase {
         assertEquals(DS_SQRT_2, VR.DS.toBytes(Math.sqrt(2), false));
     }
 
+    public final void testIndexedBinary() {
+        assertEquals(61441, VR.US.toInt(SHORT_4095_MINUS_4095_LE, false, 1));
+        assertEquals(61441, VR.US.toInt(SHORT_4095_MINUS_4095_BE, true, 1));
+        assertEquals(-4095, VR.SS.toInt(SHORT_4095_MINUS_4095_LE, false, 1));
+        assertEquals(-4095, VR.SS.toInt(SHORT_4095_MINUS_4095_BE, true, 1));
+        assertEquals(-4095, VR.SL.toInt(INT_4095_MINUS_4095_LE, false, 1));
+        assertEquals(-4095, VR.SL.toInt(INT_4095_MINUS_4095_BE, true, 1));
+        int[] is = { 7, 7, 7, 7 };
+        assertEquals(2, VR.OW.toInts(SHORT_4095_MINUS_4095_LE, false, 0,
+                is, 1, 3));
+        assertEquals(7, is[0]);
+        assertEquals(4095, is[1]);
+        assertEquals(61441, is[2]);
+        assertEquals(7, is[3]);
+        assertEquals(1, VR.UL.toInts(INT_4095_MINUS_4095_BE, true, 1,
+                is, 0, 4));
+        assertEquals(-4095, is[0]);
+        assertEquals(0, VR.UL.toInts(INT_4095_MINUS_4095_BE, true, 2,
+                is, 0, 4));
+        try {
+            VR.US.toInt(SHORT_4095_MINUS_4095_LE, false, 2);
+            fail("IndexOutOfBoundsException expected");
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+
+        float[] fs = { 1.5f, -0.25f, 3e-10f };
+        byte[] le = VR.FL.toBytes(fs, false);
+        byte[] be = VR.FL.toBytes(fs, true);
+        assertEquals(-0.25f, VR.FL.toFloat(le, false, 1), 0f);
+        assertEquals(3e-10f, VR.OF.toFloat(be, true, 2), 0f);
+        double[] ds = new double[3];
+        assertEquals(2, VR.FL.toDoubles(be, true, 1, ds, 0, 3));
+        assertEquals(-0.25, ds[0], 0.);
+        assertEquals(3e-10f, ds[1], 0.);
+        double[] fd = { Math.PI, -Math.E };
+        byte[] fdbe = VR.FD.toBytes(fd, true);
+        assertEquals(-Math.E, VR.FD.toDouble(fdbe, true, 1), 0.);
+        assertEquals(2, VR.FD.toDoubles(fdbe, true, 0, ds, 1, 2));
+        assertEquals(Math.PI, ds[1], 0.);
+        assertEquals(-Math.E, ds[2], 0.);
+    }
+
+    public final void testBuffers() {
+        ShortBuffer sb = VR.SS.toShortBuffer(SHORT_4095_MINUS_4095_BE, true);
+        assertTrue(sb.isReadOnly());
+        assertEquals(2, sb.remaining());
+        assertEquals(-4095, sb.get(1));
+        assertEquals(61441, VR.OW.toShortBuffer(SHORT_4095_MINUS_4095_LE,
+                false).get(1) & 0xffff);
+        IntBuffer ib = VR.UL.toIntBuffer(INT_4095_MINUS_4095_LE, false);
+        assertEquals(4095, ib.get(0));
+        assertEquals(-4095, ib.get(1));
+        byte[] val = VR.FL.toBytes(new float[] { 1f, 2f }, true);
+        FloatBuffer fb = VR.FL.toFloatBuffer(val, true);
+        assertEquals(2f, fb.get(1), 0f);
+        VR.FL.toggleEndian(val);
+        assertEquals(2f, VR.OF.toFloatBuffer(val, false).get(1), 0f);
+        DoubleBuffer db = VR.FD.toDoubleBuffer(
+                VR.FD.toBytes(new double[] { 1., -2. }, false), false);
+        assertEquals(-2., db.get(1), 0.);
+        try {
+            VR.DS.toDoubleBuffer(DS_SQRT_2, false);
+            fail("UnsupportedOperationException expected");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    public final void testIndexedDS() {
+        byte[] val = " 1.5\\-2.25E+2 \\\\.5\\1,5\\-0\\3.4028235E38 "
+                .getBytes();
+        assertEquals(-225., VR.DS.toDouble(val, false, 1), 0.);
+        assertEquals(0., VR.DS.toDouble(val, false, 2), 0.);
+        assertEquals(1.5f, VR.DS.toFloat(val, false, 4), 0f);
+        float[] fs = VR.DS.toFloats(val, false);
+        double[] ds = VR.DS.toDoubles(val, false);
+        float[] fs2 = new float[10];
+        double[] ds2 = new double[10];
+        assertEquals(fs.length, VR.DS.toFloats(val, false, 0, fs2, 1, 10));
+        assertEquals(ds.length, VR.DS.toDoubles(val, false, 0, ds2, 1, 10));
+        for (int i = 0; i < fs.length; i++) {
+            assertEquals(fs[i], fs2[i + 1], 0f);
+            assertEquals(ds[i], ds2[i + 1], 0.);
+        }
+        assertEquals(1, VR.DS.toDoubles(val, false, 6, ds2, 0, 10));
+        assertEquals(0, VR.DS.toDoubles(val, false, 7, ds2, 0, 10));
+        try {
+            VR.DS.toDouble(val, false, 7);
+            fail("IndexOutOfBoundsException expected");
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+        Random rnd = new Random(20261017L);
+        for (int i = 0; i < 100000; i++) {
+            String s = randomDS(rnd);
+            byte[] b = s.getBytes();
+            assertEquals(s, Double.parseDouble(s),
+                    VR.DS.toDouble(b, false, 0), 0.);
+            assertEquals(s, Float.parseFloat(s),
+                    VR.DS.toFloat(b, false, 0), 0f);
+        }
+    }
+
+    private static String randomDS(Random rnd) {
+        StringBuffer sb = new StringBuffer();
+        if (rnd.nextBoolean())
+            sb.append('-');
+        int digits = 1 + rnd.nextInt(15);
+        int point = rnd.nextInt(digits + 1);
+        for (int i = 0; i < digits; i++) {
+            if (i == point)
+                sb.append('.');
+            sb.append((char) ('0' + rnd.nextInt(10)));
+        }
+        if (rnd.nextInt(4) == 0)
+            sb.append('E').append(rnd.nextInt(61) - 30);
+        return sb.toString();
+    }
+
+    public final void testIndexedIS() {
+        byte[] val = "+12\\ -345 \\\\2147483648".getBytes();
+        assertEquals(-345, VR.IS.toInt(val, false, 1));
+        assertEquals(0, VR.IS.toInt(val, false, 2));
+        int[] is = new int[4];
+        assertEquals(4, VR.IS.toInts(val, false, 0, is, 0, 4));
+        int[] expected = VR.IS.toInts(val, false);
+        for (int i = 0; i < is.length; i++)
+            assertEquals(expected[i], is[i]);
+        try {
+            VR.IS.toInt("1x".getBytes(), false, 0);
+            fail("NumberFormatException expected");
+        } catch (NumberFormatException e) {
+            // expected
+        }
+    }
+
 }
@@ -0,0 +1,150 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.Arrays;
+
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import junit.framework.TestCase;
+
+import org.dcm4che2.data.BasicDicomObject;
+import org.dcm4che2.data.DicomObject;
+import org.dcm4che2.data.Tag;
+import org.dcm4che2.data.TransferSyntax;
+import org.xml.sax.SAXException;
+
+/**
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ */
+public class ContentHandlerWriterTest extends TestCase {
+
+    private static File locateFile(String name) {
+        ClassLoader cl = Thread.currentThread().getContextClassLoader();
+        return new File(cl.getResource(name).toString().substring(5));
+    }
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(ContentHandlerWriterTest.class);
+    }
+
+    public ContentHandlerWriterTest(String arg0) {
+        super(arg0);
+    }
+
+    private static SAXParser newSAXParser() throws Exception {
+        return SAXParserFactory.newInstance().newSAXParser();
+    }
+
+    private static byte[] stream(String xml, TransferSyntax ts,
+            int memoryThreshold) throws Exception {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        DicomOutputStream dos = new DicomOutputStream(bout);
+        ContentHandlerWriter ch = new ContentHandlerWriter(dos);
+        ch.setTransferSyntax(ts);
+        ch.setMemoryThreshold(memoryThreshold);
+        newSAXParser().parse(
+                new ByteArrayInputStream(xml.getBytes("UTF-8")), ch);
+        dos.close();
+        return bout.toByteArray();
+    }
+
+    public void testWrite() throws Exception {
+        File xml = locateFile("sr_511_ct-1.xml");
+        DicomObject attrs = new BasicDicomObject();
+        newSAXParser().parse(xml, new ContentHandlerAdapter(attrs));
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        DicomOutputStream dos = new DicomOutputStream(expected);
+        dos.writeDataset(attrs, TransferSyntax.ImplicitVRLittleEndian);
+        dos.close();
+
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        dos = new DicomOutputStream(bout);
+        newSAXParser().parse(xml, new ContentHandlerWriter(dos));
+        dos.close();
+        assertTrue(Arrays.equals(expected.toByteArray(), bout.toByteArray()));
+    }
+
+    public void testSpoolLargeValue() throws Exception {
+        StringBuffer sb = new StringBuffer("<dicom>"
+                + "<attr tag=\"00080005\" vr=\"CS\">ISO_IR 100</attr>"
+                + "<attr tag=\"7FE00010\" vr=\"OW\">");
+        for (int i = 0; i < 1000; i++)
+            sb.append(i).append('\\');
+        sb.append("1000</attr></dicom>");
+        TransferSyntax ts = TransferSyntax.ExplicitVRBigEndian;
+        DicomInputStream dis = new DicomInputStream(new ByteArrayInputStream(
+                stream(sb.toString(), ts, 64)), ts);
+        DicomObject attrs = dis.readDicomObject();
+        assertEquals("ISO_IR 100", attrs.getString(Tag.SpecificCharacterSet));
+        int[] pixels = attrs.getInts(Tag.PixelData);
+        assertEquals(1001, pixels.length);
+        for (int i = 0; i < pixels.length; i++)
+            assertEquals(i, pixels[i]);
+    }
+
+    public void testFragments() throws Exception {
+        String xml = "<dicom><attr tag=\"7FE00010\" vr=\"OB\">"
+                + "<item></item><item>01\\02\\03</item></attr></dicom>";
+        TransferSyntax ts = TransferSyntax.ExplicitVRLittleEndian;
+        DicomInputStream dis = new DicomInputStream(new ByteArrayInputStream(
+                stream(xml, ts, 64)), ts);
+        DicomObject attrs = dis.readDicomObject();
+        assertEquals(2, attrs.get(Tag.PixelData).countItems());
+        assertTrue(Arrays.equals(new byte[] { 1, 2, 3, 0 },
+                attrs.get(Tag.PixelData).getFragment(1)));
+    }
+
+    public void testUnorderedAttributes() throws Exception {
+        String xml = "<dicom><attr tag=\"00100020\" vr=\"LO\">1</attr>"
+                + "<attr tag=\"00100010\" vr=\"PN\">X</attr></dicom>";
+        try {
+            stream(xml, TransferSyntax.ImplicitVRLittleEndian, 64);
+            fail("SAXException expected");
+        } catch (SAXException e) {
+            // expected
+        }
+    }
+}
@@ -39,6 +39,8 @@
 package org.dcm4che2.io;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 
 import junit.framework.TestCase;
@@ -48,6 +50,11 @@ import org.dcm4che2.data.DicomObject;
 import org.dcm4che2.data.Tag;
 import org.dcm4che2.data.VR;
 import org.dcm4che2.media.DicomDirReader;
+import org.dcm4che2.media.DicomDirWriter;
+import org.dcm4che2.media.DirectoryRecordType;
+import org.dcm4che2.media.FileSetInformation;
+import org.dcm4che2.media.LRURecordCache;
+import org.dcm4che2.media.RecordBatch;
 
 public class DicomDirReaderTest extends TestCase {
 
@@ -116,4 +123,250 @@ public class DicomDirReaderTest extends TestCase {
 		assertEquals(4, count);
 	}
 
+	public void testIndexedFind() throws IOException {
+		DicomDirReader r = new DicomDirReader(locateFile("DICOMDIR"));
+		DicomDirReader ir = new DicomDirReader(locateFile("DICOMDIR"));
+		ir.buildIndex();
+		assertTrue(ir.isIndexed());
+		int count = 0;
+		for (DicomObject pat = r.findFirstRootRecord(); pat != null;
+				pat = r.findNextSiblingRecord(pat)) {
+			String pid = pat.getString(Tag.PatientID);
+			DicomObject ipat = ir.findPatientRecord(pid);
+			assertSameRecord(r.findPatientRecord(pid), ipat);
+			for (DicomObject sty = r.findFirstChildRecord(pat); sty != null;
+					sty = r.findNextSiblingRecord(sty)) {
+				String suid = sty.getString(Tag.StudyInstanceUID);
+				DicomObject isty = ir.findStudyRecord(ipat, suid);
+				assertSameRecord(r.findStudyRecord(pat, suid), isty);
+				for (DicomObject ser = r.findFirstChildRecord(sty); ser != null;
+						ser = r.findNextSiblingRecord(ser)) {
+					String seruid = ser.getString(Tag.SeriesInstanceUID);
+					DicomObject iser = ir.findSeriesRecord(isty, seruid);
+					assertSameRecord(r.findSeriesRecord(sty, seruid), iser);
+					for (DicomObject inst = r.findFirstChildRecord(ser);
+							inst != null; inst = r.findNextSiblingRecord(inst)) {
+						String iuid = inst.getString(
+								Tag.ReferencedSOPInstanceUIDInFile);
+						assertSameRecord(r.findInstanceRecord(ser, iuid),
+								ir.findInstanceRecord(iser, iuid));
+						++count;
+					}
+				}
+			}
+		}
+		assertNull(ir.findPatientRecord("NO SUCH PATIENT"));
+		r.close();
+		ir.close();
+		assertTrue(count > 0);
+	}
+
+	private static void assertSameRecord(DicomObject expected,
+			DicomObject actual) {
+		assertNotNull(actual);
+		assertEquals(expected.getItemOffset(), actual.getItemOffset());
+	}
+
+	public void testStoreAndLoadIndex() throws IOException {
+		File dicomdir = copyOfDICOMDIR();
+		File idx = new File(dicomdir.getPath() + ".idx");
+		try {
+			DicomDirReader r = new DicomDirReader(dicomdir);
+			assertFalse(r.loadIndex(idx));
+			r.useIndex(idx);
+			assertTrue(idx.isFile());
+			r.close();
+			r = new DicomDirReader(dicomdir);
+			assertTrue(r.loadIndex(idx));
+			DicomObject pat = r.findFirstRootRecord();
+			assertSameRecord(pat, r.findPatientRecord(
+					pat.getString(Tag.PatientID)));
+			r.close();
+			dicomdir.setLastModified(dicomdir.lastModified() - 60000L);
+			r = new DicomDirReader(dicomdir);
+			assertFalse(r.loadIndex(idx));
+			r.close();
+		} finally {
+			idx.delete();
+			dicomdir.delete();
+		}
+	}
+
+	public void testIndexUpdatedByWriter() throws IOException {
+		File dicomdir = copyOfDICOMDIR();
+		try {
+			DicomDirWriter w = new DicomDirWriter(dicomdir);
+			w.buildIndex();
+			DicomObject patrec = new BasicDicomObject();
+			patrec.putString(Tag.DirectoryRecordType, VR.CS,
+					DirectoryRecordType.PATIENT);
+			patrec.putString(Tag.PatientID, VR.LO, "INDEXED");
+			DicomObject styrec = new BasicDicomObject();
+			styrec.putString(Tag.DirectoryRecordType, VR.CS,
+					DirectoryRecordType.STUDY);
+			styrec.putString(Tag.StudyInstanceUID, VR.UI, "1.2.3.4");
+			DicomObject sty = w.addStudyRecord(w.addPatientRecord(patrec),
+					styrec);
+			DicomObject pat = w.findPatientRecord("INDEXED");
+			assertSameRecord(patrec, pat);
+			assertSameRecord(sty, w.findStudyRecord(pat, "1.2.3.4"));
+			w.rollback();
+			assertTrue(w.isIndexed());
+			assertNull(w.findPatientRecord("INDEXED"));
+			w.close();
+		} finally {
+			dicomdir.delete();
+		}
+	}
+
+	public void testWriterWithBoundedCache() throws IOException {
+		File dicomdir = File.createTempFile("DICOMDIR", null);
+		try {
+			FileSetInformation fsinfo = new FileSetInformation();
+			fsinfo.init();
+			DicomDirWriter w = new DicomDirWriter(dicomdir, fsinfo);
+			LRURecordCache cache = new LRURecordCache(2048);
+			w.setRecordCache(cache);
+			for (int p = 0; p < 10; p++) {
+				DicomObject pat = w.addPatientRecord(
+						record(DirectoryRecordType.PATIENT, Tag.PatientID,
+								"P" + p));
+				for (int s = 0; s < 3; s++) {
+					DicomObject sty = w.addStudyRecord(pat, record(
+							DirectoryRecordType.STUDY, Tag.StudyInstanceUID,
+							"1.2." + p + "." + s));
+					DicomObject ser = w.addSeriesRecord(sty, record(
+							DirectoryRecordType.SERIES, Tag.SeriesInstanceUID,
+							"1.3." + p + "." + s));
+					for (int i = 0; i < 5; i++) {
+						w.addChildRecord(ser, record(DirectoryRecordType.IMAGE,
+								Tag.ReferencedSOPInstanceUIDInFile,
+								"1.4." + p + "." + s + "." + i));
+					}
+				}
+			}
+			w.commit();
+			assertTrue(cache.getEvictionCount() > 0);
+			assertTrue(cache.getBytes() <= cache.getMaxBytes());
+			w.close();
+			DicomDirReader r = new DicomDirReader(dicomdir);
+			int count = 0;
+			for (int p = 0; p < 10; p++) {
+				DicomObject pat = r.findPatientRecord("P" + p);
+				for (int s = 0; s < 3; s++) {
+					DicomObject sty = r.findStudyRecord(pat, "1.2." + p + "." + s);
+					DicomObject ser = r.findSeriesRecord(sty, "1.3." + p + "." + s);
+					for (DicomObject inst = r.findFirstChildRecord(ser);
+							inst != null; inst = r.findNextSiblingRecord(inst)) {
+						assertEquals("1.4." + p + "." + s + "." + count % 5,
+								inst.getString(Tag.ReferencedSOPInstanceUIDInFile));
+						++count;
+					}
+				}
+			}
+			r.close();
+			assertEquals(150, count);
+		} finally {
+			dicomdir.delete();
+		}
+	}
+
+	public void testAddRecords() throws IOException {
+		File dicomdir = copyOfDICOMDIR();
+		try {
+			DicomDirWriter w = new DicomDirWriter(dicomdir);
+			DicomObject pat = w.findFirstRootRecord();
+			String pid = pat.getString(Tag.PatientID);
+			DicomObject sty = w.findFirstChildRecord(pat);
+			String suid = sty.getString(Tag.StudyInstanceUID);
+			DicomObject ser = w.findFirstChildRecord(sty);
+			String seruid = ser.getString(Tag.SeriesInstanceUID);
+			String iuid = w.findFirstChildRecord(ser).getString(
+					Tag.ReferencedSOPInstanceUIDInFile);
+			RecordBatch batch = new RecordBatch();
+			batch.setSkipDuplicates(true);
+			// duplicate of existing instance
+			assertTrue(batch.add(
+					record(DirectoryRecordType.PATIENT, Tag.PatientID, pid),
+					record(DirectoryRecordType.STUDY, Tag.StudyInstanceUID, suid),
+					record(DirectoryRecordType.SERIES, Tag.SeriesInstanceUID, seruid),
+					record(DirectoryRecordType.IMAGE,
+							Tag.ReferencedSOPInstanceUIDInFile, iuid)));
+			// new series of existing study
+			batch.add(
+					record(DirectoryRecordType.PATIENT, Tag.PatientID, pid),
+					record(DirectoryRecordType.STUDY, Tag.StudyInstanceUID, suid),
+					record(DirectoryRecordType.SERIES, Tag.SeriesInstanceUID, "1.3.1"),
+					record(DirectoryRecordType.IMAGE,
+							Tag.ReferencedSOPInstanceUIDInFile, "1.4.1.1"));
+			// new patient
+			for (int i = 0; i < 3; i++) {
+				batch.add(
+						record(DirectoryRecordType.PATIENT, Tag.PatientID, "NEW"),
+						record(DirectoryRecordType.STUDY, Tag.StudyInstanceUID, "1.2.2"),
+						record(DirectoryRecordType.SERIES, Tag.SeriesInstanceUID, "1.3.2"),
+						record(DirectoryRecordType.IMAGE,
+								Tag.ReferencedSOPInstanceUIDInFile, "1.4.2." + i));
+			}
+			assertFalse(batch.add(
+					record(DirectoryRecordType.PATIENT, Tag.PatientID, "NEW"),
+					record(DirectoryRecordType.STUDY, Tag.StudyInstanceUID, "1.2.2"),
+					record(DirectoryRecordType.SERIES, Tag.SeriesInstanceUID, "1.3.2"),
+					record(DirectoryRecordType.IMAGE,
+							Tag.ReferencedSOPInstanceUIDInFile, "1.4.2.0")));
+			assertEquals(5, batch.size());
+			assertEquals(2 + 6, w.addRecords(batch));
+			w.close();
+			DicomDirReader r = new DicomDirReader(dicomdir);
+			int count = 0;
+			for (DicomObject rec = r.findFirstRootRecord(); rec != null;
+					rec = r.findNextSiblingRecord(rec)) {
+				++count;
+			}
+			assertEquals(82, count);
+			pat = r.findPatientRecord(pid);
+			sty = r.findStudyRecord(pat, suid);
+			assertNotNull(r.findInstanceRecord(
+					r.findSeriesRecord(sty, "1.3.1"), "1.4.1.1"));
+			ser = r.findSeriesRecord(r.findStudyRecord(
+					r.findPatientRecord("NEW"), "1.2.2"), "1.3.2");
+			count = 0;
+			for (DicomObject rec = r.findFirstChildRecord(ser); rec != null;
+					rec = r.findNextSiblingRecord(rec)) {
+				assertEquals("1.4.2." + count++,
+						rec.getString(Tag.ReferencedSOPInstanceUIDInFile));
+			}
+			assertEquals(3, count);
+			r.close();
+		} finally {
+			dicomdir.delete();
+		}
+	}
+
+	private static DicomObject record(String type, int tag, String value) {
+		DicomObject rec = new BasicDicomObject();
+		rec.putString(Tag.DirectoryRecordType, VR.CS, type);
+		rec.putString(tag, tag == Tag.PatientID ? VR.LO : VR.UI, value);
+		return rec;
+	}
+
+	private static File copyOfDICOMDIR() throws IOException {
+		File f = File.createTempFile("DICOMDIR", null);
+		FileInputStream in = new FileInputStream(locateFile("DICOMDIR"));
+		try {
+			FileOutputStream out = new FileOutputStream(f);
+			try {
+				byte[] buf = new byte[8192];
+				int n;
+				while ((n = in.read(buf)) != -1)
+					out.write(buf, 0, n);
+			} finally {
+				out.close();
+			}
+		} finally {
+			in.close();
+		}
+		return f;
+	}
+
 }
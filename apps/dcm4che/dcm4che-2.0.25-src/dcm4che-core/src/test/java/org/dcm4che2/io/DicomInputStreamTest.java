@@ -39,13 +39,17 @@
 package org.dcm4che2.io;
 
 import java.io.BufferedInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.util.Arrays;
 
 import junit.framework.TestCase;
 
 import org.dcm4che2.data.DicomElement;
 import org.dcm4che2.data.DicomObject;
+import org.dcm4che2.data.Tag;
 
 public class DicomInputStreamTest extends TestCase {
 
@@ -56,6 +60,11 @@ public class DicomInputStreamTest extends TestCase {
         return new BufferedInputStream(is);
     }
 
+    private static File toFile(String name) throws URISyntaxException {
+        ClassLoader cl = Thread.currentThread().getContextClassLoader();
+        return new File(cl.getResource(name).toURI());
+    }
+
     private static DicomObject load(String fname) throws IOException
     {
         DicomInputStream dis = new DicomInputStream(locateFile(fname));
@@ -85,5 +94,39 @@ public class DicomInputStreamTest extends TestCase {
 		DicomObject attrs = load("OT-PAL-8-face");
         assertEquals(28, attrs.size());
 	}
+
+    public final void testReadBulkDataTags() throws Exception {
+        DicomObject expected = load("OT-PAL-8-face");
+        DicomInputStream dis = new DicomInputStream(toFile("OT-PAL-8-face"));
+        try {
+            dis.setBulkDataTags(new int[] { Tag.PixelData });
+            DicomObject attrs = dis.readDicomObject();
+            DicomElement pixelData = attrs.get(Tag.PixelData);
+            assertEquals(28, attrs.size());
+            assertTrue(pixelData.toString().indexOf("OT-PAL-8-face") > 0);
+            assertTrue(Arrays.equals(
+                    expected.get(Tag.PixelData).getBytes(),
+                    pixelData.getBytes()));
+            assertEquals(expected.getString(Tag.PatientName),
+                    attrs.getString(Tag.PatientName));
+        } finally {
+            dis.close();
+        }
+    }
+
+    public final void testReadBulkDataThreshold() throws Exception {
+        DicomInputStream dis = new DicomInputStream(toFile("OT-PAL-8-face"));
+        try {
+            dis.setBulkDataThreshold(64);
+            DicomObject attrs = dis.readDicomObject();
+            DicomElement pixelData = attrs.get(Tag.PixelData);
+            assertTrue(pixelData.toString().indexOf("OT-PAL-8-face") > 0);
+            assertEquals(307200, pixelData.length());
+            assertEquals(-1, attrs.get(Tag.PatientName).toString()
+                    .indexOf("OT-PAL-8-face"));
+        } finally {
+            dis.close();
+        }
+    }
 	
 }
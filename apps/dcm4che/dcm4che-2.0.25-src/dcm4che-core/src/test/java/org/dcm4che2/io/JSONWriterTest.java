@@ -0,0 +1,203 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.dcm4che2.data.BasicDicomObject;
+import org.dcm4che2.data.DicomElement;
+import org.dcm4che2.data.DicomObject;
+import org.dcm4che2.data.Tag;
+import org.dcm4che2.data.TransferSyntax;
+import org.dcm4che2.data.VR;
+
+/**
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ */
+public class JSONWriterTest extends TestCase {
+
+    private static final String EXPECTED = "{"
+        + "\"00080005\":{\"vr\":\"CS\",\"Value\":[\"ISO_IR 100\"]},"
+        + "\"00080050\":{\"vr\":\"SH\"},"
+        + "\"00081115\":{\"vr\":\"SQ\",\"Value\":[{"
+            + "\"00081199\":{\"vr\":\"SQ\",\"Value\":[{"
+                + "\"00081155\":{\"vr\":\"UI\",\"Value\":[\"1.2.3\"]}}]},"
+            + "\"0020000E\":{\"vr\":\"UI\",\"Value\":[\"1.2\"]}},{}]},"
+        + "\"00090010\":{\"vr\":\"LO\",\"Value\":[\"ACME\"]},"
+        + "\"00091001\":{\"vr\":\"LO\",\"Value\":[\"x\"]},"
+        + "\"00100010\":{\"vr\":\"PN\",\"Value\":["
+            + "{\"Alphabetic\":\"M\u00fcller^Hans\"},null]},"
+        + "\"00180088\":{\"vr\":\"DS\",\"Value\":[1.5,7.0,1e3]},"
+        + "\"00200013\":{\"vr\":\"IS\",\"Value\":[12,-3]},"
+        + "\"00204000\":{\"vr\":\"LT\",\"Value\":[\"a\\\"b\\nc\"]},"
+        + "\"00280010\":{\"vr\":\"US\",\"Value\":[1,65535]},"
+        + "\"00287FE0\":{\"vr\":\"UT\",\"Value\":[\"http://x/\"]},"
+        + "\"003A0010\":{\"vr\":\"UL\",\"Value\":[4294967295]},"
+        + "\"0040A30A\":{\"vr\":\"DS\"},"
+        + "\"00420011\":{\"vr\":\"OB\",\"InlineBinary\":\"AQIDAA==\"},"
+        + "\"00720074\":{\"vr\":\"FD\",\"Value\":[\"NaN\",0.5]},"
+        + "\"7FE00010\":{\"vr\":\"OB\",\"DataFragment\":["
+            + "{},{\"InlineBinary\":\"AQIDBA==\"}]}}";
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(JSONWriterTest.class);
+    }
+
+    public JSONWriterTest(String arg0) {
+        super(arg0);
+    }
+
+    static DicomObject sample() {
+        DicomObject attrs = new BasicDicomObject();
+        attrs.putString(Tag.SpecificCharacterSet, VR.CS, "ISO_IR 100");
+        attrs.putNull(Tag.AccessionNumber, VR.SH);
+        DicomObject sop = new BasicDicomObject();
+        sop.putString(Tag.ReferencedSOPInstanceUID, VR.UI, "1.2.3");
+        DicomObject series = new BasicDicomObject();
+        series.putString(Tag.SeriesInstanceUID, VR.UI, "1.2");
+        series.putNestedDicomObject(Tag.ReferencedSOPSequence, sop);
+        DicomElement sq = attrs.putSequence(Tag.ReferencedSeriesSequence);
+        sq.addDicomObject(series);
+        sq.addDicomObject(new BasicDicomObject());
+        attrs.putString(0x00090010, VR.LO, "ACME");
+        attrs.putString(0x00091001, VR.LO, "x");
+        attrs.putStrings(Tag.PatientName, VR.PN,
+                new String[] { "M\u00fcller^Hans", "" });
+        attrs.putString(Tag.SpacingBetweenSlices, VR.DS, "+1.50\\007\\1e3");
+        attrs.putString(Tag.InstanceNumber, VR.IS, "+12\\-3");
+        attrs.putString(Tag.ImageComments, VR.LT, "a\"b\nc");
+        attrs.putInts(Tag.Rows, VR.US, new int[] { 1, 65535 });
+        attrs.putString(Tag.PixelDataProviderURL, VR.UT, "http://x/");
+        attrs.putNull(Tag.NumericValue, VR.DS);
+        attrs.putBytes(Tag.EncapsulatedDocument, VR.OB,
+                new byte[] { 1, 2, 3 });
+        attrs.putInt(Tag.NumberOfWaveformSamples, VR.UL, -1);
+        attrs.putDoubles(Tag.SelectorFDValue, VR.FD,
+                new double[] { Double.NaN, 0.5 });
+        DicomElement frags = attrs.putFragments(Tag.PixelData, VR.OB, false);
+        frags.addFragment(new byte[0]);
+        frags.addFragment(new byte[] { 1, 2, 3, 4 });
+        return attrs;
+    }
+
+    static byte[] encode(DicomObject attrs, TransferSyntax ts)
+            throws IOException {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        DicomOutputStream dos = new DicomOutputStream(bout);
+        dos.writeDataset(attrs, ts);
+        dos.close();
+        return bout.toByteArray();
+    }
+
+    static String transcode(byte[] b, TransferSyntax ts,
+            AbstractModelWriter w, ByteArrayOutputStream out)
+            throws IOException {
+        DicomInputStream dis = new DicomInputStream(
+                new ByteArrayInputStream(b), ts);
+        dis.setHandler(w);
+        dis.readDicomObject(new BasicDicomObject(), -1);
+        dis.close();
+        w.finish();
+        return out.toString("UTF-8");
+    }
+
+    private static String toJSON(byte[] b, TransferSyntax ts)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        return transcode(b, ts, new JSONWriter(out), out);
+    }
+
+    public void testWrite() throws IOException {
+        TransferSyntax ts = TransferSyntax.ExplicitVRLittleEndian;
+        assertEquals(EXPECTED, toJSON(encode(sample(), ts), ts));
+    }
+
+    public void testWriteImplicitVR() throws IOException {
+        DicomObject attrs = sample();
+        attrs.remove(Tag.PixelData);
+        TransferSyntax ts = TransferSyntax.ImplicitVRLittleEndian;
+        // VR of private attributes without dictionary is unknown
+        String expected = EXPECTED.substring(0,
+                EXPECTED.indexOf(",\"7FE00010\"")).replace(
+                "\"00091001\":{\"vr\":\"LO\",\"Value\":[\"x\"]}",
+                "\"00091001\":{\"vr\":\"UN\",\"InlineBinary\":\"eCA=\"}")
+                + "}";
+        assertEquals(expected, toJSON(encode(attrs, ts), ts));
+    }
+
+    public void testWriteBigEndian() throws IOException {
+        TransferSyntax ts = TransferSyntax.ExplicitVRBigEndian;
+        assertEquals(EXPECTED, toJSON(encode(sample(), ts), ts));
+    }
+
+    public void testBulkDataURI() throws IOException {
+        TransferSyntax ts = TransferSyntax.ExplicitVRLittleEndian;
+        byte[] b = encode(sample(), ts);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JSONWriter w = new JSONWriter(out);
+        w.setBulkDataURI("file:/x");
+        w.setBulkDataTags(new int[] { Tag.EncapsulatedDocument });
+        String json = transcode(b, ts, w, out);
+        String prefix = "\"00420011\":{\"vr\":\"OB\",\"BulkDataURI\":"
+                + "\"file:/x?offset=";
+        int start = json.indexOf(prefix);
+        assertTrue(json, start > 0);
+        start += prefix.length();
+        int end = json.indexOf("&length=4\"}", start);
+        int offset = Integer.parseInt(json.substring(start, end));
+        assertEquals(1, b[offset]);
+        assertEquals(3, b[offset + 2]);
+    }
+
+    public void testIsNumber() {
+        assertTrue(JSONWriter.isNumber("0"));
+        assertTrue(JSONWriter.isNumber("-1.5e-3"));
+        assertFalse(JSONWriter.isNumber("+1"));
+        assertFalse(JSONWriter.isNumber("01"));
+        assertFalse(JSONWriter.isNumber("1."));
+        assertFalse(JSONWriter.isNumber(".5"));
+        assertFalse(JSONWriter.isNumber(""));
+    }
+}
@@ -0,0 +1,124 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import junit.framework.TestCase;
+
+import org.dcm4che2.data.TransferSyntax;
+import org.w3c.dom.Document;
+
+/**
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ */
+public class NativeXMLWriterTest extends TestCase {
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(NativeXMLWriterTest.class);
+    }
+
+    public NativeXMLWriterTest(String arg0) {
+        super(arg0);
+    }
+
+    public void testWrite() throws Exception {
+        TransferSyntax ts = TransferSyntax.ExplicitVRLittleEndian;
+        byte[] b = JSONWriterTest.encode(JSONWriterTest.sample(), ts);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        String xml = JSONWriterTest.transcode(b, ts, new NativeXMLWriter(out),
+                out);
+        assertTrue(xml, xml.startsWith(
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<NativeDicomModel xml:space=\"preserve\">\n"
+                + "<DicomAttribute tag=\"00080005\" vr=\"CS\">"
+                + "<Value number=\"1\">ISO_IR 100</Value></DicomAttribute>\n"
+                + "<DicomAttribute tag=\"00080050\" vr=\"SH\">"
+                + "</DicomAttribute>\n"
+                + "<DicomAttribute tag=\"00081115\" vr=\"SQ\">"
+                + "<Item number=\"1\">"
+                + "<DicomAttribute tag=\"00081199\" vr=\"SQ\">"
+                + "<Item number=\"1\">"
+                + "<DicomAttribute tag=\"00081155\" vr=\"UI\">"
+                + "<Value number=\"1\">1.2.3</Value></DicomAttribute>\n"
+                + "</Item></DicomAttribute>\n"
+                + "<DicomAttribute tag=\"0020000E\" vr=\"UI\">"
+                + "<Value number=\"1\">1.2</Value></DicomAttribute>\n"
+                + "</Item><Item number=\"2\"></Item></DicomAttribute>\n"));
+        assertTrue(xml, xml.indexOf(
+                "<DicomAttribute tag=\"00091001\" vr=\"LO\""
+                + " privateCreator=\"ACME\">") > 0);
+        assertTrue(xml, xml.indexOf(
+                "<PersonName number=\"1\"><Alphabetic>"
+                + "<FamilyName>M\u00fcller</FamilyName>"
+                + "<GivenName>Hans</GivenName>"
+                + "</Alphabetic></PersonName></DicomAttribute>") > 0);
+        assertTrue(xml, xml.indexOf(
+                "<Value number=\"1\">a&quot;b\nc</Value>") > 0);
+        assertTrue(xml, xml.indexOf("<Value number=\"1\">NaN</Value>"
+                + "<Value number=\"2\">0.5</Value>") > 0);
+        assertTrue(xml, xml.endsWith(
+                "<DicomAttribute tag=\"7FE00010\" vr=\"OB\">"
+                + "<DataFragment number=\"1\"></DataFragment>"
+                + "<DataFragment number=\"2\">"
+                + "<InlineBinary>AQIDBA==</InlineBinary></DataFragment>"
+                + "</DicomAttribute>\n</NativeDicomModel>\n"));
+        Document doc = DocumentBuilderFactory.newInstance()
+                .newDocumentBuilder().parse(new ByteArrayInputStream(
+                        out.toByteArray()));
+        assertEquals(19, doc.getElementsByTagName("DicomAttribute")
+                .getLength());
+    }
+
+    public void testWriteEmpty() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        NativeXMLWriter w = new NativeXMLWriter(out);
+        w.finish();
+        w.finish();
+        assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<NativeDicomModel xml:space=\"preserve\">\n"
+                + "</NativeDicomModel>\n", out.toString("UTF-8"));
+    }
+}
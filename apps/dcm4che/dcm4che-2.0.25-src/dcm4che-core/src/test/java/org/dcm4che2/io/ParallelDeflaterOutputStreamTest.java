@@ -0,0 +1,160 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import junit.framework.TestCase;
+
+import org.dcm4che2.data.BasicDicomObject;
+import org.dcm4che2.data.DicomObject;
+import org.dcm4che2.data.Tag;
+import org.dcm4che2.data.TransferSyntax;
+import org.dcm4che2.data.VR;
+
+/**
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ */
+public class ParallelDeflaterOutputStreamTest extends TestCase {
+
+    private ExecutorService executor;
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(ParallelDeflaterOutputStreamTest.class);
+    }
+
+    public ParallelDeflaterOutputStreamTest(String arg0) {
+        super(arg0);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        executor.shutdown();
+    }
+
+    private static byte[] sample(int len) {
+        Random rnd = new Random(len);
+        byte[] b = new byte[len];
+        for (int i = 0; i < len; i++)
+            b[i] = (byte) ('A' + rnd.nextInt(4) + (i / 1000) % 8);
+        return b;
+    }
+
+    private static byte[] inflate(byte[] b) throws IOException {
+        InputStream in = new InflaterInputStream(new ByteArrayInputStream(b),
+                new Inflater(true));
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        byte[] buf = new byte[1000];
+        int n;
+        while ((n = in.read(buf)) > 0)
+            bout.write(buf, 0, n);
+        in.close();
+        return bout.toByteArray();
+    }
+
+    private byte[] deflate(byte[] b, int writeLength) throws IOException {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        DeflaterOutputStream out = new ParallelDeflaterOutputStream(bout,
+                executor, Deflater.DEFAULT_COMPRESSION, 32 * 1024);
+        for (int off = 0; off < b.length; off += writeLength)
+            out.write(b, off, Math.min(writeLength, b.length - off));
+        out.close();
+        return bout.toByteArray();
+    }
+
+    private static byte[] deflateSerial(byte[] b) throws IOException {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        DeflaterOutputStream out = new DeflaterOutputStream(bout,
+                new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+        out.write(b);
+        out.close();
+        return bout.toByteArray();
+    }
+
+    public void testDeflate() throws IOException {
+        byte[] b = sample(1000000);
+        byte[] deflated = deflate(b, 7777);
+        assertTrue(Arrays.equals(b, inflate(deflated)));
+        assertTrue(deflated.length < deflateSerial(b).length * 11 / 10);
+    }
+
+    public void testDeflateBlockSize() throws IOException {
+        byte[] b = sample(3 * 32 * 1024);
+        assertTrue(Arrays.equals(b, inflate(deflate(b, 32 * 1024))));
+    }
+
+    public void testDeflateEmpty() throws IOException {
+        assertEquals(0, inflate(deflate(new byte[0], 1)).length);
+    }
+
+    public void testDicomOutputStream() throws IOException {
+        DicomObject attrs = new BasicDicomObject();
+        attrs.putString(Tag.PatientName, VR.PN, "Doe^John");
+        attrs.putBytes(Tag.PixelData, VR.OB, sample(500000));
+        TransferSyntax ts = TransferSyntax.DeflatedExplicitVRLittleEndian;
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        DicomOutputStream dos = new DicomOutputStream(bout);
+        dos.setDeflateExecutor(executor);
+        dos.writeDataset(attrs, ts);
+        dos.close();
+        DicomInputStream dis = new DicomInputStream(
+                new ByteArrayInputStream(bout.toByteArray()), ts, executor);
+        DicomObject parsed = dis.readDicomObject();
+        dis.close();
+        assertEquals(attrs, parsed);
+    }
+}
@@ -0,0 +1,124 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.TestCase;
+
+/**
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ */
+public class ReadAheadInputStreamTest extends TestCase {
+
+    private ExecutorService executor;
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(ReadAheadInputStreamTest.class);
+    }
+
+    public ReadAheadInputStreamTest(String arg0) {
+        super(arg0);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        executor.shutdown();
+    }
+
+    public void testRead() throws IOException {
+        byte[] b = new byte[10000];
+        for (int i = 0; i < b.length; i++)
+            b[i] = (byte) i;
+        InputStream in = new ReadAheadInputStream(
+                new ByteArrayInputStream(b), executor, 100, 3);
+        assertEquals(0, in.read());
+        assertEquals(99, in.skip(99));
+        byte[] buf = new byte[150];
+        int off = 100;
+        int n;
+        while ((n = in.read(buf)) > 0) {
+            for (int i = 0; i < n; i++)
+                assertEquals(b[off + i], buf[i]);
+            off += n;
+        }
+        assertEquals(b.length, off);
+        assertEquals(-1, in.read());
+        in.close();
+    }
+
+    public void testReadFailure() {
+        InputStream in = new ReadAheadInputStream(new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("failed");
+            }
+        }, executor);
+        try {
+            in.read();
+            fail("IOException expected");
+        } catch (IOException e) {
+            assertEquals("failed", e.getMessage());
+        }
+    }
+
+    public void testClose() throws IOException {
+        InputStream in = new ReadAheadInputStream(
+                new ByteArrayInputStream(new byte[1000000]), executor, 10, 2);
+        in.read();
+        in.close();
+        try {
+            in.read(new byte[100]);
+            fail("IOException expected");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+}
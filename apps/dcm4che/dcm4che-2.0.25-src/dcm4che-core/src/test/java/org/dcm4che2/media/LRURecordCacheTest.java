@@ -0,0 +1,115 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.media;
+
+import junit.framework.TestCase;
+
+import org.dcm4che2.data.BasicDicomObject;
+import org.dcm4che2.data.DicomObject;
+import org.dcm4che2.data.Tag;
+import org.dcm4che2.data.VR;
+
+public class LRURecordCacheTest extends TestCase {
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(LRURecordCacheTest.class);
+    }
+
+    public LRURecordCacheTest(String name) {
+        super(name);
+    }
+
+    private static DicomObject record(String uid) {
+        DicomObject rec = new BasicDicomObject();
+        rec.putString(Tag.DirectoryRecordType, VR.CS,
+                DirectoryRecordType.IMAGE);
+        rec.putString(Tag.ReferencedSOPInstanceUIDInFile, VR.UI, uid);
+        return rec;
+    }
+
+    private static LRURecordCache cacheFor(int records) {
+        LRURecordCache probe = new LRURecordCache(Long.MAX_VALUE);
+        probe.put(1, record("1.2.3.1"));
+        return new LRURecordCache(probe.getBytes() * records);
+    }
+
+    public void testEvictLeastRecentlyUsed() {
+        LRURecordCache cache = cacheFor(2);
+        DicomObject rec1 = record("1.2.3.1");
+        cache.put(1, rec1);
+        cache.put(2, record("1.2.3.2"));
+        assertSame(rec1, cache.get(1));
+        cache.put(3, record("1.2.3.3"));
+        assertEquals(2, cache.size());
+        assertSame(rec1, cache.get(1));
+        assertNull(cache.get(2));
+        assertNotNull(cache.get(3));
+        assertEquals(1, cache.getEvictionCount());
+        assertTrue(cache.getBytes() <= cache.getMaxBytes());
+    }
+
+    public void testPinnedNotEvicted() {
+        LRURecordCache cache = cacheFor(2);
+        DicomObject rec1 = record("1.2.3.1");
+        cache.pin(1, rec1);
+        for (int i = 2; i < 10; i++)
+            cache.put(i, record("1.2.3." + i));
+        assertSame(rec1, cache.get(1));
+        cache.clear();
+        assertSame(rec1, cache.get(1));
+        assertEquals(1, cache.size());
+        cache.unpinAll();
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0L, cache.getBytes());
+    }
+
+    public void testHitMissCount() {
+        LRURecordCache cache = cacheFor(2);
+        cache.put(1, record("1.2.3.1"));
+        cache.get(1);
+        cache.get(1);
+        cache.get(2);
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        cache.resetCounters();
+        assertEquals(0, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+    }
+}
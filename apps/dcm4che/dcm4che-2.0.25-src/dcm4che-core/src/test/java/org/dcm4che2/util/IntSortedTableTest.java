@@ -0,0 +1,310 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2002-2005
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * Gunter Zeilinger <gunterze@gmail.com>
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.util;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+public class IntSortedTableTest extends TestCase {
+
+	private IntSortedTable<Integer> table;
+
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(IntSortedTableTest.class);
+	}
+
+	public IntSortedTableTest(String arg0) {
+		super(arg0);
+	}
+
+	@Override
+        protected void setUp() {
+		this.table = new IntSortedTable<Integer>();
+		for (int i = -10; i < 10; i++) {
+			table.put(i, new Integer(i));
+		}
+	}
+
+	public final void testPut() {
+		for (int i = -100; i < 100; i++) {
+			table.put(i, new Integer(i));
+		}
+		assertEquals(200, table.size());
+	}
+
+	public final void testGet() {
+		for (int i = -10; i < 10; i++) {
+			assertEquals(new Integer(i), table.get(i));
+		}
+		assertNull(table.get(11));
+		assertNull(table.get(-11));
+	}
+
+	public final void testRemove1() {
+		for (int i = -10; i < 10; i++, i++) {
+			assertEquals(new Integer(i), table.remove(i));
+		}
+		assertEquals(10, table.size());
+		for (int i = -10; i < 10; i++, i++) {
+			assertNull(table.get(i));
+		}
+		for (int i = -9; i < 10; i++, i++) {
+			assertEquals(new Integer(i), table.get(i));
+		}
+		Iterator it = table.iterator(0, -1);
+        for (int i = 1; i < 10; i++, i++) {
+            assertEquals(true, it.hasNext());
+            assertEquals(new Integer(i), it.next());
+        }
+        for (int i = -9; i < 0; i++, i++) {
+            assertEquals(true, it.hasNext());
+            assertEquals(new Integer(i), it.next());
+        }
+        assertEquals(false, it.hasNext());
+		for (int i = -9; i < 10; i++, i++) {
+			assertEquals(new Integer(i), table.remove(i));
+		}
+		assertEquals(true, table.isEmpty());
+		assertEquals(0, table.size());
+		for (int i = -10; i < 10; i++) {
+			assertNull(table.get(i));
+		}
+	}
+
+    public final void testRemove2() {
+        for (int i = -9; i < 10; i++, i++) {
+            assertEquals(new Integer(i), table.remove(i));
+        }
+        assertEquals(10, table.size());
+        for (int i = -9; i < 10; i++, i++) {
+            assertNull(table.get(i));
+        }
+        for (int i = -10; i < 10; i++, i++) {
+            assertEquals(new Integer(i), table.get(i));
+        }
+        Iterator it = table.iterator(0, -1);
+        for (int i = 0; i < 10; i++, i++) {
+            assertEquals(true, it.hasNext());
+            assertEquals(new Integer(i), it.next());
+        }
+        for (int i = -10; i < 0; i++, i++) {
+            assertEquals(true, it.hasNext());
+            assertEquals(new Integer(i), it.next());
+        }
+        assertEquals(false, it.hasNext());
+        for (int i = -10; i < 10; i++, i++) {
+            assertEquals(new Integer(i), table.remove(i));
+        }
+        assertEquals(true, table.isEmpty());
+        assertEquals(0, table.size());
+        for (int i = -10; i < 10; i++) {
+            assertNull(table.get(i));
+        }
+    }
+
+	public final void testAccept() {
+		table.accept(new IntHashtable.Visitor() {
+			public boolean visit(int key, Object value) {
+				assertEquals(new Integer(key), value);
+				return true;
+			}});
+	}
+
+	public final void testAcceptInAscendingOrder() {
+		final int[] count = { 0 };
+		table.accept(new IntHashtable.Visitor() {
+			public boolean visit(int key, Object value) {
+				assertEquals(count[0] < 10 ? count[0] : count[0] - 20, key);
+				++count[0];
+				return true;
+			}});
+		assertEquals(20, count[0]);
+	}
+
+	public final void testRemoveWhileIterating() {
+		Iterator<Integer> it = table.iterator(0, -1);
+		for (int i = 0; i < 10; i++, i++) {
+			assertEquals(new Integer(i), it.next());
+			table.remove(i);
+			table.remove(i + 1);
+		}
+		for (int i = -10; i < 0; i++) {
+			assertEquals(new Integer(i), it.next());
+		}
+		assertEquals(false, it.hasNext());
+		assertEquals(10, table.size());
+	}
+
+	public final void testPutAscending() {
+		IntSortedTable<Integer> t = new IntSortedTable<Integer>(2);
+		for (int i = 0; i < 1000; i += 2) {
+			t.put(i, new Integer(i));
+		}
+		t.put(501, new Integer(501));
+		t.put(-1, new Integer(-1));
+		t.put(500, new Integer(-500));
+		assertEquals(502, t.size());
+		assertEquals(new Integer(501), t.get(501));
+		assertEquals(new Integer(-500), t.get(500));
+		Iterator<Integer> it = t.iterator(498, 502);
+		assertEquals(new Integer(498), it.next());
+		assertEquals(new Integer(-500), it.next());
+		assertEquals(new Integer(501), it.next());
+		assertEquals(new Integer(502), it.next());
+		assertEquals(false, it.hasNext());
+	}
+
+	public final void testIterator() {
+		doTestIterator(0, -1);
+		doTestIterator(1, -2);
+		doTestIterator(0, -3);
+		doTestIterator(2, -1);
+		doTestIterator(9, -10);
+		doTestIterator(10, -10);
+		doTestIterator(10, -11);
+		doTestIterator(0, 1);
+		doTestIterator(-2, -1);
+		doTestIterator(0, 0);
+		doTestIterator(1, 1);
+		doTestIterator(-1, -1);
+		doTestIterator(10, 10);
+	}
+
+	private void doTestIterator(int start, int end) {
+		Iterator itr = table.iterator(start, end);
+		if (start >= 0) {
+			for (int i = start, n = (end >= 0 && end < 10) ? end : 9; i <= n; i++) {
+				assertEquals(true, itr.hasNext());
+				assertEquals(new Integer(i), itr.next());
+			}
+		}
+		if (end < 0) {
+			for (int i = (start > -10 && start < 0) ? start : -10; i <= end; i++) {
+				assertEquals(true, itr.hasNext());
+				assertEquals(new Integer(i), itr.next());
+			}
+		}
+		assertEquals(false, itr.hasNext());		
+	}
+
+    public final void testPutRemoveRandom() {
+        IntSortedTable<Integer> t = new IntSortedTable<Integer>();
+        Map<Integer, Integer> ref = new HashMap<Integer, Integer>();
+        Random rnd = new Random(42);
+        for (int n = 0; n < 20000; n++) {
+            int key = rnd.nextInt(200) - 100;
+            if (rnd.nextInt(3) == 0) {
+                assertEquals(ref.remove(key), t.remove(key));
+            } else {
+                Integer value = new Integer(n);
+                ref.put(key, value);
+                t.put(key, value);
+            }
+            if (n % 100 == 0) {
+                assertEquals(ref.size(), t.size());
+                for (int i = -100; i < 100; i++)
+                    assertEquals(ref.get(i), t.get(i));
+            }
+        }
+        int count = 0;
+        int prev = 0;
+        for (Iterator<Integer> it = t.iterator(0, -1); it.hasNext(); count++) {
+            Integer value = it.next();
+            assertNotNull(value);
+            int key = 0;
+            for (Map.Entry<Integer, Integer> e : ref.entrySet())
+                if (e.getValue() == value)
+                    key = e.getKey().intValue();
+            if (count > 0)
+                assertTrue((prev ^ 0x80000000) < (key ^ 0x80000000));
+            prev = key;
+        }
+        assertEquals(ref.size(), count);
+    }
+
+    public final void testConcurrentGet() throws Exception {
+        final AtomicInteger misses = new AtomicInteger();
+        Random rnd = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            final IntSortedTable<Integer> t = new IntSortedTable<Integer>();
+            final int[] keys = new int[100];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = rnd.nextInt();
+                t.put(keys[i], new Integer(keys[i]));
+            }
+            t.remove(keys[0]);
+            t.put(keys[0], new Integer(keys[0]));
+            final CountDownLatch start = new CountDownLatch(1);
+            Thread[] threads = new Thread[4];
+            for (int j = 0; j < threads.length; j++) {
+                threads[j] = new Thread() {
+                    @Override
+                    public void run() {
+                        try {
+                            start.await();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                        for (int i = 0; i < keys.length; i++) {
+                            if (t.get(keys[i]) == null)
+                                misses.incrementAndGet();
+                        }
+                        int n = 0;
+                        for (Iterator<Integer> it = t.iterator(0, -1);
+                                it.hasNext(); it.next())
+                            n++;
+                        if (n != t.size())
+                            misses.incrementAndGet();
+                    }
+                };
+                threads[j].start();
+            }
+            start.countDown();
+            for (int j = 0; j < threads.length; j++)
+                threads[j].join();
+        }
+        assertEquals(0, misses.get());
+    }
+}
@@ -0,0 +1,108 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.util;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.DataFormatException;
+
+import junit.framework.TestCase;
+
+public class LZ4BlockTest extends TestCase {
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(LZ4BlockTest.class);
+    }
+
+    public LZ4BlockTest(String arg0) {
+        super(arg0);
+    }
+
+    private static void assertRoundTrip(byte[] src) throws DataFormatException {
+        byte[] compressed = LZ4Block.compress(src, 0, src.length);
+        assertTrue(compressed.length
+                <= LZ4Block.maxCompressedLength(src.length));
+        byte[] dst = new byte[src.length];
+        assertEquals(src.length, LZ4Block.decompress(compressed, 0,
+                compressed.length, dst, 0, dst.length));
+        assertTrue(Arrays.equals(src, dst));
+    }
+
+    public void testCompress() throws DataFormatException {
+        String[] words = { "ORIGINAL", "PRIMARY", "AXIAL", "CT", "MR",
+                "1.2.840.10008.5.1.4.1.1.2", "ISO_IR 100", "Doe^John" };
+        StringBuffer sb = new StringBuffer();
+        Random rnd = new Random(0);
+        while (sb.length() < 100000)
+            sb.append(words[rnd.nextInt(words.length)]).append('\\');
+        byte[] src = sb.toString().getBytes();
+        assertRoundTrip(src);
+        assertTrue(LZ4Block.compress(src, 0, src.length).length
+                < src.length / 2);
+    }
+
+    public void testCompressRandom() throws DataFormatException {
+        byte[] src = new byte[70000];
+        new Random(0).nextBytes(src);
+        assertRoundTrip(src);
+    }
+
+    public void testCompressRepeated() throws DataFormatException {
+        byte[] src = new byte[100000];
+        assertRoundTrip(src);
+        assertTrue(LZ4Block.compress(src, 0, src.length).length < 500);
+    }
+
+    public void testCompressShort() throws DataFormatException {
+        for (int len = 0; len < 20; len++)
+            assertRoundTrip(new byte[len]);
+    }
+
+    public void testDecompressMalformed() {
+        byte[] src = new byte[1000];
+        byte[] compressed = LZ4Block.compress(src, 0, src.length);
+        try {
+            LZ4Block.decompress(compressed, 0, compressed.length,
+                    new byte[999], 0, 999);
+            fail("DataFormatException expected");
+        } catch (DataFormatException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.util;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class StripedIntHashtableTest extends TestCase {
+
+	private StripedIntHashtable<Integer> table;
+
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(StripedIntHashtableTest.class);
+	}
+
+	public StripedIntHashtableTest(String arg0) {
+		super(arg0);
+	}
+
+	@Override
+	protected void setUp() {
+		this.table = new StripedIntHashtable<Integer>(4);
+		for (int i = -10; i < 10; i++) {
+			table.put(i, new Integer(i));
+		}
+	}
+
+	public final void testPut() {
+		assertEquals(new Integer(1), table.put(1, new Integer(-1)));
+		assertEquals(20, table.size());
+		assertNull(table.put(100, new Integer(100)));
+		assertEquals(21, table.size());
+	}
+
+	public final void testGet() {
+		for (int i = -10; i < 10; i++) {
+			assertEquals(new Integer(i), table.get(i));
+		}
+		assertNull(table.get(11));
+	}
+
+	public final void testRemove() {
+		for (int i = -10; i < 10; i++, i++) {
+			assertEquals(new Integer(i), table.remove(i));
+		}
+		assertNull(table.remove(-10));
+		assertEquals(10, table.size());
+		for (int i = -9; i < 10; i++, i++) {
+			assertEquals(new Integer(i), table.get(i));
+		}
+	}
+
+	public final void testRemoveAll() {
+		List<Integer> values = table.removeAll();
+		assertEquals(20, values.size());
+		assertTrue(values.contains(new Integer(-10)));
+		assertTrue(values.contains(new Integer(9)));
+		assertTrue(table.isEmpty());
+		assertNull(table.get(0));
+	}
+
+	public final void testConcurrentAccess() throws InterruptedException {
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			final int base = (t + 1) * 1000;
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 500; i++) {
+						table.put(base + i, new Integer(i));
+					}
+					for (int i = 0; i < 500; i += 2) {
+						table.remove(base + i);
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (int t = 0; t < threads.length; t++) {
+			threads[t].join();
+		}
+		assertEquals(20 + threads.length * 250, table.size());
+		assertEquals(new Integer(1), table.get(1001));
+		assertNull(table.get(1000));
+	}
+}
@@ -45,9 +45,16 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.Socket;
 import java.net.SocketTimeoutException;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.dcm4che2.data.DicomObject;
 import org.dcm4che2.data.Tag;
@@ -62,7 +69,7 @@ import org.dcm4che2.net.pdu.ExtendedNegotiation;
 import org.dcm4che2.net.pdu.PresentationContext;
 import org.dcm4che2.net.pdu.RoleSelection;
 import org.dcm4che2.util.CloseUtils;
-import org.dcm4che2.util.IntHashtable;
+import org.dcm4che2.util.StripedIntHashtable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -75,6 +82,9 @@ import org.slf4j.LoggerFactory;
 public class Association implements Runnable {
     static Logger log = LoggerFactory.getLogger(Association.class);
 
+    // released on close, so no thread blocks on the window any more
+    private static final int CLOSED_WINDOW_PERMITS = 1 << 24;
+
     static int nextSerialNo = 0;
 
     private final int serialNo = ++nextSerialNo;
@@ -83,6 +93,8 @@ public class Association implements Runnable {
 
     private final AssociationReaper reaper;
 
+    private final TimingWheel timingWheel;
+
     private NetworkApplicationEntity ae;
 
     private UserIdentity userIdentity;
@@ -117,9 +129,24 @@ public class Association implements Runnable {
 
     private boolean closed;
 
-    private IntHashtable<DimseRSPHandler> rspHandlerForMsgId = new IntHashtable<DimseRSPHandler>();
+    private final StripedIntHashtable<DimseRSPHandler> rspHandlerForMsgId = new StripedIntHashtable<DimseRSPHandler>();
+
+    // limits outstanding operations to maxOpsInvoked; null if unlimited
+    private volatile Semaphore opsWindow;
+
+    // java.util.concurrent locks instead of object monitors, which would
+    // pin the carrier thread of a waiting virtual thread
+    private final ReentrantLock rspLock = new ReentrantLock();
+
+    // signaled only if the last outstanding DIMSE RSP was received
+    private final Condition rspDrained = rspLock.newCondition();
+
+    private final ReentrantLock stateLock = new ReentrantLock();
 
-    private IntHashtable<DimseRSP> cancelHandlerForMsgId = new IntHashtable<DimseRSP>();
+    private final Condition stateChanged = stateLock.newCondition();
+
+    private final StripedIntHashtable<CancelRQHandler> cancelHandlerForMsgId =
+            new StripedIntHashtable<CancelRQHandler>();
 
     private HashMap<String, Map<String, PresentationContext>> acceptedPCs = new HashMap<String, Map<String, PresentationContext>>();
 
@@ -129,6 +156,14 @@ public class Association implements Runnable {
 
     private long idleTimeout = Long.MAX_VALUE;
 
+    private volatile TimingWheel.Timeout artim;
+
+    private volatile boolean artimExpired;
+
+    private AssociationSelector selector;
+
+    private final AtomicBoolean listenerConnectionCounted = new AtomicBoolean();
+
     protected Association(Socket socket, NetworkConnection connector,
             boolean requestor) throws IOException {
         if (socket == null)
@@ -137,11 +172,21 @@ public class Association implements Runnable {
             throw new NullPointerException("connector");
         this.connector = connector;
         this.reaper = connector.getDevice().getAssociationReaper();
+        this.timingWheel = connector.getDevice().getTimingWheel();
         this.socket = socket;
         this.requestor = requestor;
-        this.in = socket.getInputStream();
-        this.out = socket.getOutputStream();
-        this.encoder = new PDUEncoder(this, out);
+        SocketChannel ch = socket.getChannel();
+        WritableByteChannel wch = ch;
+        if (ch != null && !ch.isBlocking()) {
+            ChannelOutputStream cout = new ChannelOutputStream(ch);
+            this.in = new ChannelInputStream(socket);
+            this.out = cout;
+            wch = cout;
+        } else {
+            this.in = socket.getInputStream();
+            this.out = socket.getOutputStream();
+        }
+        this.encoder = new PDUEncoder(this, out, wch);
         this.state = State.STA1;
         log
                 .info(requestor ? "{} initiated {}" : "{} accepted {}", name,
@@ -170,10 +215,35 @@ public class Association implements Runnable {
         return a;
     }
 
+    /**
+     * Accepts an association, whose A-ASSOCIATE-RQ is read without blocking
+     * by the {@link AssociationSelector}, before it is passed to the
+     * <code>Executor</code>. The ARTIM timer is already started.
+     */
+    static Association accept(Socket socket, NetworkConnection connector,
+            AssociationSelector selector) throws IOException {
+        Association a = accept(socket, connector);
+        a.selector = selector;
+        a.init();
+        return a;
+    }
+
+    private void init() throws IOException {
+        startARTIM(requestor ? connector.getAcceptTimeout()
+                : connector.getRequestTimeout());
+        connector.incListenerConnectionCount();
+        listenerConnectionCounted.set(true);
+        this.decoder = new PDUDecoder(this, in, socket.getChannel());
+    }
+
     public final Socket getSocket() {
         return socket;
     }
 
+    public final NetworkApplicationEntity getApplicationEntity() {
+        return ae;
+    }
+
     final void setApplicationEntity(NetworkApplicationEntity ae) {
         this.ae = ae;
     }
@@ -204,6 +274,16 @@ public class Association implements Runnable {
         return requestor;
     }
 
+    /**
+     * Returns the negotiated Maximum Number of Operations Invoked.
+     * 
+     * @return maximal number of outstanding operations invoked by this
+     *         association; <code>0</code> for unlimited.
+     */
+    public final int getMaxOpsInvoked() {
+        return maxOpsInvoked;
+    }
+
     public final boolean isReadyForDataTransfer() {
         return state.isReadyForDataTransfer();
     }
@@ -216,10 +296,13 @@ public class Association implements Runnable {
         if (this.state == state)
             return;
 
-        synchronized (this) {
+        stateLock.lock();
+        try {
             log.debug("{} enter state: {}", this, state);
             this.state = state;
-            notifyAll();
+            stateChanged.signalAll();
+        } finally {
+            stateLock.unlock();
         }
     }
 
@@ -312,9 +395,12 @@ public class Association implements Runnable {
     public AAssociateAC negotiate(AAssociateRQ rq) throws IOException,
             InterruptedException {
         sendAssociateRQ(rq);
-        synchronized (this) {
+        stateLock.lock();
+        try {
             while (state == State.STA5)
-                wait();
+                stateChanged.await();
+        } finally {
+            stateLock.unlock();
         }
         checkException();
         if (state != State.STA6) {
@@ -330,16 +416,22 @@ public class Association implements Runnable {
             waitForDimseRSP();
 
         sendReleaseRQ();
-        synchronized (this) {
+        stateLock.lock();
+        try {
             while (state != State.STA1)
-                wait();
+                stateChanged.await();
+        } finally {
+            stateLock.unlock();
         }
     }
 
     public void waitForDimseRSP() throws InterruptedException {
-        synchronized (rspHandlerForMsgId) {
+        rspLock.lock();
+        try {
             while (!rspHandlerForMsgId.isEmpty() && isReadyForDataReceive())
-                rspHandlerForMsgId.wait();
+                rspDrained.await();
+        } finally {
+            rspLock.unlock();
         }
     }
 
@@ -730,7 +822,29 @@ public class Association implements Runnable {
         rspHandler.setMsgId(cmd.getInt(Tag.MessageID));
         addDimseRSPHandler(cmd.getInt(Tag.MessageID), rspHandler);
         encoder.writeDIMSE(pcid, cmd, data, pc.getTransferSyntax());
-        rspHandler.setTimeout(System.currentTimeMillis() + rspTimeout);
+        startDimseRSPTimer(rspHandler, rspTimeout);
+    }
+
+    // as before the timing wheel, a timeout <= 0 expires immediately
+    private void startDimseRSPTimer(final DimseRSPHandler rspHandler,
+            int rspTimeout) {
+        rspHandler.setTimer(timingWheel.schedule(new Runnable() {
+            public void run() {
+                if (getDimseRSPHandler(rspHandler.getMessageID()) != rspHandler)
+                    return;
+                log.warn("{}: no DIMSE RSP for message ID {} received "
+                        + "within timeout", name, rspHandler.getMessageID());
+                // the timing wheel thread must not block on writing A-ABORT
+                connector.getDevice().getExecutor().execute(new Runnable() {
+                    public void run() {
+                        abort();
+                    }
+                });
+            }
+        }, rspTimeout));
+        // RSP may be already received
+        if (getDimseRSPHandler(rspHandler.getMessageID()) != rspHandler)
+            rspHandler.stopTimer();
     }
 
     void cancel(int pcid, int msgid) throws IOException {
@@ -770,22 +884,19 @@ public class Association implements Runnable {
 
     void onCancelRQ(DicomObject cmd) throws IOException {
         int msgId = cmd.getInt(Tag.MessageIDBeingRespondedTo);
-        DimseRSP handler = removeCancelRQHandler(msgId);
+        CancelRQHandler handler = removeCancelRQHandler(msgId);
         if (handler != null) {
             handler.cancel(this);
         }
     }
 
-    public void registerCancelRQHandler(DicomObject cmd, DimseRSP handler) {
-        synchronized (cancelHandlerForMsgId) {
-            cancelHandlerForMsgId.put(cmd.getInt(Tag.MessageID), handler);
-        }
+    public void registerCancelRQHandler(DicomObject cmd,
+            CancelRQHandler handler) {
+        cancelHandlerForMsgId.put(cmd.getInt(Tag.MessageID), handler);
     }
 
-    private DimseRSP removeCancelRQHandler(int msgId) {
-        synchronized (cancelHandlerForMsgId) {
-            return (DimseRSP) cancelHandlerForMsgId.remove(msgId);
-        }
+    private CancelRQHandler removeCancelRQHandler(int msgId) {
+        return cancelHandlerForMsgId.remove(msgId);
     }
 
     void onDimseRSP(DicomObject cmd, DicomObject data) throws IOException {
@@ -801,10 +912,11 @@ public class Association implements Runnable {
             if (!CommandUtils.isPending(cmd)) {
                 updateIdleTimeout();
                 removeDimseRSPHandler(msgId);
+                rspHandler.stopTimer();
             } else {
-                rspHandler.setTimeout(System.currentTimeMillis()
-                        + (isRetrieveRsp(cmd) ? ae.getRetrieveRspTimeout()
-                                              : ae.getDimseRspTimeout()));
+                startDimseRSPTimer(rspHandler,
+                        isRetrieveRsp(cmd) ? ae.getRetrieveRspTimeout()
+                                           : ae.getDimseRspTimeout());
             }
         }
     }
@@ -815,46 +927,80 @@ public class Association implements Runnable {
                 || cmdField == CommandUtils.C_GET_RSP;
     }
 
+    private void initOpsWindow() {
+        opsWindow = maxOpsInvoked > 0 ? new Semaphore(maxOpsInvoked) : null;
+    }
+
     private void addDimseRSPHandler(int msgId, DimseRSPHandler rspHandler)
             throws InterruptedException {
-        synchronized (rspHandlerForMsgId) {
-            while (maxOpsInvoked > 0
-                    && rspHandlerForMsgId.size() >= maxOpsInvoked)
-                rspHandlerForMsgId.wait();
-            if (isReadyForDataReceive())
-                rspHandlerForMsgId.put(msgId, rspHandler);
+        Semaphore window = opsWindow;
+        if (window != null)
+            window.acquire();
+        if (isReadyForDataReceive()) {
+            rspHandlerForMsgId.put(msgId, rspHandler);
+            // closed concurrently?
+            if (isReadyForDataReceive()
+                    || rspHandlerForMsgId.remove(msgId) == null)
+                return;
         }
+        if (window != null)
+            window.release();
     }
 
     private DimseRSPHandler removeDimseRSPHandler(int msgId) {
-        synchronized (rspHandlerForMsgId) {
-            DimseRSPHandler tmp = (DimseRSPHandler) rspHandlerForMsgId
-                    .remove(msgId);
-            rspHandlerForMsgId.notifyAll();
-            return tmp;
+        DimseRSPHandler tmp = rspHandlerForMsgId.remove(msgId);
+        if (tmp != null) {
+            Semaphore window = opsWindow;
+            if (window != null)
+                window.release();
+            if (rspHandlerForMsgId.isEmpty())
+                signalRSPDrained();
         }
+        return tmp;
     }
 
-    private DimseRSPHandler getDimseRSPHandler(int msgId) {
-        synchronized (rspHandlerForMsgId) {
-            return rspHandlerForMsgId.get(msgId);
+    private void signalRSPDrained() {
+        rspLock.lock();
+        try {
+            rspDrained.signalAll();
+        } finally {
+            rspLock.unlock();
         }
     }
 
+    private DimseRSPHandler getDimseRSPHandler(int msgId) {
+        return rspHandlerForMsgId.get(msgId);
+    }
+
     public void run() {
+        boolean suspend = false;
         try {
-            startARTIM(requestor ? connector.getAcceptTimeout()
-                    : connector.getRequestTimeout());
-            connector.incListenerConnectionCount();
-            this.decoder = new PDUDecoder(this, in);
-            while (!(state == State.STA1 || state == State.STA13))
+            if (decoder == null) {
+                init();
+            } else {
+                decoder.resume();
+            }
+            while (!(state == State.STA1 || state == State.STA13)) {
                 decoder.nextPDU();
+                if (selector != null && state == State.STA6
+                        && artim == null) {
+                    // an idle association does not hold a PDU buffer
+                    decoder.releaseBuffer();
+                    suspend = selector.suspend(this);
+                    if (suspend)
+                        return;
+                }
+            }
         } catch (AAbort aa) {
             abort(aa);
         } catch (SocketTimeoutException e) {
             exception = e;
             log.warn("ARTIM timer expired in State: " + state);
 		} catch (EOFException e) {
+			if (artimExpired) {
+				onARTIMExpired();
+				return;
+			}
 			exception = e;
 			if (state == State.STA2) {
 				log.debug("Client closed connection without sending data");
@@ -862,15 +1008,35 @@ public class Association implements Runnable {
 				log.warn("i/o exception in State " + state, e);
 			}
         } catch (IOException e) {
+            if (artimExpired) {
+                onARTIMExpired();
+                return;
+            }
             exception = e;
             log.warn("i/o exception in State " + state, e);
         } finally {
-            connector.decListenerConnectionCount();
-            closeSocket();
+            if (!suspend) {
+                closeSocket();
+                if (decoder != null)
+                    decoder.releaseBuffer();
+            }
         }
     }
 
+    /**
+     * Reads available bytes of the next PDU without blocking. Invoked by the
+     * {@link AssociationSelector} thread on suspended associations.
+     * 
+     * @return <code>true</code>, if the association shall be resumed to
+     *         process the PDU.
+     */
+    boolean prefetch() throws IOException {
+        return decoder.prefetch();
+    }
+
     private void closeSocket() {
+        if (listenerConnectionCounted.compareAndSet(true, false))
+            connector.decListenerConnectionCount();
         if (state == State.STA13) {
             try {
                 Thread.sleep(connector.getSocketCloseDelay());
@@ -885,6 +1051,9 @@ public class Association implements Runnable {
             log.info("{}: close {}", name, socket);
             CloseUtils.safeClose(socket);
             closed = true;
+            // resume, if closed by another thread while waiting in selector
+            if (selector != null)
+                selector.interrupt(this);
             onClosed();
         }
     }
@@ -893,17 +1062,17 @@ public class Association implements Runnable {
         if (ae != null)
             ae.removeFromPool(this);
         reaper.unregister(this);
-        synchronized (rspHandlerForMsgId) {
-            rspHandlerForMsgId.accept(new IntHashtable.Visitor() {
-
-                public boolean visit(int key, Object value) {
-                    ((DimseRSPHandler) value).onClosed(Association.this);
-                    return true;
-                }
-            });
-            rspHandlerForMsgId.clear();
-            rspHandlerForMsgId.notifyAll();
+        List<DimseRSPHandler> rspHandlers = rspHandlerForMsgId.removeAll();
+        for (int i = 0, n = rspHandlers.size(); i < n; i++) {
+            DimseRSPHandler rspHandler = rspHandlers.get(i);
+            rspHandler.stopTimer();
+            rspHandler.onClosed(this);
         }
+        // wake up threads waiting for a free slot in the window
+        Semaphore window = opsWindow;
+        if (window != null)
+            window.release(CLOSED_WINDOW_PERMITS);
+        signalRSPDrained();
         if (ae != null) {
             ae.associationClosed(this);
         }
@@ -919,16 +1088,46 @@ public class Association implements Runnable {
     }
 
     private void startARTIM(int timeout) throws IOException {
+        if (timeout <= 0)
+            return;
         if (log.isDebugEnabled())
             log.debug(name + ": start ARTIM " + timeout + "ms");
-        socket.setSoTimeout(timeout);
+        artim = timingWheel.schedule(new Runnable() {
+            public void run() {
+                if (artim == null)
+                    return;
+                artimExpired = true;
+                // an association waiting in the selector for the next PDU is
+                // resumed by the selector thread to close it
+                if (selector == null || !selector.interrupt(Association.this))
+                    interruptRead();
+            }
+        }, timeout);
+    }
+
+    /**
+     * Interrupts a blocking read of the reader thread, or a pending
+     * non-blocking read, by closing the socket.
+     */
+    void interruptRead() {
+        CloseUtils.safeClose(in);
+        CloseUtils.safeClose(socket);
     }
 
     private void stopARTIM() throws IOException {
-        socket.setSoTimeout(0);
+        TimingWheel.Timeout tmp = artim;
+        if (tmp == null)
+            return;
+        artim = null;
+        tmp.cancel();
         log.debug("{}: stop ARTIM", name);
     }
 
+    private void onARTIMExpired() {
+        exception = new SocketTimeoutException("ARTIM timer expired");
+        log.warn("ARTIM timer expired in State: " + state);
+    }
+
     void receivedAssociateRQ(AAssociateRQ rq) throws IOException {
         log.info("{}: A-ASSOCIATE-RQ {} >> {}", new String[] { name, rq.getCallingAET(),
                 rq.getCalledAET() });
@@ -979,13 +1178,23 @@ public class Association implements Runnable {
         ae.perform(this, pcid, cmd, data, tsuid);
     }
 
-    private synchronized void incPerforming() {
-        ++performing;
+    private void incPerforming() {
+        stateLock.lock();
+        try {
+            ++performing;
+        } finally {
+            stateLock.unlock();
+        }
     }
 
-    private synchronized void decPerforming() {
-        --performing;
-        notifyAll();
+    private void decPerforming() {
+        stateLock.lock();
+        try {
+            --performing;
+            stateChanged.signalAll();
+        } finally {
+            stateLock.unlock();
+        }
     }
 
     void sendPDataTF() throws IOException {
@@ -1082,6 +1291,7 @@ public class Association implements Runnable {
             associateAC = ae.negotiate(this, rq);
             processAC();
             maxOpsInvoked = associateAC.getMaxOpsPerformed();
+            initOpsWindow();
             maxPDULength = minZeroAsMax(rq.getMaxPDULength(), ae
                     .getMaxPDULengthSend());
             setState(State.STA6);
@@ -1101,6 +1311,7 @@ public class Association implements Runnable {
         stopARTIM();
         processAC();
         maxOpsInvoked = associateAC.getMaxOpsInvoked();
+        initOpsWindow();
         maxPDULength = minZeroAsMax(associateAC.getMaxPDULength(), ae
                 .getMaxPDULengthSend());
         setState(State.STA6);
@@ -1149,13 +1360,18 @@ public class Association implements Runnable {
         encoder.writeAReleaseRP();
     }
 
-    private synchronized void waitForPerformingOps() {
-        while (performing > 0 && isReadyForDataReceive()) {
-            try {
-                wait();
-            } catch (InterruptedException e) {
-                // explicitly interrupted up by another thread; continue
+    private void waitForPerformingOps() {
+        stateLock.lock();
+        try {
+            while (performing > 0 && isReadyForDataReceive()) {
+                try {
+                    stateChanged.await();
+                } catch (InterruptedException e) {
+                    // explicitly interrupted up by another thread; continue
+                }
             }
+        } finally {
+            stateLock.unlock();
         }
     }
 
@@ -1172,22 +1388,18 @@ public class Association implements Runnable {
     void checkIdle(final long now) {
         if (performing > 0)
             return;
-        if (rspHandlerForMsgId.isEmpty()) {
-            if (now > idleTimeout)
-                try {
-                    release(false);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
-        } else {
-            rspHandlerForMsgId.accept(new IntHashtable.Visitor() {
-
-                public boolean visit(int key, Object value) {
-                    DimseRSPHandler rspHandler = (DimseRSPHandler) value;
-                    if (now < rspHandler.getTimeout())
-                        return true;
-                    Association.this.abort();
-                    return false;
+        // DIMSE RSP timeouts are scheduled separately by startDimseRSPTimer
+        if (rspHandlerForMsgId.isEmpty() && now > idleTimeout) {
+            // check only once and release by another thread, because the
+            // timing wheel thread must not wait for the A-RELEASE-RP
+            reaper.unregister(this);
+            connector.getDevice().getExecutor().execute(new Runnable() {
+                public void run() {
+                    try {
+                        release(false);
+                    } catch (InterruptedException e) {
+                        e.printStackTrace();
+                    }
                 }
             });
         }
@@ -41,8 +41,6 @@
 package org.dcm4che2.net;
 
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
@@ -54,6 +52,9 @@ import org.slf4j.LoggerFactory;
  * <code>Association</code> contains the maximum idle period, so when the
  * reaper tests the association object for idleness, it may release the
  * association if the idle period has been exceeded.
+ * <p>
+ * The periodic tests are scheduled on a {@link TimingWheel}, so registering
+ * and unregistering an association takes constant time.
  * 
  * @author gunter zeilinger(gunterze@gmail.com)
  * @version $Revision: 12932 $ $Date: 2010-03-16 11:26:10 +0100 (Tue, 16 Mar 2010) $
@@ -66,24 +67,40 @@ public class AssociationReaper {
     private static final Logger log = LoggerFactory
             .getLogger(AssociationReaper.class);
 
-    private static Timer timer = new Timer(true);
+    private final Map<Association, IdleCheck> idleChecks = new ConcurrentHashMap<Association, IdleCheck>();
 
-    private Map<Association, TimerTask> timerTasks = new ConcurrentHashMap<Association, TimerTask>();
+    private final TimingWheel wheel;
 
     private final int period;
 
     /**
-     * Constructor which sets the max idle test period.
+     * Constructor which sets the max idle test period. The tests are
+     * scheduled on a timing wheel owned by this reaper.
      * 
      * @param period
      *                An int signifying the time period in milliseconds in which
      *                associations will be tested for idleness..
      */
     public AssociationReaper(int period) {
+        this(new TimingWheel("AssociationReaper", 100, 512), period);
+    }
+
+    /**
+     * Constructor which sets the timing wheel and the max idle test period.
+     * 
+     * @param wheel
+     *                The <code>TimingWheel</code> on which the tests are
+     *                scheduled.
+     * @param period
+     *                An int signifying the time period in milliseconds in which
+     *                associations will be tested for idleness..
+     */
+    public AssociationReaper(TimingWheel wheel, int period) {
         if (log.isDebugEnabled())
             log.debug("Check for idle Associations every "
                     + (period / MILLISECONDS) + "s.");
 
+        this.wheel = wheel;
         this.period = period;
     }
 
@@ -96,28 +113,12 @@ public class AssociationReaper {
     public void register(final Association a) {
         log.debug("Start check for idle {}", a);
 
-        TimerTask task = new TimerTask() {
-            @Override
-            public void run() {
-                a.checkIdle(System.currentTimeMillis());
-            }
-        };
-
-        TimerTask previous = timerTasks.put(a, task);
+        IdleCheck idleCheck = new IdleCheck(a);
+        IdleCheck previous = idleChecks.put(a, idleCheck);
         if (previous != null) {
             previous.cancel();
         }
-
-        schedule(task);
-    }
-
-    private void schedule(TimerTask task) {
-        try {
-            timer.schedule(task, period, period);
-        } catch (IllegalStateException e) {
-            timer = new Timer(true);
-            timer.schedule(task, period, period);
-        }
+        idleCheck.schedule();
     }
 
     /**
@@ -129,9 +130,41 @@ public class AssociationReaper {
     public void unregister(Association a) {
         log.debug("Stop check for idle {}", a);
 
-        TimerTask task = timerTasks.remove(a);
-        if (task != null) {
-            task.cancel();
+        IdleCheck idleCheck = idleChecks.remove(a);
+        if (idleCheck != null) {
+            idleCheck.cancel();
+        }
+    }
+
+    private class IdleCheck implements Runnable {
+        private final Association a;
+
+        private volatile TimingWheel.Timeout timeout;
+
+        IdleCheck(Association a) {
+            this.a = a;
+        }
+
+        void schedule() {
+            timeout = wheel.schedule(this, period);
+            if (idleChecks.get(a) != this) {
+                // unregistered concurrently
+                timeout.cancel();
+            }
+        }
+
+        void cancel() {
+            TimingWheel.Timeout tmp = timeout;
+            if (tmp != null) {
+                tmp.cancel();
+            }
+        }
+
+        public void run() {
+            if (idleChecks.get(a) != this)
+                return;
+            a.checkIdle(System.currentTimeMillis());
+            schedule();
         }
     }
 }
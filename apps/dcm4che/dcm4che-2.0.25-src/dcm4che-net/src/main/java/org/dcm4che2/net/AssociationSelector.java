@@ -0,0 +1,311 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.net;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Accepts connections on a non-blocking <code>ServerSocketChannel</code>
+ * and monitors idle associations for incoming PDUs by one
+ * <code>Selector</code>. Associations only occupy a thread of the
+ * <code>Executor</code> while a PDU is processed: the A-ASSOCIATE-RQ of an
+ * accepted connection, and - after processing a PDU in State 6 (Association
+ * established and ready for data transfer), when the association
+ * {@link #suspend suspends} - the next PDU, is read without blocking by
+ * {@link PDUDecoder#prefetch}, until its header and - if it fits into the
+ * PDU buffer - the whole PDU was received. Only then the association is
+ * passed to the <code>Executor</code>. So connected peers, which do not
+ * send anything, do not occupy any thread until the ARTIM timer expires.
+ * 
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ * @see NetworkConnection#setNonBlocking(boolean)
+ */
+class AssociationSelector implements Runnable
+{
+    static Logger log = LoggerFactory.getLogger(AssociationSelector.class);
+
+    private final NetworkConnection conn;
+    private final ServerSocketChannel server;
+    private final Executor executor;
+    private final Selector selector;
+    private final Queue<Association> suspended = new LinkedList<Association>();
+    private final Queue<Association> interrupted =
+            new LinkedList<Association>();
+    // associations registered for OP_READ, accessed by the selector thread
+    private final HashSet<Association> waiting = new HashSet<Association>();
+    private boolean closed;
+
+    public AssociationSelector(NetworkConnection conn,
+            ServerSocketChannel server, Executor executor) throws IOException
+    {
+        this.conn = conn;
+        this.server = server;
+        this.executor = executor;
+        this.selector = Selector.open();
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * Passes an idle association to the selector thread.
+     * 
+     * @return <code>false</code>, if the selector was already closed and the
+     *         association has to continue to read the next PDU blocking.
+     */
+    boolean suspend(Association a)
+    {
+        synchronized (suspended)
+        {
+            if (closed)
+                return false;
+            suspended.offer(a);
+        }
+        selector.wakeup();
+        return true;
+    }
+
+    /**
+     * Passes an association, whose ARTIM timer expired or whose socket was
+     * closed by another thread, to the selector thread, which closes its
+     * socket and resumes it, if it is waiting for the next PDU. So the
+     * <code>Executor</code> reports the close and returns the PDU buffer,
+     * into which the next PDU may be already partially read.
+     * 
+     * @return <code>false</code>, if the selector was already closed and the
+     *         caller has to interrupt the read of the association.
+     */
+    boolean interrupt(Association a)
+    {
+        synchronized (suspended)
+        {
+            if (closed)
+                return false;
+            interrupted.offer(a);
+        }
+        selector.wakeup();
+        return true;
+    }
+
+    public void close()
+    {
+        synchronized (suspended)
+        {
+            closed = true;
+        }
+        selector.wakeup();
+    }
+
+    public void run()
+    {
+        SocketAddress sockAddr = server.socket().getLocalSocketAddress();
+        log.info("Start listening on {}", sockAddr);
+        try
+        {
+            while (!isClosed())
+            {
+                selector.select();
+                register();
+                interrupt();
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext())
+                {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (!key.isValid())
+                        continue;
+                    if (key.isAcceptable())
+                        accept();
+                    else if (key.isReadable())
+                        onReadable(key);
+                }
+            }
+        }
+        catch (Throwable e)
+        {
+            // assume exception was raised by graceful stop of server
+        }
+        resumeAll();
+        log.info("Stop listening on {}", sockAddr);
+    }
+
+    private boolean isClosed()
+    {
+        synchronized (suspended)
+        {
+            return closed;
+        }
+    }
+
+    private void register()
+    {
+        for (;;)
+        {
+            Association a;
+            synchronized (suspended)
+            {
+                a = suspended.poll();
+            }
+            if (a == null)
+                return;
+            SocketChannel ch = a.getSocket().getChannel();
+            try
+            {
+                SelectionKey key = ch.keyFor(selector);
+                if (key != null)
+                    key.interestOps(SelectionKey.OP_READ);
+                else
+                    ch.register(selector, SelectionKey.OP_READ, a);
+                waiting.add(a);
+            }
+            catch (ClosedChannelException e)
+            {
+                log.debug("{} closed while suspended", a);
+            }
+        }
+    }
+
+    private void interrupt()
+    {
+        for (;;)
+        {
+            Association a;
+            synchronized (suspended)
+            {
+                a = interrupted.poll();
+            }
+            if (a == null)
+                return;
+            a.interruptRead();
+            if (waiting.remove(a))
+            {
+                // key was cancelled by closing the channel
+                execute(a);
+            }
+        }
+    }
+
+    private void accept() throws IOException
+    {
+        SocketChannel ch;
+        while ((ch = server.accept()) != null)
+        {
+            ch.configureBlocking(false);
+            Socket s = ch.socket();
+            conn.setSocketOptions(s);
+            if (conn.checkConnection(s))
+            {
+                // wait for the A-ASSOCIATE-RQ without occupying a thread
+                Association a = Association.accept(s, conn, this);
+                ch.register(selector, SelectionKey.OP_READ, a);
+                waiting.add(a);
+            }
+        }
+    }
+
+    private void onReadable(SelectionKey key)
+    {
+        Association a = (Association) key.attachment();
+        try
+        {
+            if (!a.prefetch())
+                return;
+        }
+        catch (IOException e)
+        {
+            // reported by the association on reading the PDU
+        }
+        key.interestOps(0);
+        waiting.remove(a);
+        execute(a);
+    }
+
+    private void execute(Association a)
+    {
+        try
+        {
+            executor.execute(a);
+        }
+        catch (RejectedExecutionException e)
+        {
+            log.warn("{}: Failed to process received PDU - {}", a,
+                    e.getMessage());
+            a.abort();
+        }
+    }
+
+    private void resumeAll()
+    {
+        synchronized (suspended)
+        {
+            closed = true;
+        }
+        try
+        {
+            for (Association a : waiting)
+                executor.execute(a);
+            waiting.clear();
+            for (Association a : suspended)
+                executor.execute(a);
+            suspended.clear();
+            selector.close();
+        }
+        catch (IOException e)
+        {
+            log.warn("Failed to close selector", e);
+        }
+    }
+}
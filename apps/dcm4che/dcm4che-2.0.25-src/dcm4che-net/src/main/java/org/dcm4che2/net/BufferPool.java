@@ -0,0 +1,338 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.net;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of PDU buffers shared by all associations of a {@link Device}.
+ * <p>
+ * Buffers are grouped into size classes of powers of two between
+ * {@link #MIN_BUFFER_SIZE} and {@link #MAX_BUFFER_SIZE}. A borrowed buffer
+ * has the capacity of the smallest size class, which fits the requested
+ * capacity. Released buffers are kept for reuse as long as the total
+ * capacity of pooled buffers does not exceed {@link #getMaxPooledBytes()};
+ * otherwise they are left to the garbage collector. Larger buffers are
+ * allocated on demand and never pooled.
+ * <p>
+ * Heap and direct buffers are pooled separately. If {@link #isDirect()} is
+ * set, associations over socket channels encode PDUs into direct buffers,
+ * which are written to the channel without intermediate copy.
+ * 
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ * @see Device#getBufferPool()
+ */
+public class BufferPool
+{
+    public static final int MIN_BUFFER_SIZE = 0x400; // 1KB
+
+    public static final int MAX_BUFFER_SIZE = 0x2000000; // 32MB
+
+    private static final int MIN_SHIFT = 10;
+
+    private static final int MAX_SHIFT = 25;
+
+    private final SizeClass[] heapClasses =
+            new SizeClass[MAX_SHIFT - MIN_SHIFT + 1];
+
+    private final SizeClass[] directClasses =
+            new SizeClass[MAX_SHIFT - MIN_SHIFT + 1];
+
+    private final AtomicLong pooledBytes = new AtomicLong();
+
+    private final AtomicLong borrowedBytes = new AtomicLong();
+
+    private final AtomicLong borrowCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final AtomicLong discardCount = new AtomicLong();
+
+    private volatile long maxPooledBytes;
+
+    private volatile boolean direct;
+
+    private static final class SizeClass
+    {
+        final int size;
+
+        final Queue<ByteBuffer> free = new ConcurrentLinkedQueue<ByteBuffer>();
+
+        final AtomicInteger count = new AtomicInteger();
+
+        SizeClass(int size)
+        {
+            this.size = size;
+        }
+    }
+
+    /**
+     * Creates a pool, which keeps up to 64MB of released buffers.
+     */
+    public BufferPool()
+    {
+        this(0x4000000L);
+    }
+
+    /**
+     * Creates a pool, which keeps up to <code>maxPooledBytes</code> of
+     * released buffers.
+     * 
+     * @param maxPooledBytes
+     *                maximal total capacity of pooled buffers.
+     */
+    public BufferPool(long maxPooledBytes)
+    {
+        setMaxPooledBytes(maxPooledBytes);
+        for (int i = 0; i < heapClasses.length; i++) {
+            heapClasses[i] = new SizeClass(1 << (MIN_SHIFT + i));
+            directClasses[i] = new SizeClass(1 << (MIN_SHIFT + i));
+        }
+    }
+
+    public final long getMaxPooledBytes()
+    {
+        return maxPooledBytes;
+    }
+
+    public final void setMaxPooledBytes(long maxPooledBytes)
+    {
+        if (maxPooledBytes < 0)
+            throw new IllegalArgumentException("maxPooledBytes: "
+                    + maxPooledBytes);
+        this.maxPooledBytes = maxPooledBytes;
+    }
+
+    /**
+     * Returns <code>true</code>, if associations over socket channels shall
+     * encode PDUs into direct buffers.
+     */
+    public final boolean isDirect()
+    {
+        return direct;
+    }
+
+    public final void setDirect(boolean direct)
+    {
+        this.direct = direct;
+    }
+
+    /**
+     * Returns the size class of buffers, which are borrowed for the given
+     * capacity.
+     * 
+     * @return capacity of borrowed buffers, or <code>capacity</code>, if it
+     *         exceeds {@link #MAX_BUFFER_SIZE}.
+     */
+    public static int sizeOf(int capacity)
+    {
+        if (capacity <= MIN_BUFFER_SIZE)
+            return MIN_BUFFER_SIZE;
+        if (capacity > MAX_BUFFER_SIZE)
+            return capacity;
+        return Integer.highestOneBit(capacity - 1) << 1;
+    }
+
+    private SizeClass sizeClass(int size, boolean direct)
+    {
+        if (size > MAX_BUFFER_SIZE || Integer.bitCount(size) != 1
+                || size < MIN_BUFFER_SIZE)
+            return null;
+        int i = Integer.numberOfTrailingZeros(size) - MIN_SHIFT;
+        return direct ? directClasses[i] : heapClasses[i];
+    }
+
+    /**
+     * Borrows a cleared buffer with at least the specified capacity. The
+     * buffer shall be returned by {@link #release} after use.
+     * 
+     * @param capacity
+     *                minimal capacity of the buffer.
+     * @param direct
+     *                <code>true</code> for a direct buffer;
+     *                <code>false</code> for a buffer backed by an array.
+     * @return the buffer.
+     */
+    public ByteBuffer borrow(int capacity, boolean direct)
+    {
+        if (capacity < 0)
+            throw new IllegalArgumentException("capacity: " + capacity);
+        int size = sizeOf(capacity);
+        SizeClass sc = sizeClass(size, direct);
+        ByteBuffer bb = sc != null ? sc.free.poll() : null;
+        if (bb != null) {
+            sc.count.decrementAndGet();
+            pooledBytes.addAndGet(-size);
+            bb.clear();
+            bb.order(ByteOrder.BIG_ENDIAN);
+        } else {
+            missCount.incrementAndGet();
+            bb = direct ? ByteBuffer.allocateDirect(size)
+                        : ByteBuffer.allocate(size);
+        }
+        borrowCount.incrementAndGet();
+        borrowedBytes.addAndGet(size);
+        return bb;
+    }
+
+    /**
+     * Returns a buffer obtained by {@link #borrow} to the pool. The buffer
+     * must not be accessed by the caller afterwards.
+     * 
+     * @param bb
+     *                the buffer or <code>null</code>.
+     */
+    public void release(ByteBuffer bb)
+    {
+        if (bb == null)
+            return;
+        int size = bb.capacity();
+        borrowedBytes.addAndGet(-size);
+        SizeClass sc = sizeClass(size, bb.isDirect());
+        if (sc == null)
+            return;
+        if (pooledBytes.addAndGet(size) > maxPooledBytes) {
+            pooledBytes.addAndGet(-size);
+            discardCount.incrementAndGet();
+            return;
+        }
+        sc.count.incrementAndGet();
+        sc.free.offer(bb);
+    }
+
+    /**
+     * Removes all pooled buffers.
+     */
+    public void clear()
+    {
+        for (int i = 0; i < heapClasses.length; i++) {
+            clear(heapClasses[i]);
+            clear(directClasses[i]);
+        }
+    }
+
+    private void clear(SizeClass sc)
+    {
+        while (sc.free.poll() != null) {
+            sc.count.decrementAndGet();
+            pooledBytes.addAndGet(-sc.size);
+        }
+    }
+
+    /**
+     * Returns the number of buffers kept for reuse.
+     */
+    public int getPooledBuffers()
+    {
+        int n = 0;
+        for (int i = 0; i < heapClasses.length; i++)
+            n += heapClasses[i].count.get() + directClasses[i].count.get();
+        return n;
+    }
+
+    /**
+     * Returns the total capacity of buffers kept for reuse.
+     */
+    public long getPooledBytes()
+    {
+        return pooledBytes.get();
+    }
+
+    /**
+     * Returns the total capacity of borrowed buffers, which were not yet
+     * released.
+     */
+    public long getBorrowedBytes()
+    {
+        return borrowedBytes.get();
+    }
+
+    /**
+     * Returns the number of borrowed buffers since creation of the pool or
+     * the last invocation of {@link #resetMetrics}.
+     */
+    public long getBorrowCount()
+    {
+        return borrowCount.get();
+    }
+
+    /**
+     * Returns the number of borrowed buffers, which had to be allocated,
+     * because there was no pooled buffer of the requested size class.
+     */
+    public long getMissCount()
+    {
+        return missCount.get();
+    }
+
+    /**
+     * Returns the number of released buffers, which were not pooled, because
+     * the pool already kept {@link #getMaxPooledBytes()}.
+     */
+    public long getDiscardCount()
+    {
+        return discardCount.get();
+    }
+
+    /**
+     * Resets the borrow, miss and discard counters.
+     */
+    public void resetMetrics()
+    {
+        borrowCount.set(0);
+        missCount.set(0);
+        discardCount.set(0);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "BufferPool[pooled=" + getPooledBuffers() + "/"
+                + getPooledBytes() + "B, borrowed=" + getBorrowedBytes()
+                + "B, borrows=" + getBorrowCount() + ", misses="
+                + getMissCount() + ", discards=" + getDiscardCount() + "]";
+    }
+}
@@ -0,0 +1,141 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.net;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Blocking <code>InputStream</code> on a non-blocking
+ * <code>SocketChannel</code>. Waits for readability on a private
+ * <code>Selector</code>, considering the <code>SO_TIMEOUT</code> of the
+ * socket. The ARTIM timer of the {@link Association}, scheduled on the
+ * {@link TimingWheel} of the device, interrupts a pending read by closing
+ * this stream and the socket. Also usable as blocking
+ * <code>ReadableByteChannel</code> to read into direct buffers.
+ * 
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ */
+class ChannelInputStream extends InputStream
+        implements ReadableByteChannel
+{
+    private final Socket socket;
+    private final SocketChannel ch;
+    private final byte[] b1 = new byte[1];
+    private Selector selector;
+
+    public ChannelInputStream(Socket socket)
+    {
+        this.socket = socket;
+        this.ch = socket.getChannel();
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        return read(b1, 0, 1) < 0 ? -1 : b1[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+        if (len == 0)
+            return 0;
+        return read(ByteBuffer.wrap(b, off, len));
+    }
+
+    public int read(ByteBuffer bb) throws IOException
+    {
+        if (!bb.hasRemaining())
+            return 0;
+        int n;
+        while ((n = ch.read(bb)) == 0)
+            await(SelectionKey.OP_READ);
+        return n;
+    }
+
+    public boolean isOpen()
+    {
+        return ch.isOpen();
+    }
+
+    private void await(int ops) throws IOException
+    {
+        if (selector == null)
+        {
+            selector = Selector.open();
+            ch.register(selector, ops);
+        }
+        int timeout = socket.getSoTimeout();
+        try
+        {
+            if (selector.select(timeout) == 0)
+            {
+                if (Thread.interrupted())
+                    throw new InterruptedIOException();
+                if (timeout > 0)
+                    throw new SocketTimeoutException("Read timed out");
+            }
+            selector.selectedKeys().clear();
+        }
+        catch (ClosedSelectorException e)
+        {
+            throw new SocketException("Socket closed");
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if (selector != null)
+            selector.close();
+    }
+}
@@ -0,0 +1,151 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.net;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Blocking <code>OutputStream</code> on a non-blocking
+ * <code>SocketChannel</code>. Waits for writability on a private
+ * <code>Selector</code>, if the socket send buffer is full. Also usable as
+ * blocking <code>WritableByteChannel</code> to write direct buffers.
+ * 
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ */
+class ChannelOutputStream extends OutputStream
+        implements WritableByteChannel
+{
+    private final SocketChannel ch;
+    private final byte[] b1 = new byte[1];
+    private Selector selector;
+
+    public ChannelOutputStream(SocketChannel ch)
+    {
+        this.ch = ch;
+    }
+
+    @Override
+    public void write(int b) throws IOException
+    {
+        b1[0] = (byte) b;
+        write(b1, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len)
+            throws IOException
+    {
+        write(ByteBuffer.wrap(b, off, len));
+    }
+
+    public synchronized int write(ByteBuffer bb) throws IOException
+    {
+        int n = bb.remaining();
+        while (bb.hasRemaining())
+            if (ch.write(bb) == 0)
+                await();
+        return n;
+    }
+
+    /**
+     * Transfers <code>len</code> bytes of the file region starting at
+     * <code>pos</code> to the socket, waiting until the socket becomes
+     * writable whenever its send buffer is full.
+     */
+    public synchronized void transferFrom(FileChannel fc, long pos, long len)
+            throws IOException
+    {
+        while (len > 0)
+        {
+            long n = fc.transferTo(pos, len, ch);
+            if (n == 0)
+            {
+                if (pos >= fc.size())
+                    throw new EOFException();
+                await();
+            }
+            pos += n;
+            len -= n;
+        }
+    }
+
+    public boolean isOpen()
+    {
+        return ch.isOpen();
+    }
+
+    private void await() throws IOException
+    {
+        if (selector == null)
+        {
+            selector = Selector.open();
+            ch.register(selector, SelectionKey.OP_WRITE);
+        }
+        try
+        {
+            if (selector.select() == 0 && Thread.interrupted())
+                throw new InterruptedIOException();
+            selector.selectedKeys().clear();
+        }
+        catch (ClosedSelectorException e)
+        {
+            throw new SocketException("Socket closed");
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if (selector != null)
+            selector.close();
+    }
+}
@@ -109,6 +109,12 @@ public class Device {
 
     private AssociationReaper reaper;
 
+    private TimingWheel timingWheel;
+
+    private BufferPool bufferPool;
+
+    private Executor executor;
+
     /**
      * Default constructor.
      */
@@ -137,10 +143,90 @@ public class Device {
      */
     synchronized final AssociationReaper getAssociationReaper() {
         if (reaper == null)
-            reaper = new AssociationReaper(getAssociationReaperPeriod());
+            reaper = new AssociationReaper(getTimingWheel(),
+                    getAssociationReaperPeriod());
         return reaper;
     }
 
+    /**
+     * Get the <code>TimingWheel</code> which schedules the idle checks, ARTIM
+     * timers and DIMSE response timeouts of associations made by this device.
+     * If there is no timing wheel, one will be created.
+     * <p>
+     * Synchronized for concurrent access.
+     * 
+     * @return TimingWheel
+     */
+    public synchronized final TimingWheel getTimingWheel() {
+        if (timingWheel == null)
+            timingWheel = new TimingWheel(getThreadNamePrefix() + "-Timer",
+                    100, 512);
+        return timingWheel;
+    }
+
+    /**
+     * Get the <code>BufferPool</code> from which associations made by this
+     * device borrow their PDU buffers. Its metrics report the occupancy of
+     * the pool and how often buffers had to be allocated. If there is no
+     * pool, one will be created.
+     * <p>
+     * Synchronized for concurrent access.
+     * 
+     * @return BufferPool
+     */
+    public synchronized final BufferPool getBufferPool() {
+        if (bufferPool == null)
+            bufferPool = new BufferPool();
+        return bufferPool;
+    }
+
+    /**
+     * Set the <code>BufferPool</code> from which associations made by this
+     * device borrow their PDU buffers.
+     * 
+     * @param bufferPool
+     *                BufferPool
+     */
+    public synchronized final void setBufferPool(BufferPool bufferPool) {
+        if (bufferPool == null)
+            throw new NullPointerException();
+        this.bufferPool = bufferPool;
+    }
+
+    /**
+     * Get the <code>Executor</code> to which associations made by this device
+     * hand off work triggered by expired timers of the {@link TimingWheel},
+     * like the release of idle associations. If there is no executor, a
+     * {@link VirtualThreadExecutor} will be created.
+     * <p>
+     * Synchronized for concurrent access.
+     * 
+     * @return Executor
+     */
+    public synchronized final Executor getExecutor() {
+        if (executor == null)
+            executor = new VirtualThreadExecutor(getThreadNamePrefix());
+        return executor;
+    }
+
+    /**
+     * Set the <code>Executor</code> to which associations made by this device
+     * hand off work triggered by expired timers.
+     * 
+     * @param executor
+     *                Executor
+     */
+    public synchronized final void setExecutor(Executor executor) {
+        if (executor == null)
+            throw new NullPointerException();
+        this.executor = executor;
+    }
+
+    private String getThreadNamePrefix() {
+        return deviceName != null && deviceName.length() > 0 ? deviceName
+                : "DEVICE";
+    }
+
     /**
      * Get the name of this device.
      * 
@@ -712,6 +798,24 @@ public class Device {
         }
     }
 
+    /**
+     * Bind to a socket and start listening for DICOM associations, running
+     * them by the {@link #getExecutor() Executor} of this device, which by
+     * default runs each association in a new virtual thread, if supported by
+     * the Java Runtime.
+     * 
+     * @return the <code>Executor</code> used for accepted associations, which
+     *         may be also passed to DICOM services performing operations
+     *         asynchronously.
+     * @throws IOException
+     * @see VirtualThreadExecutor
+     */
+    public Executor startListening() throws IOException {
+        Executor executor = getExecutor();
+        startListening(executor);
+        return executor;
+    }
+
     /**
      * Unbind from all active socket connections.
      */
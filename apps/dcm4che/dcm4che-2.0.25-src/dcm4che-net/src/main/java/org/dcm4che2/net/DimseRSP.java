@@ -50,7 +50,7 @@ import org.dcm4che2.data.DicomObject;
  * @version $Revision: 673 $ $Date: 2006-08-07 07:11:16 +0200 (Mon, 07 Aug 2006) $
  * @since Jan 22, 2006
  */
-public interface DimseRSP
+public interface DimseRSP extends CancelRQHandler
 {
     /**
      * Send the next response, returning false when complete.
@@ -76,13 +76,4 @@ public interface DimseRSP
      */
     DicomObject getDataset();
 
-    /**
-     * Cancel the operation, if this is a DIMSE action that can be cancelled
-     * (such as C-FIND).
-     * 
-     * @param a Association The active association object.
-     * @throws IOException If there was a problem in the network interaction.
-     */
-    void cancel(Association a) throws IOException;
-
 }
@@ -0,0 +1,317 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.net;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.dcm4che2.data.DicomObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <code>Future</code> of the final DIMSE RSP command of an asynchronous
+ * invoked DIMSE RQ. Registered {@link Listener}s are notified on receive of
+ * the final DIMSE RSP or on close of the association before.
+ * 
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ * @see PipelinedStoreSCU
+ */
+public class DimseRSPFuture extends DimseRSPHandler
+        implements Future<DicomObject>
+{
+    static Logger log = LoggerFactory.getLogger(DimseRSPFuture.class);
+
+    /**
+     * Callback notified on completion of a {@link DimseRSPFuture}.
+     */
+    public interface Listener
+    {
+        /**
+         * Invoked on completion of the future by the thread receiving the
+         * final DIMSE RSP or closing the association, or by the thread
+         * registering the listener, if the future was already completed.
+         * Must not block.
+         * 
+         * @param future the completed future.
+         */
+        void onComplete(DimseRSPFuture future);
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition completed = lock.newCondition();
+
+    private ArrayList<Listener> listeners;
+
+    private boolean done;
+
+    private Association as;
+
+    private DicomObject command;
+
+    private DicomObject dataset;
+
+    private IOException exception;
+
+    @Override
+    public void onDimseRSP(Association as, DicomObject cmd, DicomObject data)
+    {
+        if (CommandUtils.isPending(cmd))
+            return;
+        complete(as, cmd, data, null);
+    }
+
+    @Override
+    public void onClosed(Association as)
+    {
+        IOException e = as.getException();
+        if (e == null)
+            e = new IOException("Association to " + as.getRemoteAET()
+                    + " closed before receive of outstanding DIMSE RSP");
+        complete(as, null, null, e);
+    }
+
+    private void complete(Association as, DicomObject cmd, DicomObject data,
+            IOException e)
+    {
+        ArrayList<Listener> tmp;
+        lock.lock();
+        try {
+            if (done)
+                return;
+            this.as = as;
+            this.command = cmd;
+            this.dataset = data;
+            this.exception = e;
+            this.done = true;
+            tmp = listeners;
+            listeners = null;
+            completed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (tmp != null)
+            for (int i = 0, n = tmp.size(); i < n; i++)
+                notify(tmp.get(i));
+        done();
+    }
+
+    /**
+     * Invoked on completion after the registered listeners were notified.
+     * The default implementation does nothing.
+     */
+    protected void done()
+    {
+        // NO OP
+    }
+
+    private void notify(Listener listener)
+    {
+        try {
+            listener.onComplete(this);
+        } catch (RuntimeException e) {
+            log.warn("Listener " + listener + " threw exception", e);
+        }
+    }
+
+    /**
+     * Registers a listener, which is notified on completion. If the future is
+     * already completed, the listener is notified immediately by the calling
+     * thread.
+     * 
+     * @param listener the listener to notify.
+     */
+    public void addListener(Listener listener)
+    {
+        if (listener == null)
+            throw new NullPointerException("listener");
+        lock.lock();
+        try {
+            if (!done) {
+                if (listeners == null)
+                    listeners = new ArrayList<Listener>(1);
+                listeners.add(listener);
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        notify(listener);
+    }
+
+    /**
+     * Returns <code>false</code>, because the DIMSE RQ was already sent.
+     * Invoke {@link #cancel(Association)} to send a C-CANCEL-RQ.
+     */
+    public boolean cancel(boolean mayInterruptIfRunning)
+    {
+        return false;
+    }
+
+    public boolean isCancelled()
+    {
+        return false;
+    }
+
+    public boolean isDone()
+    {
+        lock.lock();
+        try {
+            return done;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the association, which received the final DIMSE RSP or which
+     * was closed before.
+     * 
+     * @return the association or <code>null</code>, if not yet completed.
+     */
+    public Association getAssociation()
+    {
+        lock.lock();
+        try {
+            return as;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the command of the final DIMSE RSP.
+     * 
+     * @return command or <code>null</code>, if the final DIMSE RSP was not
+     *         received.
+     */
+    public DicomObject getCommand()
+    {
+        lock.lock();
+        try {
+            return command;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the data set of the final DIMSE RSP.
+     * 
+     * @return data set or <code>null</code>, if the final DIMSE RSP did not
+     *         contain a data set or was not yet received.
+     */
+    public DicomObject getDataset()
+    {
+        lock.lock();
+        try {
+            return dataset;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the exception, which caused the close of the association before
+     * receive of the final DIMSE RSP.
+     * 
+     * @return the exception or <code>null</code>.
+     */
+    public IOException getException()
+    {
+        lock.lock();
+        try {
+            return exception;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits for and returns the command of the final DIMSE RSP.
+     * 
+     * @throws ExecutionException
+     *                 if the association was closed before receive of the
+     *                 final DIMSE RSP.
+     */
+    public DicomObject get() throws InterruptedException, ExecutionException
+    {
+        lock.lock();
+        try {
+            while (!done)
+                completed.await();
+            return result();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public DicomObject get(long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException
+    {
+        long nanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (!done) {
+                if (nanos <= 0)
+                    throw new TimeoutException();
+                nanos = completed.awaitNanos(nanos);
+            }
+            return result();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private DicomObject result() throws ExecutionException
+    {
+        if (exception != null)
+            throw new ExecutionException(exception);
+        return command;
+    }
+}
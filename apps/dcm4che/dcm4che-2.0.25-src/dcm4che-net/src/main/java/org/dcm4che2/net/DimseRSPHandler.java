@@ -49,7 +49,7 @@ import org.dcm4che2.data.DicomObject;
  * 
  */
 public class DimseRSPHandler {
-    private long timeout = Long.MAX_VALUE;
+    private TimingWheel.Timeout timer;
 
     private int msgId;
 
@@ -79,12 +79,17 @@ public class DimseRSPHandler {
         // NO OP
     }
 
-    final long getTimeout() {
-        return timeout;
+    final synchronized void setTimer(TimingWheel.Timeout timer) {
+        if (this.timer != null)
+            this.timer.cancel();
+        this.timer = timer;
     }
 
-    final void setTimeout(long timeout) {
-        this.timeout = timeout;
+    final synchronized void stopTimer() {
+        if (timer != null) {
+            timer.cancel();
+            timer = null;
+        }
     }
 
 }
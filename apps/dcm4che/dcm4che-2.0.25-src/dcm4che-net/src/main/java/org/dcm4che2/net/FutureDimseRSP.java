@@ -39,6 +39,8 @@
 package org.dcm4che2.net;
 
 import java.io.IOException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.dcm4che2.data.DicomObject;
 
@@ -64,38 +66,50 @@ class FutureDimseRSP extends DimseRSPHandler implements DimseRSP {
     private boolean finished;
     private int autoCancel;
     private IOException ex;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition received = lock.newCondition();
 
     @Override
-    public synchronized void onDimseRSP(Association as, DicomObject cmd,
+    public void onDimseRSP(Association as, DicomObject cmd,
             DicomObject data) {
-        super.onDimseRSP(as, cmd, data);
-        Entry last = entry;
-        while (last.next != null)
-            last = last.next;
-
-        last.next = new Entry(cmd, data);
-        if (CommandUtils.isPending(cmd)) {
-            if (autoCancel > 0 && --autoCancel == 0)
-                try {
-                    super.cancel(as);
-                } catch (IOException e) {
-                    ex = e;
-                }
-        } else {
-            finished = true;
+        lock.lock();
+        try {
+            super.onDimseRSP(as, cmd, data);
+            Entry last = entry;
+            while (last.next != null)
+                last = last.next;
+
+            last.next = new Entry(cmd, data);
+            if (CommandUtils.isPending(cmd)) {
+                if (autoCancel > 0 && --autoCancel == 0)
+                    try {
+                        super.cancel(as);
+                    } catch (IOException e) {
+                        ex = e;
+                    }
+            } else {
+                finished = true;
+            }
+            received.signalAll();
+        } finally {
+            lock.unlock();
         }
-        notifyAll();
     }
 
     @Override
-    public synchronized void onClosed(Association as) {
-        if (!finished) {
-            ex = as.getException();
-            if (ex == null) {
-                ex = new IOException("Association to " + as.getRemoteAET()
-                        + " closed before receive of outstanding DIMSE RSP");
+    public void onClosed(Association as) {
+        lock.lock();
+        try {
+            if (!finished) {
+                ex = as.getException();
+                if (ex == null) {
+                    ex = new IOException("Association to " + as.getRemoteAET()
+                            + " closed before receive of outstanding DIMSE RSP");
+                }
+                received.signalAll();
             }
-            notifyAll();
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -119,19 +133,24 @@ class FutureDimseRSP extends DimseRSPHandler implements DimseRSP {
         return entry.dataset;
     }
 
-    public synchronized boolean next() throws IOException, InterruptedException {
-        if (entry.next == null) {
-            if (finished)
-                return false;
+    public boolean next() throws IOException, InterruptedException {
+        lock.lock();
+        try {
+            if (entry.next == null) {
+                if (finished)
+                    return false;
 
-            while (entry.next == null && ex == null)
-                wait();
+                while (entry.next == null && ex == null)
+                    received.await();
 
-            if (ex != null)
-                throw ex;
+                if (ex != null)
+                    throw ex;
+            }
+            entry = entry.next;
+            return true;
+        } finally {
+            lock.unlock();
         }
-        entry = entry.next;
-        return true;
     }
 
 }
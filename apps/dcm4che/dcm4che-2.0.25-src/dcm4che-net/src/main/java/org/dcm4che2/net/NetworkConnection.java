@@ -47,6 +47,8 @@ import java.net.Socket;
 import java.net.SocketAddress;
 import java.net.SocketException;
 import java.net.UnknownHostException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.Executor;
@@ -123,6 +125,8 @@ public class NetworkConnection {
 
     private boolean tcpNoDelay = true;
 
+    private boolean nonBlocking = false;
+
     private boolean tlsNeedClientAuth = true;
 
     private String[] tlsProtocol = TLS_AND_SSLv2;
@@ -131,6 +135,8 @@ public class NetworkConnection {
 
     protected ServerSocket server;
 
+    private AssociationSelector selector;
+
     // Limiting factors
     private List<String> excludeConnectionsFrom;
 
@@ -494,6 +500,37 @@ public class NetworkConnection {
         this.tcpNoDelay = tcpNoDelay;
     }
 
+    /**
+     * Determine if associations are served by non-blocking I/O.
+     * 
+     * @return boolean True if non-blocking I/O is used.
+     * @see #setNonBlocking(boolean)
+     */
+    public boolean isNonBlocking() {
+        return nonBlocking;
+    }
+
+    /**
+     * Set whether or not accepted associations should be served by
+     * non-blocking I/O. If enabled, {@link #bind} accepts connections on a
+     * <code>ServerSocketChannel</code> and monitors idle associations by one
+     * <code>Selector</code>, so associations only occupy a thread of the
+     * <code>Executor</code> while PDUs are received and processed. Passing a
+     * bounded thread pool to {@link #bind} then limits the number of threads
+     * independently of the number of open associations. Also {@link #connect}
+     * then opens a <code>SocketChannel</code>, which is switched to
+     * non-blocking mode after the connection is established, so requested
+     * associations may transfer file content directly to the socket by
+     * {@link PDVOutputStream#copyFrom(java.nio.channels.FileChannel, long,
+     * long)}. Not effective for TLS connections.
+     * 
+     * @param nonBlocking
+     *                boolean True if non-blocking I/O should be used.
+     */
+    public void setNonBlocking(boolean nonBlocking) {
+        this.nonBlocking = nonBlocking;
+    }
+
     public boolean isTlsNeedClientAuth() {
         return tlsNeedClientAuth;
     }
@@ -564,13 +601,18 @@ public class NetworkConnection {
         if (!peerConfig.isListening())
             throw new IllegalArgumentException("Only initiates associations - "
                     + peerConfig);
-        Socket s = isTLS() ? createTLSSocket() : new Socket();
+        SocketChannel ch = nonBlocking && !isTLS() ? SocketChannel.open()
+                : null;
+        Socket s = isTLS() ? createTLSSocket()
+                : ch != null ? ch.socket() : new Socket();
         InetSocketAddress bindPoint = getBindPoint();
         InetSocketAddress endpoint = peerConfig.getEndPoint();
         log.debug("Initiate connection from {} to {}", bindPoint, endpoint);
         s.bind(bindPoint);
         setSocketOptions(s);
         s.connect(endpoint, connectTimeout);
+        if (ch != null)
+            ch.configureBlocking(false);
         return s;
     }
 
@@ -626,6 +668,14 @@ public class NetworkConnection {
                     + this);
         if (server != null)
             throw new IllegalStateException("Already listening - " + server);
+        if (nonBlocking && !isTLS()) {
+            ServerSocketChannel ssc = ServerSocketChannel.open();
+            server = ssc.socket();
+            server.bind(getEndPoint(), backlog);
+            selector = new AssociationSelector(this, ssc, executor);
+            executor.execute(selector);
+            return;
+        }
         server = isTLS() ? createTLSServerSocket() : new ServerSocket();
         server.bind(getEndPoint(), backlog);
         executor.execute(new Runnable() {
@@ -717,6 +767,10 @@ public class NetworkConnection {
     public synchronized void unbind() {
         if (server == null)
             return;
+        if (selector != null) {
+            selector.close();
+            selector = null;
+        }
         try {
             server.close();
         }
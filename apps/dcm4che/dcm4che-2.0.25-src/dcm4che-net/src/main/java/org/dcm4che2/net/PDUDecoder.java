@@ -43,6 +43,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
 
 import org.dcm4che2.data.BasicDicomObject;
 import org.dcm4che2.data.DicomObject;
@@ -75,25 +79,109 @@ class PDUDecoder extends PDVInputStream
     static Logger log = LoggerFactory.getLogger(PDUDecoder.class);
     private static final int DEF_PDU_LEN = 0x4000; // 16KB
     private static final int MAX_PDU_LEN = 0x1000000; // 16MB
+    private static final int DIRECT_BUF_LEN = 0x10000; // 64KB
 
     private final Association as;
     private final InputStream in;
-    private final Thread th;
-    private byte[] buf = new byte[6 + DEF_PDU_LEN];
+    private final ReadableByteChannel ch;
+    private final ReadableByteChannel rch;
+    private final BufferPool pool;
+    private Thread th;
+    private ByteBuffer bb;
+    private byte[] buf;
     private int pos;
+    private int limit;
     private int pdutype;
     private int pdulen;
+    private int pduend;
     private int pcid = -1;
     private int pdvmch;
     private int pdvend;
+    private int prefetched;
 
     public PDUDecoder(Association as, InputStream in)
+    {
+        this(as, in, null);
+    }
+
+    /**
+     * @param ch channel of the socket, or <code>null</code>. PDV payload is
+     *           read directly into a direct buffer by
+     *           {@link #transferTo(WritableByteChannel)} from
+     *           <code>in</code>, if it is also a blocking
+     *           <code>ReadableByteChannel</code>, or else from
+     *           <code>ch</code>, if it is in blocking mode.
+     */
+    public PDUDecoder(Association as, InputStream in, ReadableByteChannel ch)
     {
         this.as = as;
         this.in = in;
+        this.ch = ch;
+        this.rch = in instanceof ReadableByteChannel
+                ? (ReadableByteChannel) in
+                : ch != null && !(ch instanceof SelectableChannel
+                        && !((SelectableChannel) ch).isBlocking()) ? ch
+                        : null;
+        this.pool = as.getConnector().getDevice().getBufferPool();
         this.th = Thread.currentThread();
     }
 
+    private void borrowBuffer(int capacity)
+    {
+        bb = pool.borrow(capacity, false);
+        buf = bb.array();
+    }
+
+    /**
+     * Returns the PDU buffer to the pool of the device. Invoked by the
+     * decoding thread, before the association is suspended or after it was
+     * closed. Bytes not consumed from the buffer are discarded.
+     */
+    void releaseBuffer()
+    {
+        pool.release(bb);
+        bb = null;
+        buf = null;
+        pos = limit = prefetched = 0;
+    }
+
+    /**
+     * Binds this decoder to the current thread, after the association was
+     * resumed by a different thread of the executor.
+     */
+    void resume()
+    {
+        th = Thread.currentThread();
+    }
+
+    /**
+     * Reads available bytes of the next PDU from the non-blocking socket
+     * channel into the PDU buffer, without blocking.
+     * 
+     * @return <code>true</code>, if the PDU header and - if it fits into the
+     *         PDU buffer - the whole PDU was read, or the end of stream was
+     *         reached.
+     */
+    boolean prefetch() throws IOException
+    {
+        if (buf == null)
+            borrowBuffer(DEF_PDU_LEN);
+        if (prefetched < 10 && !prefetch(10))
+            return false;
+        int len = 6 + ((buf[2] & 0xff) << 24 | (buf[3] & 0xff) << 16
+                | (buf[4] & 0xff) << 8 | (buf[5] & 0xff));
+        return len <= 10 || len > buf.length || prefetch(len);
+    }
+
+    private boolean prefetch(int end) throws IOException
+    {
+        int n = ch.read(ByteBuffer.wrap(buf, prefetched, end - prefetched));
+        if (n < 0)
+            return true;
+        prefetched += n;
+        return prefetched == end;
+    }
+
     private void readFully(int off, int len) throws IOException {
         int n = 0;
         while (n < len)
@@ -105,14 +193,53 @@ class PDUDecoder extends PDVInputStream
         }
     }
 
+    /**
+     * Ensures that at least <code>n</code> bytes following <code>pos</code>
+     * are loaded into <code>buf</code>. P-DATA-TF PDUs are only loaded on
+     * demand, so their PDV payload can be transfered directly from the
+     * socket, without need to enlarge <code>buf</code> to the PDU length.
+     */
+    private void fill(int n) throws IOException
+    {
+        if (limit - pos >= n)
+            return;
+        if (pos + n > buf.length)
+        {
+            System.arraycopy(buf, pos, buf, 0, limit - pos);
+            limit -= pos;
+            pduend -= pos;
+            pdvend -= pos;
+            pos = 0;
+        }
+        int end = Math.min(buf.length, pduend);
+        while (limit - pos < n)
+        {
+            int count = in.read(buf, limit, end - limit);
+            if (count < 0)
+                throw new EOFException();
+            limit += count;
+        }
+    }
+
+    /**
+     * Adjusts positions after <code>len</code> bytes following the loaded
+     * bytes were consumed from the socket bypassing <code>buf</code>.
+     */
+    private void consumed(int len)
+    {
+        pduend -= limit + len;
+        pdvend -= limit + len;
+        pos = limit = 0;
+    }
+
     private int remaining()
     {
-        return pdulen + 6 - pos;
+        return pduend - pos;
     }
 
     private boolean hasRemaining()
     {
-        return pos < pdulen + 6;
+        return pos < pduend;
     }
         
     int get()
@@ -152,11 +279,18 @@ class PDUDecoder extends PDVInputStream
         log.debug("{} waiting for PDU", as);
         if (th != Thread.currentThread())
             throw new IllegalStateException("Entered by wrong thread");
-        readFully(0, 10);
+        if (buf == null)
+            borrowBuffer(DEF_PDU_LEN);
+        int n = prefetched;
+        prefetched = 0;
+        if (n < 10)
+            readFully(n, 10 - n);
         pos = 0;
+        limit = pduend = Math.max(n, 10);
         pdutype = get();
         get();
         pdulen = getInt();
+        pduend = 6 + pdulen;
         if (pdutype < PDUType.A_ASSOCIATE_RQ || pdutype > PDUType.A_ABORT)
         {
             log.warn(as.toString() + " >> unrecognized PDU[type=" + pdutype + ", len="
@@ -211,13 +345,18 @@ class PDUDecoder extends PDVInputStream
                 throw new AAbort(AAbort.UL_SERIVE_PROVIDER,
                         AAbort.INVALID_PDU_PARAMETER_VALUE);
             }
-            if (6 + pdulen > buf.length)
+            if (pdutype != PDUType.P_DATA_TF)
             {
-                byte[] tmp = new byte[6 + pdulen];
-                System.arraycopy(buf, 0, tmp, 0, 10);
-                buf = tmp;
+                if (6 + pdulen > buf.length)
+                {
+                    ByteBuffer tmp = bb;
+                    borrowBuffer(6 + pdulen);
+                    System.arraycopy(tmp.array(), 0, buf, 0, limit);
+                    pool.release(tmp);
+                }
+                readFully(limit, pduend - limit);
+                limit = pduend;
             }
-            readFully(10, pdulen - 4);
             switch (pdutype)
             {
                 case PDUType.A_ASSOCIATE_RQ:
@@ -595,6 +734,7 @@ class PDUDecoder extends PDVInputStream
                     + remaining() + " bytes of P-DATA_TF[len=" + pdulen + "]");
             throw new AAbort();
         }
+        fill(6);
         int pdvlen = getInt();
         this.pdvend = pos + pdvlen;
         if (pdvlen < 2 || pdvlen > remaining())
@@ -647,6 +787,7 @@ class PDUDecoder extends PDVInputStream
         if (isEOF())
             return -1;
 
+        fill(1);
         return get();
     }
 
@@ -657,14 +798,24 @@ class PDUDecoder extends PDVInputStream
         if (isEOF())
             return -1;
 
-        int read = Math.min(len, pdvend - pos);
+        int read = Math.min(len, loaded());
         get(b, off, read);
         return read;
     }
 
+    /**
+     * Returns the number of loaded bytes of the current PDV, loading further
+     * bytes from the socket, if no one is loaded.
+     */
+    private int loaded() throws IOException {
+        if (pos == limit)
+            fill(1);
+        return Math.min(pdvend, limit) - pos;
+    }
+
     @Override
     public final int available() {
-        return pdvend - pos;
+        return Math.min(pdvend, limit) - pos;
     }
 
     @Override
@@ -676,7 +827,7 @@ class PDUDecoder extends PDVInputStream
             return 0;
 
         int skipped = (int) Math.min(n, pdvend - pos);
-        skip(skipped);
+        skipPDV(skipped);
         return skipped;
     }
     
@@ -693,12 +844,29 @@ class PDUDecoder extends PDVInputStream
             throw new IllegalStateException("Entered by wrong thread");
         long n = 0;
         while (!isEOF()) {
-            n += pdvend - pos;
-            pos = pdvend;
+            int len = pdvend - pos;
+            skipPDV(len);
+            n += len;
         }
         return n;
     }
 
+    private void skipPDV(int len) throws IOException {
+        int loaded = limit - pos;
+        if (len <= loaded) {
+            pos += len;
+            return;
+        }
+        int remaining = len - loaded;
+        while (remaining > 0) {
+            int count = in.read(buf, 0, Math.min(remaining, buf.length));
+            if (count < 0)
+                throw new EOFException();
+            remaining -= count;
+        }
+        consumed(len - loaded);
+    }
+
     @Override
     public void copyTo(OutputStream out, int length) throws IOException {
         if (th != Thread.currentThread())
@@ -707,7 +875,7 @@ class PDUDecoder extends PDVInputStream
         while (remaining > 0) {
             if (isEOF())
                 throw new EOFException("remaining: " + remaining);
-            int read = Math.min(remaining, pdvend - pos);
+            int read = Math.min(remaining, loaded());
             out.write(buf, pos, read);
             remaining -= read;
             pos += read;
@@ -719,8 +887,80 @@ class PDUDecoder extends PDVInputStream
         if (th != Thread.currentThread())
             throw new IllegalStateException("Entered by wrong thread");
         while (!isEOF()) {
-            out.write(buf, pos, pdvend - pos);
-            pos = pdvend;
+            int read = loaded();
+            out.write(buf, pos, read);
+            pos += read;
         }
     }
+
+    @Override
+    public long transferTo(WritableByteChannel out) throws IOException {
+        if (th != Thread.currentThread())
+            throw new IllegalStateException("Entered by wrong thread");
+        long n = 0;
+        while (!isEOF()) {
+            int len = pdvend - pos;
+            int loaded = Math.min(len, limit - pos);
+            if (loaded > 0) {
+                writeFully(out, ByteBuffer.wrap(buf, pos, loaded));
+                pos += loaded;
+            }
+            if (len > loaded) {
+                if (rch != null)
+                    transferFromChannel(out, len - loaded);
+                else
+                    transferFromStream(out, len - loaded);
+                consumed(len - loaded);
+            }
+            n += len;
+        }
+        return n;
+    }
+
+    /**
+     * Returns <code>true</code>, if {@link #transferTo(WritableByteChannel)}
+     * reads PDV payload directly from the socket into a direct buffer,
+     * without copying it through the PDU buffer.
+     */
+    boolean isDirectReadable() {
+        return rch != null;
+    }
+
+    private void transferFromChannel(WritableByteChannel out, int len)
+            throws IOException {
+        ByteBuffer dbuf = pool.borrow(DIRECT_BUF_LEN, true);
+        try {
+            int remaining = len;
+            while (remaining > 0) {
+                dbuf.clear();
+                dbuf.limit(Math.min(remaining, dbuf.capacity()));
+                while (dbuf.hasRemaining())
+                    if (rch.read(dbuf) < 0)
+                        throw new EOFException();
+                dbuf.flip();
+                writeFully(out, dbuf);
+                remaining -= dbuf.limit();
+            }
+        } finally {
+            pool.release(dbuf);
+        }
+    }
+
+    private void transferFromStream(WritableByteChannel out, int len)
+            throws IOException {
+        int remaining = len;
+        while (remaining > 0) {
+            int count = in.read(buf, 0, Math.min(remaining, buf.length));
+            if (count < 0)
+                throw new EOFException();
+            writeFully(out, ByteBuffer.wrap(buf, 0, count));
+            remaining -= count;
+        }
+    }
+
+    private static void writeFully(WritableByteChannel out, ByteBuffer bb)
+            throws IOException {
+        while (bb.hasRemaining())
+            out.write(bb);
+    }
 }
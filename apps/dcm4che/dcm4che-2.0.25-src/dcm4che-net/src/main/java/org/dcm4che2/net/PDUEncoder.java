@@ -39,11 +39,18 @@
 package org.dcm4che2.net;
 
 import java.io.EOFException;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.dcm4che2.data.DicomObject;
 import org.dcm4che2.io.DicomOutputStream;
@@ -70,23 +77,42 @@ import org.slf4j.LoggerFactory;
 class PDUEncoder extends PDVOutputStream
 {
     static Logger log = LoggerFactory.getLogger(PDUEncoder.class);
-    private static final int DEF_PDU_LEN = 0x4000; // 16KB
     private final Association as;
     private final OutputStream out;
+    private final WritableByteChannel channel;
+    private final BufferPool pool;
     private byte[] buf10 = { 0, 0, 0, 0, 0, 4, 0, 0, 0, 0 };
-    private byte[] buf = new byte[DEF_PDU_LEN + 6];
+    private ByteBuffer buf;
+    private InputStream srcStream;
+    private ReadableByteChannel srcChannel;
+    private FileChannel fileSrc;
+    private long filePos;
+    private int fileLen;
     private int maxpdulen;
     private int pos;
     private int pdvpcid;
     private int pdvcmd;
     private int pdvpos;
     private Thread th;
-    private Object dimseLock = new Object();
+    private final ReentrantLock pduLock = new ReentrantLock();
+    private final ReentrantLock dimseLock = new ReentrantLock();
 
     public PDUEncoder(Association as, OutputStream out)
+    {
+        this(as, out, null);
+    }
+
+    /**
+     * @param channel channel of the socket, to which PDUs encoded in direct
+     *           buffers are written, or <code>null</code>
+     */
+    public PDUEncoder(Association as, OutputStream out,
+            WritableByteChannel channel)
     {
         this.as = as;
         this.out = out;
+        this.channel = channel;
+        this.pool = as.getConnector().getDevice().getBufferPool();
     }
     
     private void write(int pdutype, int result, int source, int reason)
@@ -100,103 +126,213 @@ class PDUEncoder extends PDVOutputStream
         out.flush();
     }
     
-    public synchronized void write(AAssociateRJ rj)
+    public void write(AAssociateRJ rj)
     throws IOException
     {
-        log.info("{} << {}", as.toString(), rj.getMessage());
-        write(PDUType.A_ASSOCIATE_RJ, rj.getResult(), rj.getSource(), rj.getReason());        
+        pduLock.lock();
+        try
+        {
+            log.info("{} << {}", as.toString(), rj.getMessage());
+            write(PDUType.A_ASSOCIATE_RJ, rj.getResult(), rj.getSource(), rj.getReason());        
+        }
+        finally
+        {
+            pduLock.unlock();
+        }
     }
 
-    public synchronized void writeAReleaseRQ()
+    public void writeAReleaseRQ()
     throws IOException
     {
-        log.info("{} << A-RELEASE-RQ", as.toString());
-        write(PDUType.A_RELEASE_RQ, 0, 0, 0);       
+        pduLock.lock();
+        try
+        {
+            log.info("{} << A-RELEASE-RQ", as.toString());
+            write(PDUType.A_RELEASE_RQ, 0, 0, 0);       
+        }
+        finally
+        {
+            pduLock.unlock();
+        }
     }
 
-    public synchronized void writeAReleaseRP()
+    public void writeAReleaseRP()
     throws IOException
     {
-        log.info("{} << A-RELEASE-RP", as.toString());
-        write(PDUType.A_RELEASE_RP, 0, 0, 0);        
+        pduLock.lock();
+        try
+        {
+            log.info("{} << A-RELEASE-RP", as.toString());
+            write(PDUType.A_RELEASE_RP, 0, 0, 0);        
+        }
+        finally
+        {
+            pduLock.unlock();
+        }
     }
 
-    public synchronized void write(AAbort aa)
+    public void write(AAbort aa)
     throws IOException
     {
-       log.info("{} << {}", as, aa.getMessage());
-       write(PDUType.A_ABORT, 0, aa.getSource(), aa.getReason());        
+        pduLock.lock();
+        try
+        {
+           log.info("{} << {}", as, aa.getMessage());
+           write(PDUType.A_ABORT, 0, aa.getSource(), aa.getReason());        
+        }
+        finally
+        {
+            pduLock.unlock();
+        }
     }
 
-    public synchronized void writePDataTF()
+    public void writePDataTF()
     throws IOException
     {
-        int pdulen = pos - 6;
-        pos = 0;
-        put(PDUType.P_DATA_TF);
-        put(0);
-        putInt(pdulen);
-        if (log.isDebugEnabled())
-            log.debug(as.toString() + " << P-DATA-TF[len=" + pdulen + "]");
-        writePDU(pdulen);
+        pduLock.lock();
+        try
+        {
+            int pdulen = pos - 6;
+            pos = 0;
+            put(PDUType.P_DATA_TF);
+            put(0);
+            putInt(pdulen);
+            if (log.isDebugEnabled())
+                log.debug(as.toString() + " << P-DATA-TF[len=" + pdulen + "]");
+            writePDU(pdulen);
+        }
+        finally
+        {
+            pduLock.unlock();
+        }
     }
 
-    public synchronized void write(AAssociateRQ rq)
+    public void write(AAssociateRQ rq)
     throws IOException
     {
-        log.info("{}: A-ASSOCIATE-RQ {} << {}", new Object[] { as, rq.getCalledAET(),
-                rq.getCallingAET() });
-        log.debug("{}", rq);
-        write(rq, PDUType.A_ASSOCIATE_RQ, ItemType.RQ_PRES_CONTEXT);        
+        pduLock.lock();
+        try
+        {
+            log.info("{}: A-ASSOCIATE-RQ {} << {}", new Object[] { as, rq.getCalledAET(),
+                    rq.getCallingAET() });
+            log.debug("{}", rq);
+            write(rq, PDUType.A_ASSOCIATE_RQ, ItemType.RQ_PRES_CONTEXT);        
+        }
+        finally
+        {
+            pduLock.unlock();
+        }
     }
 
-    public synchronized void write(AAssociateAC ac)
+    public void write(AAssociateAC ac)
     throws IOException
     {
-        log.info("{}: A-ASSOCIATE-AC {} << {}", new Object[] { as, ac.getCalledAET(),
-                ac.getCallingAET() });
-        log.debug("{}", ac);
-        write(ac, PDUType.A_ASSOCIATE_AC, ItemType.AC_PRES_CONTEXT);        
+        pduLock.lock();
+        try
+        {
+            log.info("{}: A-ASSOCIATE-AC {} << {}", new Object[] { as, ac.getCalledAET(),
+                    ac.getCallingAET() });
+            log.debug("{}", ac);
+            write(ac, PDUType.A_ASSOCIATE_AC, ItemType.AC_PRES_CONTEXT);        
+        }
+        finally
+        {
+            pduLock.unlock();
+        }
     }
 
     private void write(AAssociateRQAC rqac, int pdutype, int pcItemType)
     throws IOException
     {
         int pdulen = rqac.length();
-        if (buf.length < 6 + pdulen)
-            buf = new byte[6 + pdulen];
-        pos = 0;
-        put(pdutype);
-        put(0);
-        putInt(pdulen);
-        putShort(rqac.getProtocolVersion());
-        put(0);
-        put(0);
-        encodeAET(rqac.getCalledAET());
-        encodeAET(rqac.getCallingAET());
-        put(rqac.getReservedBytes(), 0, 32);
-        encodeStringItem(ItemType.APP_CONTEXT, rqac.getApplicationContext());
-        encodePCs(pcItemType, rqac.getPresentationContexts());
-        encodeUserInfo(rqac);
-        writePDU(pdulen);
+        buf = pool.borrow(6 + pdulen, false);
+        try
+        {
+            pos = 0;
+            put(pdutype);
+            put(0);
+            putInt(pdulen);
+            putShort(rqac.getProtocolVersion());
+            put(0);
+            put(0);
+            encodeAET(rqac.getCalledAET());
+            encodeAET(rqac.getCallingAET());
+            put(rqac.getReservedBytes(), 0, 32);
+            encodeStringItem(ItemType.APP_CONTEXT,
+                    rqac.getApplicationContext());
+            encodePCs(pcItemType, rqac.getPresentationContexts());
+            encodeUserInfo(rqac);
+            writePDU(pdulen);
+        }
+        finally
+        {
+            releaseBuffer();
+        }
+    }
+
+    private void releaseBuffer()
+    {
+        pool.release(buf);
+        buf = null;
+        srcStream = null;
+        srcChannel = null;
     }
 
     private void writePDU(int pdulen) throws IOException
     {
-        out.write(buf, 0, 6 + pdulen);
+        // the tail of the PDU may be a file region, which is not buffered
+        int len = 6 + pdulen - fileLen;
+        if (buf.hasArray())
+        {
+            out.write(buf.array(), buf.arrayOffset(), len);
+        }
+        else
+        {
+            buf.limit(len);
+            buf.position(0);
+            while (buf.hasRemaining())
+                channel.write(buf);
+            buf.clear();
+        }
+        if (fileLen > 0)
+        {
+            out.flush();
+            transferFile();
+        }
         out.flush();
         pdvpos = 6;
         pos = 12;
     }
 
+    private void transferFile() throws IOException
+    {
+        if (channel instanceof ChannelOutputStream)
+        {
+            ((ChannelOutputStream) channel).transferFrom(fileSrc, filePos,
+                    fileLen);
+            return;
+        }
+        long off = filePos;
+        long remaining = fileLen;
+        while (remaining > 0)
+        {
+            long n = fileSrc.transferTo(off, remaining, channel);
+            if (n == 0 && off >= fileSrc.size())
+                throw new EOFException();
+            off += n;
+            remaining -= n;
+        }
+    }
+
     private void put(int ch)
     {
-        buf[pos++] = (byte) ch;
+        buf.put(pos++, (byte) ch);
     }
 
     private void put(byte[] b, int off, int len)
     {
-        System.arraycopy(b, off, buf, pos, len);
+        buf.position(pos);
+        buf.put(b, off, len);
         pos += len;
     }
 
@@ -208,16 +344,14 @@ class PDUEncoder extends PDVOutputStream
     
     private void putShort(int v)
     {
-        buf[pos++] = (byte) (v >> 8);
-        buf[pos++] = (byte) v;
+        buf.putShort(pos, (short) v);
+        pos += 2;
     }    
     
     private void putInt(int v)
     {
-        buf[pos++] = (byte) (v >> 24);
-        buf[pos++] = (byte) (v >> 16);
-        buf[pos++] = (byte) (v >> 8);
-        buf[pos++] = (byte) v;
+        buf.putInt(pos, v);
+        pos += 4;
     }    
     
     private void putASCIIString(String s)
@@ -225,8 +359,7 @@ class PDUEncoder extends PDVOutputStream
     	try {
             byte[] bytes;
             bytes = s.getBytes("US-ASCII");
-            System.arraycopy(bytes, 0, buf, pos, bytes.length);
-            pos += bytes.length;
+            put(bytes, 0, bytes.length);
         } catch (UnsupportedEncodingException e) {
             throw new RuntimeException(
                     "unreachable; US-ASCII is always available", e);
@@ -382,36 +515,53 @@ class PDUEncoder extends PDVOutputStream
             if (dataWriter instanceof DataWriterAdapter)
                 log.debug("Dataset:\n" + ((DataWriterAdapter) dataWriter).getDataset());
         }
-        synchronized (dimseLock)
+        dimseLock.lock();
+        try
         {
             this.th = Thread.currentThread();
             maxpdulen = as.getMaxPDULengthSend();
-            if (buf.length < maxpdulen + 6)
-                buf = new byte[maxpdulen + 6];
-
-            pdvpcid = pcid;
-            pdvcmd = PDVType.COMMAND;
-            DicomOutputStream cmdout = new DicomOutputStream(this);
-            cmdout.writeCommand(cmd);
-            cmdout.close();
-            if (dataWriter != null)
+            // P-DATA-TF PDUs may be shorter than the negotiated maximum, so
+            // fit them into the size class below instead of one twice as big
+            buf = pool.borrow(Math.max(BufferPool.MIN_BUFFER_SIZE,
+                    Integer.highestOneBit(maxpdulen + 6)),
+                    channel != null && pool.isDirect());
+            maxpdulen = Math.min(maxpdulen, buf.capacity() - 6);
+            pdvpos = 6;
+            pos = 12;
+            try
             {
-                if (!as.isPackPDV())
+                pdvpcid = pcid;
+                pdvcmd = PDVType.COMMAND;
+                DicomOutputStream cmdout = new DicomOutputStream(this);
+                cmdout.writeCommand(cmd);
+                cmdout.close();
+                if (dataWriter != null)
                 {
-                    as.sendPDataTF();
+                    if (!as.isPackPDV())
+                    {
+                        as.sendPDataTF();
+                    }
+                    else
+                    {
+                        pdvpos = pos;
+                        pos += 6;
+                    }
+                    pdvcmd = PDVType.DATA;
+                    dataWriter.writeTo(this, tsuid);
+                    close();
                 }
-                else
-                {
-                    pdvpos = pos;
-                    pos += 6;
-                }
-                pdvcmd = PDVType.DATA;
-                dataWriter.writeTo(this, tsuid);
-                close();
+                as.sendPDataTF();
+            }
+            finally
+            {
+                releaseBuffer();
             }
-            as.sendPDataTF();
             this.th = null;
         }
+        finally
+        {
+            dimseLock.unlock();
+        }
     }
 
     private void encodePDVHeader(int last)
@@ -473,7 +623,7 @@ class PDUEncoder extends PDVOutputStream
         int remaining = len;
         while (remaining > 0) {
             flushPDataTF();
-            int copy = in.read(buf, pos, Math.min(remaining, free()));
+            int copy = read(in, Math.min(remaining, free()));
             if (copy == -1)
                 throw new EOFException();
             pos += copy;
@@ -487,10 +637,91 @@ class PDUEncoder extends PDVOutputStream
             throw new IllegalStateException("Entered by wrong thread");
         for (;;) {
             flushPDataTF();
-            int copy = in.read(buf, pos, free());
+            int copy = read(in, free());
             if (copy == -1)
                 return;
             pos += copy;
         }
     }
+
+    /**
+     * Copies the file region by one P-DATA-TF PDU per negotiated maximum PDU
+     * length. If the socket provides a channel, each PDU is written as the
+     * buffered PDU and PDV header, followed by the file slice transferred by
+     * {@link FileChannel#transferTo}; otherwise the file content is read
+     * into the PDU buffer. The last slice is always buffered, so the final
+     * PDV, completed by {@link #close}, never gets empty.
+     */
+    @Override
+    public void copyFrom(FileChannel fc, long position, long length)
+    throws IOException
+    {
+        if (th != Thread.currentThread())
+            throw new IllegalStateException("Entered by wrong thread");
+        long remaining = length;
+        while (remaining > 0)
+        {
+            flushPDataTF();
+            int n = free();
+            if (channel != null && remaining > n)
+            {
+                fileSrc = fc;
+                filePos = position;
+                fileLen = n;
+                pos += n;
+                try
+                {
+                    flushPDataTF();
+                }
+                finally
+                {
+                    fileSrc = null;
+                    fileLen = 0;
+                }
+            }
+            else
+            {
+                n = (int) Math.min(remaining, n);
+                read(fc, position, n);
+                pos += n;
+            }
+            position += n;
+            remaining -= n;
+        }
+    }
+
+    private void read(FileChannel fc, long position, int len)
+    throws IOException
+    {
+        buf.limit(pos + len);
+        buf.position(pos);
+        try
+        {
+            while (buf.hasRemaining())
+                if (fc.read(buf, position + buf.position() - pos) == -1)
+                    throw new EOFException();
+        }
+        finally
+        {
+            buf.clear();
+        }
+    }
+
+    private int read(InputStream in, int len) throws IOException
+    {
+        if (buf.hasArray())
+            return in.read(buf.array(), buf.arrayOffset() + pos, len);
+        if (in != srcStream)
+        {
+            srcStream = in;
+            srcChannel = in instanceof FileInputStream
+                    ? ((FileInputStream) in).getChannel()
+                    : Channels.newChannel(in);
+        }
+        buf.limit(pos + len);
+        buf.position(pos);
+        int n = srcChannel.read(buf);
+        buf.clear();
+        return n;
+    }
 }
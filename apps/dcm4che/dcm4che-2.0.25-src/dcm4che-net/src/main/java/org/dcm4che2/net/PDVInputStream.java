@@ -41,6 +41,7 @@ package org.dcm4che2.net;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
 
 import org.dcm4che2.data.DicomObject;
 
@@ -60,5 +61,21 @@ public abstract class PDVInputStream extends InputStream
     public abstract void copyTo(OutputStream out) throws IOException;
     
     public abstract long skipAll() throws IOException;
+
+    /**
+     * Transfers the remaining PDV payload to the specified channel. If the
+     * Association socket provides a channel, not yet received payload is
+     * read directly from it into a pooled direct buffer, bypassing the
+     * PDU buffer. Typically invoked by
+     * {@link org.dcm4che2.net.service.StorageService#onCStoreRQ} with the
+     * {@link java.nio.channels.FileChannel} of the file to store the
+     * received object. Syncing the file to the storage device is left to the
+     * caller.
+     * 
+     * @param out destination channel
+     * @return number of transfered bytes
+     * @throws IOException
+     */
+    public abstract long transferTo(WritableByteChannel out) throws IOException;
     
 }
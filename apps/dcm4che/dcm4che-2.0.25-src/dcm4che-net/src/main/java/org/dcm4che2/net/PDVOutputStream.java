@@ -38,9 +38,12 @@
 
 package org.dcm4che2.net;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 /**
  * @author gunter zeilinger(gunterze@gmail.com)
@@ -56,4 +59,40 @@ public abstract class PDVOutputStream extends OutputStream
     public abstract void copyFrom(InputStream in)
     throws IOException;
 
+    /**
+     * Copy <code>length</code> bytes of the file region starting at
+     * <code>position</code>. The position of the file channel is not
+     * modified. Implementations may transfer the file content directly to
+     * the socket, without copying it through an intermediate buffer.
+     * 
+     * @param fc
+     *                channel of the file to copy from
+     * @param position
+     *                file position of the first byte to copy
+     * @param length
+     *                number of bytes to copy
+     * @throws EOFException
+     *                 if the file ends before <code>length</code> bytes
+     *                 were copied
+     */
+    public void copyFrom(FileChannel fc, long position, long length)
+    throws IOException
+    {
+        byte[] b = new byte[(int) Math.min(length, 8192)];
+        ByteBuffer bb = ByteBuffer.wrap(b);
+        long remaining = length;
+        while (remaining > 0)
+        {
+            bb.clear();
+            if (remaining < b.length)
+                bb.limit((int) remaining);
+            int n = fc.read(bb, position);
+            if (n == -1)
+                throw new EOFException();
+            write(b, 0, n);
+            position += n;
+            remaining -= n;
+        }
+    }
+
 }
@@ -0,0 +1,339 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.net;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+/**
+ * Sends C-STORE RQs over one or more associations to the same remote AE
+ * without waiting for the C-STORE RSP of previous RQs.
+ * <p>
+ * The number of outstanding C-STORE RQs per association is limited by a
+ * window, which defaults to the negotiated Maximum Number of Operations
+ * Invoked. If the windows of all associations are full, {@link #cstore}
+ * blocks until a C-STORE RSP is received on any of the associations. Each
+ * C-STORE RQ is sent over the association with the most free slots in its
+ * window, so a study sent by several threads is spread over all
+ * associations, and associations with faster responses get more RQs.
+ * <p>
+ * Instances are thread safe.
+ * 
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ */
+public class PipelinedStoreSCU
+{
+    private final Association[] as;
+
+    private final int[] windowSizes;
+
+    private final int[] sent;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notFull = lock.newCondition();
+
+    private final Condition drained = lock.newCondition();
+
+    private int outstanding;
+
+    private int next;
+
+    /**
+     * Creates a sender over already opened associations.
+     * 
+     * @param as
+     *                associations to the same remote AE.
+     * @param window
+     *                maximal number of outstanding C-STORE RQs per
+     *                association, or <code>0</code> to only limit it by
+     *                the negotiated Maximum Number of Operations Invoked.
+     */
+    public PipelinedStoreSCU(Association[] as, int window)
+    {
+        if (as.length == 0)
+            throw new IllegalArgumentException("no associations");
+        if (window < 0)
+            throw new IllegalArgumentException("window: " + window);
+        this.as = as.clone();
+        this.windowSizes = new int[as.length];
+        this.sent = new int[as.length];
+        for (int i = 0; i < as.length; i++) {
+            int n = minZeroAsMax(window, as[i].getMaxOpsInvoked());
+            windowSizes[i] = n == 0 ? Integer.MAX_VALUE : n;
+        }
+    }
+
+    /**
+     * Opens <code>associations</code> associations to <code>remoteAE</code>
+     * and creates a sender over them.
+     * 
+     * @param ae
+     *                local AE.
+     * @param remoteAE
+     *                remote AE.
+     * @param executor
+     *                executor running the association reader threads.
+     * @param associations
+     *                number of associations to open.
+     * @param window
+     *                maximal number of outstanding C-STORE RQs per
+     *                association, or <code>0</code> to only limit it by
+     *                the negotiated Maximum Number of Operations Invoked.
+     * @return sender over the opened associations.
+     */
+    public static PipelinedStoreSCU open(NetworkApplicationEntity ae,
+            NetworkApplicationEntity remoteAE, Executor executor,
+            int associations, int window) throws ConfigurationException,
+            IOException, InterruptedException
+    {
+        if (associations <= 0)
+            throw new IllegalArgumentException("associations: "
+                    + associations);
+        Association[] as = new Association[associations];
+        try {
+            for (int i = 0; i < associations; i++)
+                as[i] = ae.connect(remoteAE, executor, true);
+        } catch (IOException e) {
+            abort(as);
+            throw e;
+        } catch (ConfigurationException e) {
+            abort(as);
+            throw e;
+        } catch (InterruptedException e) {
+            abort(as);
+            throw e;
+        }
+        return new PipelinedStoreSCU(as, window);
+    }
+
+    private static void abort(Association[] as)
+    {
+        for (int i = 0; i < as.length; i++)
+            if (as[i] != null)
+                as[i].abort();
+    }
+
+    private static int minZeroAsMax(int i1, int i2)
+    {
+        return i1 == 0 ? i2 : i2 == 0 ? i1 : Math.min(i1, i2);
+    }
+
+    public final Association[] getAssociations()
+    {
+        return as.clone();
+    }
+
+    /**
+     * Returns <code>true</code> if at least one of the associations is ready
+     * for data transfer.
+     */
+    public final boolean isReadyForDataTransfer()
+    {
+        for (int i = 0; i < as.length; i++)
+            if (as[i].isReadyForDataTransfer())
+                return true;
+        return false;
+    }
+
+    /**
+     * Returns the number of sent C-STORE RQs, for which no C-STORE RSP was
+     * received yet.
+     * 
+     * @return number of outstanding C-STORE RQs.
+     */
+    public final int getOutstanding()
+    {
+        lock.lock();
+        try {
+            return outstanding;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sends a C-STORE RQ over the association with the most free slots in
+     * its window, without waiting for the C-STORE RSP. Blocks while the
+     * windows of all associations are full.
+     * 
+     * @return future of the C-STORE RSP command.
+     * @throws NoPresentationContextException
+     *                 if no Presentation Context for <code>cuid</code> and
+     *                 <code>tsuid</code> was accepted.
+     */
+    public DimseRSPFuture cstore(String cuid, String iuid, int priority,
+            DataWriter data, String tsuid) throws IOException,
+            InterruptedException
+    {
+        return cstore(cuid, cuid, iuid, priority, data, tsuid);
+    }
+
+    public DimseRSPFuture cstore(String asuid, String cuid, String iuid,
+            int priority, DataWriter data, String tsuid) throws IOException,
+            InterruptedException
+    {
+        return cstore(asuid, cuid, iuid, priority, null, -1, data, tsuid);
+    }
+
+    /**
+     * Sends a C-STORE RQ as sub-operation of a C-MOVE, as
+     * {@link #cstore(String, String, String, int, DataWriter, String)}.
+     * 
+     * @param moveOriginatorAET
+     *                AE Title of the C-MOVE SCU, or <code>null</code> if
+     *                the C-STORE RQ is not a C-MOVE sub-operation.
+     * @param moveOriginatorMsgId
+     *                Message ID of the C-MOVE RQ.
+     */
+    public DimseRSPFuture cstore(String asuid, String cuid, String iuid,
+            int priority, String moveOriginatorAET, int moveOriginatorMsgId,
+            DataWriter data, String tsuid) throws IOException,
+            InterruptedException
+    {
+        final int i = acquire();
+        // release window after notification of listeners of the caller
+        DimseRSPFuture rsp = new DimseRSPFuture() {
+            @Override
+            protected void done() {
+                release(i);
+            }
+        };
+        try {
+            if (moveOriginatorAET == null)
+                as[i].cstore(asuid, cuid, iuid, priority, data, tsuid, rsp);
+            else
+                as[i].cstore(asuid, cuid, iuid, priority, moveOriginatorAET,
+                        moveOriginatorMsgId, data, tsuid, rsp);
+        } catch (IOException e) {
+            rsp.onClosed(as[i]);
+            throw e;
+        } catch (RuntimeException e) {
+            rsp.onClosed(as[i]);
+            throw e;
+        } catch (InterruptedException e) {
+            rsp.onClosed(as[i]);
+            throw e;
+        }
+        return rsp;
+    }
+
+    private int acquire() throws InterruptedException
+    {
+        lock.lock();
+        try {
+            int start = next++ & 0x7fffffff;
+            for (;;) {
+                int best = -1;
+                int bestFree = 0;
+                boolean ready = false;
+                for (int j = 0; j < as.length; j++) {
+                    int i = (start + j) % as.length;
+                    if (!as[i].isReadyForDataTransfer())
+                        continue;
+                    ready = true;
+                    int free = windowSizes[i] - sent[i];
+                    if (free > bestFree) {
+                        best = i;
+                        bestFree = free;
+                    }
+                }
+                // if all associations are closed, let cstore() fail
+                if (!ready)
+                    best = start % as.length;
+                if (best >= 0) {
+                    sent[best]++;
+                    outstanding++;
+                    return best;
+                }
+                // wait for a C-STORE RSP on any association
+                notFull.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(int i)
+    {
+        lock.lock();
+        try {
+            sent[i]--;
+            notFull.signal();
+            if (--outstanding == 0)
+                drained.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the C-STORE RSPs of all sent C-STORE RQs are received, or
+     * the associations are closed.
+     */
+    public void waitForOutstandingRSP() throws InterruptedException
+    {
+        lock.lock();
+        try {
+            while (outstanding > 0)
+                drained.await();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases all associations.
+     * 
+     * @param waitForRSP
+     *                wait for outstanding C-STORE RSPs before.
+     */
+    public void release(boolean waitForRSP) throws InterruptedException
+    {
+        if (waitForRSP)
+            waitForOutstandingRSP();
+        for (int i = 0; i < as.length; i++)
+            as[i].release(waitForRSP);
+    }
+}
@@ -54,6 +54,10 @@ public class Status {
     public static final int NoSuchSOPclass        = 0x0118;
     public static final int SOPclassNotSupported  = 0x0122;
     public static final int UnrecognizedOperation = 0x0211;
+
+    public static final int UnableToPerformSubOperations = 0xA702;
+    public static final int MoveDestinationUnknown = 0xA801;
+    public static final int OneOrMoreFailures     = 0xB000;
     
     public static final int Cancel                = 0xFE00;
     
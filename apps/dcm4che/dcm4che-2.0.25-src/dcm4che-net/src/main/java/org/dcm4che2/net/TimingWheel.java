@@ -0,0 +1,429 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.net;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hashed timing wheel, which schedules large numbers of timers with O(1)
+ * costs to arm and cancel a timer.
+ * <p>
+ * Timers are hashed by their deadline into one of <code>ticksPerWheel</code>
+ * buckets. A single daemon thread advances the wheel each
+ * <code>tickDuration</code> milliseconds and expires the timers of the
+ * current bucket, whose remaining number of rounds is zero. So timers fire
+ * up to one tick after their deadline. Expired tasks are run by the wheel
+ * thread and must not block. The thread is started on scheduling a timer
+ * and terminates after the wheel was empty for one round.
+ * <p>
+ * Used by the {@link Device} for idle checks of associations, the ARTIM timer
+ * and DIMSE response timeouts.
+ * 
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ * @see Device#getTimingWheel()
+ */
+public class TimingWheel
+{
+    static Logger log = LoggerFactory.getLogger(TimingWheel.class);
+
+    private final String name;
+
+    private final long tickDuration;
+
+    private final Timeout[] wheel;
+
+    private final int mask;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notEmpty = lock.newCondition();
+
+    private final long startTime = System.currentTimeMillis();
+
+    private long tick;
+
+    private int timerCount;
+
+    private long expiredCount;
+
+    private long totalFireLag;
+
+    private long maxFireLag;
+
+    private Thread worker;
+
+    private volatile boolean stopped;
+
+    /**
+     * Handle of a scheduled timer task.
+     */
+    public static final class Timeout
+    {
+        private final TimingWheel owner;
+
+        private final Runnable task;
+
+        private final long deadline;
+
+        private long rounds;
+
+        private Timeout prev;
+
+        private Timeout next;
+
+        private Timeout(TimingWheel owner, Runnable task, long deadline)
+        {
+            this.owner = owner;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Returns the time in milliseconds, when the timer shall expire.
+         * 
+         * @return deadline in milliseconds since January 1, 1970 UTC.
+         */
+        public long getDeadline()
+        {
+            return deadline;
+        }
+
+        /**
+         * Cancels the timer.
+         * 
+         * @return <code>true</code>, if the timer was cancelled;
+         *         <code>false</code>, if the timer has already expired or
+         *         was already cancelled.
+         */
+        public boolean cancel()
+        {
+            return owner.cancel(this);
+        }
+    }
+
+    /**
+     * Creates a timing wheel, whose thread is started on scheduling a timer.
+     * 
+     * @param name
+     *                name of the thread advancing the wheel.
+     * @param tickDuration
+     *                duration of one tick in milliseconds.
+     * @param ticksPerWheel
+     *                number of buckets, rounded up to the next power of 2.
+     */
+    public TimingWheel(String name, long tickDuration, int ticksPerWheel)
+    {
+        if (tickDuration <= 0)
+            throw new IllegalArgumentException("tickDuration: " + tickDuration);
+        if (ticksPerWheel <= 0 || ticksPerWheel > (1 << 30))
+            throw new IllegalArgumentException("ticksPerWheel: "
+                    + ticksPerWheel);
+        int n = 1;
+        while (n < ticksPerWheel)
+            n <<= 1;
+        this.name = name;
+        this.tickDuration = tickDuration;
+        this.wheel = new Timeout[n];
+        this.mask = n - 1;
+        for (int i = 0; i < n; i++) {
+            Timeout head = new Timeout(this, null, 0L);
+            head.prev = head.next = head;
+            wheel[i] = head;
+        }
+    }
+
+    public final long getTickDuration()
+    {
+        return tickDuration;
+    }
+
+    public final int getTicksPerWheel()
+    {
+        return wheel.length;
+    }
+
+    /**
+     * Schedules <code>task</code> to be run by the wheel thread after
+     * <code>delay</code> milliseconds.
+     * 
+     * @param task
+     *                the task to run on expiry of the timer.
+     * @param delay
+     *                delay in milliseconds.
+     * @return handle to cancel the timer.
+     * @throws IllegalStateException
+     *                 if the wheel was already stopped.
+     */
+    public Timeout schedule(Runnable task, long delay)
+    {
+        if (task == null)
+            throw new NullPointerException("task");
+        long deadline = System.currentTimeMillis() + Math.max(delay, 0L);
+        Timeout timeout = new Timeout(this, task, deadline);
+        lock.lock();
+        try {
+            if (stopped)
+                throw new IllegalStateException(name + " stopped");
+            if (timerCount == 0)
+                catchUp(System.currentTimeMillis());
+            long target = Math.max(tick,
+                    (deadline - startTime + tickDuration - 1) / tickDuration);
+            timeout.rounds = (target - tick) / wheel.length;
+            Timeout head = wheel[(int) (target & mask)];
+            timeout.next = head;
+            timeout.prev = head.prev;
+            head.prev.next = timeout;
+            head.prev = timeout;
+            if (timerCount++ == 0)
+                notEmpty.signal();
+            if (worker == null) {
+                worker = new Thread(new Worker(), name);
+                worker.setDaemon(true);
+                worker.start();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return timeout;
+    }
+
+    private boolean cancel(Timeout timeout)
+    {
+        lock.lock();
+        try {
+            if (timeout.next == null)
+                return false;
+            unlink(timeout);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void unlink(Timeout timeout)
+    {
+        timeout.prev.next = timeout.next;
+        timeout.next.prev = timeout.prev;
+        timeout.prev = timeout.next = null;
+        timerCount--;
+    }
+
+    // skip ticks of an empty wheel
+    private void catchUp(long now)
+    {
+        tick = Math.max(tick, (now - startTime) / tickDuration);
+    }
+
+    /**
+     * Stops the wheel thread. Pending timers will not expire.
+     */
+    public void stop()
+    {
+        lock.lock();
+        try {
+            stopped = true;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of pending timers.
+     * 
+     * @return number of pending timers.
+     */
+    public int getTimerCount()
+    {
+        lock.lock();
+        try {
+            return timerCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of expired timers.
+     * 
+     * @return number of expired timers.
+     */
+    public long getExpiredCount()
+    {
+        lock.lock();
+        try {
+            return expiredCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the maximal delay in milliseconds between the deadline of an
+     * expired timer and the actual invocation of its task.
+     * 
+     * @return maximal fire lag in milliseconds.
+     */
+    public long getMaxFireLag()
+    {
+        lock.lock();
+        try {
+            return maxFireLag;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the average delay in milliseconds between the deadline of an
+     * expired timer and the actual invocation of its task.
+     * 
+     * @return average fire lag in milliseconds.
+     */
+    public float getAverageFireLag()
+    {
+        lock.lock();
+        try {
+            return expiredCount == 0 ? 0f
+                    : (float) totalFireLag / expiredCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Resets the expired timer count and the fire lag statistics.
+     */
+    public void resetMetrics()
+    {
+        lock.lock();
+        try {
+            expiredCount = 0;
+            totalFireLag = 0;
+            maxFireLag = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private class Worker implements Runnable
+    {
+        public void run()
+        {
+            ArrayList<Timeout> expired = new ArrayList<Timeout>();
+            while (nextTick(expired)) {
+                for (int i = 0, n = expired.size(); i < n; i++) {
+                    Timeout timeout = expired.get(i);
+                    long now = System.currentTimeMillis();
+                    try {
+                        timeout.task.run();
+                    } catch (Throwable e) {
+                        log.warn("Timer task " + timeout.task
+                                + " threw exception", e);
+                    }
+                    long lag = now - timeout.deadline;
+                    lock.lock();
+                    try {
+                        expiredCount++;
+                        totalFireLag += lag;
+                        if (lag > maxFireLag)
+                            maxFireLag = lag;
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+                expired.clear();
+            }
+        }
+    }
+
+    private boolean nextTick(ArrayList<Timeout> expired)
+    {
+        lock.lock();
+        try {
+            while (!stopped) {
+                long delay = startTime + tick * tickDuration
+                        - System.currentTimeMillis();
+                if (timerCount > 0 && delay <= 0)
+                    break;
+                try {
+                    if (timerCount > 0)
+                        notEmpty.await(delay, TimeUnit.MILLISECONDS);
+                    else if (!notEmpty.await(tickDuration * wheel.length,
+                            TimeUnit.MILLISECONDS) && timerCount == 0) {
+                        // release the thread of a wheel idle for one round;
+                        // the next schedule() starts a new one
+                        worker = null;
+                        return false;
+                    }
+                } catch (InterruptedException e) {
+                    log.warn(name + " interrupted", e);
+                    stopped = true;
+                }
+            }
+            if (stopped) {
+                worker = null;
+                return false;
+            }
+            Timeout head = wheel[(int) (tick & mask)];
+            for (Timeout timeout = head.next, next; timeout != head;
+                    timeout = next) {
+                next = timeout.next;
+                if (timeout.rounds > 0) {
+                    timeout.rounds--;
+                } else {
+                    unlink(timeout);
+                    expired.add(timeout);
+                }
+            }
+            tick++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
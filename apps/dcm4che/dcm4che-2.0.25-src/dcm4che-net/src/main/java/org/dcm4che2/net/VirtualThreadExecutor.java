@@ -0,0 +1,121 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.net;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <code>Executor</code> implementation which executes a <code>Runnable</code>
+ * object in a new virtual thread, if running on a Java Runtime which supports
+ * virtual threads (Java 21 or later). Otherwise it behaves like
+ * {@link NewThreadExecutor} and starts a new platform thread.
+ * <p>
+ * Virtual threads are cheap enough to run the reader loop of each
+ * {@link Association} and the asynchronous DIMSE operations in their own
+ * thread, without sizing a thread pool for the expected number of concurrent
+ * associations.
+ * 
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ * @see Device#startListening()
+ */
+public class VirtualThreadExecutor extends NewThreadExecutor
+{
+    static Logger log = LoggerFactory.getLogger(VirtualThreadExecutor.class);
+
+    private final ThreadFactory threadFactory;
+
+    /**
+     * Constructor.
+     * 
+     * @param threadNamePrefix A String containing the prefix that should be
+     *            given to the created thread.
+     */
+    public VirtualThreadExecutor(String threadNamePrefix)
+    {
+        super(threadNamePrefix);
+        this.threadFactory = virtualThreadFactory(getThreadNamePrefix() + "-");
+    }
+
+    private static ThreadFactory virtualThreadFactory(String prefix)
+    {
+        try
+        {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Method name = builderClass.getMethod("name", String.class,
+                    long.class);
+            builder = name.invoke(builder, prefix, Long.valueOf(1));
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(
+                    builder);
+        }
+        catch (Exception e)
+        {
+            log.info("Virtual threads not supported - use platform threads");
+            return null;
+        }
+    }
+
+    /**
+     * Returns <code>true</code>, if this executor runs tasks in virtual
+     * threads.
+     * 
+     * @return <code>true</code>, if virtual threads are supported by the Java
+     *         Runtime.
+     */
+    public final boolean isVirtual()
+    {
+        return threadFactory != null;
+    }
+
+    @Override
+    public void execute(Runnable runnable)
+    {
+        if (threadFactory == null)
+            super.execute(runnable);
+        else
+            threadFactory.newThread(runnable).start();
+    }
+
+}
@@ -58,6 +58,7 @@ import org.dcm4che2.net.Status;
  */
 public class CFindService extends DicomService implements CFindSCP {
     private final Executor executor;
+    private int batchSize = 16;
 
     public CFindService(String[] sopClasses, Executor executor) {
         super(sopClasses);
@@ -69,8 +70,32 @@ public class CFindService extends DicomService implements CFindSCP {
         this.executor = executor;
     }
 
+    public final int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Set the maximal number of matches pulled from the {@link MatchSource}
+     * returned by {@link #openMatchSource} and written by one run on the
+     * executor, before the threads of the executor are yielded to other
+     * queries; 16 by default.
+     */
+    public final void setBatchSize(int batchSize) {
+        if (batchSize <= 0)
+            throw new IllegalArgumentException("batchSize: " + batchSize);
+        this.batchSize = batchSize;
+    }
+
     public void cfind(Association as, int pcid, DicomObject rq, DicomObject data)
             throws DicomServiceException, IOException {
+        MatchSource source = openMatchSource(as, pcid, rq, data);
+        if (source != null) {
+            WriteMatchesRsp rsp = new WriteMatchesRsp(as, pcid, rq, source,
+                    executor, batchSize);
+            as.registerCancelRQHandler(rq, rsp);
+            rsp.schedule();
+            return;
+        }
         DicomObject cmdrsp = CommandUtils.mkRSP(rq, CommandUtils.SUCCESS);
         DimseRSP rsp = doCFind(as, pcid, rq, data, cmdrsp);
         try {
@@ -87,6 +112,19 @@ public class CFindService extends DicomService implements CFindSCP {
         }
     }
 
+    /**
+     * Returns the source of the matches of the C-FIND RQ, whose C-FIND RSPs
+     * are written in batches by threads of the executor, without occupying
+     * a thread while the source has no match available. The default
+     * implementation returns <code>null</code>, so the C-FIND RSPs are
+     * provided by {@link #doCFind} instead.
+     */
+    @SuppressWarnings("unused")
+    protected MatchSource openMatchSource(Association as, int pcid,
+            DicomObject rq, DicomObject data) throws DicomServiceException {
+        return null;
+    }
+
     @SuppressWarnings("unused")
     protected DimseRSP doCFind(Association as, int pcid, DicomObject cmd,
             DicomObject data, DicomObject rsp) throws DicomServiceException {
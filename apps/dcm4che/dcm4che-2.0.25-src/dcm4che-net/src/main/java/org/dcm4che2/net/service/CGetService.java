@@ -0,0 +1,140 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.net.service;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.dcm4che2.data.DicomObject;
+import org.dcm4che2.net.Association;
+import org.dcm4che2.net.CommandUtils;
+import org.dcm4che2.net.DicomServiceException;
+import org.dcm4che2.net.PipelinedStoreSCU;
+import org.dcm4che2.net.Status;
+
+/**
+ * C-GET SCP, which sends the instances returned by {@link #calculateMatches}
+ * over the requesting association. The C-STORE sub-operations are pipelined
+ * and, as the C-GET RSPs, performed by a {@link RetrieveTask} on threads of
+ * the executor, so the association reader thread is not blocked by the
+ * retrieve.
+ * 
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ */
+public class CGetService extends DicomService implements CGetSCP {
+    private final Executor executor;
+    private int window;
+    private int pendingRSPInterval = 1000;
+
+    public CGetService(String[] sopClasses, Executor executor) {
+        super(sopClasses);
+        this.executor = executor;
+    }
+
+    public CGetService(String sopClass, Executor executor) {
+        super(sopClass);
+        this.executor = executor;
+    }
+
+    public final int getWindow() {
+        return window;
+    }
+
+    /**
+     * Set the maximal number of outstanding C-STORE RQs, or <code>0</code>
+     * for no limit, which is the default.
+     */
+    public final void setWindow(int window) {
+        if (window < 0)
+            throw new IllegalArgumentException("window: " + window);
+        this.window = window;
+    }
+
+    public final int getPendingRSPInterval() {
+        return pendingRSPInterval;
+    }
+
+    /**
+     * Set the minimal interval in ms between pending C-GET RSPs, 1000 by
+     * default, or <code>0</code> to only send the first pending RSP.
+     */
+    public final void setPendingRSPInterval(int pendingRSPInterval) {
+        if (pendingRSPInterval < 0)
+            throw new IllegalArgumentException("pendingRSPInterval: "
+                    + pendingRSPInterval);
+        this.pendingRSPInterval = pendingRSPInterval;
+    }
+
+    public void cget(Association as, int pcid, DicomObject rq,
+            DicomObject data) throws DicomServiceException, IOException {
+        List<RetrieveInstance> matches = calculateMatches(as, pcid, rq, data);
+        PipelinedStoreSCU scu = new PipelinedStoreSCU(
+                new Association[] { as }, window);
+        RetrieveTask task = new RetrieveTask(rq, scu, matches, null,
+                pendingRSPInterval);
+        task.start(executor, 1);
+        try {
+            task.next();
+        } catch (InterruptedException e) {
+            throw new DicomServiceException(rq, Status.ProcessingFailure);
+        }
+        DicomObject cmdrsp = task.getCommand();
+        if (CommandUtils.isPending(cmdrsp)) {
+            as.registerCancelRQHandler(rq, task);
+            executor.execute(new WriteMultiDimseRsp(as, pcid, task));
+        } else {
+            as.writeDimseRSP(pcid, cmdrsp, task.getDataset());
+        }
+    }
+
+    /**
+     * Returns the instances matching the identifier of the C-GET RQ. The
+     * default implementation returns an empty list.
+     */
+    @SuppressWarnings("unused")
+    protected List<RetrieveInstance> calculateMatches(Association as,
+            int pcid, DicomObject rq, DicomObject data)
+            throws DicomServiceException {
+        return Collections.emptyList();
+    }
+}
@@ -0,0 +1,179 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.net.service;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.dcm4che2.data.DicomObject;
+import org.dcm4che2.data.Tag;
+import org.dcm4che2.net.Association;
+import org.dcm4che2.net.CommandUtils;
+import org.dcm4che2.net.ConfigurationException;
+import org.dcm4che2.net.DicomServiceException;
+import org.dcm4che2.net.NetworkApplicationEntity;
+import org.dcm4che2.net.PipelinedStoreSCU;
+import org.dcm4che2.net.Status;
+
+/**
+ * C-MOVE SCP, which sends the instances returned by
+ * {@link #calculateMatches} to the Move Destination returned by
+ * {@link #selectDestination}. The associations to the Move Destination are
+ * shared with concurrent C-MOVEs to the same destination by a
+ * {@link StoreSCUPool}, and the C-STORE sub-operations and C-MOVE RSPs are
+ * performed by a {@link RetrieveTask} on threads of the executor, so the
+ * association reader thread is not blocked by the retrieve.
+ * 
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ */
+public class CMoveService extends DicomService implements CMoveSCP {
+    private final Executor executor;
+    private final StoreSCUPool pool;
+    private int pendingRSPInterval = 1000;
+
+    public CMoveService(String[] sopClasses, Executor executor) {
+        super(sopClasses);
+        this.executor = executor;
+        this.pool = new StoreSCUPool(executor);
+    }
+
+    public CMoveService(String sopClass, Executor executor) {
+        super(sopClass);
+        this.executor = executor;
+        this.pool = new StoreSCUPool(executor);
+    }
+
+    /**
+     * Returns the pool of associations to Move Destinations, which also
+     * limits the number of associations opened to one destination.
+     */
+    public final StoreSCUPool getStoreSCUPool() {
+        return pool;
+    }
+
+    public final int getPendingRSPInterval() {
+        return pendingRSPInterval;
+    }
+
+    /**
+     * Set the minimal interval in ms between pending C-MOVE RSPs, 1000 by
+     * default, or <code>0</code> to only send the first pending RSP.
+     */
+    public final void setPendingRSPInterval(int pendingRSPInterval) {
+        if (pendingRSPInterval < 0)
+            throw new IllegalArgumentException("pendingRSPInterval: "
+                    + pendingRSPInterval);
+        this.pendingRSPInterval = pendingRSPInterval;
+    }
+
+    public void cmove(Association as, int pcid, DicomObject rq,
+            DicomObject data) throws DicomServiceException, IOException {
+        final NetworkApplicationEntity ae = as.getApplicationEntity();
+        final NetworkApplicationEntity dest = selectDestination(as, rq);
+        List<RetrieveInstance> matches = calculateMatches(as, pcid, rq, data);
+        final PipelinedStoreSCU scu = matches.isEmpty() ? null
+                : acquire(ae, dest, rq, matches.size());
+        RetrieveTask task = new RetrieveTask(rq, scu, matches,
+                as.getRemoteAET(), pendingRSPInterval) {
+            @Override
+            protected void done() {
+                if (scu != null)
+                    pool.release(ae, dest);
+            }
+        };
+        task.start(executor, scu != null ? scu.getAssociations().length : 1);
+        try {
+            task.next();
+        } catch (InterruptedException e) {
+            throw new DicomServiceException(rq, Status.ProcessingFailure);
+        }
+        DicomObject cmdrsp = task.getCommand();
+        if (CommandUtils.isPending(cmdrsp)) {
+            as.registerCancelRQHandler(rq, task);
+            executor.execute(new WriteMultiDimseRsp(as, pcid, task));
+        } else {
+            as.writeDimseRSP(pcid, cmdrsp, task.getDataset());
+        }
+    }
+
+    private PipelinedStoreSCU acquire(NetworkApplicationEntity ae,
+            NetworkApplicationEntity dest, DicomObject rq, int associations)
+            throws DicomServiceException {
+        try {
+            return pool.acquire(ae, dest, associations);
+        } catch (ConfigurationException e) {
+            throw new DicomServiceException(rq,
+                    Status.MoveDestinationUnknown, e.getMessage());
+        } catch (IOException e) {
+            throw new DicomServiceException(rq,
+                    Status.UnableToPerformSubOperations, e.getMessage());
+        } catch (InterruptedException e) {
+            throw new DicomServiceException(rq,
+                    Status.UnableToPerformSubOperations);
+        }
+    }
+
+    /**
+     * Returns the configuration of the Move Destination of the C-MOVE RQ.
+     * The default implementation throws a {@link DicomServiceException} with
+     * status Move Destination Unknown.
+     */
+    @SuppressWarnings("unused")
+    protected NetworkApplicationEntity selectDestination(Association as,
+            DicomObject rq) throws DicomServiceException {
+        throw new DicomServiceException(rq, Status.MoveDestinationUnknown,
+                "Unknown Move Destination: "
+                + rq.getString(Tag.MoveDestination));
+    }
+
+    /**
+     * Returns the instances matching the identifier of the C-MOVE RQ. The
+     * default implementation returns an empty list.
+     */
+    @SuppressWarnings("unused")
+    protected List<RetrieveInstance> calculateMatches(Association as,
+            int pcid, DicomObject rq, DicomObject data)
+            throws DicomServiceException {
+        return Collections.emptyList();
+    }
+}
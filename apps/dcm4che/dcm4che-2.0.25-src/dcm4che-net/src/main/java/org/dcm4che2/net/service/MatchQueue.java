@@ -0,0 +1,278 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.net.service;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.dcm4che2.data.DicomElement;
+import org.dcm4che2.data.DicomObject;
+import org.dcm4che2.net.DicomServiceException;
+
+/**
+ * {@link MatchSource} to which matches are pushed by a producer, e.g. by
+ * the callback of an asynchronous query to a remote system.
+ * <p>
+ * The producer may run ahead of the written C-FIND RSPs by a bounded
+ * number of matches and, optionally, by a bounded estimated encoded length
+ * of the prefetched matches, so large matches do not accumulate in memory.
+ * If the queue is full, {@link #offer} returns <code>false</code> and
+ * {@link #put} blocks. After the query was canceled, both return
+ * <code>false</code>, so the producer can stop.
+ * 
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ */
+public class MatchQueue implements MatchSource {
+
+    private static class Match {
+        final DicomObject dataset;
+        final int length;
+
+        Match(DicomObject dataset, int length) {
+            this.dataset = dataset;
+            this.length = length;
+        }
+    }
+
+    private final LinkedList<Match> queue = new LinkedList<Match>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final int maxMatches;
+    private final long maxPrefetchLength;
+    private long prefetchLength;
+    private boolean completed;
+    private boolean closed;
+    private DicomServiceException failure;
+    private Runnable onAvailable;
+
+    /**
+     * @param maxMatches
+     *                maximal number of prefetched matches.
+     * @param maxPrefetchLength
+     *                maximal estimated encoded length of prefetched matches
+     *                in bytes, or <code>0</code> to only limit the number
+     *                of matches. One match is always accepted.
+     */
+    public MatchQueue(int maxMatches, long maxPrefetchLength) {
+        if (maxMatches <= 0)
+            throw new IllegalArgumentException("maxMatches: " + maxMatches);
+        if (maxPrefetchLength < 0)
+            throw new IllegalArgumentException("maxPrefetchLength: "
+                    + maxPrefetchLength);
+        this.maxMatches = maxMatches;
+        this.maxPrefetchLength = maxPrefetchLength;
+    }
+
+    private boolean isFull() {
+        return queue.size() >= maxMatches
+                || maxPrefetchLength > 0 && !queue.isEmpty()
+                && prefetchLength >= maxPrefetchLength;
+    }
+
+    /**
+     * Adds a match, if the queue is not full.
+     * 
+     * @return <code>false</code> if the queue is full, or the query was
+     *         canceled.
+     */
+    public boolean offer(DicomObject match) {
+        Match m = new Match(match,
+                maxPrefetchLength > 0 ? estimateLength(match) : 0);
+        Runnable r;
+        lock.lock();
+        try {
+            if (closed || completed || isFull())
+                return false;
+            r = add(m);
+        } finally {
+            lock.unlock();
+        }
+        if (r != null)
+            r.run();
+        return true;
+    }
+
+    /**
+     * Adds a match, waiting while the queue is full.
+     * 
+     * @return <code>false</code> if the query was canceled.
+     */
+    public boolean put(DicomObject match) throws InterruptedException {
+        Match m = new Match(match,
+                maxPrefetchLength > 0 ? estimateLength(match) : 0);
+        Runnable r;
+        lock.lock();
+        try {
+            while (!closed && isFull())
+                notFull.await();
+            if (closed || completed)
+                return false;
+            r = add(m);
+        } finally {
+            lock.unlock();
+        }
+        if (r != null)
+            r.run();
+        return true;
+    }
+
+    private Runnable add(Match m) {
+        queue.add(m);
+        prefetchLength += m.length;
+        return takeOnAvailable();
+    }
+
+    private Runnable takeOnAvailable() {
+        Runnable r = onAvailable;
+        onAvailable = null;
+        return r;
+    }
+
+    /**
+     * Signals that no further matches will be added.
+     */
+    public void complete() {
+        Runnable r;
+        lock.lock();
+        try {
+            completed = true;
+            r = takeOnAvailable();
+        } finally {
+            lock.unlock();
+        }
+        if (r != null)
+            r.run();
+    }
+
+    /**
+     * Terminates the query with the status of <code>e</code>, after the
+     * already added matches were written.
+     */
+    public void fail(DicomServiceException e) {
+        Runnable r;
+        lock.lock();
+        try {
+            failure = e;
+            completed = true;
+            r = takeOnAvailable();
+        } finally {
+            lock.unlock();
+        }
+        if (r != null)
+            r.run();
+    }
+
+    /**
+     * Returns <code>true</code> if the query completed or was canceled, so
+     * no further matches are accepted.
+     */
+    public boolean isClosed() {
+        lock.lock();
+        try {
+            return closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int poll(List<DicomObject> batch, int max, Runnable onAvailable)
+            throws DicomServiceException {
+        lock.lock();
+        try {
+            if (queue.isEmpty()) {
+                if (failure != null)
+                    throw failure;
+                if (completed)
+                    return -1;
+                this.onAvailable = onAvailable;
+                return 0;
+            }
+            int n = 0;
+            do {
+                Match m = queue.removeFirst();
+                prefetchLength -= m.length;
+                batch.add(m.dataset);
+            } while (++n < max && !queue.isEmpty());
+            notFull.signalAll();
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            queue.clear();
+            prefetchLength = 0;
+            onAvailable = null;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Estimates the encoded length of a dataset with explicit VR, ignoring
+     * the longer header of some VRs.
+     */
+    static int estimateLength(DicomObject dataset) {
+        int len = 0;
+        for (Iterator<DicomElement> it = dataset.iterator(); it.hasNext();) {
+            DicomElement e = it.next();
+            len += 8;
+            if (!e.hasItems()) {
+                len += e.length();
+            } else {
+                for (int i = 0, n = e.countItems(); i < n; i++)
+                    len += 8 + (e.hasDicomObjects()
+                            ? estimateLength(e.getDicomObject(i))
+                            : e.getFragment(i).length);
+                len += 8;
+            }
+        }
+        return len;
+    }
+}
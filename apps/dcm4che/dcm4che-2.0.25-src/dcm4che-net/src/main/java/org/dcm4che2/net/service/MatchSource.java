@@ -0,0 +1,85 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.net.service;
+
+import java.util.List;
+
+import org.dcm4che2.data.DicomObject;
+import org.dcm4che2.net.DicomServiceException;
+
+/**
+ * Source of C-FIND matches, from which {@link CFindService} pulls batches of
+ * matches, whenever the previous batch was written. A source, which has no
+ * match available yet, notifies the service when it has, so no thread is
+ * occupied by the query while it waits for matches.
+ * 
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ * @see IteratorMatchSource
+ * @see MatchQueue
+ */
+public interface MatchSource {
+
+    /**
+     * Moves up to <code>max</code> available matches to <code>batch</code>.
+     * If no match is available, <code>onAvailable</code> is run once, as
+     * soon as matches become available or the source is exhausted.
+     * 
+     * @param batch
+     *                list to which the matches are added.
+     * @param max
+     *                maximal number of matches to add.
+     * @param onAvailable
+     *                callback to run when matches become available after
+     *                this method returned <code>0</code>.
+     * @return number of added matches, <code>0</code> if no match is
+     *         available yet, or <code>-1</code> if the source is exhausted.
+     * @throws DicomServiceException
+     *                 to terminate the query with the status of the
+     *                 exception.
+     */
+    int poll(List<DicomObject> batch, int max, Runnable onAvailable)
+            throws DicomServiceException;
+
+    /**
+     * Invoked once, when the query completed, was canceled or failed.
+     */
+    void close();
+}
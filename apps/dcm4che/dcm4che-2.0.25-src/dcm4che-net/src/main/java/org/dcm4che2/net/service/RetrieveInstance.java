@@ -0,0 +1,96 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.net.service;
+
+import org.dcm4che2.net.DataWriter;
+
+/**
+ * Instance to transfer by a C-STORE sub-operation of a C-MOVE or C-GET.
+ * The {@link DataWriter} is only invoked when the C-STORE RQ is sent, so it
+ * may defer opening the file of the instance until then.
+ * 
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ */
+public class RetrieveInstance {
+
+    private final String cuid;
+    private final String iuid;
+    private final String tsuid;
+    private final DataWriter dataWriter;
+
+    public RetrieveInstance(String cuid, String iuid, String tsuid,
+            DataWriter dataWriter) {
+        if (cuid == null)
+            throw new NullPointerException("cuid");
+        if (iuid == null)
+            throw new NullPointerException("iuid");
+        if (tsuid == null)
+            throw new NullPointerException("tsuid");
+        if (dataWriter == null)
+            throw new NullPointerException("dataWriter");
+        this.cuid = cuid;
+        this.iuid = iuid;
+        this.tsuid = tsuid;
+        this.dataWriter = dataWriter;
+    }
+
+    public final String getSOPClassUID() {
+        return cuid;
+    }
+
+    public final String getSOPInstanceUID() {
+        return iuid;
+    }
+
+    public final String getTransferSyntaxUID() {
+        return tsuid;
+    }
+
+    public final DataWriter getDataWriter() {
+        return dataWriter;
+    }
+
+    @Override
+    public String toString() {
+        return "RetrieveInstance[iuid=" + iuid + ", cuid=" + cuid
+                + ", tsuid=" + tsuid + "]";
+    }
+}
@@ -0,0 +1,348 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.net.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.dcm4che2.data.BasicDicomObject;
+import org.dcm4che2.data.DicomObject;
+import org.dcm4che2.data.Tag;
+import org.dcm4che2.data.VR;
+import org.dcm4che2.net.Association;
+import org.dcm4che2.net.CommandUtils;
+import org.dcm4che2.net.DimseRSP;
+import org.dcm4che2.net.DimseRSPFuture;
+import org.dcm4che2.net.PipelinedStoreSCU;
+import org.dcm4che2.net.Status;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Performs the C-STORE sub-operations of a C-MOVE or C-GET and provides the
+ * C-MOVE or C-GET RSPs.
+ * <p>
+ * {@link #start} runs the given number of sender threads, which take the
+ * instances in order and send them over a {@link PipelinedStoreSCU} without
+ * waiting for C-STORE RSPs. The first invocation of {@link #next} returns
+ * a pending RSP immediately; further invocations block until all
+ * sub-operations completed, or until the pending RSP interval elapsed and
+ * the number of completed sub-operations changed, so the rate of pending
+ * RSPs is bounded independently of the number of instances. After
+ * {@link #cancel}, no further C-STORE RQs are sent, and the final RSP,
+ * returned after the outstanding C-STORE RSPs were received, has status
+ * Cancel.
+ * 
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ */
+public class RetrieveTask implements DimseRSP {
+
+    static Logger log = LoggerFactory.getLogger(RetrieveTask.class);
+
+    private final DicomObject rq;
+    private final PipelinedStoreSCU scu;
+    private final List<RetrieveInstance> instances;
+    private final String moveOriginatorAET;
+    private final int moveOriginatorMsgId;
+    private final int priority;
+    private final long pendingRSPInterval;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final ArrayList<String> failedIUIDs = new ArrayList<String>();
+    private int next;
+    private int sent;
+    private int senders = -1;
+    private int completed;
+    private int warning;
+    private int failed;
+    private int reported = -1;
+    private long lastRSPTime;
+    private boolean canceled;
+    private boolean finished;
+    private DicomObject cmdrsp;
+    private DicomObject dataset;
+
+    /**
+     * @param rq
+     *                the C-MOVE or C-GET RQ.
+     * @param scu
+     *                sender of the C-STORE RQs.
+     * @param instances
+     *                instances to send.
+     * @param moveOriginatorAET
+     *                AE Title of the C-MOVE SCU, or <code>null</code> for
+     *                C-GET.
+     * @param pendingRSPInterval
+     *                minimal interval in ms between pending RSPs, or
+     *                <code>0</code> to only send the first pending RSP.
+     */
+    public RetrieveTask(DicomObject rq, PipelinedStoreSCU scu,
+            List<RetrieveInstance> instances, String moveOriginatorAET,
+            int pendingRSPInterval) {
+        if (pendingRSPInterval < 0)
+            throw new IllegalArgumentException("pendingRSPInterval: "
+                    + pendingRSPInterval);
+        this.rq = rq;
+        this.scu = scu;
+        this.instances = instances;
+        this.moveOriginatorAET = moveOriginatorAET;
+        this.moveOriginatorMsgId = rq.getInt(Tag.MessageID);
+        this.priority = rq.getInt(Tag.Priority);
+        this.pendingRSPInterval =
+                TimeUnit.MILLISECONDS.toNanos(pendingRSPInterval);
+    }
+
+    /**
+     * Starts sending the instances by up to <code>parallelism</code> threads
+     * of <code>executor</code>.
+     */
+    public void start(Executor executor, int parallelism) {
+        if (parallelism <= 0)
+            throw new IllegalArgumentException("parallelism: "
+                    + parallelism);
+        int n = Math.min(parallelism, instances.size());
+        lock.lock();
+        try {
+            if (senders >= 0)
+                throw new IllegalStateException("Already started");
+            senders = n;
+        } finally {
+            lock.unlock();
+        }
+        if (n == 0)
+            finish();
+        for (int i = 0; i < n; i++)
+            executor.execute(new Runnable() {
+                public void run() {
+                    send();
+                }
+            });
+    }
+
+    private void send() {
+        try {
+            RetrieveInstance inst;
+            while ((inst = nextInstance()) != null)
+                send(inst);
+        } finally {
+            lock.lock();
+            try {
+                senders--;
+            } finally {
+                lock.unlock();
+            }
+            finish();
+        }
+    }
+
+    private RetrieveInstance nextInstance() {
+        lock.lock();
+        try {
+            return canceled || next >= instances.size() ? null
+                    : instances.get(next++);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void send(RetrieveInstance inst) {
+        final String iuid = inst.getSOPInstanceUID();
+        String cuid = inst.getSOPClassUID();
+        try {
+            DimseRSPFuture rsp = scu.cstore(cuid, cuid, iuid, priority,
+                    moveOriginatorAET, moveOriginatorMsgId,
+                    inst.getDataWriter(), inst.getTransferSyntaxUID());
+            lock.lock();
+            try {
+                sent++;
+            } finally {
+                lock.unlock();
+            }
+            rsp.addListener(new DimseRSPFuture.Listener() {
+                public void onComplete(DimseRSPFuture future) {
+                    DicomObject cmd = future.getCommand();
+                    onSubOperationRSP(iuid, cmd != null
+                            ? cmd.getInt(Tag.Status) : -1);
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Failed to send " + inst + ": " + e.getMessage());
+            onSubOperationRSP(iuid, -1);
+        } catch (InterruptedException e) {
+            log.warn("Interrupted send of " + inst);
+            onSubOperationRSP(iuid, -1);
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("Failed to send " + inst, e);
+            onSubOperationRSP(iuid, -1);
+        }
+    }
+
+    private void onSubOperationRSP(String iuid, int status) {
+        lock.lock();
+        try {
+            if (status == Status.Success)
+                completed++;
+            else if ((status & 0xF000) == 0xB000)
+                warning++;
+            else {
+                failed++;
+                failedIUIDs.add(iuid);
+            }
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        finish();
+    }
+
+    private boolean isDone() {
+        return senders == 0 && completed + warning + failed == next;
+    }
+
+    private void finish() {
+        lock.lock();
+        try {
+            if (finished || !isDone())
+                return;
+            finished = true;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        done();
+    }
+
+    /**
+     * Invoked once, after all sent C-STORE RQs were answered or failed, by
+     * the thread receiving the last C-STORE RSP, by the last sender thread,
+     * or by the thread invoking {@link #start}, if there are no instances.
+     * The default implementation does nothing.
+     */
+    protected void done() {
+        // NO OP
+    }
+
+    public boolean next() throws IOException, InterruptedException {
+        lock.lock();
+        try {
+            if (senders < 0)
+                throw new IllegalStateException("Not started");
+            if (cmdrsp != null) {
+                if (!CommandUtils.isPending(cmdrsp))
+                    return false;
+                awaitNextRSP();
+            }
+            int done = completed + warning + failed;
+            int remaining = instances.size() - done;
+            if (!finished) {
+                cmdrsp = CommandUtils.mkRSP(rq, Status.Pending);
+                cmdrsp.putInt(Tag.NumberOfRemainingSuboperations, VR.US,
+                        remaining);
+            } else if (remaining > 0) {
+                cmdrsp = CommandUtils.mkRSP(rq, Status.Cancel);
+                cmdrsp.putInt(Tag.NumberOfRemainingSuboperations, VR.US,
+                        remaining);
+            } else {
+                // A702 only if no C-STORE RQ could be sent at all
+                cmdrsp = CommandUtils.mkRSP(rq, failed == 0 && warning == 0
+                        ? Status.Success
+                        : sent == 0
+                                ? Status.UnableToPerformSubOperations
+                                : Status.OneOrMoreFailures);
+            }
+            cmdrsp.putInt(Tag.NumberOfCompletedSuboperations, VR.US,
+                    completed);
+            cmdrsp.putInt(Tag.NumberOfFailedSuboperations, VR.US, failed);
+            cmdrsp.putInt(Tag.NumberOfWarningSuboperations, VR.US, warning);
+            if (finished && !failedIUIDs.isEmpty()) {
+                dataset = new BasicDicomObject();
+                dataset.putStrings(Tag.FailedSOPInstanceUIDList, VR.UI,
+                        failedIUIDs.toArray(new String[failedIUIDs.size()]));
+            }
+            reported = done;
+            lastRSPTime = System.nanoTime();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void awaitNextRSP() throws InterruptedException {
+        while (!finished) {
+            if (pendingRSPInterval == 0) {
+                changed.await();
+                continue;
+            }
+            long wait = lastRSPTime + pendingRSPInterval - System.nanoTime();
+            if (wait <= 0 && completed + warning + failed != reported)
+                return;
+            changed.awaitNanos(wait > 0 ? wait : pendingRSPInterval);
+        }
+    }
+
+    public DicomObject getCommand() {
+        return cmdrsp;
+    }
+
+    public DicomObject getDataset() {
+        return dataset;
+    }
+
+    /**
+     * Stops sending further C-STORE RQs. The final RSP follows after the
+     * C-STORE RSPs of already sent C-STORE RQs were received.
+     */
+    public void cancel(Association a) {
+        lock.lock();
+        try {
+            canceled = true;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
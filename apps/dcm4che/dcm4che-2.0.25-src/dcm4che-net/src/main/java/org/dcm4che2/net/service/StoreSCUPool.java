@@ -0,0 +1,198 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.net.service;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.concurrent.Executor;
+
+import org.dcm4che2.net.ConfigurationException;
+import org.dcm4che2.net.NetworkApplicationEntity;
+import org.dcm4che2.net.PipelinedStoreSCU;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Shares associations to C-MOVE destinations between concurrent retrieves.
+ * <p>
+ * The first {@link #acquire} for a pair of local and remote AE opens up to
+ * {@link #getMaxAssociations()} associations, wrapped by a
+ * {@link PipelinedStoreSCU}; further retrieves to the same destination
+ * acquire the same sender, so they spread their C-STORE RQs over the same
+ * associations. The associations are released, when the last retrieve
+ * releases the sender.
+ * 
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ */
+public class StoreSCUPool {
+
+    static Logger log = LoggerFactory.getLogger(StoreSCUPool.class);
+
+    private static class Entry {
+        int refs;
+        PipelinedStoreSCU scu;
+    }
+
+    private final HashMap<String, Entry> entries =
+            new HashMap<String, Entry>();
+
+    private final Executor executor;
+
+    private int maxAssociations = 1;
+
+    private int window;
+
+    /**
+     * @param executor
+     *                executor running the association reader threads and
+     *                the release of unused associations.
+     */
+    public StoreSCUPool(Executor executor) {
+        if (executor == null)
+            throw new NullPointerException("executor");
+        this.executor = executor;
+    }
+
+    public final int getMaxAssociations() {
+        return maxAssociations;
+    }
+
+    /**
+     * Set the maximal number of associations opened to one destination,
+     * 1 by default.
+     */
+    public final void setMaxAssociations(int maxAssociations) {
+        if (maxAssociations <= 0)
+            throw new IllegalArgumentException("maxAssociations: "
+                    + maxAssociations);
+        this.maxAssociations = maxAssociations;
+    }
+
+    public final int getWindow() {
+        return window;
+    }
+
+    /**
+     * Set the maximal number of outstanding C-STORE RQs per association, or
+     * <code>0</code> to only limit it by the negotiated Maximum Number of
+     * Operations Invoked, which is the default.
+     */
+    public final void setWindow(int window) {
+        if (window < 0)
+            throw new IllegalArgumentException("window: " + window);
+        this.window = window;
+    }
+
+    private static String key(NetworkApplicationEntity ae,
+            NetworkApplicationEntity remoteAE) {
+        return ae.getAETitle() + '\\' + remoteAE.getAETitle();
+    }
+
+    /**
+     * Returns the sender to <code>remoteAE</code>, opening up to
+     * <code>associations</code>, but not more than
+     * {@link #getMaxAssociations()} associations, if there is none yet.
+     * Each successful invocation must be followed by one invocation of
+     * {@link #release} with the same AEs.
+     */
+    public PipelinedStoreSCU acquire(NetworkApplicationEntity ae,
+            NetworkApplicationEntity remoteAE, int associations)
+            throws ConfigurationException, IOException,
+            InterruptedException {
+        String key = key(ae, remoteAE);
+        Entry e;
+        synchronized (entries) {
+            e = entries.get(key);
+            if (e == null) {
+                e = new Entry();
+                entries.put(key, e);
+            }
+            e.refs++;
+        }
+        boolean acquired = false;
+        try {
+            synchronized (e) {
+                // associations may have been closed by the remote AE
+                if (e.scu == null || !e.scu.isReadyForDataTransfer())
+                    e.scu = PipelinedStoreSCU.open(ae, remoteAE, executor,
+                            Math.max(1, Math.min(associations,
+                                    maxAssociations)), window);
+                acquired = true;
+                return e.scu;
+            }
+        } finally {
+            if (!acquired)
+                release(key);
+        }
+    }
+
+    /**
+     * Releases the sender acquired by {@link #acquire}. If no other retrieve
+     * uses it, its associations are released by a thread of the executor,
+     * so this method may be invoked by an association reader thread.
+     */
+    public void release(NetworkApplicationEntity ae,
+            NetworkApplicationEntity remoteAE) {
+        release(key(ae, remoteAE));
+    }
+
+    private void release(String key) {
+        final PipelinedStoreSCU scu;
+        synchronized (entries) {
+            Entry e = entries.get(key);
+            if (e == null || --e.refs > 0)
+                return;
+            entries.remove(key);
+            scu = e.scu;
+        }
+        if (scu == null)
+            return;
+        executor.execute(new Runnable() {
+            public void run() {
+                try {
+                    scu.release(true);
+                } catch (InterruptedException e) {
+                    log.warn("Interrupted release of " + scu, e);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,228 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.net.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.dcm4che2.data.DicomObject;
+import org.dcm4che2.net.Association;
+import org.dcm4che2.net.CancelRQHandler;
+import org.dcm4che2.net.CommandUtils;
+import org.dcm4che2.net.DicomServiceException;
+import org.dcm4che2.net.Status;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes the C-FIND RSPs for the matches of a {@link MatchSource}. Each run
+ * on the executor writes at most one batch of matches and then resubmits
+ * itself, so concurrent queries share the threads of the executor. While
+ * the source has no match available, the task is not scheduled at all.
+ * 
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ */
+class WriteMatchesRsp implements Runnable, CancelRQHandler {
+
+    static Logger log = LoggerFactory.getLogger(WriteMatchesRsp.class);
+
+    private final Association as;
+    private final int pcid;
+    private final DicomObject rq;
+    private final MatchSource source;
+    private final Executor executor;
+    private final int batchSize;
+    private final ArrayList<DicomObject> batch;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Runnable onAvailable = new Runnable() {
+        public void run() {
+            schedule();
+        }
+    };
+    private boolean scheduled;
+    private boolean signaled;
+    private boolean canceled;
+    private boolean finished;
+    private final DicomObject cmd;
+
+    public WriteMatchesRsp(Association as, int pcid, DicomObject rq,
+            MatchSource source, Executor executor, int batchSize) {
+        this.as = as;
+        this.pcid = pcid;
+        this.rq = rq;
+        this.source = source;
+        this.executor = executor;
+        this.batchSize = batchSize;
+        this.batch = new ArrayList<DicomObject>(batchSize);
+        this.cmd = CommandUtils.mkRSP(rq, Status.Pending);
+    }
+
+    void schedule() {
+        lock.lock();
+        try {
+            if (finished)
+                return;
+            if (scheduled) {
+                signaled = true;
+                return;
+            }
+            scheduled = true;
+        } finally {
+            lock.unlock();
+        }
+        executor.execute(this);
+    }
+
+    public void run() {
+        try {
+            for (;;) {
+                lock.lock();
+                try {
+                    signaled = false;
+                } finally {
+                    lock.unlock();
+                }
+                if (writeBatch()) {
+                    if (!isFinished())
+                        executor.execute(this);
+                    return;
+                }
+                lock.lock();
+                try {
+                    if (!signaled) {
+                        scheduled = false;
+                        return;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } catch (Throwable e) {
+            log.warn("Failed to write C-FIND RSP on " + as, e);
+            if (finish())
+                source.close();
+            as.abort();
+        }
+    }
+
+    /**
+     * Returns <code>false</code> if no match was available.
+     */
+    private boolean writeBatch() throws IOException {
+        if (isCanceled()) {
+            writeFinalRsp(CommandUtils.mkRSP(rq, Status.Cancel), null);
+            return true;
+        }
+        int n;
+        try {
+            n = source.poll(batch, batchSize, onAvailable);
+        } catch (DicomServiceException e) {
+            writeFinalRsp(e.getCommand(), e.getDataset());
+            return true;
+        }
+        if (n < 0) {
+            writeFinalRsp(CommandUtils.mkRSP(rq, CommandUtils.SUCCESS), null);
+            return true;
+        }
+        try {
+            for (int i = 0; i < n && !isCanceled(); i++)
+                as.writeDimseRSP(pcid, cmd, batch.get(i));
+        } finally {
+            batch.clear();
+        }
+        return n > 0;
+    }
+
+    private void writeFinalRsp(DicomObject cmd, DicomObject data)
+            throws IOException {
+        if (!finish())
+            return;
+        source.close();
+        as.writeDimseRSP(pcid, cmd, data);
+    }
+
+    private boolean finish() {
+        lock.lock();
+        try {
+            if (finished)
+                return false;
+            finished = true;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isFinished() {
+        lock.lock();
+        try {
+            return finished;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isCanceled() {
+        lock.lock();
+        try {
+            return canceled;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops writing matches; the C-FIND RSP with status Cancel is written by
+     * the next run, which is scheduled immediately, if the task waits for
+     * matches.
+     */
+    public void cancel(Association a) {
+        lock.lock();
+        try {
+            canceled = true;
+        } finally {
+            lock.unlock();
+        }
+        schedule();
+    }
+}
@@ -73,6 +73,11 @@ class WriteMultiDimseRsp implements Runnable {
             }
         } catch (Throwable e) {
             as.abort();
+            try {
+                rsp.cancel(as);
+            } catch (Throwable ignore) {
+                // operation already completed or failed
+            }
         }
     }
 
@@ -0,0 +1,289 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+package org.dcm4che2.net;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.dcm4che2.data.DicomObject;
+import org.dcm4che2.data.UID;
+import org.dcm4che2.net.service.VerificationService;
+
+public class BufferPoolTest extends TestCase {
+
+    private static final int PORT = 11192;
+
+    private static final String[] TS = { UID.ImplicitVRLittleEndian };
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(BufferPoolTest.class);
+    }
+
+    public BufferPoolTest(String name) {
+        super(name);
+    }
+
+    public void testSizeOf() {
+        assertEquals(BufferPool.MIN_BUFFER_SIZE, BufferPool.sizeOf(0));
+        assertEquals(BufferPool.MIN_BUFFER_SIZE, BufferPool.sizeOf(1024));
+        assertEquals(2048, BufferPool.sizeOf(1025));
+        assertEquals(16384, BufferPool.sizeOf(16384));
+        assertEquals(32768, BufferPool.sizeOf(16385));
+        assertEquals(BufferPool.MAX_BUFFER_SIZE,
+                BufferPool.sizeOf(BufferPool.MAX_BUFFER_SIZE));
+        assertEquals(BufferPool.MAX_BUFFER_SIZE + 1,
+                BufferPool.sizeOf(BufferPool.MAX_BUFFER_SIZE + 1));
+    }
+
+    public void testBorrowAndRelease() {
+        BufferPool pool = new BufferPool();
+        ByteBuffer bb = pool.borrow(3000, false);
+        assertEquals(4096, bb.capacity());
+        assertFalse(bb.isDirect());
+        assertEquals(4096, pool.getBorrowedBytes());
+        assertEquals(1, pool.getMissCount());
+        bb.putInt(1);
+        pool.release(bb);
+        assertEquals(0, pool.getBorrowedBytes());
+        assertEquals(1, pool.getPooledBuffers());
+        assertEquals(4096, pool.getPooledBytes());
+        // same size class
+        ByteBuffer bb2 = pool.borrow(2049, false);
+        assertSame(bb, bb2);
+        assertEquals(0, bb2.position());
+        assertEquals(4096, bb2.limit());
+        assertEquals(0, pool.getPooledBuffers());
+        assertEquals(2, pool.getBorrowCount());
+        assertEquals(1, pool.getMissCount());
+        // other size class
+        ByteBuffer bb3 = pool.borrow(5000, false);
+        assertEquals(8192, bb3.capacity());
+        assertEquals(2, pool.getMissCount());
+        pool.release(bb2);
+        pool.release(bb3);
+        pool.release(null);
+        assertEquals(2, pool.getPooledBuffers());
+        assertEquals(12288, pool.getPooledBytes());
+        pool.clear();
+        assertEquals(0, pool.getPooledBuffers());
+        assertEquals(0, pool.getPooledBytes());
+    }
+
+    public void testHeapAndDirectPooledSeparately() {
+        BufferPool pool = new BufferPool();
+        pool.release(pool.borrow(1024, true));
+        ByteBuffer heap = pool.borrow(1024, false);
+        assertFalse(heap.isDirect());
+        assertEquals(2, pool.getMissCount());
+        ByteBuffer direct = pool.borrow(1024, true);
+        assertTrue(direct.isDirect());
+        assertEquals(2, pool.getMissCount());
+        pool.release(heap);
+        pool.release(direct);
+    }
+
+    public void testOversizedBufferNotPooled() {
+        BufferPool pool = new BufferPool(Long.MAX_VALUE);
+        ByteBuffer bb = pool.borrow(BufferPool.MAX_BUFFER_SIZE + 1, false);
+        assertEquals(BufferPool.MAX_BUFFER_SIZE + 1, bb.capacity());
+        pool.release(bb);
+        assertEquals(0, pool.getBorrowedBytes());
+        assertEquals(0, pool.getPooledBuffers());
+    }
+
+    public void testPoolExhaustion() {
+        BufferPool pool = new BufferPool(8192);
+        ByteBuffer[] bbs = new ByteBuffer[4];
+        for (int i = 0; i < bbs.length; i++)
+            bbs[i] = pool.borrow(4096, false);
+        assertEquals(16384, pool.getBorrowedBytes());
+        for (int i = 0; i < bbs.length; i++)
+            pool.release(bbs[i]);
+        // only up to maxPooledBytes are kept
+        assertEquals(0, pool.getBorrowedBytes());
+        assertEquals(2, pool.getPooledBuffers());
+        assertEquals(8192, pool.getPooledBytes());
+        assertEquals(2, pool.getDiscardCount());
+        pool.resetMetrics();
+        for (int i = 0; i < bbs.length; i++)
+            bbs[i] = pool.borrow(4096, false);
+        assertEquals(4, pool.getBorrowCount());
+        assertEquals(2, pool.getMissCount());
+        assertEquals(0, pool.getPooledBuffers());
+    }
+
+    private static class EchoSCP extends VerificationService {
+        volatile Association as;
+
+        @Override
+        public void cecho(Association as, int pcid, DicomObject cmd)
+                throws IOException {
+            this.as = as;
+            super.cecho(as, pcid, cmd);
+        }
+    }
+
+    private ExecutorService executor;
+    private Device scpDevice;
+    private NetworkConnection scpConn;
+    private EchoSCP echoSCP;
+    private Device scuDevice;
+    private NetworkApplicationEntity scu;
+    private NetworkApplicationEntity remote;
+
+    private void startEchoSCP() throws Exception {
+        executor = Executors.newCachedThreadPool();
+        echoSCP = new EchoSCP();
+        scpConn = new NetworkConnection();
+        scpConn.setPort(PORT);
+        scpConn.setNonBlocking(true);
+        scpConn.setRequestTimeout(500);
+        // close the socket before the peer reacts on an A-ABORT
+        scpConn.setSocketCloseDelay(0);
+        NetworkApplicationEntity scp = new NetworkApplicationEntity();
+        scp.setAETitle("ECHOSCP");
+        scp.setNetworkConnection(scpConn);
+        scp.setAssociationAcceptor(true);
+        scp.setTransferCapability(new TransferCapability[] {
+                new TransferCapability(UID.VerificationSOPClass, TS,
+                        TransferCapability.SCP) });
+        scp.register(echoSCP);
+        scpDevice = new Device("ECHOSCP");
+        scpDevice.setNetworkConnection(scpConn);
+        scpDevice.setNetworkApplicationEntity(scp);
+        scpDevice.startListening(executor);
+
+        NetworkConnection scuConn = new NetworkConnection();
+        scu = new NetworkApplicationEntity();
+        scu.setAETitle("ECHOSCU");
+        scu.setNetworkConnection(scuConn);
+        scu.setAssociationInitiator(true);
+        scu.setTransferCapability(new TransferCapability[] {
+                new TransferCapability(UID.VerificationSOPClass, TS,
+                        TransferCapability.SCU) });
+        scuDevice = new Device("ECHOSCU");
+        scuDevice.setNetworkConnection(scuConn);
+        scuDevice.setNetworkApplicationEntity(scu);
+
+        NetworkConnection remoteConn = new NetworkConnection();
+        remoteConn.setHostname("localhost");
+        remoteConn.setPort(PORT);
+        remote = new NetworkApplicationEntity();
+        remote.setAETitle("ECHOSCP");
+        remote.setNetworkConnection(remoteConn);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (scpDevice != null)
+            scpDevice.stopListening();
+        if (executor != null) {
+            executor.shutdown();
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private static void awaitAllReleased(BufferPool pool)
+            throws InterruptedException {
+        long end = System.currentTimeMillis() + 5000;
+        while (pool.getBorrowedBytes() != 0) {
+            assertTrue("borrowed: " + pool.getBorrowedBytes(),
+                    System.currentTimeMillis() < end);
+            Thread.sleep(10);
+        }
+    }
+
+    private Association echo() throws Exception {
+        Association as = scu.connect(remote, executor);
+        DimseRSP rsp = as.cecho();
+        while (rsp.next())
+            ;
+        return as;
+    }
+
+    public void testReleasedAfterRelease() throws Exception {
+        startEchoSCP();
+        Association as = echo();
+        as.release(true);
+        awaitAllReleased(scuDevice.getBufferPool());
+        awaitAllReleased(scpDevice.getBufferPool());
+    }
+
+    public void testReleasedOnARTIMExpiry() throws Exception {
+        startEchoSCP();
+        Socket s = new Socket("localhost", PORT);
+        try {
+            // partial A-ASSOCIATE-RQ header
+            OutputStream out = s.getOutputStream();
+            out.write(new byte[] { 1, 0, 0 });
+            out.flush();
+            InputStream in = s.getInputStream();
+            s.setSoTimeout(5000);
+            assertEquals(-1, in.read());
+        } finally {
+            s.close();
+        }
+        awaitAllReleased(scpDevice.getBufferPool());
+    }
+
+    public void testReleasedOnAbortWhileWaitingForPDU() throws Exception {
+        startEchoSCP();
+        Association as = echo();
+        // partial P-DATA-TF header, read by the selector thread
+        OutputStream out = as.getSocket().getOutputStream();
+        out.write(new byte[] { 4, 0, 0, 0 });
+        out.flush();
+        BufferPool scpPool = scpDevice.getBufferPool();
+        long end = System.currentTimeMillis() + 5000;
+        while (scpPool.getBorrowedBytes() == 0) {
+            assertTrue(System.currentTimeMillis() < end);
+            Thread.sleep(10);
+        }
+        echoSCP.as.abort();
+        awaitAllReleased(scpPool);
+        awaitAllReleased(scuDevice.getBufferPool());
+    }
+}
@@ -0,0 +1,183 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.net;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.TestCase;
+
+import org.dcm4che2.data.BasicDicomObject;
+import org.dcm4che2.data.DicomObject;
+import org.dcm4che2.data.Tag;
+import org.dcm4che2.data.TransferSyntax;
+import org.dcm4che2.data.UID;
+import org.dcm4che2.data.VR;
+import org.dcm4che2.io.DicomOutputStream;
+import org.dcm4che2.net.service.StorageService;
+
+public class PDUDecoderTest extends TestCase {
+
+    private static final int PORT = 11190;
+
+    private static final String CUID = UID.SecondaryCaptureImageStorage;
+
+    private static final String IUID = "1.2.40.0.13.1.1.99";
+
+    private static final String[] TS = { UID.ImplicitVRLittleEndian };
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(PDUDecoderTest.class);
+    }
+
+    public PDUDecoderTest(String name) {
+        super(name);
+    }
+
+    private static class StoreSCP extends StorageService {
+        volatile boolean directReadable;
+        volatile byte[] received;
+
+        StoreSCP() {
+            super(CUID);
+        }
+
+        @Override
+        protected void onCStoreRQ(Association as, int pcid, DicomObject rq,
+                PDVInputStream dataStream, String tsuid, DicomObject rsp)
+                throws IOException {
+            directReadable = ((PDUDecoder) dataStream).isDirectReadable();
+            ByteArrayOutputStream bout = new ByteArrayOutputStream();
+            dataStream.transferTo(Channels.newChannel(bout));
+            received = bout.toByteArray();
+        }
+    }
+
+    private static DicomObject image() {
+        byte[] pixels = new byte[1000000];
+        for (int i = 0; i < pixels.length; i++)
+            pixels[i] = (byte) i;
+        DicomObject ds = new BasicDicomObject();
+        ds.putString(Tag.SOPClassUID, VR.UI, CUID);
+        ds.putString(Tag.SOPInstanceUID, VR.UI, IUID);
+        ds.putInt(Tag.Rows, VR.US, 1000);
+        ds.putInt(Tag.Columns, VR.US, 1000);
+        ds.putBytes(Tag.PixelData, VR.OW, pixels);
+        return ds;
+    }
+
+    private static byte[] encode(DicomObject ds) throws IOException {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        DicomOutputStream dos = new DicomOutputStream(bout);
+        dos.writeDataset(ds, TransferSyntax.ImplicitVRLittleEndian);
+        dos.close();
+        return bout.toByteArray();
+    }
+
+    private static StoreSCP store(boolean nonBlocking, DicomObject ds)
+            throws Exception {
+        StoreSCP storeSCP = new StoreSCP();
+        NetworkConnection scpConn = new NetworkConnection();
+        scpConn.setPort(PORT);
+        scpConn.setNonBlocking(nonBlocking);
+        NetworkApplicationEntity scp = new NetworkApplicationEntity();
+        scp.setAETitle("STORESCP");
+        scp.setNetworkConnection(scpConn);
+        scp.setAssociationAcceptor(true);
+        scp.setTransferCapability(new TransferCapability[] {
+                new TransferCapability(CUID, TS, TransferCapability.SCP) });
+        scp.register(storeSCP);
+        Device scpDevice = new Device("STORESCP");
+        scpDevice.setNetworkConnection(scpConn);
+        scpDevice.setNetworkApplicationEntity(scp);
+
+        NetworkConnection scuConn = new NetworkConnection();
+        NetworkApplicationEntity scu = new NetworkApplicationEntity();
+        scu.setAETitle("STORESCU");
+        scu.setNetworkConnection(scuConn);
+        scu.setAssociationInitiator(true);
+        scu.setTransferCapability(new TransferCapability[] {
+                new TransferCapability(CUID, TS, TransferCapability.SCU) });
+        Device scuDevice = new Device("STORESCU");
+        scuDevice.setNetworkConnection(scuConn);
+        scuDevice.setNetworkApplicationEntity(scu);
+
+        NetworkConnection remoteConn = new NetworkConnection();
+        remoteConn.setHostname("localhost");
+        remoteConn.setPort(PORT);
+        NetworkApplicationEntity remote = new NetworkApplicationEntity();
+        remote.setAETitle("STORESCP");
+        remote.setNetworkConnection(remoteConn);
+
+        ExecutorService executor = Executors.newCachedThreadPool();
+        scpDevice.startListening(executor);
+        try {
+            Association as = scu.connect(remote, executor);
+            DimseRSP rsp = as.cstore(CUID, IUID, 0,
+                    new DataWriterAdapter(ds), UID.ImplicitVRLittleEndian);
+            while (rsp.next())
+                ;
+            assertEquals(0, rsp.getCommand().getInt(Tag.Status));
+            as.release(true);
+        } finally {
+            scpDevice.stopListening();
+            executor.shutdown();
+        }
+        return storeSCP;
+    }
+
+    public void testTransferToDirectFromNonBlockingChannel()
+            throws Exception {
+        DicomObject ds = image();
+        StoreSCP storeSCP = store(true, ds);
+        assertTrue(storeSCP.directReadable);
+        assertTrue(Arrays.equals(encode(ds), storeSCP.received));
+    }
+
+    public void testTransferToFromStreamOfPlainSocket() throws Exception {
+        DicomObject ds = image();
+        StoreSCP storeSCP = store(false, ds);
+        assertFalse(storeSCP.directReadable);
+        assertTrue(Arrays.equals(encode(ds), storeSCP.received));
+    }
+}
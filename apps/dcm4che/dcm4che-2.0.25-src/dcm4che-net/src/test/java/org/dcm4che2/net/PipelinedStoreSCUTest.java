@@ -0,0 +1,199 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+package org.dcm4che2.net;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.dcm4che2.data.BasicDicomObject;
+import org.dcm4che2.data.DicomObject;
+import org.dcm4che2.data.Tag;
+import org.dcm4che2.data.UID;
+import org.dcm4che2.data.VR;
+import org.dcm4che2.net.service.StorageService;
+
+public class PipelinedStoreSCUTest extends TestCase {
+
+    private static final int PORT = 11193;
+
+    private static final String CUID = UID.SecondaryCaptureImageStorage;
+
+    private static final String[] TS = { UID.ImplicitVRLittleEndian };
+
+    private static final int SLOW_RSP_DELAY = 500;
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(PipelinedStoreSCUTest.class);
+    }
+
+    public PipelinedStoreSCUTest(String name) {
+        super(name);
+    }
+
+    /**
+     * Delays the C-STORE RSPs on the association from the given port, or on
+     * all associations if the port is <code>-1</code>.
+     */
+    private static class StoreSCP extends StorageService {
+        volatile int slowPort;
+
+        StoreSCP() {
+            super(CUID);
+        }
+
+        @Override
+        protected void onCStoreRQ(Association as, int pcid, DicomObject rq,
+                PDVInputStream dataStream, String tsuid, DicomObject rsp)
+                throws IOException {
+            dataStream.readDataset();
+            if (slowPort == -1 || as.getSocket().getPort() == slowPort)
+                try {
+                    Thread.sleep(SLOW_RSP_DELAY);
+                } catch (InterruptedException e) {
+                    throw new IOException("interrupted");
+                }
+        }
+    }
+
+    private ExecutorService executor;
+    private Device scpDevice;
+    private StoreSCP storeSCP;
+    private NetworkApplicationEntity scu;
+    private NetworkApplicationEntity remote;
+
+    @Override
+    protected void setUp() throws Exception {
+        executor = Executors.newCachedThreadPool();
+        storeSCP = new StoreSCP();
+        NetworkConnection scpConn = new NetworkConnection();
+        scpConn.setPort(PORT);
+        NetworkApplicationEntity scp = new NetworkApplicationEntity();
+        scp.setAETitle("STORESCP");
+        scp.setNetworkConnection(scpConn);
+        scp.setAssociationAcceptor(true);
+        scp.setTransferCapability(new TransferCapability[] {
+                new TransferCapability(CUID, TS, TransferCapability.SCP) });
+        scp.register(storeSCP);
+        scpDevice = new Device("STORESCP");
+        scpDevice.setNetworkConnection(scpConn);
+        scpDevice.setNetworkApplicationEntity(scp);
+        scpDevice.startListening(executor);
+
+        NetworkConnection scuConn = new NetworkConnection();
+        scu = new NetworkApplicationEntity();
+        scu.setAETitle("STORESCU");
+        scu.setNetworkConnection(scuConn);
+        scu.setAssociationInitiator(true);
+        scu.setTransferCapability(new TransferCapability[] {
+                new TransferCapability(CUID, TS, TransferCapability.SCU) });
+        Device scuDevice = new Device("STORESCU");
+        scuDevice.setNetworkConnection(scuConn);
+        scuDevice.setNetworkApplicationEntity(scu);
+
+        NetworkConnection remoteConn = new NetworkConnection();
+        remoteConn.setHostname("localhost");
+        remoteConn.setPort(PORT);
+        remote = new NetworkApplicationEntity();
+        remote.setAETitle("STORESCP");
+        remote.setNetworkConnection(remoteConn);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        scpDevice.stopListening();
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private static DataWriter instance(String iuid) {
+        DicomObject ds = new BasicDicomObject();
+        ds.putString(Tag.SOPClassUID, VR.UI, CUID);
+        ds.putString(Tag.SOPInstanceUID, VR.UI, iuid);
+        return new DataWriterAdapter(ds);
+    }
+
+    public void testSendOverFasterAssociation() throws Exception {
+        PipelinedStoreSCU storeSCU = PipelinedStoreSCU.open(scu, remote,
+                executor, 2, 1);
+        Association[] as = storeSCU.getAssociations();
+        Association slow = as[0];
+        storeSCP.slowPort = slow.getSocket().getLocalPort();
+        int n = 20;
+        DimseRSPFuture[] rsps = new DimseRSPFuture[n];
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < n; i++)
+            rsps[i] = storeSCU.cstore(CUID, "1.2.40.0.13.1.1.99." + i, 0,
+                    instance("1.2.40.0.13.1.1.99." + i),
+                    UID.ImplicitVRLittleEndian);
+        storeSCU.waitForOutstandingRSP();
+        long elapsed = System.currentTimeMillis() - start;
+        int slowCount = 0;
+        for (int i = 0; i < n; i++) {
+            assertEquals(0, rsps[i].getCommand().getInt(Tag.Status));
+            if (rsps[i].getAssociation() == slow)
+                slowCount++;
+        }
+        // waiting for a RSP on the slow association would take 500ms each
+        assertTrue("RQs sent over slow association: " + slowCount,
+                slowCount <= 2);
+        assertTrue("elapsed: " + elapsed, elapsed < 4 * SLOW_RSP_DELAY);
+        assertEquals(0, storeSCU.getOutstanding());
+        storeSCU.release(true);
+    }
+
+    public void testWindowLimitsOutstanding() throws Exception {
+        PipelinedStoreSCU storeSCU = PipelinedStoreSCU.open(scu, remote,
+                executor, 2, 2);
+        storeSCP.slowPort = -1;
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 6; i++)
+            storeSCU.cstore(CUID, "1.2.40.0.13.1.1.99." + i, 0,
+                    instance("1.2.40.0.13.1.1.99." + i),
+                    UID.ImplicitVRLittleEndian);
+        // the 5th RQ waited for the RSP to one of the first 4 RQs
+        assertTrue(System.currentTimeMillis() - start >= SLOW_RSP_DELAY / 2);
+        assertTrue(storeSCU.getOutstanding() <= 4);
+        storeSCU.waitForOutstandingRSP();
+        assertEquals(0, storeSCU.getOutstanding());
+        storeSCU.release(true);
+    }
+}
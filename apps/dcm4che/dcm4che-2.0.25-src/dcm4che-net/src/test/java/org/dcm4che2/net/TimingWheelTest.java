@@ -0,0 +1,219 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+package org.dcm4che2.net;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+public class TimingWheelTest extends TestCase {
+
+    private static final String NAME = "TimingWheelTest";
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(TimingWheelTest.class);
+    }
+
+    public TimingWheelTest(String name) {
+        super(name);
+    }
+
+    private TimingWheel wheel;
+
+    @Override
+    protected void setUp() {
+        wheel = new TimingWheel(NAME, 10, 8);
+    }
+
+    @Override
+    protected void tearDown() {
+        wheel.stop();
+    }
+
+    private static class Task implements Runnable {
+        final List<Integer> fired;
+        final int id;
+        final CountDownLatch latch;
+        final long sleep;
+
+        Task(List<Integer> fired, int id, CountDownLatch latch, long sleep) {
+            this.fired = fired;
+            this.id = id;
+            this.latch = latch;
+            this.sleep = sleep;
+        }
+
+        public void run() {
+            synchronized (fired) {
+                fired.add(Integer.valueOf(id));
+            }
+            if (sleep > 0)
+                try {
+                    Thread.sleep(sleep);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            latch.countDown();
+        }
+    }
+
+    private static boolean isWorkerAlive() {
+        for (Thread th : Thread.getAllStackTraces().keySet())
+            if (NAME.equals(th.getName()) && th.isAlive())
+                return true;
+        return false;
+    }
+
+    // the expired count is updated after the task was run
+    private void awaitExpiredCount(long n) throws InterruptedException {
+        long end = System.currentTimeMillis() + 5000;
+        while (wheel.getExpiredCount() < n) {
+            assertTrue("expired count: " + wheel.getExpiredCount(),
+                    System.currentTimeMillis() < end);
+            Thread.sleep(10);
+        }
+        assertEquals(n, wheel.getExpiredCount());
+    }
+
+    public void testCancel() throws Exception {
+        List<Integer> fired = new ArrayList<Integer>();
+        CountDownLatch latch = new CountDownLatch(1);
+        TimingWheel.Timeout t1 = wheel.schedule(
+                new Task(fired, 1, latch, 0), 200);
+        TimingWheel.Timeout t2 = wheel.schedule(
+                new Task(fired, 2, latch, 0), 100);
+        assertEquals(2, wheel.getTimerCount());
+        assertTrue(t1.cancel());
+        assertFalse(t1.cancel());
+        assertEquals(1, wheel.getTimerCount());
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Thread.sleep(300);
+        assertEquals(1, fired.size());
+        assertEquals(2, fired.get(0).intValue());
+        assertEquals(0, wheel.getTimerCount());
+        awaitExpiredCount(1);
+        // already expired
+        assertFalse(t2.cancel());
+    }
+
+    public void testFiringOrder() throws Exception {
+        // delays span several rounds of the wheel of 8 ticks of 10 ms
+        long[] delays = { 250, 30, 170, 0, 90, 60 };
+        int[] order = { 3, 1, 5, 4, 2, 0 };
+        List<Integer> fired = new ArrayList<Integer>();
+        CountDownLatch latch = new CountDownLatch(delays.length);
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < delays.length; i++)
+            wheel.schedule(new Task(fired, i, latch, 0), delays[i]);
+        assertEquals(delays.length, wheel.getTimerCount());
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(System.currentTimeMillis() - start >= 250);
+        assertEquals(delays.length, fired.size());
+        for (int i = 0; i < order.length; i++)
+            assertEquals(order[i], fired.get(i).intValue());
+        assertEquals(0, wheel.getTimerCount());
+    }
+
+    public void testNotBeforeDeadline() throws Exception {
+        final long[] firedAt = new long[1];
+        final CountDownLatch latch = new CountDownLatch(1);
+        TimingWheel.Timeout timeout = wheel.schedule(new Runnable() {
+            public void run() {
+                firedAt[0] = System.currentTimeMillis();
+                latch.countDown();
+            }
+        }, 123);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(firedAt[0] >= timeout.getDeadline());
+    }
+
+    public void testRearmAfterIdleWorkerExit() throws Exception {
+        List<Integer> fired = new ArrayList<Integer>();
+        CountDownLatch latch1 = new CountDownLatch(1);
+        wheel.schedule(new Task(fired, 1, latch1, 0), 10);
+        assertTrue(isWorkerAlive());
+        assertTrue(latch1.await(5, TimeUnit.SECONDS));
+        // the worker exits after the wheel was empty for one round of 80 ms
+        long end = System.currentTimeMillis() + 5000;
+        while (isWorkerAlive()) {
+            assertTrue("idle worker alive", System.currentTimeMillis() < end);
+            Thread.sleep(20);
+        }
+        CountDownLatch latch2 = new CountDownLatch(1);
+        wheel.schedule(new Task(fired, 2, latch2, 0), 10);
+        assertTrue(isWorkerAlive());
+        assertTrue(latch2.await(5, TimeUnit.SECONDS));
+        assertEquals(2, fired.size());
+        awaitExpiredCount(2);
+    }
+
+    public void testFireLagMetrics() throws Exception {
+        List<Integer> fired = new ArrayList<Integer>();
+        CountDownLatch latch = new CountDownLatch(2);
+        // the second task is delayed by the first, blocking one
+        wheel.schedule(new Task(fired, 1, latch, 200), 50);
+        wheel.schedule(new Task(fired, 2, latch, 0), 50);
+        assertEquals(2, wheel.getTimerCount());
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(0, wheel.getTimerCount());
+        awaitExpiredCount(2);
+        assertTrue("max fire lag: " + wheel.getMaxFireLag(),
+                wheel.getMaxFireLag() >= 150);
+        assertTrue(wheel.getAverageFireLag() >= 75f);
+        wheel.resetMetrics();
+        assertEquals(0, wheel.getExpiredCount());
+        assertEquals(0, wheel.getMaxFireLag());
+        assertEquals(0f, wheel.getAverageFireLag(), 0f);
+    }
+
+    public void testScheduleAfterStop() {
+        wheel.stop();
+        try {
+            wheel.schedule(new Runnable() {
+                public void run() {
+                }
+            }, 10);
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+}
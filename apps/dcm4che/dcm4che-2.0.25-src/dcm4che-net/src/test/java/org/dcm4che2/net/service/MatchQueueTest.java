@@ -0,0 +1,192 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+package org.dcm4che2.net.service;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.dcm4che2.data.BasicDicomObject;
+import org.dcm4che2.data.DicomObject;
+import org.dcm4che2.data.Tag;
+import org.dcm4che2.data.VR;
+import org.dcm4che2.net.DicomServiceException;
+import org.dcm4che2.net.Status;
+
+public class MatchQueueTest extends TestCase {
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(MatchQueueTest.class);
+    }
+
+    public MatchQueueTest(String name) {
+        super(name);
+    }
+
+    private static DicomObject match(String pid) {
+        DicomObject o = new BasicDicomObject();
+        o.putString(Tag.PatientID, VR.LO, pid);
+        return o;
+    }
+
+    private static DicomObject match(int valueLength) {
+        DicomObject o = new BasicDicomObject();
+        o.putBytes(Tag.PixelData, VR.OB, new byte[valueLength]);
+        return o;
+    }
+
+    public void testOfferLimitedByMaxMatches() throws Exception {
+        MatchQueue q = new MatchQueue(2, 0);
+        assertTrue(q.offer(match("1")));
+        assertTrue(q.offer(match("2")));
+        assertFalse(q.offer(match("3")));
+        ArrayList<DicomObject> batch = new ArrayList<DicomObject>();
+        assertEquals(1, q.poll(batch, 1, null));
+        assertEquals("1", batch.get(0).getString(Tag.PatientID));
+        assertTrue(q.offer(match("3")));
+        assertFalse(q.offer(match("4")));
+    }
+
+    public void testOfferLimitedByPrefetchLength() throws Exception {
+        MatchQueue q = new MatchQueue(100, 1000);
+        // one match is always accepted, regardless of its length
+        assertTrue(q.offer(match(2000)));
+        assertFalse(q.offer(match(10)));
+        ArrayList<DicomObject> batch = new ArrayList<DicomObject>();
+        assertEquals(1, q.poll(batch, 10, null));
+        // accepted, while the prefetched length is below the limit
+        assertTrue(q.offer(match(600)));
+        assertTrue(q.offer(match(600)));
+        assertFalse(q.offer(match(600)));
+        batch.clear();
+        assertEquals(2, q.poll(batch, 10, null));
+        assertTrue(q.offer(match(600)));
+    }
+
+    public void testPutBlocksWhileFull() throws Exception {
+        final MatchQueue q = new MatchQueue(1, 0);
+        assertTrue(q.put(match("1")));
+        final CountDownLatch added = new CountDownLatch(1);
+        Thread producer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    if (q.put(match("2")))
+                        added.countDown();
+                } catch (InterruptedException e) {
+                    // test fails
+                }
+            }
+        };
+        producer.start();
+        assertFalse(added.await(200, TimeUnit.MILLISECONDS));
+        ArrayList<DicomObject> batch = new ArrayList<DicomObject>();
+        assertEquals(1, q.poll(batch, 10, null));
+        assertTrue(added.await(5, TimeUnit.SECONDS));
+        producer.join(5000);
+        batch.clear();
+        assertEquals(1, q.poll(batch, 10, null));
+        assertEquals("2", batch.get(0).getString(Tag.PatientID));
+    }
+
+    public void testCloseReleasesWaitingProducer() throws Exception {
+        final MatchQueue q = new MatchQueue(1, 0);
+        assertTrue(q.put(match("1")));
+        final AtomicBoolean result = new AtomicBoolean(true);
+        Thread producer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    result.set(q.put(match("2")));
+                } catch (InterruptedException e) {
+                    // test fails
+                }
+            }
+        };
+        producer.start();
+        Thread.sleep(100);
+        assertTrue(producer.isAlive());
+        q.close();
+        producer.join(5000);
+        assertFalse(producer.isAlive());
+        assertFalse(result.get());
+        assertTrue(q.isClosed());
+        assertFalse(q.offer(match("3")));
+    }
+
+    public void testOnAvailableRunOnce() throws Exception {
+        MatchQueue q = new MatchQueue(10, 0);
+        final AtomicInteger count = new AtomicInteger();
+        Runnable onAvailable = new Runnable() {
+            public void run() {
+                count.incrementAndGet();
+            }
+        };
+        ArrayList<DicomObject> batch = new ArrayList<DicomObject>();
+        assertEquals(0, q.poll(batch, 10, onAvailable));
+        assertEquals(0, count.get());
+        q.offer(match("1"));
+        q.offer(match("2"));
+        assertEquals(1, count.get());
+        assertEquals(2, q.poll(batch, 10, onAvailable));
+        q.complete();
+        assertEquals(1, count.get());
+        assertEquals(-1, q.poll(batch, 10, onAvailable));
+    }
+
+    public void testFailAfterQueuedMatches() throws Exception {
+        MatchQueue q = new MatchQueue(10, 0);
+        q.offer(match("1"));
+        q.fail(new DicomServiceException(new BasicDicomObject(),
+                Status.ProcessingFailure));
+        assertFalse(q.offer(match("2")));
+        ArrayList<DicomObject> batch = new ArrayList<DicomObject>();
+        assertEquals(1, q.poll(batch, 10, null));
+        try {
+            q.poll(batch, 10, null);
+            fail("DicomServiceException expected");
+        } catch (DicomServiceException e) {
+            assertEquals(Status.ProcessingFailure,
+                    e.getCommand().getInt(Tag.Status));
+        }
+    }
+}
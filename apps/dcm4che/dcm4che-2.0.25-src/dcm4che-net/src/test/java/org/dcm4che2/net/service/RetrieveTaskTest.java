@@ -0,0 +1,348 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+package org.dcm4che2.net.service;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import junit.framework.TestCase;
+
+import org.dcm4che2.data.BasicDicomObject;
+import org.dcm4che2.data.DicomObject;
+import org.dcm4che2.data.Tag;
+import org.dcm4che2.data.UID;
+import org.dcm4che2.data.VR;
+import org.dcm4che2.net.Association;
+import org.dcm4che2.net.CommandUtils;
+import org.dcm4che2.net.DataWriter;
+import org.dcm4che2.net.Device;
+import org.dcm4che2.net.DimseRSPFuture;
+import org.dcm4che2.net.NetworkConnection;
+import org.dcm4che2.net.PDVOutputStream;
+import org.dcm4che2.net.PipelinedStoreSCU;
+import org.dcm4che2.net.Status;
+
+public class RetrieveTaskTest extends TestCase {
+
+    private static final String CUID = UID.SecondaryCaptureImageStorage;
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(RetrieveTaskTest.class);
+    }
+
+    public RetrieveTaskTest(String name) {
+        super(name);
+    }
+
+    private static class TestAssociation extends Association {
+        TestAssociation(Socket socket, NetworkConnection conn)
+                throws IOException {
+            super(socket, conn, true);
+        }
+    }
+
+    /**
+     * Records the C-STORE RQs, whose RSPs are completed by the test. RQs of
+     * instances, whose UID is contained in <code>unsendable</code>, fail
+     * with an IOException.
+     */
+    private static class TestStoreSCU extends PipelinedStoreSCU {
+        final ReentrantLock lock = new ReentrantLock();
+        final Condition sent = lock.newCondition();
+        final List<String> iuids = new ArrayList<String>();
+        final List<DimseRSPFuture> rsps = new ArrayList<DimseRSPFuture>();
+        final List<String> unsendable = new ArrayList<String>();
+        RetrieveTask cancelAfter;
+        int cancelAfterCount;
+
+        TestStoreSCU(Association as) {
+            super(new Association[] { as }, 0);
+        }
+
+        @Override
+        public DimseRSPFuture cstore(String asuid, String cuid, String iuid,
+                int priority, String moveOriginatorAET,
+                int moveOriginatorMsgId, DataWriter data, String tsuid)
+                throws IOException {
+            if (unsendable.contains(iuid))
+                throw new IOException("Failed to send " + iuid);
+            DimseRSPFuture rsp = new DimseRSPFuture();
+            lock.lock();
+            try {
+                iuids.add(iuid);
+                rsps.add(rsp);
+                sent.signalAll();
+                if (cancelAfter != null && iuids.size() == cancelAfterCount)
+                    cancelAfter.cancel(null);
+            } finally {
+                lock.unlock();
+            }
+            return rsp;
+        }
+
+        void awaitSent(int n) throws InterruptedException {
+            lock.lock();
+            try {
+                while (iuids.size() < n)
+                    assertTrue("timeout", sent.await(5, TimeUnit.SECONDS));
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void complete(int i, int status) {
+            DicomObject cmd = new BasicDicomObject();
+            cmd.putInt(Tag.Status, VR.US, status);
+            DimseRSPFuture rsp;
+            lock.lock();
+            try {
+                rsp = rsps.get(i);
+            } finally {
+                lock.unlock();
+            }
+            rsp.onDimseRSP(null, cmd, null);
+        }
+    }
+
+    private static final DataWriter NO_DATA = new DataWriter() {
+        public void writeTo(PDVOutputStream out, String tsuid) {
+            // not invoked by TestStoreSCU
+        }
+    };
+
+    private static final Executor NEW_THREAD = new Executor() {
+        public void execute(Runnable command) {
+            new Thread(command).start();
+        }
+    };
+
+    private ServerSocket server;
+    private Socket client;
+    private Socket socket;
+    private TestStoreSCU scu;
+    private DicomObject rq;
+
+    @Override
+    protected void setUp() throws Exception {
+        server = new ServerSocket(0);
+        client = new Socket("localhost", server.getLocalPort());
+        socket = server.accept();
+        NetworkConnection conn = new NetworkConnection();
+        new Device("MOVESCP").setNetworkConnection(conn);
+        scu = new TestStoreSCU(new TestAssociation(client, conn));
+        rq = CommandUtils.mkCMoveRQ(1,
+                UID.StudyRootQueryRetrieveInformationModelMOVE, 0, "DEST");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        socket.close();
+        client.close();
+        server.close();
+    }
+
+    private static List<RetrieveInstance> instances(int n) {
+        List<RetrieveInstance> list = new ArrayList<RetrieveInstance>(n);
+        for (int i = 0; i < n; i++)
+            list.add(new RetrieveInstance(CUID, iuid(i),
+                    UID.ImplicitVRLittleEndian, NO_DATA));
+        return list;
+    }
+
+    private static String iuid(int i) {
+        return "1.2.40.0.13.1.1.99." + i;
+    }
+
+    private static int status(RetrieveTask task) {
+        return task.getCommand().getInt(Tag.Status);
+    }
+
+    private static int remaining(RetrieveTask task) {
+        return task.getCommand().getInt(Tag.NumberOfRemainingSuboperations,
+                -1);
+    }
+
+    private static int completed(RetrieveTask task) {
+        return task.getCommand().getInt(Tag.NumberOfCompletedSuboperations);
+    }
+
+    private static int failed(RetrieveTask task) {
+        return task.getCommand().getInt(Tag.NumberOfFailedSuboperations);
+    }
+
+    private static int warning(RetrieveTask task) {
+        return task.getCommand().getInt(Tag.NumberOfWarningSuboperations);
+    }
+
+    public void testPendingRSPThrottled() throws Exception {
+        RetrieveTask task = new RetrieveTask(rq, scu, instances(3), "SCU",
+                300);
+        task.start(NEW_THREAD, 1);
+        scu.awaitSent(3);
+        long start = System.nanoTime();
+        assertTrue(task.next());
+        assertEquals(Status.Pending, status(task));
+        assertEquals(3, remaining(task));
+        scu.complete(0, Status.Success);
+        assertTrue(task.next());
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(
+                System.nanoTime() - start);
+        assertTrue("pending RSP after " + elapsed + "ms", elapsed >= 250);
+        assertEquals(Status.Pending, status(task));
+        assertEquals(2, remaining(task));
+        assertEquals(1, completed(task));
+        // no pending RSP without progress after the interval elapsed
+        final long completeAt = System.nanoTime()
+                + TimeUnit.MILLISECONDS.toNanos(600);
+        new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(600);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                scu.complete(1, Status.Success);
+                scu.complete(2, Status.Success);
+            }
+        }.start();
+        assertTrue(task.next());
+        assertTrue(System.nanoTime() >= completeAt);
+        assertEquals(Status.Success, status(task));
+        assertEquals(-1, remaining(task));
+        assertEquals(3, completed(task));
+        assertNull(task.getDataset());
+        assertFalse(task.next());
+    }
+
+    public void testCancelReportsRemaining() throws Exception {
+        RetrieveTask task = new RetrieveTask(rq, scu, instances(5), "SCU",
+                0);
+        scu.cancelAfter = task;
+        scu.cancelAfterCount = 2;
+        task.start(NEW_THREAD, 1);
+        scu.awaitSent(2);
+        assertTrue(task.next());
+        assertEquals(Status.Pending, status(task));
+        scu.complete(0, Status.Success);
+        scu.complete(1, Status.ProcessingFailure);
+        while (CommandUtils.isPending(task.getCommand()))
+            assertTrue(task.next());
+        assertEquals(Status.Cancel, status(task));
+        assertEquals(3, remaining(task));
+        assertEquals(1, completed(task));
+        assertEquals(1, failed(task));
+        assertEquals(2, scu.iuids.size());
+        assertEquals(iuid(1), task.getDataset().getString(
+                Tag.FailedSOPInstanceUIDList));
+    }
+
+    public void testFailedSOPInstanceUIDList() throws Exception {
+        RetrieveTask task = new RetrieveTask(rq, scu, instances(4), "SCU",
+                0);
+        task.start(NEW_THREAD, 2);
+        scu.awaitSent(4);
+        assertTrue(task.next());
+        for (int i = 0; i < 4; i++) {
+            String iuid = scu.iuids.get(i);
+            // 0xB007: Warning - Coercion of Data Elements
+            scu.complete(i, iuid.equals(iuid(0)) ? Status.Success
+                    : iuid.equals(iuid(1)) ? 0xB007
+                    : Status.ProcessingFailure);
+        }
+        while (CommandUtils.isPending(task.getCommand()))
+            assertTrue(task.next());
+        assertEquals(Status.OneOrMoreFailures, status(task));
+        assertEquals(1, completed(task));
+        assertEquals(1, warning(task));
+        assertEquals(2, failed(task));
+        String[] failedIUIDs = task.getDataset().getStrings(
+                Tag.FailedSOPInstanceUIDList);
+        assertEquals(2, failedIUIDs.length);
+        List<String> expected = new ArrayList<String>();
+        expected.add(iuid(2));
+        expected.add(iuid(3));
+        assertTrue(expected.contains(failedIUIDs[0]));
+        assertTrue(expected.contains(failedIUIDs[1]));
+    }
+
+    public void testAllAttemptedSubOperationsFailed() throws Exception {
+        RetrieveTask task = new RetrieveTask(rq, scu, instances(2), "SCU",
+                0);
+        task.start(NEW_THREAD, 1);
+        scu.awaitSent(2);
+        assertTrue(task.next());
+        scu.complete(0, Status.ProcessingFailure);
+        scu.complete(1, Status.ProcessingFailure);
+        while (CommandUtils.isPending(task.getCommand()))
+            assertTrue(task.next());
+        assertEquals(Status.OneOrMoreFailures, status(task));
+        assertEquals(2, failed(task));
+    }
+
+    public void testNoSubOperationAttempted() throws Exception {
+        scu.unsendable.add(iuid(0));
+        scu.unsendable.add(iuid(1));
+        RetrieveTask task = new RetrieveTask(rq, scu, instances(2), "SCU",
+                0);
+        task.start(NEW_THREAD, 1);
+        assertTrue(task.next());
+        while (CommandUtils.isPending(task.getCommand()))
+            assertTrue(task.next());
+        assertEquals(Status.UnableToPerformSubOperations, status(task));
+        assertEquals(2, failed(task));
+        assertEquals(2, task.getDataset().getStrings(
+                Tag.FailedSOPInstanceUIDList).length);
+    }
+
+    public void testNoInstances() throws Exception {
+        RetrieveTask task = new RetrieveTask(rq, scu, instances(0), "SCU",
+                0);
+        task.start(NEW_THREAD, 1);
+        assertTrue(task.next());
+        assertEquals(Status.Success, status(task));
+        assertFalse(task.next());
+    }
+}
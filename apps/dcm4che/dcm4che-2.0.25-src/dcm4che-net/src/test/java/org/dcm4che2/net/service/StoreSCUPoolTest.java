@@ -0,0 +1,199 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+package org.dcm4che2.net.service;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.dcm4che2.data.BasicDicomObject;
+import org.dcm4che2.data.DicomObject;
+import org.dcm4che2.data.Tag;
+import org.dcm4che2.data.UID;
+import org.dcm4che2.data.VR;
+import org.dcm4che2.net.Association;
+import org.dcm4che2.net.DataWriterAdapter;
+import org.dcm4che2.net.Device;
+import org.dcm4che2.net.NetworkApplicationEntity;
+import org.dcm4che2.net.NetworkConnection;
+import org.dcm4che2.net.PDVInputStream;
+import org.dcm4che2.net.PipelinedStoreSCU;
+import org.dcm4che2.net.TransferCapability;
+
+public class StoreSCUPoolTest extends TestCase {
+
+    private static final int PORT = 11191;
+
+    private static final String CUID = UID.SecondaryCaptureImageStorage;
+
+    private static final String[] TS = { UID.ImplicitVRLittleEndian };
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(StoreSCUPoolTest.class);
+    }
+
+    public StoreSCUPoolTest(String name) {
+        super(name);
+    }
+
+    private static class StoreSCP extends StorageService {
+        final AtomicInteger received = new AtomicInteger();
+
+        StoreSCP() {
+            super(CUID);
+        }
+
+        @Override
+        protected void onCStoreRQ(Association as, int pcid, DicomObject rq,
+                PDVInputStream dataStream, String tsuid, DicomObject rsp)
+                throws IOException {
+            dataStream.readDataset();
+            received.incrementAndGet();
+        }
+    }
+
+    private ExecutorService executor;
+    private Device scpDevice;
+    private StoreSCP storeSCP;
+    private NetworkApplicationEntity scu;
+    private NetworkApplicationEntity remote;
+    private StoreSCUPool pool;
+
+    @Override
+    protected void setUp() throws Exception {
+        executor = Executors.newCachedThreadPool();
+        storeSCP = new StoreSCP();
+        NetworkConnection scpConn = new NetworkConnection();
+        scpConn.setPort(PORT);
+        NetworkApplicationEntity scp = new NetworkApplicationEntity();
+        scp.setAETitle("STORESCP");
+        scp.setNetworkConnection(scpConn);
+        scp.setAssociationAcceptor(true);
+        scp.setTransferCapability(new TransferCapability[] {
+                new TransferCapability(CUID, TS, TransferCapability.SCP) });
+        scp.register(storeSCP);
+        scpDevice = new Device("STORESCP");
+        scpDevice.setNetworkConnection(scpConn);
+        scpDevice.setNetworkApplicationEntity(scp);
+        scpDevice.startListening(executor);
+
+        NetworkConnection scuConn = new NetworkConnection();
+        scu = new NetworkApplicationEntity();
+        scu.setAETitle("MOVESCP");
+        scu.setNetworkConnection(scuConn);
+        scu.setAssociationInitiator(true);
+        scu.setTransferCapability(new TransferCapability[] {
+                new TransferCapability(CUID, TS, TransferCapability.SCU) });
+        Device scuDevice = new Device("MOVESCP");
+        scuDevice.setNetworkConnection(scuConn);
+        scuDevice.setNetworkApplicationEntity(scu);
+
+        NetworkConnection remoteConn = new NetworkConnection();
+        remoteConn.setHostname("localhost");
+        remoteConn.setPort(PORT);
+        remote = new NetworkApplicationEntity();
+        remote.setAETitle("STORESCP");
+        remote.setNetworkConnection(remoteConn);
+
+        pool = new StoreSCUPool(executor);
+        pool.setMaxAssociations(2);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        scpDevice.stopListening();
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private static DicomObject instance(int i) {
+        DicomObject ds = new BasicDicomObject();
+        ds.putString(Tag.SOPClassUID, VR.UI, CUID);
+        ds.putString(Tag.SOPInstanceUID, VR.UI, "1.2.40.0.13.1.1.99." + i);
+        return ds;
+    }
+
+    private static void awaitClosed(Association[] as)
+            throws InterruptedException {
+        long end = System.currentTimeMillis() + 5000;
+        for (int i = 0; i < as.length; i++)
+            while (as[i].isReadyForDataTransfer()) {
+                assertTrue("association not released",
+                        System.currentTimeMillis() < end);
+                Thread.sleep(10);
+            }
+    }
+
+    public void testReleaseAfterLastRetrieve() throws Exception {
+        PipelinedStoreSCU scu1 = pool.acquire(scu, remote, 3);
+        PipelinedStoreSCU scu2 = pool.acquire(scu, remote, 3);
+        assertSame(scu1, scu2);
+        Association[] as = scu1.getAssociations();
+        assertEquals(2, as.length);
+        for (int i = 0; i < 4; i++)
+            scu2.cstore(CUID, "1.2.40.0.13.1.1.99." + i, 0,
+                    new DataWriterAdapter(instance(i)),
+                    UID.ImplicitVRLittleEndian);
+        pool.release(scu, remote);
+        Thread.sleep(200);
+        assertTrue(as[0].isReadyForDataTransfer());
+        assertTrue(as[1].isReadyForDataTransfer());
+        pool.release(scu, remote);
+        awaitClosed(as);
+        // outstanding C-STORE RSPs were awaited before the release
+        assertEquals(0, scu1.getOutstanding());
+        assertEquals(4, storeSCP.received.get());
+    }
+
+    public void testAcquireAfterReleaseOpensNewAssociations()
+            throws Exception {
+        PipelinedStoreSCU scu1 = pool.acquire(scu, remote, 1);
+        assertEquals(1, scu1.getAssociations().length);
+        pool.release(scu, remote);
+        awaitClosed(scu1.getAssociations());
+        PipelinedStoreSCU scu2 = pool.acquire(scu, remote, 1);
+        assertNotSame(scu1, scu2);
+        assertTrue(scu2.isReadyForDataTransfer());
+        pool.release(scu, remote);
+        awaitClosed(scu2.getAssociations());
+    }
+}
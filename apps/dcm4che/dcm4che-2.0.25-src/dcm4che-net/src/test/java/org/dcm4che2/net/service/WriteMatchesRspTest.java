@@ -0,0 +1,264 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+package org.dcm4che2.net.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import junit.framework.TestCase;
+
+import org.dcm4che2.data.BasicDicomObject;
+import org.dcm4che2.data.DicomObject;
+import org.dcm4che2.data.Tag;
+import org.dcm4che2.data.UID;
+import org.dcm4che2.data.VR;
+import org.dcm4che2.net.Association;
+import org.dcm4che2.net.CommandUtils;
+import org.dcm4che2.net.Device;
+import org.dcm4che2.net.NetworkConnection;
+import org.dcm4che2.net.Status;
+
+public class WriteMatchesRspTest extends TestCase {
+
+    private static final int PCID = 1;
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(WriteMatchesRspTest.class);
+    }
+
+    public WriteMatchesRspTest(String name) {
+        super(name);
+    }
+
+    /**
+     * Records the written C-FIND RSPs instead of encoding them.
+     */
+    private static class RecordingAssociation extends Association {
+        final List<DicomObject> cmds = new ArrayList<DicomObject>();
+        final List<DicomObject> datasets = new ArrayList<DicomObject>();
+        boolean aborted;
+
+        RecordingAssociation(Socket socket, NetworkConnection conn)
+                throws IOException {
+            super(socket, conn, false);
+        }
+
+        @Override
+        public void writeDimseRSP(int pcid, DicomObject cmd, DicomObject data) {
+            cmds.add(cmd);
+            datasets.add(data);
+        }
+
+        @Override
+        public void abort() {
+            aborted = true;
+        }
+
+        int status(int i) {
+            return cmds.get(i).getInt(Tag.Status);
+        }
+    }
+
+    /**
+     * Runs scheduled tasks only when requested by the test.
+     */
+    private static class QueueExecutor implements Executor {
+        final LinkedList<Runnable> tasks = new LinkedList<Runnable>();
+
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty())
+                tasks.removeFirst().run();
+        }
+    }
+
+    private static class CloseableIterator implements Iterator<DicomObject>,
+            Closeable {
+        private final Iterator<DicomObject> iter;
+        int closed;
+
+        CloseableIterator(List<DicomObject> matches) {
+            this.iter = matches.iterator();
+        }
+
+        public boolean hasNext() {
+            return iter.hasNext();
+        }
+
+        public DicomObject next() {
+            return iter.next();
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        public void close() {
+            closed++;
+        }
+    }
+
+    private ServerSocket server;
+    private Socket client;
+    private Socket socket;
+    private RecordingAssociation as;
+    private QueueExecutor executor;
+    private DicomObject rq;
+
+    @Override
+    protected void setUp() throws Exception {
+        server = new ServerSocket(0);
+        client = new Socket("localhost", server.getLocalPort());
+        socket = server.accept();
+        NetworkConnection conn = new NetworkConnection();
+        new Device("FINDSCP").setNetworkConnection(conn);
+        as = new RecordingAssociation(socket, conn);
+        executor = new QueueExecutor();
+        rq = CommandUtils.mkCFindRQ(1,
+                UID.StudyRootQueryRetrieveInformationModelFIND, 0);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        socket.close();
+        client.close();
+        server.close();
+    }
+
+    private static List<DicomObject> matches(int n) {
+        List<DicomObject> list = new ArrayList<DicomObject>(n);
+        for (int i = 0; i < n; i++) {
+            DicomObject o = new BasicDicomObject();
+            o.putString(Tag.PatientID, VR.LO, String.valueOf(i));
+            list.add(o);
+        }
+        return list;
+    }
+
+    public void testWritesMatchesInBatches() {
+        MatchQueue source = new MatchQueue(100, 0);
+        for (DicomObject match : matches(5))
+            source.offer(match);
+        source.complete();
+        new WriteMatchesRsp(as, PCID, rq, source, executor, 2).schedule();
+        executor.tasks.removeFirst().run();
+        assertEquals(2, as.cmds.size());
+        executor.runAll();
+        assertEquals(6, as.cmds.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(Status.Pending, as.status(i));
+            assertEquals(String.valueOf(i),
+                    as.datasets.get(i).getString(Tag.PatientID));
+        }
+        assertEquals(Status.Success, as.status(5));
+        assertNull(as.datasets.get(5));
+        assertTrue(source.isClosed());
+    }
+
+    public void testCancelWhileWaitingForMatches() throws Exception {
+        MatchQueue source = new MatchQueue(100, 0);
+        source.offer(matches(1).get(0));
+        WriteMatchesRsp rsp = new WriteMatchesRsp(as, PCID, rq, source,
+                executor, 16);
+        rsp.schedule();
+        executor.runAll();
+        assertEquals(1, as.cmds.size());
+        // no match available - the task is not scheduled
+        assertTrue(executor.tasks.isEmpty());
+        rsp.cancel(as);
+        assertEquals(1, executor.tasks.size());
+        executor.runAll();
+        assertEquals(2, as.cmds.size());
+        assertEquals(Status.Cancel, as.status(1));
+        assertTrue(source.isClosed());
+        assertFalse(source.offer(matches(1).get(0)));
+        assertTrue(executor.tasks.isEmpty());
+        assertFalse(as.aborted);
+    }
+
+    public void testCancelDuringBatch() throws Exception {
+        MatchQueue source = new MatchQueue(100, 0);
+        for (DicomObject match : matches(10))
+            source.offer(match);
+        WriteMatchesRsp rsp = new WriteMatchesRsp(as, PCID, rq, source,
+                executor, 4);
+        rsp.schedule();
+        executor.tasks.removeFirst().run();
+        assertEquals(4, as.cmds.size());
+        rsp.cancel(as);
+        executor.runAll();
+        assertEquals(5, as.cmds.size());
+        assertEquals(Status.Cancel, as.status(4));
+        assertTrue(source.isClosed());
+    }
+
+    public void testIteratorMatchSourceClosesIterator() {
+        CloseableIterator iter = new CloseableIterator(matches(3));
+        new WriteMatchesRsp(as, PCID, rq, new IteratorMatchSource(iter),
+                executor, 2).schedule();
+        executor.runAll();
+        assertEquals(4, as.cmds.size());
+        assertEquals(Status.Success, as.status(3));
+        assertEquals(1, iter.closed);
+    }
+
+    public void testIteratorMatchSourceClosesIteratorOnCancel()
+            throws Exception {
+        CloseableIterator iter = new CloseableIterator(matches(10));
+        WriteMatchesRsp rsp = new WriteMatchesRsp(as, PCID, rq,
+                new IteratorMatchSource(iter), executor, 2);
+        rsp.schedule();
+        executor.tasks.removeFirst().run();
+        assertEquals(0, iter.closed);
+        rsp.cancel(as);
+        executor.runAll();
+        assertEquals(Status.Cancel, as.status(as.cmds.size() - 1));
+        assertEquals(1, iter.closed);
+        assertTrue(iter.hasNext());
+    }
+}
@@ -41,6 +41,7 @@ package org.dcm4che2.tool.dcm2xml;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 
@@ -61,7 +62,10 @@ import org.apache.commons.cli.ParseException;
 import org.apache.commons.cli.PosixParser;
 import org.dcm4che2.data.BasicDicomObject;
 import org.dcm4che2.data.Tag;
+import org.dcm4che2.io.AbstractModelWriter;
 import org.dcm4che2.io.DicomInputStream;
+import org.dcm4che2.io.JSONWriter;
+import org.dcm4che2.io.NativeXMLWriter;
 import org.dcm4che2.io.SAXWriter;
 
 /**
@@ -73,7 +77,7 @@ public class Dcm2Xml {
 
     private static final String USAGE = 
         "dcm2xml [-VXcCh] [-o <xmlfile>] [-x <tag>]... [-d <basedir>] " +
-        "[-T <xslurl> [-I] [-P <param=value>]] <dcmfile>";
+        "[-T <xslurl> [-I] [-P <param=value>] | -j | -n] <dcmfile>";
     private static final String DESCRIPTION = 
         "Convert DICOM file in XML presentation and optionally apply " +
         "XSL stylesheet on it. Values of attributes specified by -x <tag> " +
@@ -85,7 +89,10 @@ public class Dcm2Xml {
         "and the item number <ggggeeee>/<item#>/. Without -o <xmlfile>, but " +
         "given -d <basedir>, excluded values are stored into files under " +
         "specified <basedir>. If neither -o <xmlfile> nor -d <basedir> is " +
-        "specified, excluded values from the XML output are not stored.\n" +
+        "specified, excluded values from the XML output are not stored. " +
+        "With -j or -n, the DICOM JSON Model or the Native DICOM Model is " +
+        "streamed directly to the output, and excluded values are " +
+        "referenced by Bulk Data URIs into <dcmfile> instead.\n" +
         "Options:";
     private static final String EXAMPLE = 
         "\nExample: dcm2xml -Xi image.dcm -o image.xml\n=> Store XML " +
@@ -121,6 +128,13 @@ public class Dcm2Xml {
         xsltparams.setArgs(2);
         opts.addOption(xsltparams);
         opts.addOption("I", "incxslt", false, "enable incremental XSLT");
+        opts.addOption("j", "json", false,
+                "write DICOM JSON Model (DICOM Part 18, Annex F) instead of " +
+                "XML. Cannot be specified together with option -T <xslurl>.");
+        opts.addOption("n", "native", false,
+                "write Native DICOM Model (DICOM Part 19) instead of " +
+                "dcm4che XML. Cannot be specified together with option " +
+                "-T <xslurl>.");
         opts.addOption("c", "compact", false,
                 "suppress additional whitespaces in XML output");
         opts.addOption("C", "comments", false,
@@ -148,6 +162,11 @@ public class Dcm2Xml {
         if (cl.hasOption("o") && cl.hasOption("d"))
             exit("dcm2xml: Option -o <xmlfile> and -d <basedir> are mutual" +
                     "exclusive");
+        if (cl.hasOption("T") && (cl.hasOption("j") || cl.hasOption("n")))
+            exit("dcm2xml: Option -T <xslurl> cannot be combined with " +
+                    "-j or -n");
+        if (cl.hasOption("j") && cl.hasOption("n"))
+            exit("dcm2xml: Option -j and -n are mutual exclusive");
         return cl;
     }
 
@@ -200,6 +219,8 @@ public class Dcm2Xml {
             dcm2xml.setXsltInc(cl.hasOption("I"));
             dcm2xml.setXsltParams(cl.getOptionValues("P"));
         }
+        dcm2xml.setJSON(cl.hasOption("j"));
+        dcm2xml.setNativeModel(cl.hasOption("n"));
         dcm2xml.setComments(cl.hasOption("C"));
         dcm2xml.setIndent(!cl.hasOption("c"));
         long t1 = System.currentTimeMillis();
@@ -228,6 +249,8 @@ public class Dcm2Xml {
     private boolean xsltInc = false;
     private boolean indent = true;
     private boolean comments = false;
+    private boolean json = false;
+    private boolean nativeModel = false;
 
     public final void setBaseDir(File baseDir) {
         this.baseDir = baseDir;
@@ -245,6 +268,14 @@ public class Dcm2Xml {
         this.comments = comments;
     }
     
+    public final void setJSON(boolean json) {
+        this.json = json;
+    }
+
+    public final void setNativeModel(boolean nativeModel) {
+        this.nativeModel = nativeModel;
+    }
+
     public final void setXslt(URL xslt) {
         this.xslt = xslt;
     }
@@ -259,6 +290,10 @@ public class Dcm2Xml {
 
     public void convert(File ifile, File ofile) throws IOException,
             TransformerConfigurationException {
+        if (json || nativeModel) {
+            stream(ifile, ofile);
+            return;
+        }
         DicomInputStream dis = new DicomInputStream(ifile);
         FileOutputStream fos = null;
         try {
@@ -280,6 +315,27 @@ public class Dcm2Xml {
         }
     }
 
+    private void stream(File ifile, File ofile) throws IOException {
+        DicomInputStream dis = new DicomInputStream(ifile);
+        FileOutputStream fos = null;
+        try {
+            OutputStream out = ofile != null
+                    ? (fos = new FileOutputStream(ofile))
+                    : System.out;
+            AbstractModelWriter writer = json ? new JSONWriter(out)
+                    : new NativeXMLWriter(out);
+            writer.setBulkDataTags(exclude);
+            writer.setBulkDataURI(ifile.getAbsoluteFile().toURI().toString());
+            dis.setHandler(writer);
+            dis.readDicomObject(new BasicDicomObject(), -1);
+            writer.finish();
+        } finally {
+            if (fos != null)
+                fos.close();
+            dis.close();
+        }
+    }
+
     private TransformerHandler getTransformerHandler()
             throws TransformerConfigurationException, IOException {
         SAXTransformerFactory tf = (SAXTransformerFactory) TransformerFactory
@@ -59,6 +59,7 @@ import org.dcm4che2.media.ApplicationProfile;
 import org.dcm4che2.media.DicomDirReader;
 import org.dcm4che2.media.DicomDirWriter;
 import org.dcm4che2.media.FileSetInformation;
+import org.dcm4che2.media.RecordBatch;
 import org.dcm4che2.media.StdGenJPEGApplicationProfile;
 
 /**
@@ -74,6 +75,7 @@ public class DcmDir {
     private static final int DEF_MAX_VAL_LEN = 64;
     private static final int MIN_MAX_VAL_LEN = 16;
     private static final int MAX_MAX_VAL_LEN = 512;      
+    private static final int DEF_BATCH_SIZE = 1000;
     private static final String USAGE = 
 	"dcmdir -{acdptz} <dicomdir> [Options] [<file>..][<directory>..]";
     private static final String DESCRIPTION = 
@@ -105,6 +107,8 @@ public class DcmDir {
     private int maxValLen = DEF_MAX_VAL_LEN;
     private int maxWidth = DEF_MAX_WIDTH;
     private boolean checkDuplicate = false;
+    private int batchSize = DEF_BATCH_SIZE;
+    private RecordBatch batch;
 
     public DcmDir(File file) throws IOException {
         this.file = file.getCanonicalFile();
@@ -125,6 +129,10 @@ public class DcmDir {
     public final void setCheckDuplicate(boolean b) {
 	this.checkDuplicate = b;	
     }
+
+    public final void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
     
     public final void fsinfo(FileSetInformation fsinfo) {
 	BasicDicomObject dest = new BasicDicomObject();
@@ -234,6 +242,18 @@ public class DcmDir {
         DicomObject instrec = 
             	ap.makeInstanceDirectoryRecord(dcmobj, dicomdir.toFileID(f));
 
+        if (batchSize > 1) {
+            if (batch == null) {
+                batch = new RecordBatch();
+            }
+            batch.setSkipDuplicates(checkDuplicate);
+            if (!batch.add(patrec, styrec, serrec, instrec)) {
+                System.out.print('D');
+                return 0;
+            }
+            System.out.print('.');
+            return batch.size() >= batchSize ? flush() : 0;
+        }
         DicomObject rec = writer().addPatientRecord(patrec);
         if (rec == patrec) {
             ++n;
@@ -259,6 +279,20 @@ public class DcmDir {
     }
 
 
+    /**
+     * Writes records of files added since the last flush.
+     * 
+     * @return number of added directory records.
+     */
+    public int flush() throws IOException {
+        if (batch == null || batch.isEmpty()) {
+            return 0;
+        }
+        int n = writer().addRecords(batch);
+        batch.clear();
+        return n;
+    }
+
     public int delFile(File f) throws IOException {
         if (f.isDirectory()) {
             int n = 0;
@@ -319,6 +353,9 @@ public class DcmDir {
     }
 
     public void close() throws IOException {
+        if (dicomdir instanceof DicomDirWriter) {
+            flush();
+        }
         dicomdir.close();
     }
 
@@ -388,6 +425,12 @@ public class DcmDir {
         OptionBuilder.withDescription(
         	"limit value prompt to <maxlen> characters, by default: 64");
         opts.addOption(OptionBuilder.create("W"));
+        OptionBuilder.withArgName("num");
+        OptionBuilder.hasArg();
+        OptionBuilder.withDescription(
+        	"add directory records of <num> files by one write, by default: " 
+        	+ DEF_BATCH_SIZE + "; 1 = write records of each file separately");
+        opts.addOption(OptionBuilder.create("batch"));
         opts.addOption("inactive", false, 
                 "dump also inactive records.");
         opts.addOption("S", false, 
@@ -519,10 +562,14 @@ public class DcmDir {
 		dcmdir.open();
 		dcmdir.setCheckDuplicate(true);
 	    }
+	    if (cl.hasOption("batch"))
+		dcmdir.setBatchSize(parseInt(cl.getOptionValue("batch"), "batch",
+			1, Integer.MAX_VALUE));
 	    int num = 0;
 	    for (int i = 0, n = argList.size(); i < n; ++i) {
 		num += dcmdir.addFile(new File((String) argList.get(i)));
 	    }
+	    num += dcmdir.flush();
 	    dcmdir.close();
 	    long end = System.currentTimeMillis();
 	    System.out.println();
@@ -337,6 +337,19 @@ public class DcmOF {
                 .withDescription("Activate MWL SCP, providing MWL Items stored in specified directory.");
         opts.addOption(OptionBuilder.create("mwl"));
 
+        OptionBuilder.withArgName("ms");
+        OptionBuilder.hasArg();
+        OptionBuilder.withDescription("minimal interval in ms between scans "
+                + "of the MWL directory for new, modified or deleted MWL "
+                + "Items, 1000 by default.");
+        opts.addOption(OptionBuilder.create("mwlscan"));
+
+        OptionBuilder.withArgName("num");
+        OptionBuilder.hasArg();
+        OptionBuilder.withDescription("maximal number of parsed MWL Items "
+                + "kept in memory, 1000 by default.");
+        opts.addOption(OptionBuilder.create("mwlcache"));
+
         OptionGroup mpps = new OptionGroup();
         OptionBuilder.withArgName("dir");
         OptionBuilder.hasArg();
@@ -551,8 +564,18 @@ public class DcmOF {
         ArrayList<TransferCapability> tc = new ArrayList<TransferCapability>();
         tc.add(new TransferCapability(UID.VerificationSOPClass, ONLY_DEF_TS,
                 TransferCapability.SCP));
-        if (cl.hasOption("mwl"))
-            dcmof.registerMWLSCP(new File(cl.getOptionValue("mwl")), tc);
+        if (cl.hasOption("mwl")) {
+            MWLSCP mwlscp = dcmof.registerMWLSCP(
+                    new File(cl.getOptionValue("mwl")), tc);
+            if (cl.hasOption("mwlscan"))
+                mwlscp.setScanInterval(parseInt(cl.getOptionValue("mwlscan"),
+                        "illegal argument of option -mwlscan",
+                        0, Integer.MAX_VALUE));
+            if (cl.hasOption("mwlcache"))
+                mwlscp.setCacheSize(parseInt(cl.getOptionValue("mwlcache"),
+                        "illegal argument of option -mwlcache",
+                        0, Integer.MAX_VALUE));
+        }
         if (cl.hasOption("mpps"))
             dcmof.registerMPPSSCP(new File(cl.getOptionValue("mpps")), tc);
         if (cl.hasOption("mppsxml"))
@@ -641,12 +664,14 @@ public class DcmOF {
         this.tsuids = tsuids;
     }
 
-    private void registerMWLSCP(File dir, ArrayList<TransferCapability> tc) {
+    private MWLSCP registerMWLSCP(File dir,
+            ArrayList<TransferCapability> tc) {
         MWLSCP mwlscp = new MWLSCP(executor, this);
         mwlscp.setSource(dir);
         ae.register(mwlscp);
         tc.add(new TransferCapability(mwlscp.getSopClass(), tsuids,
                 TransferCapability.SCP));
+        return mwlscp;
     }
 
     private void registerMPPSSCP(File dir, ArrayList<TransferCapability> tc) {
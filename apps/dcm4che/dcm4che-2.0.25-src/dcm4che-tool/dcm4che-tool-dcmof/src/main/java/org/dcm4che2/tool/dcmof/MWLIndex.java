@@ -0,0 +1,463 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.tool.dcmof;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.dcm4che2.data.DicomElement;
+import org.dcm4che2.data.DicomObject;
+import org.dcm4che2.data.Tag;
+import org.dcm4che2.data.VR;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-memory index of the MWL Items stored in files of one directory, over
+ * Patient ID, Accession Number and the Modality, Scheduled Station AE Title
+ * and Scheduled Procedure Step Start Date of the Scheduled Procedure Steps.
+ * <p>
+ * The directory is rescanned on the next query, after the scan interval
+ * elapsed. Only new or modified files - detected by their modification time
+ * and length - are read, so the cost of a scan is one directory listing.
+ * {@link #query} selects the candidates by the index key with the fewest
+ * entries and filters them by the other index keys, without reading any
+ * file. Candidates still have to be matched against all keys, after
+ * {@link #load} returned the parsed MWL Item from a bounded LRU cache or
+ * from its file.
+ * <p>
+ * The same cached MWL Item is returned to concurrent queries, which match
+ * it and return a {@link DicomObject#subSet} view of it. Cached items are
+ * therefore never modified: the Specific Character Set is added after
+ * reading the file, before the item is cached, and modified files are read
+ * into new items. Lookups and iterations of a <code>BasicDicomObject</code>
+ * do not modify it, so it may be read by several threads concurrently.
+ * 
+ * @author agent <agent@local>
+ * @version $Revision$ $Date$
+ * @since Oct 17, 2026
+ */
+class MWLIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MWLIndex.class);
+
+    private static final int PATIENT_ID = 0;
+    private static final int ACCESSION_NUMBER = 1;
+    private static final int MODALITY = 2;
+    private static final int STATION_AET = 3;
+    private static final int START_DATE = 4;
+    private static final int NUM_KEYS = 5;
+
+    private static final int[] SPS_TAGS = {
+        Tag.Modality, Tag.ScheduledStationAETitle,
+        Tag.ScheduledProcedureStepStartDate };
+
+    static final class Entry {
+        final File file;
+        final long lastModified;
+        final long length;
+        // values of index keys, null if missing, so the key matches always
+        final String[][] values = new String[NUM_KEYS][];
+
+        Entry(File file, long lastModified, long length) {
+            this.file = file;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+
+        boolean matches(int key, String value) {
+            String[] vals = values[key];
+            if (vals == null)
+                return true;
+            for (int i = 0; i < vals.length; i++)
+                if (vals[i].equals(value))
+                    return true;
+            return false;
+        }
+
+        boolean matchesDate(String from, String to) {
+            String[] vals = values[START_DATE];
+            if (vals == null)
+                return true;
+            for (int i = 0; i < vals.length; i++)
+                if (vals[i].compareTo(from) >= 0 && vals[i].compareTo(to) <= 0)
+                    return true;
+            return false;
+        }
+    }
+
+    private final DcmOF dcmOF;
+    private final File dir;
+    private final HashMap<File, Entry> entries = new HashMap<File, Entry>();
+    private final ArrayList<HashMap<String, HashSet<Entry>>> index =
+            new ArrayList<HashMap<String, HashSet<Entry>>>(START_DATE);
+    private final TreeMap<String, HashSet<Entry>> dateIndex =
+            new TreeMap<String, HashSet<Entry>>();
+    private final ArrayList<HashSet<Entry>> unset =
+            new ArrayList<HashSet<Entry>>(NUM_KEYS);
+    private final LinkedHashMap<Entry, DicomObject> cache =
+            new LinkedHashMap<Entry, DicomObject>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(
+                        Map.Entry<MWLIndex.Entry, DicomObject> eldest) {
+                    return size() > cacheSize;
+                }
+            };
+    private int scanInterval = 1000;
+    private int cacheSize = 1000;
+    private long nextScan;
+
+    public MWLIndex(DcmOF dcmOF, File dir) {
+        this.dcmOF = dcmOF;
+        this.dir = dir;
+        for (int i = 0; i < START_DATE; i++)
+            index.add(new HashMap<String, HashSet<Entry>>());
+        for (int i = 0; i < NUM_KEYS; i++)
+            unset.add(new HashSet<Entry>());
+    }
+
+    public final synchronized void setScanInterval(int scanInterval) {
+        this.scanInterval = scanInterval;
+    }
+
+    public final void setCacheSize(int cacheSize) {
+        synchronized (cache) {
+            this.cacheSize = cacheSize;
+        }
+    }
+
+    /**
+     * Returns the entries, which may match the specified keys, after
+     * rescanning the directory, if the scan interval elapsed.
+     */
+    public synchronized List<Entry> query(DicomObject keys) {
+        if (System.currentTimeMillis() >= nextScan) {
+            scan();
+            nextScan = System.currentTimeMillis() + scanInterval;
+        }
+        DicomObject sps = keys.getNestedDicomObject(
+                Tag.ScheduledProcedureStepSequence);
+        String[] values = new String[START_DATE];
+        values[PATIENT_ID] = singleValue(keys, Tag.PatientID);
+        values[ACCESSION_NUMBER] = singleValue(keys, Tag.AccessionNumber);
+        String[] dateRange = null;
+        if (sps != null) {
+            values[MODALITY] = singleValue(sps, Tag.Modality);
+            values[STATION_AET] = singleValue(sps, Tag.ScheduledStationAETitle);
+            dateRange = dateRange(singleValue(sps,
+                    Tag.ScheduledProcedureStepStartDate));
+        }
+        // select candidates by the most selective key
+        Collection<Entry> base = entries.values();
+        int baseSize = base.size();
+        int baseKey = -1;
+        for (int i = 0; i < START_DATE; i++) {
+            if (values[i] == null)
+                continue;
+            HashSet<Entry> bucket = index.get(i).get(values[i]);
+            int size = unset.get(i).size()
+                    + (bucket != null ? bucket.size() : 0);
+            if (size < baseSize) {
+                baseSize = size;
+                baseKey = i;
+            }
+        }
+        SortedMap<String, HashSet<Entry>> dates = null;
+        if (dateRange != null) {
+            dates = dateIndex.subMap(dateRange[0], dateRange[1] + '\0');
+            int size = unset.get(START_DATE).size();
+            for (HashSet<Entry> bucket : dates.values())
+                size += bucket.size();
+            if (size < baseSize) {
+                baseSize = size;
+                baseKey = START_DATE;
+            }
+        }
+        ArrayList<Entry> result = new ArrayList<Entry>(baseSize);
+        if (baseKey < 0) {
+            addMatching(result, base, values, dateRange, false);
+            return result;
+        }
+        addMatching(result, unset.get(baseKey), values, dateRange, false);
+        if (baseKey == START_DATE) {
+            // entries with several dates may be in several date buckets
+            for (HashSet<Entry> bucket : dates.values())
+                addMatching(result, bucket, values, dateRange, true);
+        } else {
+            HashSet<Entry> bucket = index.get(baseKey).get(values[baseKey]);
+            if (bucket != null)
+                addMatching(result, bucket, values, dateRange, false);
+        }
+        return result;
+    }
+
+    private static void addMatching(ArrayList<Entry> result,
+            Collection<Entry> candidates, String[] values, String[] dateRange,
+            boolean dedup) {
+        outer: for (Entry e : candidates) {
+            for (int i = 0; i < START_DATE; i++)
+                if (values[i] != null && !e.matches(i, values[i]))
+                    continue outer;
+            if (dateRange != null && !e.matchesDate(dateRange[0], dateRange[1]))
+                continue;
+            if (dedup && e.values[START_DATE] != null
+                    && e.values[START_DATE].length > 1
+                    && result.contains(e))
+                continue;
+            result.add(e);
+        }
+    }
+
+    /**
+     * Returns the key value, if it can be looked up in the index - is not
+     * empty and does not contain wild cards or multiple values.
+     */
+    private static String singleValue(DicomObject keys, int tag) {
+        String[] ss = keys.getStrings(tag);
+        if (ss == null || ss.length != 1)
+            return null;
+        String s = ss[0];
+        if (s == null || s.length() == 0)
+            return null;
+        for (int i = 0, n = s.length(); i < n; i++) {
+            char c = s.charAt(i);
+            if (c == '*' || c == '?' || c == '\\')
+                return null;
+        }
+        return s;
+    }
+
+    /**
+     * Returns the bounds of the date or date range key, or <code>null</code>
+     * if the key does not restrict the date or has an unexpected format.
+     */
+    private static String[] dateRange(String s) {
+        if (s == null)
+            return null;
+        int dash = s.indexOf('-');
+        String from = dash < 0 ? s : s.substring(0, dash);
+        String to = dash < 0 ? s : s.substring(dash + 1);
+        if (from.length() == 0 && to.length() == 0)
+            return null;
+        if (from.length() > 0 && !isDate(from))
+            return null;
+        if (to.length() == 0)
+            to = "99999999";
+        else if (!isDate(to))
+            return null;
+        return new String[] { from, to };
+    }
+
+    private static boolean isDate(String s) {
+        if (s.length() != 8)
+            return false;
+        for (int i = 0; i < 8; i++)
+            if (s.charAt(i) < '0' || s.charAt(i) > '9')
+                return false;
+        return true;
+    }
+
+    private void scan() {
+        File[] files = dir.listFiles();
+        HashSet<File> found = new HashSet<File>();
+        int updated = 0;
+        if (files != null)
+            for (int i = 0; i < files.length; i++) {
+                File f = files[i];
+                if (f.isDirectory())
+                    continue;
+                found.add(f);
+                long lastModified = f.lastModified();
+                long length = f.length();
+                Entry e = entries.get(f);
+                if (e != null && e.lastModified == lastModified
+                        && e.length == length)
+                    continue;
+                if (e != null)
+                    remove(e);
+                DicomObject mwl;
+                try {
+                    mwl = dcmOF.load(f);
+                } catch (Exception ex) {
+                    LOG.warn("Failed to load MWL Item from " + f + ": " + ex);
+                    continue;
+                }
+                e = new Entry(f, lastModified, length);
+                add(e, prepare(mwl));
+                updated++;
+            }
+        int removed = 0;
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext();) {
+            Entry e = it.next();
+            if (!found.contains(e.file)) {
+                it.remove();
+                unindex(e);
+                removed++;
+            }
+        }
+        if (updated > 0 || removed > 0)
+            LOG.info("Updated " + updated + " and removed " + removed
+                    + " MWL Items in " + dir);
+    }
+
+    private void add(Entry e, DicomObject mwl) {
+        entries.put(e.file, e);
+        e.values[PATIENT_ID] = values(mwl, Tag.PatientID);
+        e.values[ACCESSION_NUMBER] = values(mwl, Tag.AccessionNumber);
+        DicomElement spsSeq = mwl.get(Tag.ScheduledProcedureStepSequence);
+        if (spsSeq != null && spsSeq.hasDicomObjects()) {
+            for (int i = 0; i < SPS_TAGS.length; i++)
+                e.values[MODALITY + i] = values(spsSeq, SPS_TAGS[i]);
+        }
+        String[] dates = e.values[START_DATE];
+        if (dates != null)
+            for (int i = 0; i < dates.length; i++)
+                if (!isDate(dates[i])) {
+                    // match unexpected formats by DicomMatcher only
+                    e.values[START_DATE] = null;
+                    break;
+                }
+        for (int i = 0; i < START_DATE; i++)
+            index(index.get(i), i, e);
+        index(dateIndex, START_DATE, e);
+        synchronized (cache) {
+            cache.put(e, mwl);
+        }
+    }
+
+    private void index(Map<String, HashSet<Entry>> map, int key, Entry e) {
+        String[] vals = e.values[key];
+        if (vals == null) {
+            unset.get(key).add(e);
+            return;
+        }
+        for (int i = 0; i < vals.length; i++) {
+            HashSet<Entry> bucket = map.get(vals[i]);
+            if (bucket == null)
+                map.put(vals[i], bucket = new HashSet<Entry>());
+            bucket.add(e);
+        }
+    }
+
+    private void remove(Entry e) {
+        entries.remove(e.file);
+        unindex(e);
+    }
+
+    private void unindex(Entry e) {
+        for (int i = 0; i < START_DATE; i++)
+            unindex(index.get(i), i, e);
+        unindex(dateIndex, START_DATE, e);
+        synchronized (cache) {
+            cache.remove(e);
+        }
+    }
+
+    private void unindex(Map<String, HashSet<Entry>> map, int key, Entry e) {
+        String[] vals = e.values[key];
+        if (vals == null) {
+            unset.get(key).remove(e);
+            return;
+        }
+        for (int i = 0; i < vals.length; i++) {
+            HashSet<Entry> bucket = map.get(vals[i]);
+            if (bucket != null && bucket.remove(e) && bucket.isEmpty())
+                map.remove(vals[i]);
+        }
+    }
+
+    private static String[] values(DicomObject mwl, int tag) {
+        String[] vals = mwl.getStrings(tag);
+        return vals != null && vals.length > 0 ? vals : null;
+    }
+
+    private static String[] values(DicomElement spsSeq, int tag) {
+        ArrayList<String> list = new ArrayList<String>(1);
+        for (int i = 0, n = spsSeq.countItems(); i < n; i++) {
+            String[] vals = spsSeq.getDicomObject(i).getStrings(tag);
+            if (vals == null || vals.length == 0)
+                return null; // missing in one item, matches always
+            for (int j = 0; j < vals.length; j++)
+                list.add(vals[j]);
+        }
+        return list.isEmpty() ? null : list.toArray(new String[list.size()]);
+    }
+
+    /**
+     * Returns the MWL Item of the entry from the cache, or reads it from its
+     * file, or returns <code>null</code>, if the file was deleted. The
+     * returned item is shared with other queries and must not be modified.
+     */
+    public DicomObject load(Entry e) throws Exception {
+        synchronized (cache) {
+            DicomObject mwl = cache.get(e);
+            if (mwl != null)
+                return mwl;
+        }
+        if (!e.file.exists())
+            return null;
+        DicomObject mwl = prepare(dcmOF.load(e.file));
+        synchronized (cache) {
+            cache.put(e, mwl);
+        }
+        return mwl;
+    }
+
+    /**
+     * Adds an empty Specific Character Set, which is always returned, to a
+     * just read MWL Item, which is not yet visible to other threads, so the
+     * item is not modified by queries after it was cached.
+     */
+    private static DicomObject prepare(DicomObject mwl) {
+        if (!mwl.contains(Tag.SpecificCharacterSet))
+            mwl.putNull(Tag.SpecificCharacterSet, VR.CS);
+        return mwl;
+    }
+}
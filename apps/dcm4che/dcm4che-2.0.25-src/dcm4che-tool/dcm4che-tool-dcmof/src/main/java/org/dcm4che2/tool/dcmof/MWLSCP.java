@@ -58,6 +58,7 @@ import org.dcm4che2.net.service.CFindService;
 class MWLSCP extends CFindService {
     protected final DcmOF dcmOF;
     protected File source;
+    protected MWLIndex index;
 
     public MWLSCP(Executor executor, DcmOF dcmOF) {
         super(UID.ModalityWorklistInformationModelFIND, executor);
@@ -67,12 +68,28 @@ class MWLSCP extends CFindService {
     public final void setSource(File source) {
         source.mkdirs();
         this.source = source;
+        this.index = new MWLIndex(dcmOF, source);
+    }
+
+    /**
+     * Set the minimal interval in ms between scans of the source directory
+     * for new, modified or deleted MWL Items.
+     */
+    public final void setScanInterval(int scanInterval) {
+        index.setScanInterval(scanInterval);
+    }
+
+    /**
+     * Set the maximal number of parsed MWL Items kept in memory.
+     */
+    public final void setCacheSize(int cacheSize) {
+        index.setCacheSize(cacheSize);
     }
 
     @SuppressWarnings("unused")
     @Override
     protected DimseRSP doCFind(Association as, int pcid, DicomObject cmd,
             DicomObject keys, DicomObject rsp) throws DicomServiceException {
-        return new MultiFindRSP(dcmOF, keys, rsp, source);
+        return new MultiFindRSP(index, keys, rsp);
     }
 }
@@ -38,8 +38,9 @@
 
 package org.dcm4che2.tool.dcmof;
 
-import java.io.File;
+import java.util.List;
 
+import org.dcm4che2.data.DicomMatcher;
 import org.dcm4che2.data.DicomObject;
 import org.dcm4che2.data.Tag;
 import org.dcm4che2.data.VR;
@@ -55,39 +56,38 @@ import org.dcm4che2.net.Status;
  */
 class MultiFindRSP implements DimseRSP {
 
-    private final DcmOF dcmOF;
-    private File[] files;
+    private final MWLIndex index;
+    private List<MWLIndex.Entry> entries;
     private int cur = 0;
     private DicomObject rsp;
     private DicomObject keys;
+    private DicomMatcher matcher;
     private DicomObject mwl;
 
-    public MultiFindRSP(DcmOF dcmOF, DicomObject keys, DicomObject rsp, File source) {
-        this.dcmOF = dcmOF;
+    public MultiFindRSP(MWLIndex index, DicomObject keys, DicomObject rsp) {
+        this.index = index;
         this.keys = keys;
         // always return Specific Character Set
         if (!keys.contains(Tag.SpecificCharacterSet))
             keys.putNull(Tag.SpecificCharacterSet, VR.CS);
+        this.matcher = DicomMatcher.compile(keys, true);
         this.rsp = rsp;
-        this.files = source.listFiles();
-        if (this.files == null) {
-            this.files = new File[0];
-        }
+        this.entries = index.query(keys);
     }
 
     public synchronized boolean next() {
         if (cur < 0)
             return false;
-        if (files == null) {
+        if (entries == null) {
             rsp.putInt(Tag.Status, VR.US, Status.Cancel);
         } else {
             try {
-                while (cur < files.length) {
-                    mwl = dcmOF.load(files[cur++]);
-                    if (mwl.matches(keys, true)) {
-                        // always return Specific Character Set
-                        if (!mwl.contains(Tag.SpecificCharacterSet))
-                            mwl.putNull(Tag.SpecificCharacterSet, VR.CS);
+                while (cur < entries.size()) {
+                    // MWL Items include Specific Character Set, which is
+                    // always returned; they are shared with concurrent
+                    // queries and only read
+                    mwl = index.load(entries.get(cur++));
+                    if (mwl != null && matcher.matches(mwl)) {
                         rsp.putInt(Tag.Status, VR.US, mwl.containsAll(keys) 
                                 ? Status.Pending : Status.PendingWarning);
                         return true;
@@ -113,7 +113,7 @@ class MultiFindRSP implements DimseRSP {
     }
 
     public synchronized void cancel(Association a) {
-        files = null;
+        entries = null;
     }
 
 }
@@ -0,0 +1,241 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at http://sourceforge.net/projects/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Gunter Zeilinger, Huetteldorferstr. 24/10, 1150 Vienna/Austria/Europe.
+ * Portions created by the Initial Developer are Copyright (C) 2008
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See listed authors below.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che2.tool.dcmof;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.dcm4che2.data.BasicDicomObject;
+import org.dcm4che2.data.DicomObject;
+import org.dcm4che2.data.Tag;
+import org.dcm4che2.data.UID;
+import org.dcm4che2.data.VR;
+import org.dcm4che2.io.DicomOutputStream;
+
+public class MWLIndexTest extends TestCase {
+
+    private File dir;
+
+    private MWLIndex index;
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(MWLIndexTest.class);
+    }
+
+    public MWLIndexTest(String name) {
+        super(name);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        dir = File.createTempFile("mwl", "");
+        dir.delete();
+        dir.mkdir();
+        write("mwl1", "P1", "A1", "CT", "CT1", "20261010");
+        write("mwl2", "P1", "A2", "MR", "MR1", "20261011");
+        write("mwl3", "P2", "A3", "CT", "CT2", "20261012");
+        write("mwl4", "P3", "A4", "US", "US1", "20261013");
+        write("mwl5", null, "A5", "CT", "CT1", null);
+        index = new MWLIndex(new DcmOF("DCMOF"), dir);
+        index.setScanInterval(0);
+    }
+
+    @Override
+    protected void tearDown() {
+        File[] files = dir.listFiles();
+        for (int i = 0; i < files.length; i++)
+            files[i].delete();
+        dir.delete();
+    }
+
+    private File write(String name, String pid, String accno, String mod,
+            String aet, String date) throws IOException {
+        DicomObject mwl = new BasicDicomObject();
+        mwl.putString(Tag.SOPClassUID, VR.UI,
+                UID.ModalityWorklistInformationModelFIND);
+        mwl.putString(Tag.SOPInstanceUID, VR.UI, "1.2.40.0.13.1." + name
+                .substring(3));
+        if (pid != null)
+            mwl.putString(Tag.PatientID, VR.LO, pid);
+        mwl.putString(Tag.AccessionNumber, VR.SH, accno);
+        DicomObject sps = new BasicDicomObject();
+        sps.putString(Tag.Modality, VR.CS, mod);
+        sps.putString(Tag.ScheduledStationAETitle, VR.AE, aet);
+        if (date != null)
+            sps.putString(Tag.ScheduledProcedureStepStartDate, VR.DA, date);
+        mwl.putNestedDicomObject(Tag.ScheduledProcedureStepSequence, sps);
+        mwl.initFileMetaInformation(UID.ExplicitVRLittleEndian);
+        File f = new File(dir, name);
+        DicomOutputStream dos = new DicomOutputStream(f);
+        try {
+            dos.writeDicomFile(mwl);
+        } finally {
+            dos.close();
+        }
+        return f;
+    }
+
+    private static DicomObject keys(String pid, String mod, String aet,
+            String date) {
+        DicomObject keys = new BasicDicomObject();
+        keys.putString(Tag.PatientID, VR.LO, pid);
+        DicomObject sps = new BasicDicomObject();
+        sps.putString(Tag.Modality, VR.CS, mod);
+        sps.putString(Tag.ScheduledStationAETitle, VR.AE, aet);
+        sps.putString(Tag.ScheduledProcedureStepStartDate, VR.DA, date);
+        keys.putNestedDicomObject(Tag.ScheduledProcedureStepSequence, sps);
+        return keys;
+    }
+
+    private static HashSet<String> names(List<MWLIndex.Entry> entries) {
+        HashSet<String> names = new HashSet<String>();
+        for (MWLIndex.Entry e : entries)
+            names.add(e.file.getName());
+        return names;
+    }
+
+    private static HashSet<String> names(String... names) {
+        HashSet<String> set = new HashSet<String>();
+        for (String name : names)
+            set.add(name);
+        return set;
+    }
+
+    public void testQueryAll() {
+        assertEquals(names("mwl1", "mwl2", "mwl3", "mwl4", "mwl5"),
+                names(index.query(keys(null, null, null, null))));
+    }
+
+    public void testQueryByDateRange() {
+        assertEquals(names("mwl2", "mwl3", "mwl5"),
+                names(index.query(keys(null, null, null,
+                        "20261011-20261012"))));
+        assertEquals(names("mwl3", "mwl4", "mwl5"),
+                names(index.query(keys(null, null, null, "20261012-"))));
+        assertEquals(names("mwl1", "mwl5"),
+                names(index.query(keys(null, null, null, "-20261010"))));
+        assertEquals(names("mwl3", "mwl5"),
+                names(index.query(keys(null, "CT", null,
+                        "20261011-20261013"))));
+    }
+
+    public void testWildcardIsNotLookedUp() {
+        // AET with wild card only restricts by DicomMatcher
+        assertEquals(names("mwl1", "mwl3", "mwl5"),
+                names(index.query(keys(null, "CT", "CT2*", null))));
+        assertEquals(names("mwl1", "mwl2", "mwl3", "mwl4", "mwl5"),
+                names(index.query(keys("P?", null, null, null))));
+        assertEquals(names("mwl1", "mwl2", "mwl3", "mwl4", "mwl5"),
+                names(index.query(keys("P1\\P2", null, null, null))));
+        assertEquals(names("mwl1", "mwl2", "mwl3", "mwl4", "mwl5"),
+                names(index.query(keys(null, null, null,
+                        "20261010\\20261013"))));
+        // unexpected date format only restricts by DicomMatcher
+        assertEquals(names("mwl1", "mwl2", "mwl3", "mwl4", "mwl5"),
+                names(index.query(keys(null, null, null, "2026*"))));
+    }
+
+    public void testMissingValueMatchesAlways() {
+        assertEquals(names("mwl1", "mwl2", "mwl5"),
+                names(index.query(keys("P1", null, null, null))));
+        assertEquals(names("mwl4", "mwl5"),
+                names(index.query(keys(null, null, null, "20261013"))));
+        assertEquals(names("mwl1", "mwl5"),
+                names(index.query(keys("P1", "CT", "CT1", null))));
+    }
+
+    public void testRescanModifiedAndDeletedFiles() throws Exception {
+        List<MWLIndex.Entry> before = index.query(keys("P1", null, null,
+                null));
+        MWLIndex.Entry unchanged = null;
+        for (MWLIndex.Entry e : before)
+            if (e.file.getName().equals("mwl2"))
+                unchanged = e;
+        DicomObject cached = index.load(unchanged);
+
+        // modify mwl1 with same length, but different modification time
+        File mwl1 = write("mwl1", "P4", "A1", "CT", "CT1", "20261010");
+        mwl1.setLastModified(mwl1.lastModified() - 10000);
+        // modify mwl3 with different length
+        write("mwl3", "P1", "A3-1", "CT", "CT2", "20261012");
+        new File(dir, "mwl5").delete();
+
+        List<MWLIndex.Entry> after = index.query(keys("P1", null, null,
+                null));
+        assertEquals(names("mwl2", "mwl3"), names(after));
+        assertEquals(names("mwl1"),
+                names(index.query(keys("P4", null, null, null))));
+        for (MWLIndex.Entry e : after)
+            if (e.file.getName().equals("mwl2")) {
+                assertSame(unchanged, e);
+                assertSame(cached, index.load(e));
+            }
+    }
+
+    public void testRescanAfterScanInterval() {
+        index.setScanInterval(60000);
+        assertEquals(names("mwl1", "mwl2", "mwl5"),
+                names(index.query(keys("P1", null, null, null))));
+        new File(dir, "mwl2").delete();
+        assertEquals(names("mwl1", "mwl2", "mwl5"),
+                names(index.query(keys("P1", null, null, null))));
+    }
+
+    public void testLoadDeletedFile() throws Exception {
+        index.setCacheSize(0);
+        List<MWLIndex.Entry> entries = index.query(keys(null, "US", null,
+                null));
+        assertEquals(names("mwl4"), names(entries));
+        for (MWLIndex.Entry e : entries)
+            if (e.file.getName().equals("mwl4")) {
+                assertNotNull(index.load(e));
+                e.file.delete();
+                assertNull(index.load(e));
+            }
+    }
+
+    public void testLoadedItemIncludesSpecificCharacterSet() throws Exception {
+        for (MWLIndex.Entry e : index.query(keys(null, null, null, null)))
+            assertTrue(index.load(e).contains(Tag.SpecificCharacterSet));
+    }
+}
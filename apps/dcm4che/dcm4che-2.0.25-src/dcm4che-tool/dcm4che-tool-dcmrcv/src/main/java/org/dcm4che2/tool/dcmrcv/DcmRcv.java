@@ -46,12 +46,16 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.channels.FileChannel;
 import java.security.GeneralSecurityException;
 import java.security.KeyStore;
 import java.util.List;
 import java.util.Properties;
 import java.util.Timer;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.GnuParser;
@@ -79,6 +83,7 @@ import org.dcm4che2.net.NewThreadExecutor;
 import org.dcm4che2.net.PDVInputStream;
 import org.dcm4che2.net.Status;
 import org.dcm4che2.net.TransferCapability;
+import org.dcm4che2.net.VirtualThreadExecutor;
 import org.dcm4che2.net.service.VerificationService;
 import org.dcm4che2.util.CloseUtils;
 import org.slf4j.Logger;
@@ -210,7 +215,7 @@ public class DcmRcv {
             UID.SiemensCSANonImageStorage,
             UID.Dcm4cheAttributesModificationNotificationSOPClass };
 
-    private final Executor executor;
+    private Executor executor;
 
     private final Device device;
 
@@ -239,6 +244,8 @@ public class DcmRcv {
 
     private int fileBufferSize = 1024;
 
+    private boolean fsync = false;
+
     private int rspdelay = 0;
 
     private String keyStoreURL = "resource:tls/test_sys_2.p12";
@@ -356,6 +363,30 @@ public class DcmRcv {
         nc.setTcpNoDelay(tcpNoDelay);
     }
 
+    public final void setVirtualThreads() {
+        executor = new VirtualThreadExecutor(device.getDeviceName());
+    }
+
+    public final void setNonBlocking(int maxThreads) {
+        nc.setNonBlocking(true);
+        // one additional thread for the selector loop
+        executor = Executors.newFixedThreadPool(maxThreads + 1,
+                new ThreadFactory() {
+                    private final AtomicInteger threadId = new AtomicInteger();
+
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, device.getDeviceName() + "-"
+                                + threadId.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+    }
+
+    public final void setDirectBuffers(boolean direct) {
+        device.getBufferPool().setDirect(direct);
+    }
+
     public final void setAcceptTimeout(int timeout) {
         nc.setAcceptTimeout(timeout);
     }
@@ -664,6 +695,23 @@ public class DcmRcv {
         opts.addOption("tcpdelay", false,
                 "set TCP_NODELAY socket option to false, true by default");
 
+        OptionBuilder.withArgName("num");
+        OptionBuilder.hasArg();
+        OptionBuilder.withDescription(
+                "serve associations by non-blocking I/O with specified number "
+                + "of worker threads, one thread per association by default. "
+                + "Received PDV payload is transfered from the socket channel "
+                + "to the file by direct buffers without copy.");
+        opts.addOption(OptionBuilder.create("nio"));
+
+        opts.addOption("directbuf", false, "encode PDUs into direct buffers, "
+                + "which are written to the socket channel without copy. "
+                + "Requires option -nio, because sockets accepted by blocking "
+                + "I/O have no socket channel.");
+
+        opts.addOption("vthreads", false, "run each association in a virtual "
+                + "thread, if supported by the JVM (Java 21 or later).");
+
         OptionBuilder.withArgName("ms");
         OptionBuilder.hasArg();
         OptionBuilder.withDescription(
@@ -749,6 +797,10 @@ public class DcmRcv {
                 "minimal buffer size to write received object to file, 1KB by default");
         opts.addOption(OptionBuilder.create("bufsize"));
 
+        opts.addOption("fsync", false,
+                "sync received object to the storage device before "
+                + "sending the C-STORE response");
+
         opts.addOption("h", "help", false, "print this message");
         opts.addOption("V", "version", false,
                 "print the version information and exit");
@@ -893,9 +945,17 @@ public class DcmRcv {
             dcmrcv.setFileBufferSize(parseInt(cl.getOptionValue("bufsize"),
                     "illegal argument of option -bufsize", 1, 10000)
                     * KB);
+        dcmrcv.setFsync(cl.hasOption("fsync"));
 
         dcmrcv.setPackPDV(!cl.hasOption("pdv1"));
         dcmrcv.setTcpNoDelay(!cl.hasOption("tcpdelay"));
+        if (cl.hasOption("vthreads"))
+            dcmrcv.setVirtualThreads();
+        if (cl.hasOption("nio"))
+            dcmrcv.setNonBlocking(parseInt(cl.getOptionValue("nio"),
+                    "illegal argument of option -nio", 1, 1000));
+        if (cl.hasOption("directbuf"))
+            dcmrcv.setDirectBuffers(true);
         if (cl.hasOption("async"))
             dcmrcv.setMaxOpsPerformed(parseInt(cl.getOptionValue("async"),
                     "illegal argument of option -async", 0, 0xffff));
@@ -954,6 +1014,16 @@ public class DcmRcv {
             dcmrcv.start();
         } catch (IOException e) {
             e.printStackTrace();
+            return;
+        }
+        // associations are served by daemon threads with options -nio and
+        // -vthreads, which do not keep the JVM alive
+        if (cl.hasOption("nio") || cl.hasOption("vthreads")) {
+            try {
+                Thread.currentThread().join();
+            } catch (InterruptedException e) {
+                // exit
+            }
         }
     }
 
@@ -983,6 +1053,10 @@ public class DcmRcv {
         fileBufferSize = size;
     }
 
+    public void setFsync(boolean fsync) {
+        this.fsync = fsync;
+    }
+
     public void setMaxOpsPerformed(int maxOps) {
         ae.setMaxOpsPerformed(maxOps);
     }
@@ -1138,17 +1212,20 @@ public class DcmRcv {
                 : new File(mkDir(as), iuid + ".part");
         LOG.info("M-WRITE {}", file);
         try {
-            DicomOutputStream dos = new DicomOutputStream(
-                    new BufferedOutputStream(
-                            new FileOutputStream(file),
-                            fileBufferSize));
+            FileOutputStream fos = new FileOutputStream(file);
             try {
+                DicomOutputStream dos = new DicomOutputStream(
+                        new BufferedOutputStream(fos, fileBufferSize));
                 BasicDicomObject fmi = new BasicDicomObject();
                 fmi.initFileMetaInformation(cuid, iuid, tsuid);
                 dos.writeFileMetaInformation(fmi);
-                dataStream.copyTo(dos);
+                dos.flush();
+                FileChannel fc = fos.getChannel();
+                dataStream.transferTo(fc);
+                if (fsync && devnull == null)
+                    fc.force(false);
             } finally {
-                CloseUtils.safeClose(dos);
+                CloseUtils.safeClose(fos);
             }
         } catch (IOException e) {
             if (devnull == null && file != null) {
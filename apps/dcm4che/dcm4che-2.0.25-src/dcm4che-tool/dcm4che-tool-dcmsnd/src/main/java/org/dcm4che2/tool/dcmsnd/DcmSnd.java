@@ -44,6 +44,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.channels.FileChannel;
 import java.security.GeneralSecurityException;
 import java.security.KeyStore;
 import java.util.ArrayList;
@@ -55,6 +56,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.GnuParser;
@@ -80,12 +82,13 @@ import org.dcm4che2.net.CommandUtils;
 import org.dcm4che2.net.ConfigurationException;
 import org.dcm4che2.net.Device;
 import org.dcm4che2.net.DimseRSP;
-import org.dcm4che2.net.DimseRSPHandler;
+import org.dcm4che2.net.DimseRSPFuture;
 import org.dcm4che2.net.NetworkApplicationEntity;
 import org.dcm4che2.net.NetworkConnection;
 import org.dcm4che2.net.NewThreadExecutor;
 import org.dcm4che2.net.NoPresentationContextException;
 import org.dcm4che2.net.PDVOutputStream;
+import org.dcm4che2.net.PipelinedStoreSCU;
 import org.dcm4che2.net.TransferCapability;
 import org.dcm4che2.net.UserIdentity;
 import org.dcm4che2.net.service.StorageCommitmentService;
@@ -190,6 +193,10 @@ public class DcmSnd extends StorageCommitmentService {
 
     private Association assoc;
 
+    private PipelinedStoreSCU storer;
+
+    private int fanout = 1;
+
     private int priority = 0;
     
     private int transcoderBufferSize = 1024;
@@ -365,6 +372,12 @@ public class DcmSnd extends StorageCommitmentService {
         ae.setMaxOpsInvoked(maxOpsInvoked);
     }
 
+    public final void setFanout(int fanout) {
+        if (fanout < 1)
+            throw new IllegalArgumentException("fanout: " + fanout);
+        this.fanout = fanout;
+    }
+
     public final void setPackPDV(boolean packPDV) {
         ae.setPackPDV(packPDV);
     }
@@ -385,6 +398,10 @@ public class DcmSnd extends StorageCommitmentService {
         conn.setTcpNoDelay(tcpNoDelay);
     }
 
+    public final void setNonBlocking(boolean nonBlocking) {
+        conn.setNonBlocking(nonBlocking);
+    }
+
     public final void setAcceptTimeout(int timeout) {
         conn.setAcceptTimeout(timeout);
     }
@@ -561,11 +578,22 @@ public class DcmSnd extends StorageCommitmentService {
                 "asynchronously, unlimited by default.");
         opts.addOption(OptionBuilder.create("async"));
 
+        OptionBuilder.withArgName("num");
+        OptionBuilder.hasArg();
+        OptionBuilder.withDescription(
+                "spread C-STORE RQs over <num> associations to the same " +
+                "remote AE, 1 by default.");
+        opts.addOption(OptionBuilder.create("fanout"));
+
         opts.addOption("pdv1", false,
                 "send only one PDV in one P-Data-TF PDU, " + 
                 "pack command and data PDV in one P-DATA-TF PDU by default.");
         opts.addOption("tcpdelay", false,
                 "set TCP_NODELAY socket option to false, true by default");
+        opts.addOption("nio", false,
+                "connect by non-blocking socket channel, which allows to " +
+                "transfer unchanged files directly to the socket; not " +
+                "effective with TLS");
 
         OptionBuilder.withArgName("ms");
         OptionBuilder.hasArg();
@@ -785,9 +813,13 @@ public class DcmSnd extends StorageCommitmentService {
                     "illegal argument of option -bufsize", 1, 10000) * KB);
         dcmsnd.setPackPDV(!cl.hasOption("pdv1"));
         dcmsnd.setTcpNoDelay(!cl.hasOption("tcpdelay"));
+        dcmsnd.setNonBlocking(cl.hasOption("nio"));
         if (cl.hasOption("async"))
             dcmsnd.setMaxOpsInvoked(parseInt(cl.getOptionValue("async"),
                     "illegal argument of option -async", 0, 0xffff));
+        if (cl.hasOption("fanout"))
+            dcmsnd.setFanout(parseInt(cl.getOptionValue("fanout"),
+                    "illegal argument of option -fanout", 1, 100));
         if (cl.hasOption("lowprior"))
             dcmsnd.setPriority(CommandUtils.LOW);
         if (cl.hasOption("highprior"))
@@ -1133,67 +1165,88 @@ public class DcmSnd extends StorageCommitmentService {
     
     public void open() throws IOException, ConfigurationException,
             InterruptedException {
-        assoc = ae.connect(remoteAE, executor);
+        if (fanout > 1) {
+            storer = PipelinedStoreSCU.open(ae, remoteAE, executor, fanout, 0);
+            assoc = storer.getAssociations()[0];
+        } else {
+            assoc = ae.connect(remoteAE, executor);
+            storer = new PipelinedStoreSCU(new Association[] { assoc }, 0);
+        }
     }
 
     public void openToStgcmtAE() throws IOException, ConfigurationException,
             InterruptedException {
+        storer = null;
         assoc = ae.connect(remoteStgcmtAE, executor);
     }
 
     public void send() {
-        for (int i = 0, n = files.size(); i < n; ++i) {
-            FileInfo info = files.get(i);
-            TransferCapability tc = assoc.getTransferCapabilityAsSCU(info.cuid);
-            if (tc == null) {
-                System.out.println();
-                System.out.println(UIDDictionary.getDictionary().prompt(
-                        info.cuid)
-                        + " not supported by " + remoteAE.getAETitle());
-                System.out.println("skip file " + info.f);
-                continue;
-            }
-            String tsuid = selectTransferSyntax(tc.getTransferSyntax(),
-                    fileref ? DCM4CHEE_URI_REFERENCED_TS_UID : info.tsuid);
-            if (tsuid == null) {
-                System.out.println();
-                System.out.println(UIDDictionary.getDictionary().prompt(
-                        info.cuid)
-                        + " with "
-                        + UIDDictionary.getDictionary().prompt(
-                                fileref ? DCM4CHEE_URI_REFERENCED_TS_UID 
-                                        : info.tsuid)
-                        + " not supported by " + remoteAE.getAETitle());
-                System.out.println("skip file " + info.f);
-                continue;
-            }
-            try {
-                DimseRSPHandler rspHandler = new DimseRSPHandler() {
-                    @Override
-                    public void onDimseRSP(Association as, DicomObject cmd,
-                            DicomObject data) {
-                        DcmSnd.this.onDimseRSP(cmd);
-                    }
-                };
-
-                assoc.cstore(info.cuid, info.iuid, priority,
-                        new DataWriter(info), tsuid, rspHandler);
-            } catch (NoPresentationContextException e) {
-                System.err.println("WARNING: " + e.getMessage()
-                        + " - cannot send " + info.f);
-                System.out.print('F');
-            } catch (IOException e) {
-                e.printStackTrace();
-                System.err.println("ERROR: Failed to send - " + info.f + ": "
-                        + e.getMessage());
-                System.out.print('F');
-            } catch (InterruptedException e) {
-                // should not happen
-                e.printStackTrace();
+        final AtomicInteger next = new AtomicInteger();
+        Runnable sender = new Runnable() {
+            public void run() {
+                for (int i; (i = next.getAndIncrement()) < files.size();)
+                    send(files.get(i));
             }
+        };
+        Thread[] threads = new Thread[fanout - 1];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(sender, "DcmSnd-" + (i + 1));
+            threads[i].start();
+        }
+        sender.run();
+        try {
+            for (int i = 0; i < threads.length; i++)
+                threads[i].join();
+            storer.waitForOutstandingRSP();
+        } catch (InterruptedException e) {
+            // should not happen
+            e.printStackTrace();
+        }
+    }
+
+    private void send(final FileInfo info) {
+        TransferCapability tc = assoc.getTransferCapabilityAsSCU(info.cuid);
+        if (tc == null) {
+            System.out.println();
+            System.out.println(UIDDictionary.getDictionary().prompt(
+                    info.cuid)
+                    + " not supported by " + remoteAE.getAETitle());
+            System.out.println("skip file " + info.f);
+            return;
+        }
+        String tsuid = selectTransferSyntax(tc.getTransferSyntax(),
+                fileref ? DCM4CHEE_URI_REFERENCED_TS_UID : info.tsuid);
+        if (tsuid == null) {
+            System.out.println();
+            System.out.println(UIDDictionary.getDictionary().prompt(
+                    info.cuid)
+                    + " with "
+                    + UIDDictionary.getDictionary().prompt(
+                            fileref ? DCM4CHEE_URI_REFERENCED_TS_UID 
+                                    : info.tsuid)
+                    + " not supported by " + remoteAE.getAETitle());
+            System.out.println("skip file " + info.f);
+            return;
         }
         try {
-            assoc.waitForDimseRSP();
+            DimseRSPFuture rsp = storer.cstore(info.cuid, info.iuid,
+                    priority, new DataWriter(info), tsuid);
+            rsp.addListener(new DimseRSPFuture.Listener() {
+                public void onComplete(DimseRSPFuture future) {
+                    DicomObject cmd = future.getCommand();
+                    if (cmd != null)
+                        onDimseRSP(info, cmd);
+                }
+            });
+        } catch (NoPresentationContextException e) {
+            System.err.println("WARNING: " + e.getMessage()
+                    + " - cannot send " + info.f);
+            System.out.print('F');
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.err.println("ERROR: Failed to send - " + info.f + ": "
+                    + e.getMessage());
+            System.out.print('F');
         } catch (InterruptedException e) {
             // should not happen
             e.printStackTrace();
@@ -1266,7 +1319,12 @@ public class DcmSnd extends StorageCommitmentService {
 
     public void close() {
         try {
-            assoc.release(false);
+            if (storer != null) {
+                storer.release(false);
+                storer = null;
+            } else {
+                assoc.release(false);
+            }
         } catch (InterruptedException e) {
             e.printStackTrace();
         }
@@ -1329,10 +1387,9 @@ public class DcmSnd extends StorageCommitmentService {
             } else if (tsuid.equals(info.tsuid)) {
                 FileInputStream fis = new FileInputStream(info.f);
                 try {
-                    long skip = info.fmiEndPos;
-                    while (skip > 0)
-                        skip -= fis.skip(skip);
-                    out.copyFrom(fis);
+                    FileChannel fc = fis.getChannel();
+                    out.copyFrom(fc, info.fmiEndPos,
+                            fc.size() - info.fmiEndPos);
                 } finally {
                     fis.close();
                 }
@@ -1404,10 +1461,8 @@ public class DcmSnd extends StorageCommitmentService {
         System.err.println(cmd.toString());
     }
 
-    private void onDimseRSP(DicomObject cmd) {
+    private synchronized void onDimseRSP(FileInfo info, DicomObject cmd) {
         int status = cmd.getInt(Tag.Status);
-        int msgId = cmd.getInt(Tag.MessageIDBeingRespondedTo);
-        FileInfo info = files.get(msgId - 1);
         info.status = status;
         switch (status) {
         case 0:
@@ -58,10 +58,12 @@ import org.dcm4che2.data.BasicDicomObject;
 import org.dcm4che2.data.DicomObject;
 import org.dcm4che2.data.TransferSyntax;
 import org.dcm4che2.io.ContentHandlerAdapter;
+import org.dcm4che2.io.ContentHandlerWriter;
 import org.dcm4che2.io.DicomInputStream;
 import org.dcm4che2.io.DicomOutputStream;
 import org.dcm4che2.util.CloseUtils;
 import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
 
 /**
  * @author gunter zeilinger(gunterze@gmail.com)
@@ -72,7 +74,7 @@ import org.xml.sax.SAXException;
 public class Xml2Dcm {
 
     private static final String USAGE = "xml2dcm [-geEuUVh] [-a|-d] [-t <tsuid>] " +
-            "[-i <dcmfile>] [-x [<xmlfile>] -d <basedir>] -o <dcmfile>";
+            "[-i <dcmfile>] [-x [<xmlfile>] -d <basedir>] [-S] -o <dcmfile>";
     private static final String DESCRIPTION = "Modify existing or create " +
             "new DICOM file according given XML presentation and store result " +
             "as ACR/NEMA-2 dump (option: -a) or DICOM Part 10 file " +
@@ -80,7 +82,9 @@ public class Xml2Dcm {
             "inclusion of Part 10 File Meta Information depends, if the input " +
             "DICOM file or the XML presentation already includes File Meta " +
             "Information attributes (0002,eeee). Either option -i <dcmfile> or" +
-            "-x [<xmlfile>] (or both) must be specified.\n" +
+            "-x [<xmlfile>] (or both) must be specified. With option -S, " +
+            "the XML presentation is written to <dcmfile> while it is " +
+            "parsed, which requires attributes in ascending tag order.\n" +
             "Options:";
     private static final String EXAMPLE = "\nExample: xml2dcm -x in.xml -o out.dcm\n" +
             " => Convert XML presentation in.xml to DICOM file out.dcm\n" +
@@ -136,6 +140,11 @@ public class Xml2Dcm {
         opts.addOption("u", "undefitemlen", false, 
                 "Encode all sequence items with undefined length. Mutual " +
                 "exclusive with option -e.");
+        opts.addOption("S", "stream", false, 
+                "Write attributes to <dcmfile> while parsing the XML input, " +
+                "without loading the whole object into memory. Sequences " +
+                "and items are encoded with undefined length. Cannot be " +
+                "combined with options -i, -d, -g, -e and -E.");
         opts.addOption("h", "help", false, "print this message");
         opts.addOption("V", "version", false,
                 "print the version information and exit");
@@ -163,6 +172,14 @@ public class Xml2Dcm {
             exit("xml2dcm: Option -e and -u are mutual exclusive");
         if (cl.hasOption("E") && cl.hasOption("U"))
             exit("xml2dcm: Option -E and -U are mutual exclusive");
+        if (cl.hasOption("S")) {
+            if (!cl.hasOption("x"))
+                exit("xml2dcm: Option -S requires option -x");
+            if (cl.hasOption("i") || cl.hasOption("d") || cl.hasOption("g")
+                    || cl.hasOption("e") || cl.hasOption("E"))
+                exit("xml2dcm: Option -S cannot be combined with " +
+                        "-i, -d, -g, -e or -E");
+        }
         return cl;
     }
 
@@ -175,6 +192,10 @@ public class Xml2Dcm {
 
     public static void main(String[] args) {
         CommandLine cl = parse(args);
+        if (cl.hasOption("S")) {
+            stream(cl);
+            return;
+        }
         DicomObject dcmobj = new BasicDicomObject();
         if (cl.hasOption("i")) {
             File ifile = new File(cl.getOptionValue("i"));
@@ -253,12 +274,57 @@ public class Xml2Dcm {
         }
      }
 
+    private static void stream(CommandLine cl) {
+        String xmlFile = cl.getOptionValue("x");
+        File ofile = new File(cl.getOptionValue("o"));
+        DicomOutputStream dos = null;
+        try {
+            dos = new DicomOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(ofile)));
+            ContentHandlerWriter ch = new ContentHandlerWriter(dos);
+            ch.setIncludeFileMetaInfo(!cl.hasOption("a"));
+            String tsuid = cl.getOptionValue("t");
+            if (tsuid != null)
+                ch.setTransferSyntax(TransferSyntax.valueOf(tsuid));
+            parseXML(xmlFile, ch, cl.getOptionValue("d"));
+            System.out.println(ch.isFileMetaInfoWritten()
+                    ? "Created DICOM File " + ofile
+                    : "Created ACR/NEMA Dump " + ofile);
+        } catch (FactoryConfigurationError e) {
+            System.err.println("xml2dcm: Configuration Error: " 
+                    + e.getMessage());
+            System.exit(1);
+        } catch (ParserConfigurationException e) {
+            System.err.println("xml2dcm: Configuration Error: " 
+                    + e.getMessage());
+            System.exit(1);
+        } catch (SAXException e) {
+            System.err.println("xml2dcm: failed to convert XML from " +
+                    (xmlFile != null ? xmlFile : " standard input") 
+                    + ": " + e.getMessage());
+            e.printStackTrace(System.err);
+            System.exit(1);
+        } catch (IOException e) {
+            System.err.println("xml2dcm: failed to create " + ofile + ": "
+                    + e.getMessage());
+            e.printStackTrace(System.err);
+            System.exit(1);
+        } finally {
+            CloseUtils.safeClose(dos);
+        }
+    }
+
     private static void parseXML(String xmlFile, DicomObject dcmobj, String baseDir)
             throws FactoryConfigurationError, ParserConfigurationException, 
                     SAXException, IOException {
+        parseXML(xmlFile, new ContentHandlerAdapter(dcmobj), baseDir);
+    }
+
+    private static void parseXML(String xmlFile, DefaultHandler ch,
+            String baseDir) throws FactoryConfigurationError,
+            ParserConfigurationException, SAXException, IOException {
         SAXParserFactory f = SAXParserFactory.newInstance();
         SAXParser p = f.newSAXParser();
-        ContentHandlerAdapter ch = new ContentHandlerAdapter(dcmobj);
         if (xmlFile != null) {
             p.parse(new File(xmlFile), ch);
         } else if (baseDir != null ){